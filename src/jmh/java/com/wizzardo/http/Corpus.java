@@ -0,0 +1,123 @@
+package com.wizzardo.http;
+
+import com.wizzardo.tools.io.IOTools;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Recorded requests from src/jmh/resources/corpus, stored with '\n' line endings and converted to '\r\n' on load.
+ * All requests of a corpus are kept in one array as they would arrive in a pipelined batch.
+ */
+public class Corpus {
+
+    public final String name;
+    public final byte[] bytes;
+    /**
+     * pairs of offset and length of each request including its body
+     */
+    public final int[] requests;
+    /**
+     * pairs of offset and length of each request path without query string
+     */
+    public final int[] paths;
+    /**
+     * pairs of offset and length of each header name and value
+     */
+    public final int[] headers;
+
+    protected Corpus(String name, byte[] bytes) {
+        this.name = name;
+        this.bytes = bytes;
+
+        List<Integer> requests = new ArrayList<>();
+        List<Integer> paths = new ArrayList<>();
+        List<Integer> headers = new ArrayList<>();
+        int offset = 0;
+        while (offset < bytes.length) {
+            int lineEnd = indexOf(bytes, offset, "\r\n");
+            int pathStart = indexOf(bytes, offset, " ") + 1;
+            int pathEnd = pathStart;
+            while (bytes[pathEnd] != ' ' && bytes[pathEnd] != '?')
+                pathEnd++;
+            paths.add(pathStart);
+            paths.add(pathEnd - pathStart);
+
+            int contentLength = 0;
+            int position = lineEnd + 2;
+            while (position < bytes.length && bytes[position] != '\r') {
+                int end = indexOf(bytes, position, "\r\n");
+                int colon = indexOf(bytes, position, ":");
+                headers.add(position);
+                headers.add(colon - position);
+                headers.add(colon + 2);
+                headers.add(end - colon - 2);
+                if (new String(bytes, position, colon - position, StandardCharsets.US_ASCII).equalsIgnoreCase("Content-Length"))
+                    contentLength = Integer.parseInt(new String(bytes, colon + 2, end - colon - 2, StandardCharsets.US_ASCII));
+                position = end + 2;
+            }
+
+            int end = position + 2 + contentLength;
+            requests.add(offset);
+            requests.add(end - offset);
+            offset = end;
+        }
+
+        this.requests = toArray(requests);
+        this.paths = toArray(paths);
+        this.headers = toArray(headers);
+    }
+
+    public static Corpus load(String name) {
+        try (InputStream in = Corpus.class.getResourceAsStream("/corpus/" + name + ".http")) {
+            if (in == null)
+                throw new IllegalArgumentException("Unknown corpus: " + name);
+
+            String s = new String(IOTools.bytes(in), StandardCharsets.UTF_8);
+            return new Corpus(name, s.replace("\r\n", "\n").replace("\n", "\r\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public int count() {
+        return requests.length / 2;
+    }
+
+    /**
+     * @return copies of request paths, as they are passed to Path.parse by RequestReader
+     */
+    public byte[][] paths() {
+        byte[][] result = new byte[paths.length / 2][];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Arrays.copyOfRange(bytes, paths[i * 2], paths[i * 2] + paths[i * 2 + 1]);
+        }
+        return result;
+    }
+
+    protected static int indexOf(byte[] bytes, int from, String s) {
+        outer:
+        for (int i = from; i <= bytes.length - s.length(); i++) {
+            for (int j = 0; j < s.length(); j++) {
+                if (bytes[i + j] != s.charAt(j))
+                    continue outer;
+            }
+            return i;
+        }
+        throw new IllegalStateException("Can't find '" + s + "' after " + from);
+    }
+
+    protected static int[] toArray(List<Integer> list) {
+        int[] ints = new int[list.size()];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = list.get(i);
+        }
+        return ints;
+    }
+}
@@ -0,0 +1,98 @@
+package com.wizzardo.http;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Dispatches batches of tasks from producer threads (io-threads) to a pool of consumers (workers)
+ * and waits until the whole batch is processed.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(2)
+@State(Scope.Benchmark)
+public class WorkQueueBenchmark {
+
+    static final int BATCH = 64;
+
+    @Param({"blocking", "work-stealing"})
+    String queue;
+
+    @Param({"4"})
+    int workers;
+
+    BlockingQueue<Task> tasks;
+    List<Thread> threads;
+
+    static class Task {
+        final AtomicInteger pending;
+
+        Task(AtomicInteger pending) {
+            this.pending = pending;
+        }
+
+        void run() {
+            pending.decrementAndGet();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Producer {
+        AtomicInteger pending = new AtomicInteger();
+        Task[] batch = new Task[BATCH];
+
+        @Setup
+        public void setup() {
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = new Task(pending);
+            }
+        }
+    }
+
+    @Setup
+    public void setup() {
+        tasks = queue.equals("blocking") ? new LinkedBlockingQueue<>() : new WorkStealingQueue<>(workers, 1 << 16);
+        threads = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    while (true) {
+                        tasks.take().run();
+                    }
+                } catch (InterruptedException ignored) {
+                }
+            }, "worker_" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        threads.forEach(Thread::interrupt);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void dispatch(Producer producer) {
+        producer.pending.set(BATCH);
+        for (Task task : producer.batch) {
+            tasks.offer(task);
+        }
+        while (producer.pending.get() > 0) {
+            Thread.yield();
+        }
+    }
+}
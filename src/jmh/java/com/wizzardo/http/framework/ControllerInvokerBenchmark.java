@@ -0,0 +1,68 @@
+package com.wizzardo.http.framework;
+
+import com.wizzardo.http.framework.parameters.Parameter;
+import com.wizzardo.http.framework.parameters.ParametersHelper;
+import com.wizzardo.http.request.Request;
+import com.wizzardo.http.request.RequestReader;
+import com.wizzardo.tools.interfaces.Mapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Maps request parameters and calls an action with primitive arguments
+ * through Method.invoke with boxed arguments and through a compiled method handle.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ControllerInvokerBenchmark {
+
+    public static class BenchmarkController extends Controller {
+        public Object sum(@Parameter(name = "a") int a, @Parameter(name = "b") long b, @Parameter(name = "c") String c) {
+            return c.length() + a + b;
+        }
+    }
+
+    BenchmarkController controller;
+    Method method;
+    Mapper<Request, Object>[] mappers;
+    MethodHandle action;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        method = BenchmarkController.class.getMethod("sum", int.class, long.class, String.class);
+        java.lang.reflect.Parameter[] parameters = method.getParameters();
+        mappers = new Mapper[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            mappers[i] = ParametersHelper.createParametersMapper(parameters[i], parameters[i].getParameterizedType());
+        }
+        action = ControllerHandler.compileAction(method, mappers);
+
+        RequestReader reader = new RequestReader();
+        reader.read("GET /?a=42&b=100500&c=value HTTP/1.1\r\n\r\n".getBytes());
+        controller = new BenchmarkController();
+        controller.request = reader.fillRequest(new Request(null));
+    }
+
+    @Benchmark
+    public Object reflective() throws Exception {
+        Object[] args = new Object[mappers.length];
+        for (int i = 0; i < mappers.length; i++) {
+            args[i] = mappers[i].map(controller.request);
+        }
+        return method.invoke(controller, args);
+    }
+
+    @Benchmark
+    public Object compiled() {
+        return ControllerHandler.invoke(action, controller);
+    }
+}
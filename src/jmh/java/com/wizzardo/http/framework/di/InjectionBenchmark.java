@@ -0,0 +1,72 @@
+package com.wizzardo.http.framework.di;
+
+import com.wizzardo.tools.reflection.FieldReflection;
+import com.wizzardo.tools.reflection.FieldReflectionFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Injects 3 singletons into a new prototype instance, resolving each field through DependencyFactory
+ * and with dependencies resolved once by an InjectionPlan.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InjectionBenchmark {
+
+    @Injectable
+    public static class ServiceA {
+    }
+
+    @Injectable
+    public static class ServiceB {
+    }
+
+    @Injectable
+    public static class ServiceC {
+    }
+
+    @Injectable(scope = DependencyScope.PROTOTYPE)
+    public static class Target {
+        ServiceA a;
+        ServiceB b;
+        ServiceC c;
+    }
+
+    FieldReflection[] fields;
+    InjectionPlan plan;
+
+    @Setup
+    public void setup() {
+        FieldReflectionFactory reflectionFactory = new FieldReflectionFactory();
+        Field[] declaredFields = Target.class.getDeclaredFields();
+        fields = new FieldReflection[declaredFields.length];
+        for (int i = 0; i < declaredFields.length; i++) {
+            fields[i] = reflectionFactory.create(declaredFields[i], true);
+        }
+        plan = DependencyFactory.get().plan(Target.class);
+    }
+
+    @Benchmark
+    public Target lookup() {
+        Target target = new Target();
+        for (FieldReflection field : fields) {
+            field.setObject(target, DependencyFactory.get(field.getField()));
+        }
+        return target;
+    }
+
+    @Benchmark
+    public Target plan() {
+        Target target = new Target();
+        plan.inject(target);
+        return target;
+    }
+}
@@ -0,0 +1,77 @@
+package com.wizzardo.http.framework.template;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Renders typical GSP expressions with compiled property access and with EvalTools only.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExpressionBenchmark {
+
+    public static class User {
+        private final String name = "John";
+        private final int age = 42;
+        private final Address address = new Address();
+        private final Map<String, Object> meta = Collections.singletonMap("role", "admin");
+
+        public String getName() {
+            return name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+
+        public Map<String, Object> getMeta() {
+            return meta;
+        }
+    }
+
+    public static class Address {
+        public String city = "Berlin";
+    }
+
+    Model model;
+    ExpressionHolder[] holders;
+
+    @Setup
+    public void setup() {
+        model = new Model().append("user", new User()).append("title", "Users");
+        String[] expressions = {"${title}", "${user.name}", "${user.age}", "${user.address.city}", "${user.meta.role}"};
+        holders = new ExpressionHolder[expressions.length];
+        for (int i = 0; i < expressions.length; i++) {
+            holders[i] = new ExpressionHolder(expressions[i], null, true);
+            holders[i].get(model);
+        }
+    }
+
+    @Benchmark
+    public void compiled(Blackhole bh) {
+        for (ExpressionHolder holder : holders) {
+            bh.consume(holder.get(model));
+        }
+    }
+
+    @Benchmark
+    public void interpreted(Blackhole bh) {
+        for (ExpressionHolder holder : holders) {
+            bh.consume(new RenderResult(String.valueOf(holder.evaluate(model))));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.wizzardo.http.framework.template;
+
+import com.wizzardo.epoll.readable.ReadableBuilder;
+import com.wizzardo.epoll.readable.ReadableData;
+import com.wizzardo.http.framework.template.taglib.g.Each;
+import com.wizzardo.tools.xml.GspParser;
+import com.wizzardo.tools.xml.Node;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Renders a page with a table of 50 rows into ReadableData through a RenderResult tree and by streaming into pooled buffers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RenderBenchmark {
+
+    Model model;
+    RenderableList view;
+
+    @Setup
+    public void setup() {
+        TagLib.findTags(Collections.singletonList(Each.class));
+        Node html = new GspParser().parse("" +
+                "<html><head><title>${title}</title></head><body>" +
+                "<table><g:each in=\"${rows}\" var=\"row\">" +
+                "<tr><td>${row}</td><td class=\"cell\">${title}</td></tr>" +
+                "</g:each></table></body></html>");
+
+        view = new RenderableList();
+        new ViewRenderingService().prepare(html.children(), view, "", "");
+
+        List<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            rows.add(i);
+        }
+        model = new Model().append("title", "Rows").append("rows", rows);
+    }
+
+    @Benchmark
+    public long tree() throws IOException {
+        ReadableBuilder builder = new ReadableBuilder();
+        view.get(model).provideBytes(builder::append);
+        long length = builder.length();
+        builder.close();
+        return length;
+    }
+
+    @Benchmark
+    public long streaming() throws IOException {
+        RenderOutput out = new RenderOutput();
+        view.render(model, out);
+        ReadableData data = out.toReadableData();
+        long length = data.length();
+        data.close();
+        return length;
+    }
+}
@@ -0,0 +1,94 @@
+package com.wizzardo.http.http2;
+
+import com.wizzardo.http.http2.hpack.HpackDecoder;
+import com.wizzardo.http.http2.hpack.HpackEncoder;
+import com.wizzardo.tools.io.IOTools;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Decodes header blocks of RFC 7541 examples from src/jmh/resources/corpus with a fresh dynamic table,
+ * one operation is one sequence of blocks, as they would be received on a new connection.
+ * Encoding is measured on typical responses of one connection, where only content-length differs.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HpackBenchmark {
+
+    @Param({"rfc7541-requests", "rfc7541-requests-huffman", "rfc7541-responses", "rfc7541-responses-huffman"})
+    String corpus;
+
+    byte[][] blocks;
+    int tableSize;
+    HpackEncoder encoder = new HpackEncoder();
+    String[] contentLengths = {"1234", "42", "65536"};
+    int decoded;
+    HpackDecoder.HeaderConsumer consumer = (name, value) -> decoded += name.length() + value.length();
+
+    @Setup
+    public void setup() {
+        blocks = load(corpus);
+        tableSize = corpus.startsWith("rfc7541-responses") ? 256 : 4096;
+    }
+
+    @Benchmark
+    public int decode() {
+        decoded = 0;
+        HpackDecoder decoder = new HpackDecoder(tableSize);
+        for (byte[] block : blocks) {
+            decoder.decode(block, 0, block.length, consumer);
+        }
+        return decoded;
+    }
+
+    @Benchmark
+    public int encode() {
+        int total = 0;
+        for (String contentLength : contentLengths) {
+            encoder.reset()
+                    .encode(":status", "200")
+                    .encode("date", "Sun, 18 Oct 2026 16:13:55 GMT")
+                    .encode("server", "wizzardo-http/0.1")
+                    .encode("content-type", "text/html;charset=UTF-8")
+                    .encode("content-length", contentLength);
+            total += encoder.length();
+        }
+        return total;
+    }
+
+    static byte[][] load(String name) {
+        try (InputStream in = HpackBenchmark.class.getResourceAsStream("/corpus/" + name + ".hpack")) {
+            if (in == null)
+                throw new IllegalArgumentException("Corpus not found: " + name);
+
+            List<byte[]> blocks = new ArrayList<>();
+            for (String line : new String(IOTools.bytes(in), StandardCharsets.UTF_8).split("\n")) {
+                line = line.replace(" ", "").trim();
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+
+                byte[] bytes = new byte[line.length() / 2];
+                for (int i = 0; i < bytes.length; i++) {
+                    bytes[i] = (byte) Integer.parseInt(line.substring(i * 2, i * 2 + 2), 16);
+                }
+                blocks.add(bytes);
+            }
+            return blocks.toArray(new byte[blocks.size()][]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
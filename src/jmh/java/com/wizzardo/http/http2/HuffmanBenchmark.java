@@ -0,0 +1,92 @@
+package com.wizzardo.http.http2;
+
+import com.wizzardo.http.http2.hpack.StaticHttp2HuffmanTable;
+import com.wizzardo.http.http2.huffman.HuffmanTable;
+import com.wizzardo.http.http2.huffman.HuffmanTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Compares bit-by-bit walking of {@link HuffmanTree} with the table-driven {@link HuffmanTable}
+ * on typical header values, one operation is encoding or decoding of all of them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HuffmanBenchmark {
+
+    static final String[] VALUES = {
+            "www.example.com",
+            "no-cache",
+            "Mon, 21 Oct 2013 20:13:21 GMT",
+            "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8",
+            "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/70.0.3538.77 Safari/537.36",
+            "gzip, deflate, br",
+            "en-US,en;q=0.9",
+            "JSESSIONID=8F3D2A1B9C7E6F5A4B3C2D1E0F9A8B7C; _ga=GA1.2.1234567890.1540000000",
+            "/api/v1/users/12345/orders?page=2&size=50",
+    };
+
+    HuffmanTree tree = StaticHttp2HuffmanTable.huffman;
+    HuffmanTable table = StaticHttp2HuffmanTable.huffmanTable;
+    char[][] chars = new char[VALUES.length][];
+    byte[][] encoded = new byte[VALUES.length][];
+    byte[] buffer = new byte[1024];
+    int decoded;
+    HuffmanTree.CharConsumer consumer = ch -> {
+        decoded++;
+        return true;
+    };
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < VALUES.length; i++) {
+            chars[i] = VALUES[i].toCharArray();
+            int length = table.encode(chars[i], 0, chars[i].length, buffer, 0);
+            encoded[i] = new byte[length];
+            System.arraycopy(buffer, 0, encoded[i], 0, length);
+        }
+    }
+
+    @Benchmark
+    public int decode_tree() {
+        decoded = 0;
+        for (byte[] bytes : encoded) {
+            tree.decode(bytes, 0, bytes.length, consumer);
+        }
+        return decoded;
+    }
+
+    @Benchmark
+    public int decode_table() {
+        int total = 0;
+        for (byte[] bytes : encoded) {
+            total += table.decode(bytes, 0, bytes.length, buffer, 0);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int encode_tree() {
+        int total = 0;
+        for (char[] c : chars) {
+            total += tree.encode(buffer, 0, c);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int encode_table() {
+        int total = 0;
+        for (char[] c : chars) {
+            total += table.encode(c, 0, c.length, buffer, 0);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,92 @@
+package com.wizzardo.http.mapping;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Resolves filter chains of 500 routes against a mapping with 50 filters, with and without the cache of matches.
+ * One operation is all routes, like FiltersMapping does it before and after a handler.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ChainUrlMappingBenchmark {
+
+    @Param({"none", "paths"})
+    String cache;
+
+    ChainUrlMapping<String> before;
+    ChainUrlMapping<String> after;
+    Path[] paths;
+
+    static ChainUrlMapping<String> createMapping(String prefix) {
+        ChainUrlMapping<String> mapping = new ChainUrlMapping<>();
+        mapping.add("/*", prefix + "all");
+        mapping.add("*.css", prefix + "css");
+        mapping.add("*.js", prefix + "js");
+        mapping.add("*.json", prefix + "json");
+        mapping.add("/static/*", prefix + "static");
+        for (int i = 0; i < 5; i++) {
+            mapping.add("/api/v" + i + "/*", prefix + "api" + i);
+        }
+        for (int i = 0; i < 40; i++) {
+            mapping.add("/section" + i + "/*", prefix + "section" + i);
+        }
+        return mapping;
+    }
+
+    @Setup
+    public void setup() {
+        before = createMapping("before-");
+        after = createMapping("after-");
+        if (cache.equals("none")) {
+            before.setCacheSize(0);
+            after.setCacheSize(0);
+        }
+
+        paths = new Path[500];
+        for (int i = 0; i < paths.length; i++) {
+            String path;
+            switch (i % 4) {
+                case 0:
+                    path = "/section" + (i % 40) + "/item" + i;
+                    break;
+                case 1:
+                    path = "/api/v" + (i % 5) + "/resource" + i + ".json";
+                    break;
+                case 2:
+                    path = "/static/css/file" + i + ".css";
+                    break;
+                default:
+                    path = "/page" + i;
+            }
+            byte[] bytes = path.getBytes();
+            paths[i] = Path.parse(bytes, 0, bytes.length, UrlMapping.SEGMENT_CACHE);
+        }
+    }
+
+    @Benchmark
+    public void get(Blackhole bh) {
+        BiConsumer<String, String> parameters = (key, value) -> bh.consume(value);
+        for (Path path : paths) {
+            consume(bh, before.get(parameters, path));
+            consume(bh, after.get(parameters, path));
+        }
+    }
+
+    static void consume(Blackhole bh, ChainUrlMapping.Chain<String> chain) {
+        if (chain == null)
+            return;
+        for (int i = 0; i < chain.size(); i++) {
+            bh.consume(chain.get(i));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.wizzardo.http.mapping;
+
+import com.wizzardo.http.Corpus;
+import com.wizzardo.http.request.ByteTree;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Parses every request path of a corpus, with and without the cache of known segments.
+ * One operation is one whole corpus.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PathBenchmark {
+
+    @Param({"browser-get", "api-post", "pipelined"})
+    String corpus;
+
+    @Param({"none", "segments"})
+    String cache;
+
+    byte[][] paths;
+    ByteTree tree;
+
+    @Setup
+    public void setup() {
+        paths = Corpus.load(corpus).paths();
+        if (cache.equals("segments")) {
+            UrlMappingBenchmark.createMapping();
+            tree = UrlMapping.SEGMENT_CACHE;
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole bh) {
+        for (byte[] path : paths) {
+            bh.consume(Path.parse(path, 0, path.length, tree));
+        }
+    }
+}
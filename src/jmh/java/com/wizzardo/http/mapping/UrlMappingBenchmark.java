@@ -0,0 +1,88 @@
+package com.wizzardo.http.mapping;
+
+import com.wizzardo.http.Corpus;
+import com.wizzardo.http.Named;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Resolves every request path of a corpus against a mapping with static, parametrized and wildcard urls,
+ * with the tree of {@link UrlMapping} and with {@link CompiledUrlMapping}.
+ * Every path is parsed from the raw bytes of its request, so creation of segment strings is measured too.
+ * One operation is one whole corpus.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UrlMappingBenchmark {
+
+    @Param({"browser-get", "api-post", "pipelined"})
+    String corpus;
+
+    UrlMapping<Route> mapping;
+    UrlMapping<Route> compiled;
+    byte[] bytes;
+    int[] paths; // pairs of offset and length in bytes
+
+    static class Route implements Named {
+        final String name;
+
+        Route(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+    }
+
+    static UrlMapping<Route> createMapping() {
+        return new UrlMapping<Route>()
+                .append("/", new Route("index"))
+                .append("/health", new Route("health"))
+                .append("/favicon.ico", new Route("favicon"))
+                .append("/static/*", new Route("static"))
+                .append("/api/login", new Route("login"))
+                .append("/api/users", new Route("users"))
+                .append("/api/users/$id", new Route("user"))
+                .append("/api/users/$id/orders", new Route("orders"))
+                .append("/api/users/$id/orders/$orderId", new Route("order"))
+                .append("/blog/$year/$month/$slug", new Route("post"));
+    }
+
+    @Setup
+    public void setup() {
+        mapping = createMapping();
+        compiled = createMapping().setCompiled(true);
+        Corpus requests = Corpus.load(corpus);
+        bytes = requests.bytes;
+        paths = requests.paths;
+    }
+
+    @Benchmark
+    public void get(Blackhole bh) {
+        BiConsumer<String, String> parameters = (key, value) -> bh.consume(value);
+        for (int i = 0; i < paths.length; i += 2) {
+            Path path = Path.parse(bytes, paths[i], paths[i] + paths[i + 1], UrlMapping.SEGMENT_CACHE);
+            bh.consume(mapping.get(parameters, path));
+        }
+    }
+
+    @Benchmark
+    public void getCompiled(Blackhole bh) {
+        BiConsumer<String, String> parameters = (key, value) -> bh.consume(value);
+        for (int i = 0; i < paths.length; i += 2) {
+            Path path = Path.parse(bytes, paths[i], paths[i] + paths[i + 1], UrlMapping.SEGMENT_CACHE);
+            bh.consume(compiled.get(parameters, path));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.wizzardo.http.request;
+
+import com.wizzardo.http.Corpus;
+import com.wizzardo.http.HttpHeadersReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Looks up every header name and value of a corpus in the tree of known headers,
+ * names are mostly hits and values are mostly misses. One operation is one whole corpus.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ByteTreeBenchmark {
+
+    @Param({"browser-get", "api-post", "pipelined"})
+    String corpus;
+
+    Corpus data;
+    ByteTree.Node root;
+
+    @Setup
+    public void setup() {
+        data = Corpus.load(corpus);
+        root = HttpHeadersReader.getHeadersTree().getRoot();
+    }
+
+    @Benchmark
+    public void get(Blackhole bh) {
+        ByteTree.Node root = this.root;
+        byte[] bytes = data.bytes;
+        int[] headers = data.headers;
+        for (int i = 0; i < headers.length; i += 2) {
+            bh.consume(root.get(bytes, headers[i], headers[i + 1]));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.wizzardo.http.request;
+
+import com.wizzardo.http.Corpus;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Parses all requests of a corpus and reads the headers that are used by the server for every request.
+ * One operation is one whole corpus.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestReaderBenchmark {
+
+    @Param({"browser-get", "api-post", "pipelined"})
+    String corpus;
+
+    @Param({"map", "table"})
+    String headers;
+
+    Corpus data;
+    RequestReader reader;
+
+    /**
+     * request without connection, body is handled by the connection so it is skipped here
+     */
+    static class DetachedRequest extends Request {
+        DetachedRequest() {
+            super(null);
+        }
+
+        @Override
+        public long contentLength() {
+            return 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        data = Corpus.load(corpus);
+        reader = headers.equals("table") ? new RequestReader(new HeadersTable()) : new RequestReader();
+    }
+
+    @Benchmark
+    public void read(Blackhole bh) {
+        RequestReader reader = this.reader;
+        byte[] bytes = data.bytes;
+        int[] requests = data.requests;
+        for (int i = 0; i < requests.length; i += 2) {
+            bh.consume(reader.read(bytes, requests[i], requests[i + 1]));
+            Request request = reader.fillRequest(new DetachedRequest());
+            reader.clear();
+
+            bh.consume(request.header(Header.KEY_CONNECTION));
+            bh.consume(request.header(Header.KEY_CONTENT_LENGTH));
+            bh.consume(request.header(Header.KEY_CONTENT_TYPE));
+            bh.consume(request.path());
+        }
+    }
+}
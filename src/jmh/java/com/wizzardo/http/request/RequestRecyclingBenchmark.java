@@ -0,0 +1,68 @@
+package com.wizzardo.http.request;
+
+import com.wizzardo.http.response.Response;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Parses a keep-alive request and builds a response the way HttpConnection does,
+ * with new objects for every request or with objects recycled by the connection.
+ * Run with '-prof gc' to compare allocation rates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestRecyclingBenchmark {
+
+    static final byte[] REQUEST = ("GET /path/to/resource?id=42&sort=asc HTTP/1.1\r\n" +
+            "Host: localhost:8080\r\n" +
+            "Connection: keep-alive\r\n" +
+            "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8\r\n" +
+            "User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/43.0.2357.81 Safari/537.36\r\n" +
+            "Accept-Encoding: gzip, deflate, sdch\r\n" +
+            "Accept-Language: en-US,en;q=0.8,ru;q=0.6\r\n" +
+            "\r\n").getBytes();
+
+    static final byte[] BODY = "ok".getBytes();
+
+    @Param({"fresh", "recycled"})
+    String mode;
+
+    RequestReader reader;
+    Request request;
+    Response response;
+    boolean recycle;
+
+    @Setup
+    public void setup() {
+        recycle = mode.equals("recycled");
+        reader = new RequestReader();
+        reader.setRecycle(recycle);
+        request = new Request(null);
+        response = new Response();
+    }
+
+    @Benchmark
+    public int handle() {
+        reader.read(REQUEST);
+        if (recycle) {
+            request.reset();
+            response.reset();
+        } else {
+            request = new Request(null);
+            response = new Response();
+        }
+        reader.fillRequest(request);
+        reader.clear();
+
+        response.appendHeader(Header.KV_CONNECTION_KEEP_ALIVE);
+        response.setBody(BODY);
+        return request.params().size() + request.header(Header.KEY_HOST).length() + (int) response.toReadableBytes().length();
+    }
+}
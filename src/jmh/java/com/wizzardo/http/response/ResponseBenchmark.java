@@ -0,0 +1,74 @@
+package com.wizzardo.http.response;
+
+import com.wizzardo.epoll.readable.ReadableData;
+import com.wizzardo.http.HttpDateFormatterHolder;
+import com.wizzardo.http.request.Header;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Builds a typical response and serializes it into a buffer, as it is done before writing to a socket.
+ * With a template constant headers are written as one pre-serialized block.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseBenchmark {
+
+    @Param({"16", "16384"})
+    int bodyLength;
+
+    byte[] body;
+    String date;
+    ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    ResponseTemplate template = new ResponseTemplate()
+            .header(Header.KEY_SERVER, "wizzardo-http/0.1")
+            .header(Header.KEY_CONNECTION, Header.VALUE_KEEP_ALIVE)
+            .header(Header.KEY_CONTENT_TYPE, Header.VALUE_APPLICATION_JSON);
+
+    @Setup
+    public void setup() {
+        body = new byte[bodyLength];
+        Arrays.fill(body, (byte) 'a');
+        date = HttpDateFormatterHolder.get().format(new Date());
+    }
+
+    @Benchmark
+    public int build() {
+        Response response = new Response();
+        response.appendHeader(Header.KEY_DATE, date);
+        response.appendHeader(Header.KEY_SERVER, "wizzardo-http/0.1");
+        response.appendHeader(Header.KV_CONNECTION_KEEP_ALIVE);
+        response.appendHeader(Header.KEY_CONTENT_TYPE, Header.VALUE_APPLICATION_JSON);
+        response.setBody(body);
+        return write(response);
+    }
+
+    @Benchmark
+    public int buildWithTemplate() {
+        Response response = new Response();
+        response.template(template);
+        response.appendHeader(Header.KEY_DATE, date);
+        response.setBody(body);
+        return write(response);
+    }
+
+    int write(Response response) {
+        ReadableData data = response.toReadableBytes();
+        int total = 0;
+        while (!data.isComplete()) {
+            buffer.clear();
+            total += data.read(buffer);
+        }
+        return total;
+    }
+}
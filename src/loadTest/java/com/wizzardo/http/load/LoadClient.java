@@ -0,0 +1,392 @@
+package com.wizzardo.http.load;
+
+import com.wizzardo.http.metrics.LatencyHistogram;
+import com.wizzardo.tools.io.IOTools;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * NIO client that keeps given number of keep-alive connections busy,
+ * each connection keeps up to 'pipelining' requests in flight and sends a new one as soon as a response is read.
+ * Responses with content-length and chunked responses are supported.
+ */
+public class LoadClient {
+
+    protected final InetSocketAddress address;
+    protected final byte[] request;
+    protected final int connections;
+    protected final int pipelining;
+    protected final int threads;
+
+    public LoadClient(InetSocketAddress address, byte[] request, int connections, int pipelining, int threads) {
+        this.address = address;
+        this.request = request;
+        this.connections = connections;
+        this.pipelining = Math.max(pipelining, 1);
+        this.threads = Math.max(Math.min(threads, connections), 1);
+    }
+
+    public static byte[] get(String host, String path) {
+        return ("GET " + path + " HTTP/1.1\r\n" +
+                "Host: " + host + "\r\n" +
+                "Connection: keep-alive\r\n" +
+                "Accept: */*\r\n" +
+                "\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public Result run(long warmupNanos, long durationNanos) throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long measureTo = measureFrom + durationNanos;
+
+        Result result = new Result(durationNanos);
+        List<Runner> runners = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            int count = connections / threads + (i < connections % threads ? 1 : 0);
+            Runner runner = new Runner(count, measureFrom, measureTo, result.histogram);
+            runner.setName("load-client-" + i);
+            runners.add(runner);
+            runner.start();
+        }
+
+        for (Runner runner : runners) {
+            runner.join();
+            result.responses += runner.responses;
+            result.errors += runner.errors;
+            if (runner.failure != null && result.failure == null)
+                result.failure = runner.failure;
+        }
+        return result;
+    }
+
+    public static class Result {
+        public final LatencyHistogram histogram = new LatencyHistogram();
+        public final long durationNanos;
+        public long responses;
+        public long errors;
+        public Exception failure;
+
+        public Result(long durationNanos) {
+            this.durationNanos = durationNanos;
+        }
+
+        public double throughput() {
+            return responses * 1_000_000_000.0 / durationNanos;
+        }
+    }
+
+    protected class Runner extends Thread {
+        final int count;
+        final long measureFrom;
+        final long measureTo;
+        final LatencyHistogram histogram;
+        long responses;
+        long errors;
+        Exception failure;
+        boolean measuring;
+        boolean draining;
+
+        Runner(int count, long measureFrom, long measureTo, LatencyHistogram histogram) {
+            this.count = count;
+            this.measureFrom = measureFrom;
+            this.measureTo = measureTo;
+            this.histogram = histogram;
+        }
+
+        @Override
+        public void run() {
+            Selector selector = null;
+            List<Connection> list = new ArrayList<>(count);
+            try {
+                selector = Selector.open();
+                for (int i = 0; i < count; i++) {
+                    list.add(new Connection(selector));
+                }
+
+                long now;
+                long drainTo = measureTo + TimeUnit.SECONDS.toNanos(1);
+                while ((now = System.nanoTime()) < drainTo) {
+                    if (!measuring && !draining && now >= measureFrom) {
+                        measuring = true;
+                        responses = 0;
+                        errors = 0;
+                    }
+                    if (now >= measureTo) {
+                        // stop sending and wait for responses in flight, so connections are closed gracefully
+                        measuring = false;
+                        draining = true;
+                        if (inFlight(list) == 0)
+                            break;
+                    }
+
+                    selector.select(100);
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isWritable())
+                                connection.write();
+                            if (key.isValid() && key.isReadable())
+                                connection.read();
+                        } catch (IOException e) {
+                            if (measuring)
+                                errors += connection.inFlight;
+                            connection.reconnect(selector);
+                        }
+                    }
+                    selector.selectedKeys().clear();
+                }
+            } catch (Exception e) {
+                failure = e;
+            } finally {
+                for (Connection connection : list) {
+                    IOTools.close(connection.channel);
+                }
+                IOTools.close(selector);
+            }
+        }
+
+        protected int inFlight(List<Connection> list) {
+            int count = 0;
+            for (Connection connection : list) {
+                count += connection.inFlight;
+            }
+            return count;
+        }
+
+        protected void onResponse(int status, long sentAt) {
+            if (!measuring)
+                return;
+
+            histogram.record(System.nanoTime() - sentAt);
+            responses++;
+            if (status >= 400)
+                errors++;
+        }
+
+        protected class Connection {
+            static final int HEADERS = 0;
+            static final int BODY = 1;
+            static final int CHUNK_SIZE = 2;
+            static final int CHUNK_BODY = 3;
+            static final int TRAILER = 4;
+
+            SocketChannel channel;
+            SelectionKey key;
+            ByteBuffer in = ByteBuffer.allocate(16 * 1024);
+            ByteBuffer out = ByteBuffer.allocate(request.length * pipelining);
+            final long[] sent = new long[pipelining];
+            int head;
+            int inFlight;
+
+            int state = HEADERS;
+            int status;
+            long remaining;
+            boolean chunked;
+
+            Connection(Selector selector) throws IOException {
+                connect(selector);
+            }
+
+            void connect(Selector selector) throws IOException {
+                channel = SocketChannel.open(address);
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                key = channel.register(selector, SelectionKey.OP_READ, this);
+                in.clear();
+                out.clear().flip();
+                head = 0;
+                inFlight = 0;
+                state = HEADERS;
+                send();
+            }
+
+            void reconnect(Selector selector) {
+                IOTools.close(channel);
+                try {
+                    connect(selector);
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+
+            void send() throws IOException {
+                if (inFlight == pipelining || draining)
+                    return;
+
+                out.compact();
+                long now = System.nanoTime();
+                while (inFlight < pipelining && out.remaining() >= request.length) {
+                    out.put(request);
+                    sent[(head + inFlight) % pipelining] = now;
+                    inFlight++;
+                }
+                out.flip();
+                write();
+            }
+
+            void write() throws IOException {
+                channel.write(out);
+                key.interestOps(out.hasRemaining() ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            }
+
+            void read() throws IOException {
+                int r = channel.read(in);
+                if (r == -1)
+                    throw new IOException("Connection closed");
+
+                in.flip();
+                boolean completed = false;
+                while (parse()) {
+                    completed = true;
+                }
+                if (!in.hasRemaining())
+                    in.clear();
+                else {
+                    in.compact();
+                    if (!in.hasRemaining()) {
+                        ByteBuffer bigger = ByteBuffer.allocate(in.capacity() * 2);
+                        in.flip();
+                        bigger.put(in);
+                        in = bigger;
+                    }
+                }
+
+                if (completed)
+                    send();
+            }
+
+            /**
+             * @return true if a response was completed
+             */
+            boolean parse() throws IOException {
+                while (in.hasRemaining()) {
+                    switch (state) {
+                        case HEADERS: {
+                            int end = indexOf(in, "\r\n\r\n");
+                            if (end == -1)
+                                return false;
+
+                            parseHeaders(in.position(), end);
+                            in.position(end + 4);
+                            if (chunked)
+                                state = CHUNK_SIZE;
+                            else if (remaining > 0)
+                                state = BODY;
+                            else
+                                return complete();
+                            break;
+                        }
+                        case BODY:
+                        case CHUNK_BODY: {
+                            int skip = (int) Math.min(remaining, in.remaining());
+                            in.position(in.position() + skip);
+                            remaining -= skip;
+                            if (remaining > 0)
+                                return false;
+
+                            if (state == BODY)
+                                return complete();
+                            state = CHUNK_SIZE;
+                            break;
+                        }
+                        case CHUNK_SIZE: {
+                            int end = indexOf(in, "\r\n");
+                            if (end == -1)
+                                return false;
+
+                            int length = 0;
+                            for (int i = in.position(); i < end; i++) {
+                                int digit = Character.digit(in.get(i), 16);
+                                if (digit == -1)
+                                    break;
+                                length = length * 16 + digit;
+                            }
+                            in.position(end + 2);
+                            if (length == 0) {
+                                state = TRAILER;
+                            } else {
+                                remaining = length + 2;
+                                state = CHUNK_BODY;
+                            }
+                            break;
+                        }
+                        case TRAILER: {
+                            int end = indexOf(in, "\r\n");
+                            if (end == -1)
+                                return false;
+
+                            boolean last = end == in.position();
+                            in.position(end + 2);
+                            if (last)
+                                return complete();
+                            break;
+                        }
+                    }
+                }
+                return false;
+            }
+
+            boolean complete() {
+                state = HEADERS;
+                if (inFlight == 0) {
+                    if (measuring)
+                        errors++;
+                    return true;
+                }
+
+                long sentAt = sent[head];
+                head = (head + 1) % pipelining;
+                inFlight--;
+                onResponse(status, sentAt);
+                return true;
+            }
+
+            void parseHeaders(int from, int to) throws IOException {
+                String headers = new String(in.array(), from, to - from, StandardCharsets.ISO_8859_1);
+                if (!headers.startsWith("HTTP/1.") || headers.length() < 12)
+                    throw new IOException("Malformed response: " + headers.substring(0, Math.min(headers.length(), 32)));
+
+                status = Integer.parseInt(headers.substring(9, 12));
+                remaining = 0;
+                chunked = false;
+                for (String line : headers.split("\r\n")) {
+                    int i = line.indexOf(':');
+                    if (i == -1)
+                        continue;
+
+                    String name = line.substring(0, i).trim();
+                    if (name.equalsIgnoreCase("Content-Length"))
+                        remaining = Long.parseLong(line.substring(i + 1).trim());
+                    else if (name.equalsIgnoreCase("Transfer-Encoding"))
+                        chunked = line.substring(i + 1).trim().equalsIgnoreCase("chunked");
+                }
+            }
+        }
+    }
+
+    protected static int indexOf(ByteBuffer bb, String s) {
+        byte[] bytes = bb.array();
+        int limit = bb.limit() - s.length();
+        outer:
+        for (int i = bb.position(); i <= limit; i++) {
+            for (int j = 0; j < s.length(); j++) {
+                if (bytes[i + j] != s.charAt(j))
+                    continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+}
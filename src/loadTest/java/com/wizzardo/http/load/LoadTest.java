@@ -0,0 +1,207 @@
+package com.wizzardo.http.load;
+
+import com.wizzardo.http.FileTreeHandler;
+import com.wizzardo.http.HttpServer;
+import com.wizzardo.http.framework.Controller;
+import com.wizzardo.http.framework.Environment;
+import com.wizzardo.http.framework.WebApplication;
+import com.wizzardo.http.framework.template.Renderer;
+import com.wizzardo.http.metrics.LatencyHistogram;
+import com.wizzardo.tools.evaluation.Config;
+import com.wizzardo.tools.io.FileTools;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Starts HttpServer and WebApplication on localhost and measures throughput and latency of typical responses
+ * with {@link LoadClient}. Arguments are key=value pairs:
+ * <pre>
+ * connections=64        keep-alive connections per scenario
+ * pipelining=1          requests in flight per connection
+ * threads=1             client threads
+ * workers=4             server workers
+ * warmup=3              seconds
+ * duration=10           seconds
+ * scenarios=static,file,json,view
+ * </pre>
+ * Exits with status 1 if any response failed, so it can be used as a release gate.
+ */
+public class LoadTest {
+
+    public static class LoadController extends Controller {
+        public Renderer json() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("id", 42);
+            map.put("name", "load test");
+            map.put("tags", Arrays.asList("a", "b", "c"));
+            map.put("active", true);
+            return renderJson(map);
+        }
+
+        public Renderer view() {
+            model().append("title", "load test");
+            model().append("items", Arrays.asList("one", "two", "three", "four", "five"));
+            return renderView();
+        }
+    }
+
+    protected static class Scenario {
+        final String name;
+        final int port;
+        final String path;
+
+        Scenario(String name, int port, String path) {
+            this.name = name;
+            this.port = port;
+            this.path = path;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("connections", "64");
+        params.put("pipelining", "1");
+        params.put("threads", "1");
+        params.put("workers", "4");
+        params.put("warmup", "3");
+        params.put("duration", "10");
+        params.put("scenarios", "static,file,json,view");
+        params.put("port", "18080");
+        for (String arg : args) {
+            int i = arg.indexOf('=');
+            if (i == -1 || !params.containsKey(arg.substring(0, i)))
+                throw new IllegalArgumentException("Unknown argument: " + arg + ", expected one of " + params.keySet());
+            params.put(arg.substring(0, i), arg.substring(i + 1));
+        }
+
+        int connections = Integer.parseInt(params.get("connections"));
+        int pipelining = Integer.parseInt(params.get("pipelining"));
+        int threads = Integer.parseInt(params.get("threads"));
+        int workers = Integer.parseInt(params.get("workers"));
+        long warmup = TimeUnit.SECONDS.toNanos(Long.parseLong(params.get("warmup")));
+        long duration = TimeUnit.SECONDS.toNanos(Long.parseLong(params.get("duration")));
+        int port = Integer.parseInt(params.get("port"));
+
+        File files = createFiles();
+        HttpServer<?> server = new HttpServer<>("localhost", port, workers);
+        server.getUrlMapping()
+                .append("/files/*", new FileTreeHandler<>(files, "/files"));
+        server.setIoThreadsCount(1);
+        server.start();
+
+        WebApplication app = new WebApplication() {
+            @Override
+            protected void loadEnvironmentVariables(Config config) {
+            }
+
+            @Override
+            protected void loadSystemProperties(Config config) {
+            }
+        };
+        app.setHostname("localhost");
+        app.setPort(port + 1);
+        app.setWorkersCount(workers);
+        app.setIoThreadsCount(1);
+        app.setEnvironment(Environment.PRODUCTION);
+        app.onSetup(a -> a.getUrlMapping()
+                .append("/json", LoadController.class, "json")
+                .append("/view", LoadController.class, "view"));
+        app.start();
+
+        awaitPort(port);
+        awaitPort(port + 1);
+
+        Map<String, Scenario> available = new LinkedHashMap<>();
+        available.put("static", new Scenario("static", port, "/"));
+        available.put("file", new Scenario("file", port, "/files/file.html"));
+        available.put("json", new Scenario("json", port + 1, "/json"));
+        available.put("view", new Scenario("view", port + 1, "/view"));
+
+        List<Scenario> scenarios = new ArrayList<>();
+        for (String name : params.get("scenarios").split(",")) {
+            Scenario scenario = available.get(name.trim());
+            if (scenario == null)
+                throw new IllegalArgumentException("Unknown scenario: " + name + ", expected one of " + available.keySet());
+            scenarios.add(scenario);
+        }
+
+        System.out.println(params);
+        System.out.println(String.format("%-8s %12s %10s %10s %10s %10s %10s %8s", "scenario", "requests/s", "mean", "p50", "p99", "p999", "max", "errors"));
+
+        long errors = 0;
+        try {
+            for (Scenario scenario : scenarios) {
+                LoadClient client = new LoadClient(new InetSocketAddress("localhost", scenario.port), LoadClient.get("localhost", scenario.path), connections, pipelining, threads);
+                LoadClient.Result result = client.run(warmup, duration);
+                LatencyHistogram.Snapshot h = result.histogram.snapshot();
+                System.out.println(String.format("%-8s %12.0f %10s %10s %10s %10s %10s %8d", scenario.name, result.throughput(),
+                        format(h.mean()),
+                        format(h.quantile(0.5)),
+                        format(h.quantile(0.99)),
+                        format(h.quantile(0.999)),
+                        format(h.max),
+                        result.errors));
+
+                if (result.failure != null)
+                    result.failure.printStackTrace();
+                if (result.failure != null || result.responses == 0)
+                    errors++;
+                errors += result.errors;
+            }
+        } finally {
+            server.close();
+            app.close();
+            FileTools.deleteRecursive(files);
+        }
+
+        System.exit(errors == 0 ? 0 : 1);
+    }
+
+    protected static String format(long nanos) {
+        if (nanos < TimeUnit.MILLISECONDS.toNanos(1))
+            return String.format("%.1fus", nanos / 1000.0);
+        if (nanos < TimeUnit.SECONDS.toNanos(1))
+            return String.format("%.2fms", nanos / 1000_000.0);
+        return String.format("%.2fs", nanos / 1000_000_000.0);
+    }
+
+    protected static void awaitPort(int port) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            try {
+                SocketChannel.open(new InetSocketAddress("localhost", port)).close();
+                return;
+            } catch (IOException e) {
+                if (System.nanoTime() > deadline)
+                    throw new IllegalStateException("Server is not started on port " + port, e);
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    protected static File createFiles() throws IOException {
+        File dir = File.createTempFile("load-test", "");
+        dir.delete();
+        dir.mkdirs();
+
+        byte[] bytes = new byte[16 * 1024];
+        Random random = new Random(42);
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) ('a' + random.nextInt(26));
+        }
+        FileTools.bytes(new File(dir, "file.html"), bytes);
+        return dir;
+    }
+}
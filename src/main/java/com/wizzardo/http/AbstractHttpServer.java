@@ -1,14 +1,17 @@
 package com.wizzardo.http;
 
 import com.wizzardo.epoll.*;
+import com.wizzardo.http.metrics.Metrics;
 import com.wizzardo.http.request.Header;
+import com.wizzardo.http.response.Response;
 import com.wizzardo.http.response.Status;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author: moxa
@@ -16,7 +19,19 @@ import java.util.concurrent.LinkedBlockingQueue;
  */
 public abstract class AbstractHttpServer<T extends HttpConnection> {
 
-    protected volatile BlockingQueue<T> queue = new LinkedBlockingQueue<>();
+    protected volatile BlockingQueue<T> queue;
+    protected volatile boolean workStealing = false;
+    protected volatile ExecutorService executor;
+    protected volatile boolean lazyHeaders = false;
+    protected volatile boolean recycleRequests = false;
+    protected volatile boolean leakDetection = false;
+    protected volatile Metrics metrics;
+    protected volatile boolean streamingBody = false;
+    protected volatile boolean http2 = false;
+    protected volatile boolean pipelineBatching = false;
+    protected int bodySpillThreshold = 64 * 1024;
+    protected final Queue<VirtualWorker<T>> virtualWorkers = new ConcurrentLinkedQueue<>();
+    protected final AtomicInteger pendingTasks = new AtomicInteger();
     protected volatile int workersCount;
     protected volatile int sessionTimeoutSec = 30 * 60;
     protected int postBodyLimit = 2 * 1024 * 1024;
@@ -63,9 +78,19 @@ public abstract class AbstractHttpServer<T extends HttpConnection> {
                 @Override
                 protected SelectorConnectionWrapper createConnection(SocketChannel client) throws IOException {
                     SelectorConnectionWrapper connection = super.createConnection(client);
-                    connection.server = AbstractHttpServer.this;
+                    connection.setServer(AbstractHttpServer.this);
                     return connection;
                 }
+
+                @Override
+                protected void onConnect(SelectorConnectionWrapper connection) {
+                    AbstractHttpServer.this.onConnect((T) connection);
+                }
+
+                @Override
+                protected void onDisconnect(SelectorConnectionWrapper connection) {
+                    AbstractHttpServer.this.onDisconnect((T) connection);
+                }
             };
         }
         this.workersCount = workersCount;
@@ -79,12 +104,27 @@ public abstract class AbstractHttpServer<T extends HttpConnection> {
         run();
     }
 
+    protected BlockingQueue<T> createQueue(int workersCount) {
+        if (workStealing)
+            return new WorkStealingQueue<>(workersCount, maxRequestsInQueue);
+        return new LinkedBlockingQueue<>();
+    }
+
+    protected VirtualWorker<T> createVirtualWorker() {
+        return new VirtualWorker<>(this);
+    }
+
     public void run() {
         Session.createSessionsHolder(sessionTimeoutSec);
-        System.out.println("worker count: " + workersCount);
-        ThreadGroup group = new ThreadGroup("http-workers");
-        for (int i = 0; i < workersCount; i++) {
-            createWorker(group, queue, "worker_" + i).start();
+        if (executor != null) {
+            System.out.println("executor: " + executor);
+        } else {
+            System.out.println("worker count: " + workersCount);
+            queue = createQueue(workersCount);
+            ThreadGroup group = new ThreadGroup("http-workers");
+            for (int i = 0; i < workersCount; i++) {
+                createWorker(group, queue, "worker_" + i).start();
+            }
         }
         server.start();
     }
@@ -127,6 +167,8 @@ public abstract class AbstractHttpServer<T extends HttpConnection> {
 
     public void close() {
         server.close();
+        if (executor != null)
+            executor.shutdown();
     }
 
     public int getPostBodyLimit() {
@@ -163,7 +205,7 @@ public abstract class AbstractHttpServer<T extends HttpConnection> {
 
     protected boolean checkData(T connection, ByteBufferProvider bufferProvider) {
         if (connection.processInputListener())
-            return false;
+            return connection.isNextRequestReady();
 
         ByteBuffer b;
         try {
@@ -188,24 +230,87 @@ public abstract class AbstractHttpServer<T extends HttpConnection> {
     }
 
     protected void closeConnection(T connection, Status status) {
-        connection.getResponse()
-                .status(status)
+        Response response = connection.getResponse();
+        if (response.isReleased())
+            response.reset();
+
+        response.status(status)
                 .appendHeader(Header.KV_CONNECTION_CLOSE)
                 .commit(connection, getBufferProvider());
         connection.setCloseOnFinishWriting(true);
     }
 
     void process(T connection, ByteBufferProvider bufferProvider) {
-        if (workersCount > 0) {
-            if (queue.size() > maxRequestsInQueue) {
+        if (metrics != null && (executor != null || workersCount > 0))
+            connection.queuedAt = System.nanoTime();
+
+        connection.wakeUpReaders();
+
+        if (executor != null) {
+            execute(connection);
+        } else if (workersCount > 0) {
+            if (queue.size() > maxRequestsInQueue || !queue.offer(connection))
                 safeOnError(connection, new IllegalStateException("Too many requests"));
-                return;
+        } else if (connection.processingBy.compareAndSet(null, Thread.currentThread())) {
+            try {
+                if (checkData(connection, bufferProvider))
+                    while (processConnection(connection)) {
+                    }
+            } finally {
+                connection.processingBy.set(null);
             }
+        }
+    }
 
-            queue.add(connection);
-        } else if (checkData(connection, bufferProvider)) {
-            while (processConnection(connection)) {
-            }
+    protected void execute(T connection) {
+        if (pendingTasks.incrementAndGet() > maxRequestsInQueue) {
+            pendingTasks.decrementAndGet();
+            safeOnError(connection, new IllegalStateException("Too many requests"));
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                pendingTasks.decrementAndGet();
+                VirtualWorker<T> worker = virtualWorkers.poll();
+                if (worker == null)
+                    worker = createVirtualWorker();
+                try {
+                    worker.execute(connection);
+                } finally {
+                    virtualWorkers.offer(worker);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingTasks.decrementAndGet();
+            safeOnError(connection, e);
+        }
+    }
+
+    /**
+     * Runs the task on the executor with a {@link VirtualWorker} bound to it
+     *
+     * @return false if the executor is not set or it rejected the task
+     */
+    public boolean execute(Runnable task) {
+        ExecutorService executor = this.executor;
+        if (executor == null)
+            return false;
+
+        try {
+            executor.execute(() -> {
+                VirtualWorker<T> worker = virtualWorkers.poll();
+                if (worker == null)
+                    worker = createVirtualWorker();
+                try {
+                    worker.execute(task);
+                } finally {
+                    virtualWorkers.offer(worker);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
         }
     }
 
@@ -213,7 +318,7 @@ public abstract class AbstractHttpServer<T extends HttpConnection> {
         try {
             handle(connection);
             if (handleAsync(connection))
-                return false;
+                return connection.isNextRequestReady();
         } catch (Exception t) {
             safeOnError(connection,t);
         }
@@ -227,6 +332,29 @@ public abstract class AbstractHttpServer<T extends HttpConnection> {
 
     protected abstract void handle(T connection) throws Exception;
 
+    protected void onConnect(T connection) {
+        Metrics metrics = this.metrics;
+        if (metrics != null)
+            metrics.onConnect();
+    }
+
+    protected void onDisconnect(T connection) {
+        connection.wakeUpReaders();
+
+        Metrics metrics = this.metrics;
+        if (metrics != null)
+            metrics.onDisconnect();
+    }
+
+    void onDequeued(T connection) {
+        Metrics metrics = this.metrics;
+        long queuedAt = connection.queuedAt;
+        if (metrics != null && queuedAt != 0) {
+            metrics.recordQueueWait(System.nanoTime() - queuedAt);
+            connection.queuedAt = 0;
+        }
+    }
+
     protected void onError(T connection, Exception e) throws Exception {
         e.printStackTrace();
     }
@@ -243,6 +371,8 @@ public abstract class AbstractHttpServer<T extends HttpConnection> {
         if (connection.getResponse().isAsync()) {
             if (connection.getInputListener() != null)
                 connection.getInputListener().onReady(connection);
+            else if (connection.getOutputListener() != null)
+                connection.getOutputListener().onReady(connection);
 
             return true;
         }
@@ -250,20 +380,33 @@ public abstract class AbstractHttpServer<T extends HttpConnection> {
     }
 
     protected boolean finishHandling(T connection) throws IOException {
-        connection.getResponse().commit(connection, getBufferProvider());
-        connection.flushOutputStream();
-        if (!connection.onFinishingHandling())
-            return false;
+        connection.recordResponse();
+        Response response = connection.getResponse();
+        if (pipelineBatching && connection.isKeepAlive() && connection.hasBufferedData())
+            response.commitToBatch(connection);
+        else
+            response.commit(connection, getBufferProvider());
+
+        boolean finished = false;
+        boolean nextRequestReady = false;
+        try {
+            connection.flushOutputStream();
+            finished = connection.onFinishingHandling();
+            nextRequestReady = finished && connection.isRequestReady();
+        } finally {
+            if (!nextRequestReady)
+                connection.flushBatch(getBufferProvider());
+        }
 
-        if (connection.isRequestReady())
+        if (nextRequestReady)
             return true;
-        else if (connection.isReadyToRead() && checkData(connection, getBufferProvider()))
+        else if (finished && connection.isReadyToRead() && checkData(connection, getBufferProvider()))
             return true;
         return false;
     }
 
     protected ByteBufferProvider getBufferProvider() {
-        return (ByteBufferProvider) Thread.currentThread();
+        return Worker.bufferProvider();
     }
 
     public void setSessionTimeout(int sec) {
@@ -276,6 +419,151 @@ public abstract class AbstractHttpServer<T extends HttpConnection> {
         this.workersCount = count;
     }
 
+    public void setWorkStealing(boolean enabled) {
+        checkIfStarted();
+        this.workStealing = enabled;
+    }
+
+    public boolean isWorkStealing() {
+        return workStealing;
+    }
+
+    /**
+     * Store request headers as offsets in a reusable byte array and create strings only for requested headers
+     */
+    public void setLazyHeaders(boolean enabled) {
+        checkIfStarted();
+        this.lazyHeaders = enabled;
+    }
+
+    public boolean isLazyHeaders() {
+        return lazyHeaders;
+    }
+
+    /**
+     * Reuse request, response and parsed headers and parameters of a connection for the next keep-alive or pipelined request
+     */
+    public void setRecycleRequests(boolean enabled) {
+        checkIfStarted();
+        this.recycleRequests = enabled;
+    }
+
+    public boolean isRecycleRequests() {
+        return recycleRequests;
+    }
+
+    /**
+     * Debug option for {@link #setRecycleRequests(boolean)}, request and response will throw an IllegalStateException
+     * if they are used after the handling was finished
+     */
+    public void setLeakDetection(boolean enabled) {
+        checkIfStarted();
+        this.leakDetection = enabled;
+    }
+
+    public boolean isLeakDetection() {
+        return leakDetection;
+    }
+
+    /**
+     * Call handler right after the headers of a request are read, body can be consumed in chunks as it arrives
+     * with {@link com.wizzardo.http.request.Request#onBody} or will be read on first call to data(), params() or getInputStream()
+     */
+    public void setStreamingBody(boolean enabled) {
+        checkIfStarted();
+        this.streamingBody = enabled;
+    }
+
+    public boolean isStreamingBody() {
+        return streamingBody;
+    }
+
+    /**
+     * Size of streaming body after which it is stored in a temporary file instead of memory
+     */
+    public void setBodySpillThreshold(int bodySpillThreshold) {
+        this.bodySpillThreshold = bodySpillThreshold;
+    }
+
+    public int getBodySpillThreshold() {
+        return bodySpillThreshold;
+    }
+
+    /**
+     * Accept cleartext HTTP/2 connections, both with prior knowledge and with 'Upgrade: h2c' request
+     */
+    public void setHttp2(boolean enabled) {
+        checkIfStarted();
+        this.http2 = enabled;
+    }
+
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    /**
+     * Handle all complete pipelined requests that were read with one portion of input back-to-back
+     * and send their responses with a single write instead of a write per response
+     */
+    public void setPipelineBatching(boolean enabled) {
+        checkIfStarted();
+        this.pipelineBatching = enabled;
+    }
+
+    public boolean isPipelineBatching() {
+        return pipelineBatching;
+    }
+
+    /**
+     * Collect connections, queue wait time, handler time, response sizes and statuses per handler,
+     * see {@link com.wizzardo.http.metrics.MetricsHandler} to expose them
+     */
+    public void setMetrics(boolean enabled) {
+        checkIfStarted();
+        this.metrics = enabled ? createMetrics() : null;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    protected Metrics createMetrics() {
+        return new Metrics();
+    }
+
+    /**
+     * Handle connections on the given executor instead of the pool of workers, useful for blocking handlers.
+     * Executor will be shut down on {@link #close()}
+     */
+    public void setExecutor(ExecutorService executor) {
+        checkIfStarted();
+        this.executor = executor;
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Handle every connection on its own virtual thread, falls back to cached thread pool if jvm doesn't support them
+     */
+    public void setVirtualThreads(boolean enabled) {
+        setExecutor(enabled ? createVirtualThreadsExecutor() : null);
+    }
+
+    protected ExecutorService createVirtualThreadsExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("WARNING! virtual threads are not supported, using cached thread pool instead");
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
     public void setContext(String context) {
         checkIfStarted();
         this.context = context;
@@ -0,0 +1,87 @@
+package com.wizzardo.http;
+
+import com.wizzardo.http.request.ChunkedDecoder;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Stream of 'Transfer-Encoding: chunked' request body, chunks are decoded with {@link ChunkedDecoder}
+ * right from the buffer of the connection. Bytes after the last chunk are given back to the connection.
+ */
+public class ChunkedEpollInputStream extends EpollInputStream {
+
+    protected final ChunkedDecoder decoder;
+    protected final ChunkedDecoder.Consumer sink = this::copy;
+    protected byte[] target;
+    protected int targetOffset;
+    protected int decoded;
+    protected byte[] single;
+
+    public ChunkedEpollInputStream(HttpConnection connection, byte[] buffer, int currentOffset, int currentLimit, ChunkedDecoder decoder) {
+        super(connection, buffer, currentOffset, currentLimit, -1);
+        this.decoder = decoder;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return decoder.isComplete() || super.isFinished();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (b == null) {
+            throw new NullPointerException();
+        } else if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        } else if (len == 0) {
+            return 0;
+        }
+
+        while (!decoder.isComplete()) {
+            if (available() == 0)
+                fillBuffer();
+
+            if (limit < 0)
+                throw new EOFException("Connection was closed before the last chunk was received");
+
+            target = b;
+            targetOffset = off;
+            decoded = 0;
+            try {
+                // decoded data is never longer than its encoded form, so it fits into len
+                offset += decoder.decode(buffer, offset, Math.min(len, available()), sink);
+            } catch (HttpException e) {
+                // the rest of the body is still in the socket
+                ((HttpConnection) connection).setCloseOnFinishWriting(true);
+                throw e;
+            }
+            target = null;
+
+            if (decoder.isComplete() && available() > 0) {
+                ((HttpConnection) connection).unread(buffer, offset, available());
+                offset = limit;
+            }
+
+            if (decoded > 0) {
+                read += decoded;
+                return decoded;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (single == null)
+            single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    protected void copy(byte[] bytes, int offset, int length) {
+        System.arraycopy(bytes, offset, target, targetOffset + decoded, length);
+        decoded += length;
+    }
+}
@@ -1,10 +1,11 @@
 package com.wizzardo.http;
 
-import com.wizzardo.epoll.ByteBufferProvider;
 import com.wizzardo.epoll.Connection;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @author: wizzardo
@@ -18,6 +19,8 @@ public class EpollInputStream extends InputStream {
     protected byte[] buffer;
     protected long contentLength = -1;
     protected long read = 0;
+    protected final ReentrantLock lock = new ReentrantLock();
+    protected final Condition readable = lock.newCondition();
 
     public EpollInputStream(Connection connection, byte[] buffer, int currentOffset, int currentLimit) {
         this(connection, buffer, currentOffset, currentLimit, -1);
@@ -73,40 +76,50 @@ public class EpollInputStream extends InputStream {
 
     @Override
     public int read() throws IOException {
+        if (isFinished())
+            return -1;
+
         if (available() == 0)
             fillBuffer();
 
-        if (available() == 0)
+        if (available() <= 0)
             return -1;
 
+        read++;
         return buffer[offset++] & 0xff;
     }
 
     protected void fillBuffer() throws IOException {
         if (contentLength > 0)
-            limit = connection.read(buffer, 0, Math.min(buffer.length, (int) (contentLength - read)), (ByteBufferProvider) Thread.currentThread());
+            limit = connection.read(buffer, 0, Math.min(buffer.length, (int) (contentLength - read)), Worker.bufferProvider());
         else
-            limit = connection.read(buffer, (ByteBufferProvider) Thread.currentThread());
+            limit = connection.read(buffer, Worker.bufferProvider());
         offset = 0;
         waitForData();
     }
 
+    /**
+     * blocks on a {@link Condition} instead of a monitor, so a virtual thread unmounts from its carrier while waiting
+     */
     protected void waitForData() throws IOException {
         if (limit == 0) {
-            synchronized (this) {
-                while ((limit = connection.read(buffer, (ByteBufferProvider) Thread.currentThread())) == 0) {
-                    try {
-                        wait();
-                    } catch (InterruptedException ignored) {
-                    }
+            lock.lock();
+            try {
+                while ((limit = connection.read(buffer, Worker.bufferProvider())) == 0) {
+                    readable.awaitUninterruptibly();
                 }
+            } finally {
+                lock.unlock();
             }
         }
     }
 
     protected void wakeUp() {
-        synchronized (this) {
-            notify();
+        lock.lock();
+        try {
+            readable.signal();
+        } finally {
+            lock.unlock();
         }
     }
 }
@@ -4,6 +4,8 @@ import com.wizzardo.epoll.ByteBufferProvider;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @author: wizzardo
@@ -14,6 +16,8 @@ public class EpollOutputStream extends OutputStream {
     private int offset;
     private byte[] buffer;
     protected volatile boolean waiting;
+    protected final ReentrantLock lock = new ReentrantLock();
+    protected final Condition writable = lock.newCondition();
 
     public EpollOutputStream(HttpConnection connection) {
         this.connection = connection;
@@ -30,7 +34,7 @@ public class EpollOutputStream extends OutputStream {
     }
 
     protected ByteBufferProvider getByteBufferProvider() {
-        return (ByteBufferProvider) Thread.currentThread();
+        return Worker.bufferProvider();
     }
 
     @Override
@@ -56,23 +60,29 @@ public class EpollOutputStream extends OutputStream {
         buffer[offset++] = (byte) b;
     }
 
+    /**
+     * blocks on a {@link Condition} instead of a monitor, so a virtual thread unmounts from its carrier while waiting
+     */
     protected void waitFor() {
         if (waiting) {
-            synchronized (this) {
+            lock.lock();
+            try {
                 while (waiting) {
-                    try {
-                        this.wait();
-                    } catch (InterruptedException ignored) {
-                    }
+                    writable.awaitUninterruptibly();
                 }
+            } finally {
+                lock.unlock();
             }
         }
     }
 
     protected void wakeUp() {
-        synchronized (this) {
+        lock.lock();
+        try {
             waiting = false;
-            this.notifyAll();
+            writable.signalAll();
+        } finally {
+            lock.unlock();
         }
     }
 }
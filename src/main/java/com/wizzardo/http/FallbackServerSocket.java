@@ -98,7 +98,7 @@ public class FallbackServerSocket<T extends HttpConnection> extends EpollServer<
         }
 
         @Override
-        public boolean write(ReadableData readable, ByteBufferProvider bufferProvider) {
+        protected synchronized boolean send(ReadableData readable, ByteBufferProvider bufferProvider) {
             if (sending.isEmpty())
                 try {
                     channel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE, this);
@@ -111,7 +111,7 @@ public class FallbackServerSocket<T extends HttpConnection> extends EpollServer<
         }
 
         @Override
-        public boolean write(ByteBufferProvider bufferProvider) {
+        public synchronized boolean write(ByteBufferProvider bufferProvider) {
             Queue<ReadableData> queue = this.sending;
             ReadableData readable;
             try {
@@ -183,8 +183,11 @@ public class FallbackServerSocket<T extends HttpConnection> extends EpollServer<
                 for (ReadableData data : sending)
                     IOTools.close(data);
 
+            boolean open = channel.isOpen();
             IOTools.close(channel);
             IOTools.close(getInputListener());
+            if (open)
+                onDisconnect(this);
         }
 
         @Override
@@ -229,32 +232,45 @@ public class FallbackServerSocket<T extends HttpConnection> extends EpollServer<
                 for (Iterator<SelectionKey> i = selector.selectedKeys().iterator(); i.hasNext(); ) {
                     SelectionKey key = i.next();
                     i.remove();
-                    if (key.isConnectable()) {
-                        ((SocketChannel) key.channel()).finishConnect();
-                    }
-
-                    SelectorConnectionWrapper wrapper;
-                    if (key.isAcceptable()) {
-                        SocketChannel client = server.accept();
-                        client.configureBlocking(false);
-                        client.socket().setTcpNoDelay(true);
-                        client.register(selector, SelectionKey.OP_READ);
-                        wrapper = createConnection(client);
-                        key = client.keyFor(selector);
-                        key.attach(wrapper);
-                    } else {
-                        wrapper = (SelectorConnectionWrapper) key.attachment();
-                    }
-
-                    if (wrapper == null)
+                    if (!key.isValid())
                         continue;
 
-                    if (key.isValid() && key.isReadable()) {
-                        onRead((T) wrapper, this);
-                    }
-
-                    if (key.isValid() && key.isWritable()) {
-                        wrapper.write(this);
+                    SelectorConnectionWrapper wrapper = null;
+                    try {
+                        if (key.isConnectable()) {
+                            ((SocketChannel) key.channel()).finishConnect();
+                        }
+
+                                            if (key.isAcceptable()) {
+                            SocketChannel client = server.accept();
+                            client.configureBlocking(false);
+                            client.socket().setTcpNoDelay(true);
+                            client.register(selector, SelectionKey.OP_READ);
+                            wrapper = createConnection(client);
+                            key = client.keyFor(selector);
+                            key.attach(wrapper);
+                            onConnect(wrapper);
+                        } else {
+                            wrapper = (SelectorConnectionWrapper) key.attachment();
+                        }
+
+                        if (wrapper == null)
+                            continue;
+
+                        if (key.isValid() && key.isReadable()) {
+                            onRead((T) wrapper, this);
+                        }
+
+                        if (key.isValid() && key.isWritable()) {
+                            wrapper.write(this);
+                        }
+                    } catch (Exception e) {
+                        // a failure of one connection should not stop the selector loop
+                        e.printStackTrace();
+                        if (wrapper != null)
+                            IOTools.close(wrapper);
+                        else if (key.channel() != server)
+                            IOTools.close(key.channel());
                     }
                 }
 
@@ -276,6 +292,12 @@ public class FallbackServerSocket<T extends HttpConnection> extends EpollServer<
         }
     }
 
+    protected void onConnect(SelectorConnectionWrapper connection) {
+    }
+
+    protected void onDisconnect(SelectorConnectionWrapper connection) {
+    }
+
     protected SelectorConnectionWrapper createConnection(SocketChannel client) throws IOException {
         return new SelectorConnectionWrapper(client, null);
     }
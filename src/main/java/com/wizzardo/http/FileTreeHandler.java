@@ -11,6 +11,7 @@ import com.wizzardo.http.response.Status;
 import com.wizzardo.tools.misc.DateIso8601;
 import com.wizzardo.tools.misc.Unchecked;
 
+import java.io.Closeable;
 import java.io.File;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
@@ -25,7 +26,7 @@ import static com.wizzardo.http.html.HtmlBuilder.*;
  * @author: wizzardo
  * Date: 19.09.14
  */
-public class FileTreeHandler<T extends FileTreeHandler.HandlerContext> implements Handler {
+public class FileTreeHandler<T extends FileTreeHandler.HandlerContext> implements Handler, Closeable {
     protected static final Pattern VERSION_PATTERN = Pattern.compile("\\.v[0-9A-F]{4}");
     protected static final int SIZE_GB = 1024 * 1024 * 1024;
     protected static final int SIZE_MB = 1024 * 1024;
@@ -74,6 +75,11 @@ public class FileTreeHandler<T extends FileTreeHandler.HandlerContext> implement
         return this;
     }
 
+    @Override
+    public void close() {
+        rangeResponseHelper.close();
+    }
+
     public String getVersionedPath(String path) {
         File file = new File(workDir, path);
         if (!file.exists() || !file.isFile())
@@ -57,8 +57,8 @@ public class FiltersMapping {
     }
 
     protected boolean filter(ChainUrlMapping.Chain<Filter> filters, Request request, Response response) {
-        for (Filter f : filters) {
-            if (!f.filter(request, response))
+        for (int i = 0; i < filters.size(); i++) {
+            if (!filters.get(i).filter(request, response))
                 return false;
 
         }
@@ -2,6 +2,7 @@ package com.wizzardo.http;
 
 import com.wizzardo.http.request.Request;
 import com.wizzardo.http.response.Response;
+import com.wizzardo.http.response.ResponseTemplate;
 
 import java.io.IOException;
 
@@ -12,4 +13,34 @@ import java.io.IOException;
 public interface Handler extends Named {
 
     Response handle(Request<HttpConnection> request, Response response) throws IOException;
+
+    /**
+     * @return headers that are the same for every response of this handler or null,
+     * the server merges them with its own constant headers once and sends them as a single pre-serialized block
+     */
+    default ResponseTemplate template() {
+        return null;
+    }
+
+    /**
+     * @return handler that sends headers of the given template with every response, see {@link #template()}
+     */
+    static Handler withTemplate(ResponseTemplate template, Handler handler) {
+        return new Handler() {
+            @Override
+            public Response handle(Request<HttpConnection> request, Response response) throws IOException {
+                return handler.handle(request, response);
+            }
+
+            @Override
+            public ResponseTemplate template() {
+                return template;
+            }
+
+            @Override
+            public String name() {
+                return handler.name();
+            }
+        };
+    }
 }
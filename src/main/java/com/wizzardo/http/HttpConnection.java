@@ -1,10 +1,17 @@
 package com.wizzardo.http;
 
+import com.wizzardo.epoll.ByteBufferProvider;
 import com.wizzardo.epoll.Connection;
+import com.wizzardo.epoll.readable.ReadableBuilder;
 import com.wizzardo.epoll.readable.ReadableData;
+import com.wizzardo.http.metrics.RouteMetrics;
+import com.wizzardo.http.request.ChunkedDecoder;
 import com.wizzardo.http.request.Header;
+import com.wizzardo.http.request.HeadersTable;
 import com.wizzardo.http.request.Request;
 import com.wizzardo.http.request.RequestReader;
+import com.wizzardo.http.request.SimpleRequestBody;
+import com.wizzardo.http.request.StreamingRequestBody;
 import com.wizzardo.http.response.Response;
 import com.wizzardo.tools.io.IOTools;
 
@@ -25,7 +32,7 @@ public class HttpConnection<H extends AbstractHttpServer, Q extends Request, S e
     private volatile byte[] buffer = new byte[1024];
     private volatile int r = 0;
     private volatile int position = 0;
-    private I inputStream;
+    private volatile I inputStream;
     private O outputStream;
     private volatile State state = State.READING_HEADERS;
     private volatile InputListener<HttpConnection> inputListener;
@@ -33,12 +40,17 @@ public class HttpConnection<H extends AbstractHttpServer, Q extends Request, S e
     private volatile boolean closeOnFinishWriting = false;
     private boolean ready = false;
     private boolean keepAlive = false;
-    private RequestReader requestReader = new RequestReader(new LinkedHashMap<>(16));
+    private RequestReader requestReader;
+    private boolean recycle;
+    private ReadableBuilder batch;
     protected S response;
     protected Q request;
+    // body of the current request that can block a handler, it is read by the IO thread without touching the request
+    protected volatile StreamingRequestBody streamingBody;
     protected H server;
 
     volatile AtomicReference<Thread> processingBy = new AtomicReference<>();
+    volatile long queuedAt;
 
     static enum State {
         READING_HEADERS,
@@ -48,7 +60,22 @@ public class HttpConnection<H extends AbstractHttpServer, Q extends Request, S e
 
     public HttpConnection(int fd, int ip, int port, H server) {
         super(fd, ip, port);
+        setServer(server);
+    }
+
+    void setServer(H server) {
         this.server = server;
+        recycle = server != null && server.isRecycleRequests();
+        if (server != null && server.isPipelineBatching())
+            buffer = new byte[16 * 1024]; // room for a few dozens of pipelined requests per read
+        requestReader = createRequestReader();
+        requestReader.setRecycle(recycle);
+    }
+
+    protected RequestReader createRequestReader() {
+        if (server != null && server.isLazyHeaders())
+            return new RequestReader(new HeadersTable());
+        return new RequestReader(new LinkedHashMap<>(16));
     }
 
     @Override
@@ -57,23 +84,36 @@ public class HttpConnection<H extends AbstractHttpServer, Q extends Request, S e
             super.close();
         } finally {
             IOTools.close(inputListener);
+            closeBody();
         }
     }
 
+    private void closeBody() {
+        StreamingRequestBody body = streamingBody;
+        if (body != null)
+            body.close();
+    }
+
     int getBufferSize() {
         return buffer.length - position;
     }
 
-    int getBufferPosition() {
+    /**
+     * @return offset of bytes in {@link #getBuffer()} that were read from the socket but not consumed by the current request
+     */
+    public int getBufferPosition() {
         return position;
     }
 
-    void resetBuffer() {
+    /**
+     * marks all bytes of the buffer as consumed, for example by a listener of an upgraded connection
+     */
+    public void resetBuffer() {
         position = 0;
         r = 0;
     }
 
-    int getBufferLimit() {
+    public int getBufferLimit() {
         return r;
     }
 
@@ -121,6 +161,23 @@ public class HttpConnection<H extends AbstractHttpServer, Q extends Request, S e
         return true;
     }
 
+    /**
+     * wakes up a handler that is blocked on the {@link EpollInputStream} or the {@link StreamingRequestBody} of this connection,
+     * a worker skips the connection while it is processed by another thread
+     */
+    boolean wakeUpReaders() {
+        if (processingBy.get() == null)
+            return false;
+
+        I inputStream = this.inputStream;
+        if (inputStream != null)
+            inputStream.wakeUp();
+        StreamingRequestBody body = streamingBody;
+        if (body != null)
+            body.wakeUp();
+        return true;
+    }
+
     boolean processOutputListener() {
         if (outputListener == null)
             return false;
@@ -154,10 +211,17 @@ public class HttpConnection<H extends AbstractHttpServer, Q extends Request, S e
 
         position = i >= 0 ? i : length + offset;
         r = length + offset;
-        request = createRequest();
-        response = createResponse();
+        if (recycle && request != null) {
+            request.reset();
+            response.reset();
+        } else {
+            request = createRequest();
+            response = createResponse();
+        }
         requestReader.fillRequest(request);
         requestReader.clear();
+        SimpleRequestBody body = request.getBody();
+        streamingBody = body instanceof StreamingRequestBody ? (StreamingRequestBody) body : null;
         if (request.method() == Request.Method.HEAD)
             response.setHasBody(false);
         keepAlive = prepareKeepAlive();
@@ -191,36 +255,124 @@ public class HttpConnection<H extends AbstractHttpServer, Q extends Request, S e
     }
 
     private boolean checkData(ByteBuffer bb) {
-        if (request.contentLength() > 0) {
+        if (request.contentLength() > 0 || request.isChunked()) {
             if (request.getBody() == null || request.isMultipart()) {
 //                getInputStream();
                 return true;
             }
-            request.getBody().read(buffer, position, r - position);
+            position += request.getBody().read(buffer, position, r - position);
+            if (position == r) {
+                r = 0;
+                position = 0;
+            }
             ready = request.getBody().isReady();
             state = State.READING_BODY;
-            r = 0;
-            position = 0;
+            if (server.isStreamingBody()) {
+                // handler is called right away, the rest of the body is read by the handler or by its consumer
+                handleData(bb);
+                ready = true;
+                return true;
+            }
             return handleData(bb);
         }
         return true;
     }
 
     private boolean handleData(ByteBuffer bb) {
-        int limit;
-        while (bb.hasRemaining()) {
-            limit = readFromByteBuffer(bb);
-            request.getBody().read(buffer, 0, limit);
-            ready = request.getBody().isReady();
+        SimpleRequestBody body = request.getBody();
+        while (!body.isReady() && bb.hasRemaining()) {
+            int limit = readFromByteBuffer(bb);
+            int read = body.read(buffer, 0, limit);
+            if (read < limit) {
+                // pipelined request after the end of chunked body
+                position = read;
+                r = limit;
+            }
         }
+        ready = body.isReady();
         return ready;
     }
 
+    /**
+     * puts back bytes that were read from the socket but do not belong to the current request,
+     * they will be parsed as the next request
+     */
+    public void unread(byte[] bytes, int offset, int length) {
+        if (buffer.length < length)
+            buffer = new byte[length];
+        System.arraycopy(bytes, offset, buffer, 0, length);
+        position = 0;
+        r = length;
+    }
+
+    /**
+     * @return true if bytes after the current request were already read from the socket, usually it is the next pipelined request
+     */
+    public boolean hasBufferedData() {
+        return r - position > 0;
+    }
+
+    /**
+     * holds the data until the next write or {@link #flushBatch(ByteBufferProvider)},
+     * so responses of pipelined requests are sent together
+     */
+    public void batch(ReadableData data) {
+        if (batch == null)
+            batch = new ReadableBuilder();
+        batch.append(data);
+    }
+
+    public boolean flushBatch(ByteBufferProvider bufferProvider) {
+        ReadableBuilder batch = this.batch;
+        if (batch == null)
+            return true;
+
+        this.batch = null;
+        return send(batch, bufferProvider);
+    }
+
+    @Override
+    public boolean write(ReadableData readable, ByteBufferProvider bufferProvider) {
+        ReadableBuilder batch = this.batch;
+        if (batch == null)
+            return send(readable, bufferProvider);
+
+        this.batch = null;
+        return send(batch.append(readable), bufferProvider);
+    }
+
+    /**
+     * passes the data to the socket, all writes of the connection end up here after the batch was prepended
+     */
+    protected boolean send(ReadableData readable, ByteBufferProvider bufferProvider) {
+        return super.write(readable, bufferProvider);
+    }
+
     public boolean isRequestReady() {
         return ready;
     }
 
+    /**
+     * @return true if an async request was finished by its input listener and the next pipelined request is ready
+     */
+    boolean isNextRequestReady() {
+        return ready && inputListener == null && !response.isAsync();
+    }
+
+    /**
+     * records status of the response to metrics of the handler, async responses are recorded when they are finished
+     */
+    public void recordResponse() {
+        Q request = this.request;
+        RouteMetrics route = request != null ? request.getRoute() : null;
+        if (route != null) {
+            route.recordResponse(response.status().code, response.contentLength());
+            request.setRoute(null);
+        }
+    }
+
     public boolean onFinishingHandling() {
+        recordResponse();
         if (state == State.UPGRADED && inputListener != null) {
             inputListener.onReady(this);
             return false;
@@ -230,9 +382,25 @@ public class HttpConnection<H extends AbstractHttpServer, Q extends Request, S e
             setCloseOnFinishWriting(true);
             return false;
         }
+        StreamingRequestBody body = streamingBody;
+        if (body != null) {
+            body.close();
+            if (!body.isReady()) {
+                // the rest of the body is still in the socket
+                resetBuffer();
+                setCloseOnFinishWriting(true);
+                return false;
+            }
+        }
+
+        if (recycle && server.isLeakDetection()) {
+            request.release();
+            response.release();
+        }
 
         ready = false;
         inputStream = null;
+        streamingBody = null;
         outputStream = null;
         inputListener = null;
         outputListener = null;
@@ -250,13 +418,28 @@ public class HttpConnection<H extends AbstractHttpServer, Q extends Request, S e
         return inputListener;
     }
 
+    public OutputListener<HttpConnection> getOutputListener() {
+        return outputListener;
+    }
+
+    /**
+     * @return true if a handler of this connection is running in the current thread
+     */
+    public boolean isHandledByCurrentThread() {
+        return processingBy.get() == Thread.currentThread();
+    }
+
     @Override
     public void onWriteData(ReadableData readable, boolean hasMore) {
         if (hasMore)
             return;
 
-        if (processOutputListener())
+        if (processOutputListener()) {
+            // async response could have been finished by the listener while the next pipelined request was already received
+            if (isNextRequestReady() && processingBy.get() == null && Thread.currentThread() instanceof ByteBufferProvider)
+                server.process(this, (ByteBufferProvider) Thread.currentThread());
             return;
+        }
 
         if (!keepAlive && state != State.UPGRADED && !response.isAsync()) {
             IOTools.close(this);
@@ -284,6 +467,11 @@ public class HttpConnection<H extends AbstractHttpServer, Q extends Request, S e
             if (request.getBody() != null) {
                 byte[] bytes = request.data();
                 inputStream = createInputStream(bytes, 0, bytes.length, bytes.length);
+            } else if (request.isChunked()) {
+                // the stream gives back bytes after the last chunk
+                inputStream = createChunkedInputStream(buffer, position, r);
+                r = 0;
+                position = 0;
             } else {
                 inputStream = createInputStream(buffer, position, r, request.contentLength());
                 if (r - position > request.contentLength())
@@ -317,6 +505,10 @@ public class HttpConnection<H extends AbstractHttpServer, Q extends Request, S e
         return (I) new EpollInputStream(this, buffer, currentOffset, currentLimit, contentLength);
     }
 
+    protected I createChunkedInputStream(byte[] buffer, int currentOffset, int currentLimit) {
+        return (I) new ChunkedEpollInputStream(this, buffer, currentOffset, currentLimit, new ChunkedDecoder(-1));
+    }
+
     protected O createOutputStream() {
         return (O) new EpollOutputStream(this);
     }
@@ -327,6 +519,8 @@ public class HttpConnection<H extends AbstractHttpServer, Q extends Request, S e
 
     public void setCloseOnFinishWriting(boolean closeOnFinishWriting) {
         this.closeOnFinishWriting = closeOnFinishWriting;
+        if (batch != null)
+            flushBatch(Worker.bufferProvider());
         if (sending == null || sending.isEmpty()) {
             IOTools.close(this);
         }
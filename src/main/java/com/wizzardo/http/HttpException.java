@@ -13,4 +13,9 @@ public class HttpException extends RuntimeException {
         this.status = status;
     }
 
+    public HttpException(String message, Status status) {
+        super(message);
+        this.status = status;
+    }
+
 }
@@ -2,6 +2,7 @@ package com.wizzardo.http;
 
 import com.wizzardo.http.request.ByteTree;
 import com.wizzardo.http.request.Header;
+import com.wizzardo.http.request.HeadersTable;
 import com.wizzardo.http.request.Request;
 import com.wizzardo.http.utils.AsciiReader;
 
@@ -19,6 +20,9 @@ public abstract class HttpHeadersReader {
     protected String tempKey;
     protected boolean waitForNewLine;
     protected Map<String, MultiValue> headers;
+    protected HeadersTable table;
+    protected boolean recycle;
+    protected boolean stale;
 
     protected boolean complete = false;
 
@@ -40,14 +44,31 @@ public abstract class HttpHeadersReader {
             headers = new LinkedHashMap<>(16);
 
         this.headers = headers;
+        if (headers instanceof HeadersTable)
+            table = (HeadersTable) headers;
     }
 
     public HttpHeadersReader() {
         headers = new LinkedHashMap<>(16);
     }
 
+    public static ByteTree getHeadersTree() {
+        return headersTree;
+    }
+
+    /**
+     * @param recycle if true - {@link #clear()} keeps collections, they will be cleared before reading next headers
+     */
+    public void setRecycle(boolean recycle) {
+        this.recycle = recycle;
+    }
+
     public void clear() {
-        headers = new LinkedHashMap<>(16);
+        if (table != null)
+            table.release();
+        else if (!recycle)
+            headers = new LinkedHashMap<>(16);
+        stale = recycle;
         tempKey = null;
         complete = false;
         waitForNewLine = false;
@@ -73,6 +94,9 @@ public abstract class HttpHeadersReader {
     }
 
     protected int parseHeaders(byte[] chars, int offset, int length) {
+        if (table != null && table.isStale())
+            table.reset();
+
         int l = offset + length;
 
         if (waitForNewLine) {
@@ -82,12 +106,7 @@ public abstract class HttpHeadersReader {
                     if (i > offset) {
                         if (chars[i - 1] == '\r') {
                             waitForNewLine = false;
-                            if (tempKey != null) {
-                                put(tempKey, getValue(chars, offset, i - offset - 1));
-//                                    headers.put(tempKey, getValue(s, offset, i - offset - 1));
-//                                offset++;
-                                tempKey = null;
-                            }
+                            onHeaderValue(chars, offset, i - offset - 1);
 //                            r = 0;
 
                             i++;
@@ -96,12 +115,7 @@ public abstract class HttpHeadersReader {
                     } else if (i == offset && r > 0 && buffer[r - 1] == 13) {
                         waitForNewLine = false;
                         r--;
-                        if (tempKey != null) {
-                            put(tempKey, getValue(chars, offset, i - offset - 1));
-//                                headers.put(tempKey, getValue(s, offset, i - offset - 1));
-//                            offset++;
-                            tempKey = null;
-                        }
+                        onHeaderValue(chars, offset, i - offset - 1);
 //                        r = 0;
 
                         i++;
@@ -109,12 +123,7 @@ public abstract class HttpHeadersReader {
                     }
                 } else if (ch == '\r' && ++i < l && chars[i] == '\n') {
                     waitForNewLine = false;
-                    if (tempKey != null) {
-                        put(tempKey, getValue(chars, offset, i - offset - 1));
-//                            headers.put(tempKey, getValue( offset, i - offset - 1));
-//                        offset++;
-                        tempKey = null;
-                    }
+                    onHeaderValue(chars, offset, i - offset - 1);
 //                    r = 0;
 
                     i++;
@@ -145,9 +154,7 @@ public abstract class HttpHeadersReader {
         for (int i = offset; i < l; i++) {
             byte ch = chars[i];
             if (ch == ':') {
-//                    tempKey = getValue(bytes, offset, i - offset);
-                tempKey = getValue(chars, offset, i - offset);
-//                    tempKey = getValue(s, offset, i - offset);
+                onHeaderName(chars, offset, i - offset);
                 waitForNewLine = true;
 
                 i++;
@@ -168,9 +175,38 @@ public abstract class HttpHeadersReader {
         if (complete || length == 0)
             return -1;
 
+        if (stale)
+            reset();
+
         return parseHeadersWithFirstLine(bytes, offset, length);
     }
 
+    protected void reset() {
+        stale = false;
+        if (table == null)
+            headers.clear();
+    }
+
+    protected void onHeaderName(byte[] chars, int offset, int length) {
+        if (table != null) {
+            table.appendName(buffer, r, chars, offset, length);
+            r = 0;
+        } else
+            tempKey = getValue(chars, offset, length);
+    }
+
+    protected void onHeaderValue(byte[] chars, int offset, int length) {
+        if (table != null) {
+            if (table.hasPendingName()) {
+                table.appendValue(buffer, r, chars, offset, length);
+                r = 0;
+            }
+        } else if (tempKey != null) {
+            put(tempKey, getValue(chars, offset, length));
+            tempKey = null;
+        }
+    }
+
     protected void put(String key, String value) {
         MultiValue hv = headers.putIfAbsent(key, new MultiValue(value));
         if (hv != null)
@@ -19,4 +19,14 @@ public class HttpIOThread<T extends HttpConnection> extends IOThread<T> {
         server.process(connection, this);
     }
 
+    @Override
+    public void onConnect(T connection) {
+        server.onConnect(connection);
+    }
+
+    @Override
+    public void onDisconnect(T connection) {
+        server.onDisconnect(connection);
+    }
+
 }
@@ -2,15 +2,22 @@ package com.wizzardo.http;
 
 import com.wizzardo.epoll.SslConfig;
 import com.wizzardo.epoll.readable.ReadableByteBuffer;
+import com.wizzardo.http.http2.Http2Listener;
 import com.wizzardo.http.mapping.UrlMapping;
+import com.wizzardo.http.metrics.Metrics;
+import com.wizzardo.http.metrics.RouteMetrics;
 import com.wizzardo.http.request.Header;
 import com.wizzardo.http.request.Request;
 import com.wizzardo.http.response.Response;
+import com.wizzardo.http.response.ResponseTemplate;
 import com.wizzardo.http.response.Status;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by wizzardo on 18.02.15.
@@ -22,11 +29,13 @@ public class HttpServer<T extends HttpConnection> extends AbstractHttpServer<T>
             .setBody("It's alive!".getBytes())
             .buildStaticResponse();
 
-    private byte[] serverName = "Server: wizzardo-http/0.1\r\n".getBytes();
+    protected ResponseTemplate responseTemplate = new ResponseTemplate().header(Header.KEY_SERVER, "wizzardo-http/0.1");
+    protected final Map<Handler, ResponseTemplate> handlerTemplates = new ConcurrentHashMap<>();
     protected FiltersMapping filtersMapping;
     protected UrlMapping<Handler> urlMapping;
     protected ServerDate serverDate = new ServerDate();
     protected boolean debug = false;
+    protected boolean compiledRouting = false;
     protected Handler notFoundHandler = (request, response) ->
             response.setStatus(Status._404)
                     .appendHeader(Header.KV_CONTENT_TYPE_TEXT_PLAIN)
@@ -100,6 +109,8 @@ public class HttpServer<T extends HttpConnection> extends AbstractHttpServer<T>
 
         urlMapping.setContext(context);
         filtersMapping.setContext(context);
+        if (compiledRouting)
+            urlMapping.setCompiled(true).compile();
     }
 
     protected void init() {
@@ -141,11 +152,15 @@ public class HttpServer<T extends HttpConnection> extends AbstractHttpServer<T>
 
     @Override
     protected void handle(T connection) throws Exception {
-        Request request = connection.getRequest();
-        Response response = connection.getResponse();
+        if (upgradeToHttp2(connection))
+            return;
 
+        handleRequest(connection.getRequest(), connection.getResponse());
+    }
+
+    protected Response handleRequest(Request request, Response response) throws IOException {
         response.appendHeader(serverDate.getDateAsBytes());
-        response.appendHeader(serverName);
+        response.template(responseTemplate);
 
         if (debug) {
             System.out.println("request: ");
@@ -155,7 +170,7 @@ public class HttpServer<T extends HttpConnection> extends AbstractHttpServer<T>
         }
 
         if (!filtersMapping.before(request, response))
-            return;
+            return response;
 
         response = handle(request, response);
 
@@ -166,6 +181,76 @@ public class HttpServer<T extends HttpConnection> extends AbstractHttpServer<T>
             System.out.println("response: ");
             System.out.println(response);
         }
+        return response;
+    }
+
+    /**
+     * Handles a request that is not the current request of its connection, like a stream of HTTP/2 connection.
+     * Errors are passed to the error handler, the response is not committed.
+     */
+    public Response serve(Request request, Response response) {
+        try {
+            response = handleRequest(request, response);
+        } catch (Exception e) {
+            try {
+                response = errorHandler.handle(request, response, e);
+            } catch (Exception ex) {
+                ex.printStackTrace();
+                response.setStatus(Status._500);
+            }
+        }
+
+        RouteMetrics route = request.getRoute();
+        if (route != null) {
+            route.recordResponse(response.status().code, response.contentLength());
+            request.setRoute(null);
+        }
+        return response;
+    }
+
+    /**
+     * Switches connection to HTTP/2 if it was started with the connection preface or with 'Upgrade: h2c' request
+     *
+     * @return true if the request must not be handled as HTTP/1
+     */
+    protected boolean upgradeToHttp2(T connection) {
+        Request request = connection.getRequest();
+        Response response = connection.getResponse();
+        if (request.method() == Request.Method.PRI) {
+            if (!http2) {
+                response.status(Status._505).appendHeader(Header.KV_CONNECTION_CLOSE);
+                return true;
+            }
+
+            // the first line and the empty line of the preface were already read as a request
+            connection.upgrade(createHttp2Listener(connection, 18));
+            response.async();
+            return true;
+        }
+
+        if (!http2 || !Header.VALUE_H2C.value.equalsIgnoreCase(request.header(Header.KEY_UPGRADE)))
+            return false;
+
+        String settings = request.header(Header.KEY_HTTP2_SETTINGS);
+        if (settings == null || request.contentLength() > 0 || request.isChunked())
+            return false;
+
+        byte[] decoded;
+        try {
+            decoded = Base64.getUrlDecoder().decode(settings.trim());
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+
+        connection.upgrade(createHttp2Listener(connection, 0).upgrade(request, decoded));
+        response.status(Status._101)
+                .header(Header.KEY_CONNECTION, Header.VALUE_UPGRADE)
+                .header(Header.KEY_UPGRADE, Header.VALUE_H2C);
+        return true;
+    }
+
+    protected Http2Listener createHttp2Listener(T connection, int prefaceOffset) {
+        return new Http2Listener(this, connection, prefaceOffset);
     }
 
     protected Response handle(Request request, Response response) throws IOException {
@@ -177,10 +262,70 @@ public class HttpServer<T extends HttpConnection> extends AbstractHttpServer<T>
     }
 
     protected Response handleNotFound(Request request, Response response) throws IOException {
+        if (metrics != null)
+            return measure(request, response, notFoundHandler, Metrics.NOT_FOUND);
+
         return notFoundHandler.handle(request, response);
     }
 
     protected Response handle(Request request, Response response, Handler handler) throws IOException {
+        ResponseTemplate template = handler.template();
+        if (template != null && response.template() == responseTemplate)
+            response.template(templateOf(handler, template));
+
+        if (metrics != null)
+            return measure(request, response, handler, handler.name());
+
         return handler.handle(request, response);
     }
+
+    /**
+     * @return template of the handler merged with the template of the server, it is built once per handler
+     */
+    protected ResponseTemplate templateOf(Handler handler, ResponseTemplate template) {
+        ResponseTemplate merged = handlerTemplates.get(handler);
+        if (merged == null) {
+            merged = responseTemplate.merge(template);
+            handlerTemplates.put(handler, merged);
+        }
+        return merged;
+    }
+
+    /**
+     * @return headers that are sent with every response, 'Server' by default
+     */
+    public ResponseTemplate getResponseTemplate() {
+        return responseTemplate;
+    }
+
+    public HttpServer<T> setResponseTemplate(ResponseTemplate responseTemplate) {
+        checkIfStarted();
+        this.responseTemplate = responseTemplate;
+        handlerTemplates.clear();
+        return this;
+    }
+
+    /**
+     * Resolve handlers with {@link com.wizzardo.http.mapping.CompiledUrlMapping}, a byte radix trie built at start,
+     * that matches raw bytes of the request path without regular expressions
+     */
+    public void setCompiledRouting(boolean enabled) {
+        checkIfStarted();
+        this.compiledRouting = enabled;
+    }
+
+    public boolean isCompiledRouting() {
+        return compiledRouting;
+    }
+
+    protected Response measure(Request request, Response response, Handler handler, String name) throws IOException {
+        RouteMetrics route = metrics.route(name);
+        request.setRoute(route);
+        long time = System.nanoTime();
+        try {
+            return handler.handle(request, response);
+        } finally {
+            route.recordHandlerTime(System.nanoTime() - time);
+        }
+    }
 }
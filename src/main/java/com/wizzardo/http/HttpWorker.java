@@ -19,6 +19,8 @@ public class HttpWorker<T extends HttpConnection> extends Worker<T> {
         if (!connection.processingBy.compareAndSet(null, this))
             return;
 
+        server.onDequeued(connection);
+
         if (server.checkData(connection, this))
             while (server.processConnection(connection)) {
             }
@@ -62,9 +62,9 @@ public class MultipartHandler implements Handler {
             response.commit(c);
             if (!c.isKeepAlive())
                 c.setCloseOnFinishWriting(true);
-            c.onFinishingHandling();
             clean(request);
-        }, length, br));
+            c.onFinishingHandling();
+        }, length, request.isChunked() ? new ChunkedDecoder(limit) : null, br));
         response.async();
         return response;
     }
@@ -85,22 +85,32 @@ public class MultipartHandler implements Handler {
     }
 
     protected InputListener<HttpConnection> createListener(OnFinishProcessing onFinishProcessing, long length, BlockReader br) {
+        return createListener(onFinishProcessing, length, null, br);
+    }
+
+    /**
+     * @param decoder decodes the body before it is passed to the block reader, null if the body is not chunked
+     */
+    protected InputListener<HttpConnection> createListener(OnFinishProcessing onFinishProcessing, long length, ChunkedDecoder decoder, BlockReader br) {
         return new InputListener<HttpConnection>() {
             final AtomicLong read = new AtomicLong();
+            final ChunkedDecoder.Consumer sink = this::compact;
+            int decoded;
 
             @Override
             public void onReadyToRead(HttpConnection c) {
                 try {
-                    if (read.get() != length) {
+                    if (!isComplete()) {
                         byte[] buffer = c.getBuffer();
                         int r;
-                        ByteBufferProvider bufferProvider = (ByteBufferProvider) Thread.currentThread();
+                        ByteBufferProvider bufferProvider = Worker.bufferProvider();
                         while ((r = c.read(buffer, bufferProvider)) > 0) {
-                            br.process(buffer, 0, r);
-                            if (!checkLimit(read.addAndGet(r), c))
+                            if (!process(c, buffer, 0, r))
                                 return;
+                            if (decoder != null && decoder.isComplete())
+                                break;
                         }
-                        if (read.get() != length)
+                        if (!isComplete())
                             return;
                     }
                     onFinishProcessing.onFinish(c);
@@ -112,24 +122,60 @@ public class MultipartHandler implements Handler {
             @Override
             public void onReady(HttpConnection c) {
                 byte[] buffer = c.getBuffer();
-                int r = c.getBufferLimit() - c.getBufferPosition();
-                br.process(buffer, c.getBufferPosition(), r);
+                int position = c.getBufferPosition();
+                int r = c.getBufferLimit() - position;
                 c.resetBuffer();
-                if (!checkLimit(read.addAndGet(r), c))
-                    return;
+                try {
+                    if (!process(c, buffer, position, r))
+                        return;
+                } catch (IOException e) {
+                    throw Unchecked.rethrow(e);
+                }
 
                 onReadyToRead(c);
             }
 
-            boolean checkLimit(long read, HttpConnection c) {
-                if (read > length) {
-                    clean(c.request);
-                    c.response.setStatus(Status._413).commit(c);
-                    c.setCloseOnFinishWriting(true);
+            boolean isComplete() {
+                return decoder != null ? decoder.isComplete() : read.get() == length;
+            }
+
+            boolean process(HttpConnection c, byte[] bytes, int offset, int l) throws IOException {
+                if (decoder == null) {
+                    br.process(bytes, offset, l);
+                    if (read.addAndGet(l) > length) {
+                        reject(c, Status._413);
+                        return false;
+                    }
+                    return true;
+                }
+
+                int consumed;
+                try {
+                    decoded = 0;
+                    consumed = decoder.decode(bytes, offset, l, sink);
+                } catch (HttpException e) {
+                    reject(c, e.status);
                     return false;
                 }
+                br.process(bytes, 0, decoded);
+                if (consumed < l) // pipelined request after the last chunk
+                    c.unread(bytes, offset + consumed, l - consumed);
                 return true;
             }
+
+            /**
+             * moves decoded data to the start of the array, it never overtakes the encoded data that is not decoded yet
+             */
+            void compact(byte[] bytes, int offset, int length) {
+                System.arraycopy(bytes, offset, bytes, decoded, length);
+                decoded += length;
+            }
+
+            void reject(HttpConnection c, Status status) {
+                clean(c.request);
+                c.response.setStatus(status).commit(c);
+                c.setCloseOnFinishWriting(true);
+            }
         };
     }
 
@@ -233,7 +233,7 @@ public class ProxyHandler implements Handler {
 
         @Override
         public void close() throws IOException {
-            read(((ByteBufferProvider) Thread.currentThread()));
+            read(Worker.bufferProvider());
             super.close();
         }
 
@@ -248,7 +248,7 @@ public class ProxyHandler implements Handler {
 
             @Override
             public void onComplete() {
-                Unchecked.run(() -> ProxyConnection.this.read((ByteBufferProvider) Thread.currentThread()));
+                Unchecked.run(() -> ProxyConnection.this.read(Worker.bufferProvider()));
             }
         }
     }
@@ -297,10 +297,10 @@ public class ProxyHandler implements Handler {
             //todo: post request
 
 //        System.out.println("send request: " + requestBuilder);
-            finalConnection.write(AsciiReader.write(requestBuilder.toString()), (ByteBufferProvider) Thread.currentThread());
+            finalConnection.write(AsciiReader.write(requestBuilder.toString()), Worker.bufferProvider());
 
             if (request.getBody() != null)
-                finalConnection.write(request.data(), (ByteBufferProvider) Thread.currentThread());
+                finalConnection.write(request.data(), Worker.bufferProvider());
 
             return null;
         });
@@ -0,0 +1,66 @@
+package com.wizzardo.http;
+
+import com.wizzardo.epoll.ByteBufferProvider;
+import com.wizzardo.epoll.ByteBufferWrapper;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Worker that is not bound to its own thread, it is borrowed by a task submitted to an executor
+ * and is available through {@link #current()} while the task is running.
+ */
+public class VirtualWorker<T extends HttpConnection> implements ByteBufferProvider {
+
+    private static final ThreadLocal<VirtualWorker> current = new ThreadLocal<>();
+
+    protected AbstractHttpServer<T> server;
+    protected ByteBufferWrapper byteBufferWrapper = new ByteBufferWrapper(1024 * 50);
+
+    public VirtualWorker(AbstractHttpServer<T> server) {
+        this.server = server;
+    }
+
+    public static VirtualWorker current() {
+        return current.get();
+    }
+
+    public void execute(T connection) {
+        current.set(this);
+        try {
+            process(connection);
+        } finally {
+            current.remove();
+        }
+    }
+
+    /**
+     * runs a task that is not bound to a connection, like a stream of HTTP/2 connection
+     */
+    public void execute(Runnable task) {
+        current.set(this);
+        try {
+            task.run();
+        } finally {
+            current.remove();
+        }
+    }
+
+    protected void process(T connection) {
+        Thread thread = Thread.currentThread();
+        if (!connection.processingBy.compareAndSet(null, thread))
+            return;
+
+        server.onDequeued(connection);
+
+        if (server.checkData(connection, this))
+            while (server.processConnection(connection)) {
+            }
+
+        connection.processingBy.set(null);
+    }
+
+    @Override
+    public ByteBufferWrapper getBuffer() {
+        return byteBufferWrapper;
+    }
+}
@@ -0,0 +1,402 @@
+package com.wizzardo.http;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Lock-free alternative to {@link java.util.concurrent.LinkedBlockingQueue} for dispatching connections to workers.
+ * Items are spread over bounded ring buffers (one lane per worker), each consumer polls its own lane first
+ * and steals from the others when it is empty. Idle consumers are parked and woken up by producers.
+ * Iterators are weakly consistent, they go over the items present in the lanes at the moment of creation
+ * and may miss items added or polled after it.
+ */
+public class WorkStealingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    protected static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 64 : 0;
+
+    protected final Lane[] lanes;
+    protected final AtomicInteger count = new AtomicInteger();
+    protected final AtomicInteger idle = new AtomicInteger();
+    protected final AtomicInteger consumers = new AtomicInteger();
+    protected final ThreadLocal<Integer> home;
+    protected final int capacity;
+
+    public WorkStealingQueue(int lanes) {
+        this(lanes, Integer.MAX_VALUE);
+    }
+
+    public WorkStealingQueue(int lanes, int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be > 0");
+
+        lanes = Math.max(lanes, 1);
+        int laneCapacity = nextPowerOfTwo(Math.max((int) Math.min((capacity + (long) lanes - 1) / lanes, 1 << 16), 2));
+        this.lanes = new Lane[lanes];
+        for (int i = 0; i < lanes; i++) {
+            this.lanes[i] = new Lane(laneCapacity);
+        }
+        this.capacity = (int) Math.min((long) laneCapacity * lanes, Integer.MAX_VALUE);
+
+        int length = lanes;
+        home = ThreadLocal.withInitial(() -> consumers.getAndIncrement() % length);
+    }
+
+    protected static int nextPowerOfTwo(int i) {
+        return i <= 1 ? 1 : Integer.highestOneBit(i - 1) << 1;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+
+        Lane[] lanes = this.lanes;
+        int length = lanes.length;
+        int h = e.hashCode();
+        int start = ((h ^ (h >>> 16)) & 0x7fffffff) % length;
+        for (int i = 0; i < length; i++) {
+            int index = start + i;
+            if (index >= length)
+                index -= length;
+
+            if (lanes[index].offer(e)) {
+                count.incrementAndGet();
+                if (idle.get() > 0)
+                    wakeUp(index);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected void wakeUp(int preferred) {
+        Lane[] lanes = this.lanes;
+        int length = lanes.length;
+        for (int i = 0; i < length; i++) {
+            int index = preferred + i;
+            if (index >= length)
+                index -= length;
+
+            Thread thread = lanes[index].waiter.getAndSet(null);
+            if (thread != null) {
+                idle.decrementAndGet();
+                LockSupport.unpark(thread);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public E poll() {
+        return poll(home.get());
+    }
+
+    protected E poll(int home) {
+        Lane[] lanes = this.lanes;
+        int length = lanes.length;
+        for (int i = 0; i < length; i++) {
+            int index = home + i;
+            if (index >= length)
+                index -= length;
+
+            E e = (E) lanes[index].poll();
+            if (e != null) {
+                count.decrementAndGet();
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        return poll(0, false);
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return poll(unit.toNanos(timeout), true);
+    }
+
+    protected E poll(long timeoutNanos, boolean timed) throws InterruptedException {
+        int home = this.home.get();
+        long deadline = timed ? System.nanoTime() + timeoutNanos : 0;
+        int spins = SPINS;
+        E e;
+        while ((e = poll(home)) == null) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+
+            if (spins > 0) {
+                spins--;
+                continue;
+            }
+
+            long nanos = 0;
+            if (timed && (nanos = deadline - System.nanoTime()) <= 0)
+                return null;
+
+            park(home, nanos);
+            spins = SPINS;
+        }
+        return e;
+    }
+
+    protected void park(int home, long nanos) {
+        Thread thread = Thread.currentThread();
+        Lane lane = findFreeSlot(home, thread);
+        if (lane == null) {
+            LockSupport.parkNanos(this, nanos > 0 ? Math.min(nanos, 1_000_000) : 1_000_000);
+            return;
+        }
+
+        idle.incrementAndGet();
+        if (count.get() > 0) {
+            if (lane.waiter.compareAndSet(thread, null))
+                idle.decrementAndGet();
+            return;
+        }
+
+        if (nanos > 0)
+            LockSupport.parkNanos(this, nanos);
+        else
+            LockSupport.park(this);
+
+        if (lane.waiter.compareAndSet(thread, null))
+            idle.decrementAndGet();
+    }
+
+    protected Lane findFreeSlot(int home, Thread thread) {
+        Lane[] lanes = this.lanes;
+        int length = lanes.length;
+        for (int i = 0; i < length; i++) {
+            int index = home + i;
+            if (index >= length)
+                index -= length;
+
+            if (lanes[index].waiter.compareAndSet(null, thread))
+                return lanes[index];
+        }
+        return null;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        while (!offer(e)) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            LockSupport.parkNanos(this, 100_000);
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!offer(e)) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+
+            long nanos = deadline - System.nanoTime();
+            if (nanos <= 0)
+                return false;
+            LockSupport.parkNanos(this, Math.min(nanos, 100_000));
+        }
+        return true;
+    }
+
+    @Override
+    public E peek() {
+        for (Lane lane : lanes) {
+            E e = (E) lane.peek();
+            if (e != null)
+                return e;
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return Math.max(count.get(), 0);
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(capacity - size(), 0);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == this)
+            throw new IllegalArgumentException();
+
+        int i = 0;
+        E e;
+        while (i < maxElements && (e = poll()) != null) {
+            c.add(e);
+            i++;
+        }
+        return i;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    protected class Itr implements Iterator<E> {
+        final List<Object> items = new ArrayList<>();
+        final List<Lane> itemLanes = new ArrayList<>();
+        final List<Long> positions = new ArrayList<>();
+        int next;
+        int last = -1;
+
+        Itr() {
+            for (Lane lane : lanes) {
+                long tail = lane.tail.get();
+                for (long position = lane.head.get(); position < tail; position++) {
+                    Object o = lane.get(position);
+                    if (o != null) {
+                        items.add(o);
+                        itemLanes.add(lane);
+                        positions.add(position);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < items.size();
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            last = next++;
+            return (E) items.get(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last == -1)
+                throw new IllegalStateException();
+
+            if (itemLanes.get(last).remove(positions.get(last), items.get(last)))
+                count.decrementAndGet();
+            last = -1;
+        }
+    }
+
+    /**
+     * bounded multi-producer multi-consumer ring buffer,
+     * items removed by an iterator are replaced with {@link #REMOVED} and skipped by consumers
+     */
+    protected static class Lane {
+        static final Object REMOVED = new Object();
+
+        final AtomicReferenceArray<Object> items;
+        final AtomicLongArray sequences;
+        final AtomicLong head = new AtomicLong();
+        final AtomicLong tail = new AtomicLong();
+        final AtomicReference<Thread> waiter = new AtomicReference<>();
+        final int mask;
+
+        Lane(int capacity) {
+            items = new AtomicReferenceArray<>(capacity);
+            sequences = new AtomicLongArray(capacity);
+            mask = capacity - 1;
+            for (int i = 0; i < capacity; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        boolean offer(Object o) {
+            long position = tail.get();
+            int index;
+            while (true) {
+                index = (int) position & mask;
+                long diff = sequences.get(index) - position;
+                if (diff == 0) {
+                    if (tail.compareAndSet(position, position + 1))
+                        break;
+                    position = tail.get();
+                } else if (diff < 0) {
+                    return false;
+                } else {
+                    position = tail.get();
+                }
+            }
+
+            items.lazySet(index, o);
+            sequences.lazySet(index, position + 1);
+            return true;
+        }
+
+        Object poll() {
+            while (true) {
+                long position = head.get();
+                int index;
+                while (true) {
+                    index = (int) position & mask;
+                    long diff = sequences.get(index) - (position + 1);
+                    if (diff == 0) {
+                        if (head.compareAndSet(position, position + 1))
+                            break;
+                        position = head.get();
+                    } else if (diff < 0) {
+                        return null;
+                    } else {
+                        position = head.get();
+                    }
+                }
+
+                Object o = items.getAndSet(index, null);
+                sequences.lazySet(index, position + mask + 1);
+                if (o != REMOVED)
+                    return o;
+            }
+        }
+
+        Object peek() {
+            long tail = this.tail.get();
+            for (long position = head.get(); position < tail; position++) {
+                Object o = get(position);
+                if (o != null)
+                    return o;
+            }
+            return null;
+        }
+
+        /**
+         * @return item at the position if it is still in the lane
+         */
+        Object get(long position) {
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1)
+                return null;
+
+            Object o = items.get(index);
+            return o == REMOVED ? null : o;
+        }
+
+        boolean remove(long position, Object o) {
+            int index = (int) position & mask;
+            return sequences.get(index) == position + 1 && items.compareAndSet(index, o, REMOVED);
+        }
+    }
+}
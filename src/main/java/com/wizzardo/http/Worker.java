@@ -46,5 +46,17 @@ public abstract class Worker<T> extends Thread implements ByteBufferProvider {
         return byteBufferWrapper;
     }
 
+    public static ByteBufferProvider bufferProvider() {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof ByteBufferProvider)
+            return (ByteBufferProvider) thread;
+
+        VirtualWorker worker = VirtualWorker.current();
+        if (worker == null)
+            throw new IllegalStateException("There is no ByteBufferProvider bound to " + thread);
+
+        return worker;
+    }
+
     protected abstract void process(T item);
 }
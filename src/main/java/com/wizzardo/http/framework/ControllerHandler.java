@@ -4,6 +4,7 @@ import com.wizzardo.epoll.readable.ReadableData;
 import com.wizzardo.http.Handler;
 import com.wizzardo.http.MultipartHandler;
 import com.wizzardo.http.RestHandler;
+import com.wizzardo.http.framework.di.Dependency;
 import com.wizzardo.http.framework.di.DependencyFactory;
 import com.wizzardo.http.framework.parameters.ParametersHelper;
 import com.wizzardo.http.framework.template.Model;
@@ -18,6 +19,10 @@ import com.wizzardo.tools.json.JsonTools;
 import com.wizzardo.tools.misc.Unchecked;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
@@ -43,7 +48,20 @@ public class ControllerHandler<T extends Controller> implements Handler {
 
     protected static final Handler HANDLER_NOOP = (request, response) -> response;
 
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodHandle PARAMETERS_MAPPING_EXCEPTION;
+
+    static {
+        try {
+            PARAMETERS_MAPPING_EXCEPTION = LOOKUP.findConstructor(ParametersMappingException.class, MethodType.methodType(void.class, Exception.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     protected Class<T> controller;
+    protected volatile Dependency<T> controllerDependency;
+    protected volatile int controllerGeneration;
     protected String controllerName;
     protected String actionName;
     protected CollectionTools.Closure<ReadableData, T> renderer;
@@ -98,17 +116,32 @@ public class ControllerHandler<T extends Controller> implements Handler {
 //        request.controller(controllerName);
 //        request.action(actionName);
 
-        RequestContext context = (RequestContext) Thread.currentThread();
+        RequestContext context = RequestContext.get();
         context.setController(controllerName);
         context.setAction(actionName);
 
-        T c = DependencyFactory.get(controller);
+        T c = controllerDependency().get();
         c.request = request;
         c.response = response;
 
         return doHandle(response, c);
     }
 
+    /**
+     * Resolved on first request, after the application has registered its dependencies,
+     * and again after any change of the {@link DependencyFactory}
+     */
+    protected Dependency<T> controllerDependency() {
+        Dependency<T> dependency = controllerDependency;
+        int generation = DependencyFactory.get().generation();
+        if (dependency == null || controllerGeneration != generation) {
+            dependency = DependencyFactory.getDependency(controller);
+            controllerGeneration = generation;
+            controllerDependency = dependency;
+        }
+        return dependency;
+    }
+
     protected Response doHandle(Response response, T c) {
         ReadableData data = renderer.execute(c);
         if (data != null)
@@ -123,93 +156,143 @@ public class ControllerHandler<T extends Controller> implements Handler {
     }
 
     protected CollectionTools.Closure<ReadableData, T> createRenderer(Method method) {
-        CollectionTools.Closure2<Renderer, T, Object[]> invoker = createInvoker(method);
-        if (method.getParameterCount() == 0) {
-            Object[] args = new Object[0];
+        Parameter[] parameters = method.getParameters();
+        for (Parameter parameter : parameters) {
+            if (parameter.isNamePresent())
+                continue;
+            if (parameter.isAnnotationPresent(com.wizzardo.http.framework.parameters.Parameter.class))
+                continue;
+
+            Class<?> type = parameter.getType();
+            if (type.isPrimitive() || type.isEnum() || PARSABLE_TYPES.contains(type))
+                throw new IllegalStateException("Can't parse parameters for '" + controllerName + "." + actionName + "', parameters names are not present. Please run javac with '-parameters' or add an annotation Parameter");
+        }
+
+        Mapper<Request, Object>[] argsMappers = new Mapper[parameters.length];
+        Type[] types = method.getGenericParameterTypes();
+        for (int i = 0; i < parameters.length; i++) {
+            try {
+                argsMappers[i] = ParametersHelper.createParametersMapper(parameters[i], types[i]);
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Can't create parameter mapper ' in '" + controllerName + "." + actionName + "'", e);
+            }
+        }
+
+        CollectionTools.Closure<Renderer, T> invoker = createInvoker(method, compileAction(method, argsMappers));
+        if (parameters.length == 0) {
             return it -> {
-                Renderer renderer = invoker.execute(it, args);
+                Renderer renderer = invoker.execute(it);
                 return renderer != null ? renderer.renderReadableData() : null;
             };
-        } else {
-            Parameter[] parameters = method.getParameters();
-            for (Parameter parameter : parameters) {
-                if (parameter.isNamePresent())
-                    continue;
-                if (parameter.isAnnotationPresent(com.wizzardo.http.framework.parameters.Parameter.class))
-                    continue;
-
-                Class<?> type = parameter.getType();
-                if (type.isPrimitive() || type.isEnum() || PARSABLE_TYPES.contains(type))
-                    throw new IllegalStateException("Can't parse parameters for '" + controllerName + "." + actionName + "', parameters names are not present. Please run javac with '-parameters' or add an annotation Parameter");
+        }
+
+        return it -> {
+            Renderer renderer;
+            try {
+                renderer = invoker.execute(it);
+            } catch (ParametersMappingException e) {
+                it.response.setBody(JsonTools.serialize(collectExceptions(argsMappers, it.request))).status(Status._400);
+                return null;
             }
+            return renderer != null ? renderer.renderReadableData() : null;
+        };
+    }
 
-            Mapper<Request, Object>[] argsMappers = new Mapper[parameters.length];
-            Type[] types = method.getGenericParameterTypes();
-            for (int i = 0; i < parameters.length; i++) {
-                try {
-                    argsMappers[i] = ParametersHelper.createParametersMapper(parameters[i], types[i]);
-                } catch (Exception e) {
-                    throw new IllegalArgumentException("Can't create parameter mapper ' in '" + controllerName + "." + actionName + "'", e);
-                }
+    /**
+     * Maps all the arguments again to report every invalid parameter, not only the first one
+     */
+    protected Exceptions collectExceptions(Mapper<Request, Object>[] mappers, Request request) {
+        Exceptions exceptions = new Exceptions(mappers.length);
+        for (Mapper<Request, Object> mapper : mappers) {
+            try {
+                mapper.map(request);
+            } catch (Exception e) {
+                exceptions.add(e.getClass().getCanonicalName() + ": " + e.getMessage());
             }
+        }
+        return exceptions;
+    }
 
-            return it -> {
-                Mapper<Request, Object>[] mappers = argsMappers;
-                Object[] args = new Object[mappers.length];
-                Request request = it.request;
-                Exceptions exceptions = null;
-                for (int i = 0; i < mappers.length; i++) {
-                    try {
-                        args[i] = mappers[i].map(request);
-                    } catch (Exception e) {
-                        if (exceptions == null)
-                            exceptions = new Exceptions(mappers.length);
-
-//                        e.printStackTrace();
-                        exceptions.add(e.getClass().getCanonicalName() + ": " + e.getMessage());
-                    }
-                }
-
-                if (exceptions != null) {
-                    it.response.setBody(JsonTools.serialize(exceptions)).status(Status._400);
-                    return null;
-                }
+    /**
+     * @return handle of type (Controller, Request)Object that maps parameters from the request and calls the action,
+     * failures of mapping are rethrown as {@link ParametersMappingException}
+     */
+    protected static MethodHandle compileAction(Method method, Mapper<Request, Object>[] argsMappers) {
+        MethodHandle action;
+        try {
+            action = LOOKUP.unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Can't access action '" + method + "'", e);
+        }
+        action = action.asType(action.type()
+                .changeParameterType(0, Controller.class)
+                .changeReturnType(Object.class));
+
+        Parameter[] parameters = method.getParameters();
+        if (parameters.length == 0)
+            return MethodHandles.dropArguments(action, 1, Request.class);
+
+        MethodHandle[] filters = new MethodHandle[parameters.length];
+        int[] reorder = new int[parameters.length + 1];
+        for (int i = 0; i < parameters.length; i++) {
+            MethodHandle filter = ParametersHelper.createParameterHandle(parameters[i], argsMappers[i]);
+            MethodHandle failed = MethodHandles.filterArguments(MethodHandles.throwException(filter.type().returnType(), ParametersMappingException.class), 0, PARAMETERS_MAPPING_EXCEPTION);
+            filters[i] = MethodHandles.catchException(filter, Exception.class, MethodHandles.dropArguments(failed, 1, Request.class));
+            reorder[i + 1] = 1;
+        }
 
+        action = MethodHandles.filterArguments(action, 1, filters);
+        return MethodHandles.permuteArguments(action, MethodType.methodType(Object.class, Controller.class, Request.class), reorder);
+    }
 
-                Renderer renderer = invoker.execute(it, args);
-                return renderer != null ? renderer.renderReadableData() : null;
-            };
+    protected static Object invoke(MethodHandle action, Controller controller) {
+        try {
+            return action.invokeExact(controller, controller.request);
+        } catch (Error e) {
+            throw e;
+        } catch (Exception e) {
+            throw Unchecked.rethrow(e);
+        } catch (Throwable e) {
+            throw Unchecked.rethrow(new InvocationTargetException(e));
         }
     }
 
-    private CollectionTools.Closure2<Renderer, T, Object[]> createInvoker(Method method) {
+    private CollectionTools.Closure<Renderer, T> createInvoker(Method method, MethodHandle action) {
         if (Renderer.class.isAssignableFrom(method.getReturnType()))
-            return (it, args) -> Unchecked.call(() -> (Renderer) method.invoke(it, args));
+            return it -> (Renderer) invoke(action, it);
 
         if ((Model.class.isAssignableFrom(method.getReturnType()) || method.getReturnType() == Void.TYPE) && viewRenderingService.hasView(controllerName, actionName)) {
-            return (it, args) -> Unchecked.call(() -> {
-                method.invoke(it, args);
+            return it -> {
+                invoke(action, it);
                 if (it.response.isAsync())
                     return null;
                 return it.renderView(actionName);
-            });
+            };
         }
 
         if (String.class.isAssignableFrom(method.getReturnType()))
-            return (it, args) -> Unchecked.call(() -> it.renderString((String) method.invoke(it, args)));
+            return it -> it.renderString((String) invoke(action, it));
 
         if (ReadableData.class.isAssignableFrom(method.getReturnType()))
-            return (it, args) -> Unchecked.call(() -> it.renderData((ReadableData) method.invoke(it, args)));
+            return it -> it.renderData((ReadableData) invoke(action, it));
 
         if (byte[].class.isAssignableFrom(method.getReturnType()))
-            return (it, args) -> Unchecked.call(() -> it.renderData((byte[]) method.invoke(it, args)));
+            return it -> it.renderData((byte[]) invoke(action, it));
 
         if (!PARSABLE_TYPES.contains(method.getReturnType()) && !method.getReturnType().isPrimitive())
-            return (it, args) -> Unchecked.call(() -> it.renderJson(method.invoke(it, args)));
+            return it -> it.renderJson(invoke(action, it));
 
         throw new IllegalStateException("Cannot create renderer for " + method.getReturnType());
     }
 
+    protected static class ParametersMappingException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public ParametersMappingException(Exception cause) {
+            super(null, cause, false, false);
+        }
+    }
+
     static class Exceptions {
         List<String> messages;
 
@@ -1,5 +1,7 @@
 package com.wizzardo.http.framework;
 
+import com.wizzardo.http.VirtualWorker;
+
 /**
  * Created by wizzardo on 02.01.16.
  */
@@ -17,7 +19,11 @@ public interface RequestContext {
     void setAction(String action);
 
     static RequestContext get() {
-        return (RequestContext) Thread.currentThread();
+        Thread thread = Thread.currentThread();
+        if (thread instanceof RequestContext)
+            return (RequestContext) thread;
+
+        return (RequestContext) VirtualWorker.current();
     }
 
     void reset();
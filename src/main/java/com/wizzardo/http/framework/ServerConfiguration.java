@@ -17,13 +17,24 @@ public class ServerConfiguration implements Configuration {
     public final int postBodyLimit;
     public final int websocketFrameLengthLimit;
     public final int maxRequestsInQueue;
+    public final boolean workStealing;
+    public final boolean virtualThreads;
+    public final boolean lazyHeaders;
+    public final boolean recycleRequests;
+    public final boolean leakDetection;
+    public final boolean streamingBody;
+    public final int bodySpillThreshold;
+    public final boolean http2;
+    public final boolean pipelineBatching;
+    public final boolean compiledRouting;
     public final SslConfig ssl;
     public final BasicAuth basicAuth;
     public final Resources resources;
     public final Multipart multipart;
     public final Renderer renderer;
+    public final Metrics metrics;
 
-    public ServerConfiguration(String hostname, int port, String context, Session session, boolean debugOutput, int ioWorkersCount, int workersCount, long ttl, int postBodyLimit, int websocketFrameLengthLimit, int maxRequestsInQueue, SslConfig ssl, BasicAuth basicAuth, Resources resources, Multipart multipart, Renderer renderer) {
+    public ServerConfiguration(String hostname, int port, String context, Session session, boolean debugOutput, int ioWorkersCount, int workersCount, long ttl, int postBodyLimit, int websocketFrameLengthLimit, int maxRequestsInQueue, boolean workStealing, boolean virtualThreads, boolean lazyHeaders, boolean recycleRequests, boolean leakDetection, boolean streamingBody, int bodySpillThreshold, boolean http2, boolean pipelineBatching, boolean compiledRouting, SslConfig ssl, BasicAuth basicAuth, Resources resources, Multipart multipart, Renderer renderer, Metrics metrics) {
         this.hostname = hostname;
         this.port = port;
         this.context = context;
@@ -35,15 +46,26 @@ public class ServerConfiguration implements Configuration {
         this.postBodyLimit = postBodyLimit;
         this.websocketFrameLengthLimit = websocketFrameLengthLimit;
         this.maxRequestsInQueue = maxRequestsInQueue;
+        this.workStealing = workStealing;
+        this.virtualThreads = virtualThreads;
+        this.lazyHeaders = lazyHeaders;
+        this.recycleRequests = recycleRequests;
+        this.leakDetection = leakDetection;
+        this.streamingBody = streamingBody;
+        this.bodySpillThreshold = bodySpillThreshold;
+        this.http2 = http2;
+        this.pipelineBatching = pipelineBatching;
+        this.compiledRouting = compiledRouting;
         this.ssl = ssl;
         this.basicAuth = basicAuth;
         this.resources = resources;
         this.multipart = multipart;
         this.renderer = renderer;
+        this.metrics = metrics;
     }
 
     public ServerConfiguration() {
-        this(null, -1, null, null, false, -1, -1, -1, -1, -1, -1, null, null, null, null, null);
+        this(null, -1, null, null, false, -1, -1, -1, -1, -1, -1, false, false, false, false, false, false, -1, false, false, false, null, null, null, null, null, null);
     }
 
     public static class Session {
@@ -72,6 +94,20 @@ public class ServerConfiguration implements Configuration {
         }
     }
 
+    public static class Metrics {
+        public final boolean enabled;
+        public final String path;
+
+        public Metrics(boolean enabled, String path) {
+            this.enabled = enabled;
+            this.path = path;
+        }
+
+        public Metrics() {
+            this(false, null);
+        }
+    }
+
     public static class SslConfig {
         public final String key;
         public final String cert;
@@ -89,14 +125,18 @@ public class ServerConfiguration implements Configuration {
     public static class Renderer {
         public final long viewCacheTtl;
         public final long templateCacheTtl;
+        public final long fragmentCacheLimit;
+        public final long fragmentCacheTtl;
 
-        public Renderer(long viewCacheTtl, long templateCacheTtl) {
+        public Renderer(long viewCacheTtl, long templateCacheTtl, long fragmentCacheLimit, long fragmentCacheTtl) {
             this.viewCacheTtl = viewCacheTtl;
             this.templateCacheTtl = templateCacheTtl;
+            this.fragmentCacheLimit = fragmentCacheLimit;
+            this.fragmentCacheTtl = fragmentCacheTtl;
         }
 
         public Renderer() {
-            this(-1, -1);
+            this(-1, -1, -1, -1);
         }
     }
 
@@ -141,17 +181,26 @@ public class ServerConfiguration implements Configuration {
             public final long maxFileSize;
             public final boolean enabled;
             public final boolean gzip;
-
-            public Cache(long ttl, long memoryLimit, long maxFileSize, boolean enabled, boolean gzip) {
+            /**
+             * serve files that are not kept in memory from memory-mapped regions, see {@link com.wizzardo.http.response.MappedFileCache}.
+             * A mapped file must not be truncated in place, reading the cut off pages raises SIGBUS,
+             * which fails the response with an InternalError or crashes the JVM
+             */
+            public final boolean mapped;
+            public final boolean warmUp;
+
+            public Cache(long ttl, long memoryLimit, long maxFileSize, boolean enabled, boolean gzip, boolean mapped, boolean warmUp) {
                 this.ttl = ttl;
                 this.memoryLimit = memoryLimit;
                 this.maxFileSize = maxFileSize;
                 this.enabled = enabled;
                 this.gzip = gzip;
+                this.mapped = mapped;
+                this.warmUp = warmUp;
             }
 
             public Cache() {
-                this(-1, -1, -1, false, false);
+                this(-1, -1, -1, false, false, false, false);
             }
         }
     }
@@ -12,6 +12,7 @@ import com.wizzardo.http.framework.message.MessageBundle;
 import com.wizzardo.http.framework.message.MessageSource;
 import com.wizzardo.http.framework.template.*;
 import com.wizzardo.http.mapping.UrlMapping;
+import com.wizzardo.http.metrics.MetricsHandler;
 import com.wizzardo.http.request.Request;
 import com.wizzardo.http.response.RangeResponseHelper;
 import com.wizzardo.http.response.Response;
@@ -41,6 +42,7 @@ public class WebApplication extends HttpServer<HttpConnection> {
     protected Consumer<WebApplication> onSetup;
     protected Consumer<WebApplication> onLoadConfiguration;
     protected Set<String> profiles;
+    protected FileTreeHandler<FileTreeHandler.HandlerContext> resourcesHandler;
 
     public WebApplication() {
     }
@@ -115,6 +117,7 @@ public class WebApplication extends HttpServer<HttpConnection> {
 
         TagLib.findTags(classes);
         DependencyFactory.get().register(DecoratorLib.class, new SingletonDependency<>(new DecoratorLib(classes)));
+        DependencyFactory.get().validate();
 
         super.onStart();
         System.out.println("application has started on port " + server.getPort());
@@ -160,6 +163,18 @@ public class WebApplication extends HttpServer<HttpConnection> {
         super.setPostBodyLimit(server.postBodyLimit);
         super.setWebsocketFrameLengthLimit(server.websocketFrameLengthLimit);
         super.setMaxRequestsInQueue(server.maxRequestsInQueue);
+        super.setWorkStealing(server.workStealing);
+        if (server.virtualThreads)
+            super.setVirtualThreads(true);
+        super.setLazyHeaders(server.lazyHeaders);
+        super.setRecycleRequests(server.recycleRequests);
+        super.setLeakDetection(server.leakDetection);
+        super.setStreamingBody(server.streamingBody);
+        if (server.bodySpillThreshold > 0)
+            super.setBodySpillThreshold(server.bodySpillThreshold);
+        super.setHttp2(server.http2);
+        super.setPipelineBatching(server.pipelineBatching);
+        super.setCompiledRouting(server.compiledRouting);
         super.setSessionTimeout(server.session.ttl);
         setContext(server.context);
 
@@ -178,6 +193,16 @@ public class WebApplication extends HttpServer<HttpConnection> {
         loadSslConfiguration(server.ssl);
         loadBasicAuthConfiguration(server.basicAuth);
         loadResourcesConfiguration(server.resources);
+        loadMetricsConfiguration(server.metrics);
+    }
+
+    protected void loadMetricsConfiguration(ServerConfiguration.Metrics metrics) {
+        if (metrics == null || !metrics.enabled)
+            return;
+
+        super.setMetrics(true);
+        if (!TextTools.isBlank(metrics.path))
+            urlMapping.append(metrics.path, new MetricsHandler(getMetrics()));
     }
 
     protected void loadResourcesConfiguration(ServerConfiguration.Resources resources) {
@@ -190,12 +215,20 @@ public class WebApplication extends HttpServer<HttpConnection> {
         String resourcesPath = resources.path;
         File staticResources = resourcesTools.getResourceFile(resourcesPath);
         if (staticResources != null && staticResources.exists()) {
+            RangeResponseHelper rangeResponseHelper = new RangeResponseHelper(resources.cache);
             FileTreeHandler<FileTreeHandler.HandlerContext> handler = new FileTreeHandler<>(staticResources, resources.mapping, "resources")
                     .setShowFolder(false)
-                    .setRangeResponseHelper(new RangeResponseHelper(resources.cache));
+                    .setRangeResponseHelper(rangeResponseHelper);
+            resourcesHandler = handler;
 
             DependencyFactory.get().register(FileTreeHandler.class, new SingletonDependency<>(handler));
             urlMapping.append(resources.mapping + "/*", handler);
+
+            if (resources.cache.enabled && resources.cache.warmUp) {
+                Thread thread = new Thread(() -> rangeResponseHelper.warmUp(staticResources), "resources-warm-up");
+                thread.setDaemon(true);
+                thread.start();
+            }
         }
     }
 
@@ -282,6 +315,16 @@ public class WebApplication extends HttpServer<HttpConnection> {
         server.put("postBodyLimit", 2 * 1024 * 1024);
         server.put("websocketFrameLengthLimit", 64 * 1024);
         server.put("maxRequestsInQueue", 1000);
+        server.put("workStealing", false);
+        server.put("virtualThreads", false);
+        server.put("lazyHeaders", false);
+        server.put("recycleRequests", false);
+        server.put("leakDetection", false);
+        server.put("streamingBody", false);
+        server.put("bodySpillThreshold", 64 * 1024);
+        server.put("http2", false);
+        server.put("pipelineBatching", false);
+        server.put("compiledRouting", false);
 
         Config session = server.config("session");
         session.put("ttl", 30 * 60);
@@ -296,14 +339,22 @@ public class WebApplication extends HttpServer<HttpConnection> {
         resourcesCache.put("maxFileSize", 5 * 1024 * 1024L);
         resourcesCache.put("enabled", true);
         resourcesCache.put("gzip", true);
+        resourcesCache.put("mapped", false);
+        resourcesCache.put("warmUp", false);
 
         Config multipart = server.config("multipart");
         multipart.put("limit", -1L);
         multipart.put("enabled", false);
 
+        Config metrics = server.config("metrics");
+        metrics.put("enabled", false);
+        metrics.put("path", "/metrics");
+
         Config renderer = server.config("renderer");
         renderer.put("viewCacheTtl", -1L);
         renderer.put("templateCacheTtl", -1L);
+        renderer.put("fragmentCacheLimit", 16 * 1024 * 1024L);
+        renderer.put("fragmentCacheTtl", -1L);
 
         loadDefaultDevelopmentConfiguration(config.config("environments").config("dev"));
     }
@@ -380,7 +431,7 @@ public class WebApplication extends HttpServer<HttpConnection> {
 
     @Override
     protected boolean processConnection(HttpConnection connection) {
-        RequestContext context = (RequestContext) Thread.currentThread();
+        RequestContext context = RequestContext.get();
         context.setRequestHolder(new RequestHolder(connection.getRequest(), connection.getResponse()));
         try {
             return super.processConnection(connection);
@@ -389,9 +440,20 @@ public class WebApplication extends HttpServer<HttpConnection> {
         }
     }
 
+    @Override
+    public Response serve(Request request, Response response) {
+        RequestContext context = RequestContext.get();
+        context.setRequestHolder(new RequestHolder(request, response));
+        try {
+            return super.serve(request, response);
+        } finally {
+            context.reset();
+        }
+    }
+
     @Override
     protected Response handle(Request request, Response response, Handler handler) throws IOException {
-        ((RequestContext) Thread.currentThread()).handler(handler.name());
+        RequestContext.get().handler(handler.name());
         return super.handle(request, response, handler);
     }
 
@@ -400,6 +462,11 @@ public class WebApplication extends HttpServer<HttpConnection> {
         return new WebWorker<>(this, group, queue, name);
     }
 
+    @Override
+    protected VirtualWorker<HttpConnection> createVirtualWorker() {
+        return new WebVirtualWorker<>(this);
+    }
+
     @Override
     protected IOThread<HttpConnection> createIOThread(int number, int divider) {
         return new WebIOThread<>(this, number, divider);
@@ -428,6 +495,13 @@ public class WebApplication extends HttpServer<HttpConnection> {
         return this;
     }
 
+    @Override
+    public void close() {
+        super.close();
+        if (resourcesHandler != null)
+            resourcesHandler.close();
+    }
+
     @Override
     public void setHostname(String hostname) {
         super.setHostname(hostname);
@@ -464,6 +538,72 @@ public class WebApplication extends HttpServer<HttpConnection> {
         config.config("server").put("workersCount", count);
     }
 
+    @Override
+    public void setWorkStealing(boolean enabled) {
+        super.setWorkStealing(enabled);
+        config.config("server").put("workStealing", enabled);
+    }
+
+    @Override
+    public void setVirtualThreads(boolean enabled) {
+        super.setVirtualThreads(enabled);
+        config.config("server").put("virtualThreads", enabled);
+    }
+
+    @Override
+    public void setLazyHeaders(boolean enabled) {
+        super.setLazyHeaders(enabled);
+        config.config("server").put("lazyHeaders", enabled);
+    }
+
+    @Override
+    public void setRecycleRequests(boolean enabled) {
+        super.setRecycleRequests(enabled);
+        config.config("server").put("recycleRequests", enabled);
+    }
+
+    @Override
+    public void setLeakDetection(boolean enabled) {
+        super.setLeakDetection(enabled);
+        config.config("server").put("leakDetection", enabled);
+    }
+
+    @Override
+    public void setStreamingBody(boolean enabled) {
+        super.setStreamingBody(enabled);
+        config.config("server").put("streamingBody", enabled);
+    }
+
+    @Override
+    public void setBodySpillThreshold(int bodySpillThreshold) {
+        super.setBodySpillThreshold(bodySpillThreshold);
+        config.config("server").put("bodySpillThreshold", bodySpillThreshold);
+    }
+
+    @Override
+    public void setHttp2(boolean enabled) {
+        super.setHttp2(enabled);
+        config.config("server").put("http2", enabled);
+    }
+
+    @Override
+    public void setPipelineBatching(boolean enabled) {
+        super.setPipelineBatching(enabled);
+        config.config("server").put("pipelineBatching", enabled);
+    }
+
+    @Override
+    public void setCompiledRouting(boolean enabled) {
+        super.setCompiledRouting(enabled);
+        config.config("server").put("compiledRouting", enabled);
+    }
+
+    @Override
+    public void setMetrics(boolean enabled) {
+        super.setMetrics(enabled);
+        config.config("server").config("metrics").put("enabled", enabled);
+    }
+
     @Override
     public void setContext(String context) {
         while (context != null && context.startsWith("/"))
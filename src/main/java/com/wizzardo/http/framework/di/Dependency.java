@@ -1,19 +1,7 @@
 package com.wizzardo.http.framework.di;
 
-import com.wizzardo.tools.cache.Cache;
-import com.wizzardo.tools.misc.Unchecked;
-import com.wizzardo.tools.reflection.FieldReflection;
-import com.wizzardo.tools.reflection.FieldReflectionFactory;
-
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
 import java.util.function.Supplier;
 
-import static com.wizzardo.http.framework.di.DependencyFactory.hasAnnotation;
-
 /**
  * Created by wizzardo on 05.05.15.
  */
@@ -21,6 +9,7 @@ public abstract class Dependency<T> {
     protected final Class<? extends T> clazz;
     protected final Supplier<T> supplier;
     protected final DependencyScope scope;
+    protected volatile InjectionPlan plan;
 
     public Dependency(Class<? extends T> clazz, DependencyScope scope) {
         this(clazz, scope.createSupplier(clazz), scope);
@@ -32,39 +21,6 @@ public abstract class Dependency<T> {
         this.clazz = clazz;
     }
 
-    protected static Cache<Class, List<FieldReflection>> dependencies = new Cache<>("class-fields", 0, clazz -> {
-        ArrayList<FieldReflection> l = new ArrayList<>();
-        FieldReflectionFactory reflectionFactory = new FieldReflectionFactory();
-        while (clazz != null) {
-            for (Field f : clazz.getDeclaredFields()) {
-                if (Modifier.isFinal(f.getModifiers()) || f.getType().isPrimitive())
-                    continue;
-
-                if (DependencyFactory.get().contains(f.getType()) || DependencyFactory.get().contains(f.getName())) {
-                    l.add(reflectionFactory.create(f, true));
-                    continue;
-                }
-
-                int mod = f.getType().getModifiers();
-                if (hasAnnotation(f.getType(), Injectable.class)
-                        || Modifier.isAbstract(mod)
-                        || Modifier.isInterface(mod)) {
-                    l.add(reflectionFactory.create(f, true));
-                } else {
-                    for (Class i : f.getType().getInterfaces()) {
-                        if (hasAnnotation(i, Injectable.class)) {
-                            l.add(reflectionFactory.create(f, true));
-                            break;
-                        }
-                    }
-                }
-            }
-            clazz = clazz.getSuperclass();
-        }
-        l.trimToSize();
-        return l;
-    });
-
     public abstract T get();
 
     protected T newInstance() {
@@ -96,41 +52,18 @@ public abstract class Dependency<T> {
         public InjectionFailedException(Throwable cause) {
             super(cause);
         }
+
+        public InjectionFailedException(String message, Throwable cause) {
+            super(message, cause);
+        }
     }
 
     protected void injectDependencies(Object ob) {
-        boolean ok = true;
-        Iterator<FieldReflection> i = dependencies.get(ob.getClass()).iterator();
-        while (ok && i.hasNext()) {
-            FieldReflection f = i.next();
-            try {
-                f.setObject(ob, DependencyFactory.get(f.getField()));
-            } catch (InjectionFailedException e) {
-                throw Unchecked.rethrow(e);
-            } catch (Exception e) {
-                if (hasAnnotation(f.getField().getType(), Injectable.class))
-                    throw new InjectionFailedException(e);
-
-                ok = false;
-                synchronized (ob.getClass()) {
-                    ArrayList<FieldReflection> list = new ArrayList<>(dependencies.get(ob.getClass()));
-                    Iterator<FieldReflection> iterator = list.iterator();
+        DependencyFactory factory = DependencyFactory.get();
+        InjectionPlan plan = this.plan;
+        if (plan == null || !plan.isValidFor(ob.getClass(), factory.generation))
+            this.plan = plan = factory.plan(ob.getClass());
 
-                    while (iterator.hasNext()) {
-                        f = iterator.next();
-                        try {
-                            f.setObject(ob, DependencyFactory.get(f.getField()));
-                        } catch (Exception ex) {
-                            if (hasAnnotation(f.getField().getType(), Injectable.class))
-                                throw new InjectionFailedException(ex);
-
-                            iterator.remove();
-                        }
-                    }
-                    list.trimToSize();
-                    dependencies.put(ob.getClass(), list);
-                }
-            }
-        }
+        plan.inject(ob);
     }
 }
@@ -1,10 +1,13 @@
 package com.wizzardo.http.framework.di;
 
 import com.wizzardo.tools.cache.Cache;
+import com.wizzardo.tools.reflection.FieldReflection;
+import com.wizzardo.tools.reflection.FieldReflectionFactory;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -18,6 +21,8 @@ public class DependencyFactory {
     private List<Class> classes;
     private final Map<Class, Class> mappingByClass = new ConcurrentHashMap<>();
     private final Map<String, Dependency> mappingByName = new ConcurrentHashMap<>();
+    private final Map<Class, InjectionPlan> plans = new ConcurrentHashMap<>();
+    volatile int generation;
 
     private Cache<Class, Dependency> dependencies = new Cache<>("dependencies", 0, clazz -> {
         Injectable injectable = getAnnotation(clazz, Injectable.class);
@@ -97,6 +102,108 @@ public class DependencyFactory {
 
     public void clear() {
         dependencies.clear();
+        invalidatePlans();
+    }
+
+    protected synchronized void invalidatePlans() {
+        generation++;
+        plans.clear();
+    }
+
+    /**
+     * @return plan with resolved dependencies for fields of the class, it is built once until dependencies are changed
+     * @throws Dependency.InjectionFailedException if a field of {@link Injectable} type can't be resolved
+     */
+    public InjectionPlan plan(Class clazz) {
+        int generation = this.generation;
+        InjectionPlan plan = plans.get(clazz);
+        if (plan != null && plan.isValidFor(clazz, generation))
+            return plan;
+
+        plan = createPlan(clazz, generation);
+        plans.put(clazz, plan);
+        return plan;
+    }
+
+    protected InjectionPlan createPlan(Class clazz, int generation) {
+        List<FieldReflection> fields = new ArrayList<>();
+        List<Dependency> dependencies = new ArrayList<>();
+        List<Boolean> required = new ArrayList<>();
+        FieldReflectionFactory reflectionFactory = new FieldReflectionFactory();
+
+        for (Class c = clazz; c != null; c = c.getSuperclass()) {
+            for (Field f : c.getDeclaredFields()) {
+                if (!isInjectable(f))
+                    continue;
+
+                boolean isRequired = hasAnnotation(f.getType(), Injectable.class);
+                Dependency dependency;
+                try {
+                    dependency = resolveDependency(f);
+                } catch (Exception e) {
+                    if (isRequired)
+                        throw new Dependency.InjectionFailedException("can't resolve dependency for field '" + f.getName() + "' in " + clazz, e);
+                    continue;
+                }
+
+                fields.add(reflectionFactory.create(f, true));
+                dependencies.add(dependency);
+                required.add(isRequired);
+            }
+        }
+
+        boolean[] requiredArray = new boolean[required.size()];
+        for (int i = 0; i < requiredArray.length; i++) {
+            requiredArray[i] = required.get(i);
+        }
+        return new InjectionPlan(clazz, generation,
+                fields.toArray(new FieldReflection[fields.size()]),
+                dependencies.toArray(new Dependency[dependencies.size()]),
+                requiredArray);
+    }
+
+    protected boolean isInjectable(Field f) {
+        if (Modifier.isFinal(f.getModifiers()) || f.getType().isPrimitive())
+            return false;
+
+        if (contains(f.getType()) || contains(f.getName()))
+            return true;
+
+        int mod = f.getType().getModifiers();
+        if (hasAnnotation(f.getType(), Injectable.class) || Modifier.isAbstract(mod) || Modifier.isInterface(mod))
+            return true;
+
+        for (Class i : f.getType().getInterfaces()) {
+            if (hasAnnotation(i, Injectable.class))
+                return true;
+        }
+        return false;
+    }
+
+    protected Dependency resolveDependency(Field field) {
+        Dependency dependency = mappingByName.get(field.getName());
+        if (dependency != null)
+            return dependency;
+
+        Dependency resolved = dependencies.get(field.getType());
+        if (resolved == null)
+            throw new IllegalStateException("can't create dependency-holder for class: " + field.getType());
+        return resolved;
+    }
+
+    /**
+     * Builds injection plans for all injectable classes, fails on the first dependency that can't be resolved
+     */
+    public void validate() {
+        if (classes == null)
+            return;
+
+        for (Class<?> cl : classes) {
+            if (Modifier.isAbstract(cl.getModifiers()) || !hasAnnotation(cl, Injectable.class))
+                continue;
+
+            plan(cl);
+        }
     }
 
     private static class DependencyFactoryHolder {
@@ -115,10 +222,25 @@ public class DependencyFactory {
         return DependencyFactoryHolder.instance.resolve(clazz);
     }
 
+    /**
+     * @return holder of the dependency, callers can keep it to skip the lookup on each {@link #get(Class)}
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Dependency<T> getDependency(Class<T> clazz) {
+        return DependencyFactoryHolder.instance.dependencies.get(clazz);
+    }
+
     public static DependencyFactory get() {
         return DependencyFactoryHolder.instance;
     }
 
+    /**
+     * @return counter that is incremented on each change of registered dependencies
+     */
+    public int generation() {
+        return generation;
+    }
+
     @SuppressWarnings("unchecked")
     private <T> T resolve(Class<T> clazz) {
         return (T) dependencies.get(clazz).get();
@@ -126,27 +248,33 @@ public class DependencyFactory {
 
     public void setClasses(List<Class> classes) {
         this.classes = classes;
+        invalidatePlans();
     }
 
     public void register(Class abstractClass, Class implementation) {
         mappingByClass.put(abstractClass, implementation);
         dependencies.get(abstractClass);
+        invalidatePlans();
     }
 
     public <T> void register(Class<T> clazz, Dependency<T> dependency) {
         dependencies.put(clazz, dependency);
+        invalidatePlans();
     }
 
     public <T> void register(String name, Dependency<T> dependency) {
         mappingByName.put(name, dependency);
+        invalidatePlans();
     }
 
     public <T> void register(Class<T> clazz, T dependency) {
         dependencies.put(clazz, new SingletonDependency<>(dependency));
+        invalidatePlans();
     }
 
     public <T> void register(String name, T dependency) {
         mappingByName.put(name, new SingletonDependency<>(dependency));
+        invalidatePlans();
     }
 
     public boolean contains(Class clazz) {
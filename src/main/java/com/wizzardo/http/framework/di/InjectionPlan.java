@@ -0,0 +1,53 @@
+package com.wizzardo.http.framework.di;
+
+import com.wizzardo.tools.reflection.FieldReflection;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Fields of a class with dependencies resolved by {@link DependencyFactory#plan(Class)},
+ * injection only calls {@link Dependency#get()} of each of them and sets the value.
+ * A plan is valid until dependencies are registered or cleared.
+ */
+public class InjectionPlan {
+    protected final Class clazz;
+    protected final int generation;
+    protected final FieldReflection[] fields;
+    protected final Dependency[] dependencies;
+    protected final boolean[] required;
+
+    public InjectionPlan(Class clazz, int generation, FieldReflection[] fields, Dependency[] dependencies, boolean[] required) {
+        this.clazz = clazz;
+        this.generation = generation;
+        this.fields = fields;
+        this.dependencies = dependencies;
+        this.required = required;
+    }
+
+    public boolean isValidFor(Class clazz, int generation) {
+        return this.clazz == clazz && this.generation == generation;
+    }
+
+    public int size() {
+        return fields.length;
+    }
+
+    /**
+     * Fields of types without {@link Injectable} annotation stay null if their dependency fails
+     */
+    public void inject(Object ob) {
+        for (int i = 0; i < fields.length; i++) {
+            Object value;
+            try {
+                value = dependencies[i].get();
+            } catch (Dependency.InjectionFailedException e) {
+                throw e;
+            } catch (Exception e) {
+                if (required[i])
+                    throw new Dependency.InjectionFailedException(e);
+                continue;
+            }
+            fields[i].setObject(ob, value);
+        }
+    }
+}
@@ -20,7 +20,7 @@ public class RequestDependency<T> extends Dependency<T> {
 
     @Override
     public T get() {
-        RequestHolder requestHolder = ((RequestContext) Thread.currentThread()).getRequestHolder();
+        RequestHolder requestHolder = RequestContext.get().getRequestHolder();
         T t = requestHolder.get(clazz);
         if (t == null)
             requestHolder.put(clazz, t = newInstance());
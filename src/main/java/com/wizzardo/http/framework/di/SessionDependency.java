@@ -20,7 +20,7 @@ public class SessionDependency<T> extends Dependency<T> {
 
     @Override
     public T get() {
-        Session session = ((RequestContext) Thread.currentThread()).getRequestHolder().request.session();
+        Session session = RequestContext.get().getRequestHolder().request.session();
         T t = (T) session.get(clazz);
         if (t == null)
             session.put(clazz, t = newInstance());
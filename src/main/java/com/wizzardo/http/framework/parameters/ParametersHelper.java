@@ -13,6 +13,9 @@ import com.wizzardo.tools.reflection.FieldInfo;
 import com.wizzardo.tools.reflection.Fields;
 
 import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
@@ -24,6 +27,17 @@ import java.util.*;
  */
 public class ParametersHelper {
 
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodHandle MAPPER_MAP;
+
+    static {
+        try {
+            MAPPER_MAP = LOOKUP.findVirtual(Mapper.class, "map", MethodType.methodType(Object.class, Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     public static String getParameterName(java.lang.reflect.Parameter parameter) {
         if (parameter.isNamePresent())
             return parameter.getName();
@@ -42,6 +56,74 @@ public class ParametersHelper {
         return value.charAt(0);
     }
 
+    static String requiredValue(Request request, String name, String def) {
+        MultiValue multiValue = request.params().get(name);
+        String value;
+        if (multiValue != null)
+            value = multiValue.getValue();
+        else
+            value = def;
+
+        if (value == null || value.isEmpty())
+            throw new NullPointerException("parameter '" + name + "' is not present");
+
+        return value;
+    }
+
+    public static int parseInt(Request request, String name, String def) {
+        return Integer.parseInt(requiredValue(request, name, def));
+    }
+
+    public static long parseLong(Request request, String name, String def) {
+        return Long.parseLong(requiredValue(request, name, def));
+    }
+
+    public static float parseFloat(Request request, String name, String def) {
+        return Float.parseFloat(requiredValue(request, name, def));
+    }
+
+    public static double parseDouble(Request request, String name, String def) {
+        return Double.parseDouble(requiredValue(request, name, def));
+    }
+
+    public static boolean parseBoolean(Request request, String name, String def) {
+        return Boolean.parseBoolean(requiredValue(request, name, def));
+    }
+
+    public static short parseShort(Request request, String name, String def) {
+        return Short.parseShort(requiredValue(request, name, def));
+    }
+
+    public static byte parseByte(Request request, String name, String def) {
+        return Byte.parseByte(requiredValue(request, name, def));
+    }
+
+    public static char parseChar(Request request, String name, String def) {
+        return parseChar(requiredValue(request, name, def));
+    }
+
+    /**
+     * @return handle of type (Request)parameterType, primitives are parsed without boxing,
+     * other types are mapped by the given mapper
+     */
+    public static MethodHandle createParameterHandle(java.lang.reflect.Parameter parameter, Mapper<Request, Object> mapper) {
+        Class<?> type = parameter.getType();
+        try {
+            if (type.isPrimitive()) {
+                String name = getParameterName(parameter);
+                Parameter annotation = parameter.getAnnotation(Parameter.class);
+                String def = annotation != null ? annotation.def() : null;
+                String parser = "parse" + Character.toUpperCase(type.getName().charAt(0)) + type.getName().substring(1);
+                MethodHandle handle = LOOKUP.findStatic(ParametersHelper.class, parser, MethodType.methodType(type, Request.class, String.class, String.class));
+                return MethodHandles.insertArguments(handle, 1, name, def);
+            }
+
+            return MAPPER_MAP.bindTo(mapper).asType(MethodType.methodType(type, Request.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException("Can't create handle for parameter '" + parameter.getName() + "' of type '" + type + "'", e);
+        }
+    }
+
     public static <C extends Collection> Supplier<C> createCollection(Class clazz) {
         int modifiers = clazz.getModifiers();
         if (Modifier.isInterface(modifiers) || Modifier.isAbstract(modifiers)) {
@@ -131,19 +213,7 @@ public class ParametersHelper {
 
     public static Mapper<Request, Object> createParametersMapper(String name, String def, Class type) {
         Mapper<Mapper<String, Object>, Mapper<Request, Object>> failIfEmpty = mapper -> {
-            return request -> {
-                MultiValue multiValue = request.params().get(name);
-                String value;
-                if (multiValue != null)
-                    value = multiValue.getValue();
-                else
-                    value = def;
-
-                if (value == null || value.isEmpty())
-                    throw new NullPointerException("parameter '" + name + "' is not present");
-
-                return mapper.map(value);
-            };
+            return request -> mapper.map(requiredValue(request, name, def));
         };
 
         if (type.isPrimitive()) {
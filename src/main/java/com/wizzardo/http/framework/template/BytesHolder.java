@@ -1,5 +1,6 @@
 package com.wizzardo.http.framework.template;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
@@ -9,6 +10,7 @@ import java.util.Map;
  */
 public class BytesHolder implements Renderable {
     protected byte[] bytes;
+    protected volatile ByteBuffer shared;
 
     public BytesHolder(byte[] bytes) {
         this.bytes = bytes;
@@ -22,6 +24,23 @@ public class BytesHolder implements Renderable {
         return new RenderResult(bytes);
     }
 
+    @Override
+    public void render(Map<String, Object> model, RenderOutput out) {
+        if (bytes.length < RenderOutput.SHARED_MIN_SIZE) {
+            out.write(bytes);
+            return;
+        }
+
+        ByteBuffer buffer = shared;
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes);
+            buffer.flip();
+            shared = buffer;
+        }
+        out.write(buffer);
+    }
+
     @Override
     public String toString() {
         return new String(bytes, StandardCharsets.UTF_8);
@@ -32,6 +51,7 @@ public class BytesHolder implements Renderable {
         System.arraycopy(this.bytes, 0, b, 0, this.bytes.length);
         System.arraycopy(bytes, 0, b, this.bytes.length, bytes.length);
         this.bytes = b;
+        shared = null;
     }
 
     public void append(String s) {
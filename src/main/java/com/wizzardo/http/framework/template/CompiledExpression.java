@@ -0,0 +1,202 @@
+package com.wizzardo.http.framework.template;
+
+import com.wizzardo.tools.misc.Unchecked;
+
+import java.lang.invoke.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Property path like ${user.address.city} compiled to direct access: map lookups, public fields and getters
+ * called through functions generated by LambdaMetafactory, bound per class on first use.
+ * Paths and values it can't handle the same way as EvalTools are left to it, {@link #get(Map)} returns {@link #FALLBACK} then.
+ */
+public class CompiledExpression {
+    public static final Object FALLBACK = new Object();
+
+    protected static final Pattern PATH = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*(\\??\\.[a-zA-Z_][a-zA-Z0-9_]*)*");
+    protected static final Set<String> RESERVED = new HashSet<>(Arrays.asList(
+            "request", "response", "controller", "action", "handler", "true", "false", "null", "new", "this", "class"
+    ));
+    protected static final Map<String, ClassValue<Function<Object, Object>>> ACCESSORS = new ConcurrentHashMap<>();
+    protected static final Function<Object, Object> UNSUPPORTED = target -> FALLBACK;
+
+    protected final String root;
+    protected final String[] names;
+    protected final boolean[] safe;
+    protected final ClassValue<Function<Object, Object>>[] accessors;
+    protected final Bound[] bound;
+
+    protected CompiledExpression(String root, String[] names, boolean[] safe) {
+        this.root = root;
+        this.names = names;
+        this.safe = safe;
+        this.accessors = new ClassValue[names.length];
+        this.bound = new Bound[names.length];
+        for (int i = 0; i < names.length; i++) {
+            accessors[i] = ACCESSORS.computeIfAbsent(names[i], CompiledExpression::createAccessors);
+        }
+    }
+
+    /**
+     * @return compiled path or null if the expression is not a plain property path
+     */
+    public static CompiledExpression compile(String expression, boolean stringTemplate) {
+        String exp = unwrap(expression.trim(), stringTemplate);
+        if (exp == null || !PATH.matcher(exp).matches())
+            return null;
+
+        String[] parts = exp.split("\\.");
+        String root = parts[0].endsWith("?") ? parts[0].substring(0, parts[0].length() - 1) : parts[0];
+        if (RESERVED.contains(root))
+            return null;
+
+        String[] names = new String[parts.length - 1];
+        boolean[] safe = new boolean[names.length];
+        for (int i = 1; i < parts.length; i++) {
+            String part = parts[i];
+            safe[i - 1] = parts[i - 1].endsWith("?");
+            names[i - 1] = part.endsWith("?") ? part.substring(0, part.length() - 1) : part;
+            if (RESERVED.contains(names[i - 1]))
+                return null;
+        }
+        return new CompiledExpression(root, names, safe);
+    }
+
+    protected static String unwrap(String exp, boolean stringTemplate) {
+        if (exp.startsWith("${")) {
+            if (!exp.endsWith("}") || exp.indexOf('}') != exp.length() - 1)
+                return null;
+            return exp.substring(2, exp.length() - 1).trim();
+        }
+        if (exp.startsWith("$"))
+            return exp.indexOf('.') == -1 ? exp.substring(1) : null;
+
+        return stringTemplate ? null : exp;
+    }
+
+    public Object get(Map<String, Object> model) {
+        Object value = model.get(root);
+        if (value == null && !model.containsKey(root))
+            return FALLBACK;
+
+        for (int i = 0; i < names.length; i++) {
+            if (value == null) {
+                if (safe[i])
+                    continue;
+                return FALLBACK;
+            }
+
+            Bound b = bound[i];
+            Class<?> type = value.getClass();
+            if (b == null || b.type != type)
+                bound[i] = b = new Bound(type, accessors[i].get(type));
+
+            value = b.accessor.apply(value);
+            if (value == FALLBACK)
+                return FALLBACK;
+        }
+        return value;
+    }
+
+    /**
+     * Accessor for the last seen class, most of the expressions see only one
+     */
+    protected static class Bound {
+        final Class<?> type;
+        final Function<Object, Object> accessor;
+
+        Bound(Class<?> type, Function<Object, Object> accessor) {
+            this.type = type;
+            this.accessor = accessor;
+        }
+    }
+
+    protected static ClassValue<Function<Object, Object>> createAccessors(String name) {
+        return new ClassValue<Function<Object, Object>>() {
+            @Override
+            protected Function<Object, Object> computeValue(Class<?> type) {
+                return createAccessor(type, name);
+            }
+        };
+    }
+
+    protected static Function<Object, Object> createAccessor(Class<?> type, String name) {
+        if (Map.class.isAssignableFrom(type))
+            return target -> ((Map) target).get(name);
+
+        if (!Modifier.isPublic(type.getModifiers()) || type.isArray() || type == Class.class || Collection.class.isAssignableFrom(type))
+            return UNSUPPORTED;
+
+        try {
+            Field field = type.getField(name);
+            if (Modifier.isStatic(field.getModifiers()) || !Modifier.isPublic(field.getDeclaringClass().getModifiers()))
+                return UNSUPPORTED;
+
+            return target -> {
+                try {
+                    return field.get(target);
+                } catch (IllegalAccessException e) {
+                    return FALLBACK;
+                }
+            };
+        } catch (NoSuchFieldException ignored) {
+        }
+
+        try {
+            Method getter = type.getMethod("get" + Character.toUpperCase(name.charAt(0)) + name.substring(1));
+            if (Modifier.isStatic(getter.getModifiers()) || getter.getReturnType() == void.class || !Modifier.isPublic(getter.getDeclaringClass().getModifiers()))
+                return UNSUPPORTED;
+
+            return createGetter(getter);
+        } catch (NoSuchMethodException ignored) {
+        }
+
+        return UNSUPPORTED;
+    }
+
+    protected static Function<Object, Object> createGetter(Method getter) {
+        Class<?> owner = getter.getDeclaringClass();
+        try {
+            if (Class.forName(owner.getName(), false, CompiledExpression.class.getClassLoader()) == owner) {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                MethodHandle handle = lookup.unreflect(getter);
+                CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+                        MethodType.methodType(Function.class),
+                        MethodType.methodType(Object.class, Object.class),
+                        handle,
+                        handle.type().wrap());
+                return (Function<Object, Object>) site.getTarget().invokeExact();
+            }
+        } catch (Throwable ignored) {
+        }
+
+        return target -> {
+            try {
+                return getter.invoke(target);
+            } catch (IllegalAccessException e) {
+                return FALLBACK;
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                throw Unchecked.rethrow(cause instanceof Exception ? (Exception) cause : e);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(root);
+        for (int i = 0; i < names.length; i++) {
+            sb.append(safe[i] ? "?." : ".").append(names[i]);
+        }
+        return sb.toString();
+    }
+}
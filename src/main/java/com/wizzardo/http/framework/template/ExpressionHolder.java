@@ -19,6 +19,7 @@ public class ExpressionHolder<T> implements Renderable {
     private volatile boolean prepared = false;
     private String string;
     private Expression expression;
+    private CompiledExpression compiled;
     protected boolean stringTemplate;
     protected List<String> imports;
 
@@ -36,7 +37,24 @@ public class ExpressionHolder<T> implements Renderable {
     }
 
     public RenderResult get(Map<String, Object> model) {
-        return new RenderResult(String.valueOf(getRaw(model)));
+        return new RenderResult(String.valueOf(value(model)));
+    }
+
+    @Override
+    public void render(Map<String, Object> model, RenderOutput out) {
+        out.write(String.valueOf(value(model)));
+    }
+
+    protected Object value(Map<String, Object> model) {
+        if (!prepared)
+            prepare(model);
+
+        if (compiled != null) {
+            Object value = compiled.get(model);
+            if (value != CompiledExpression.FALLBACK)
+                return value;
+        }
+        return evaluate(model);
     }
 
     private static Pattern p = Pattern.compile("\\$\\{([^\\{\\}]+)\\}|\\$([^\\., -]+)|(\\[.+\\])");
@@ -46,35 +64,49 @@ public class ExpressionHolder<T> implements Renderable {
     }
 
     public T getRaw(Map<String, Object> model) {
-        if (!prepared) {
-            synchronized (this) {
-                if (!prepared) {
-                    Unchecked.run(() -> {
-                        if (stringTemplate)
-                            expression = EvalTools.prepare(string, model, TagLib.getTagFunctions(), imports, true);
-                        else {
-                            Matcher m = p.matcher(string);
-                            if (m.matches()) {
-                                String exp = m.group(1);
-                                if (exp == null) {
-                                    exp = m.group(2);
-                                }
-                                if (exp == null) {
-                                    exp = m.group(3);
-                                }
-                                expression = EvalTools.prepare(exp, model, TagLib.getTagFunctions(), imports);
-                            } else
-                                expression = EvalTools.prepare(string, model, TagLib.getTagFunctions(), imports);
-                        }
-                        setVariables(expression);
-                    });
-                    prepared = true;
-                }
-            }
+        if (!prepared)
+            prepare(model);
+
+        if (compiled != null && !stringTemplate) {
+            Object value = compiled.get(model);
+            if (value != CompiledExpression.FALLBACK)
+                return (T) value;
         }
+        return evaluate(model);
+    }
+
+    protected T evaluate(Map<String, Object> model) {
         return Unchecked.call(() -> (T) expression.get(model));
     }
 
+    protected void prepare(Map<String, Object> model) {
+        synchronized (this) {
+            if (!prepared) {
+                Unchecked.run(() -> {
+                    if (stringTemplate)
+                        expression = EvalTools.prepare(string, model, TagLib.getTagFunctions(), imports, true);
+                    else {
+                        Matcher m = p.matcher(string);
+                        if (m.matches()) {
+                            String exp = m.group(1);
+                            if (exp == null) {
+                                exp = m.group(2);
+                            }
+                            if (exp == null) {
+                                exp = m.group(3);
+                            }
+                            expression = EvalTools.prepare(exp, model, TagLib.getTagFunctions(), imports);
+                        } else
+                            expression = EvalTools.prepare(string, model, TagLib.getTagFunctions(), imports);
+                    }
+                    setVariables(expression);
+                });
+                compiled = CompiledExpression.compile(string, stringTemplate);
+                prepared = true;
+            }
+        }
+    }
+
     @Override
     public String toString() {
         return string;
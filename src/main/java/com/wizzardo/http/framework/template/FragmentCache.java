@@ -0,0 +1,118 @@
+package com.wizzardo.http.framework.template;
+
+import com.wizzardo.http.framework.ServerConfiguration;
+import com.wizzardo.http.framework.di.PostConstruct;
+import com.wizzardo.http.framework.di.Service;
+import com.wizzardo.tools.cache.MemoryLimitedCache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Rendered fragments of views, stored by &lt;g:cache&gt; and bounded by server.renderer.fragmentCacheLimit.
+ * Fragments declare dependencies by name, {@link #invalidate(String)} bumps the version of a dependency
+ * and every fragment rendered with an older version is rendered again on next use.
+ */
+public class FragmentCache implements Service, PostConstruct {
+
+    protected ServerConfiguration configuration;
+    protected MemoryLimitedCache<String, Fragment> cache;
+    protected final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    @Override
+    public void init() {
+        ServerConfiguration.Renderer renderer = configuration.renderer;
+        cache = new MemoryLimitedCache<>("fragments", renderer.fragmentCacheLimit, renderer.fragmentCacheTtl, null);
+    }
+
+    public static class Fragment implements MemoryLimitedCache.SizeProvider {
+        public final BytesHolder content;
+        protected final long[] versions;
+
+        public Fragment(byte[] bytes, long[] versions) {
+            this.content = new BytesHolder(bytes);
+            this.versions = versions;
+        }
+
+        public byte[] bytes() {
+            return content.bytes;
+        }
+
+        /**
+         * Big fragments are also kept in a direct buffer by {@link BytesHolder}
+         */
+        @Override
+        public long size() {
+            int length = content.bytes.length;
+            return length < RenderOutput.SHARED_MIN_SIZE ? length : length * 2L;
+        }
+
+        protected boolean isValid(AtomicLong[] dependencies) {
+            for (int i = 0; i < dependencies.length; i++) {
+                if (dependencies[i].get() != versions[i])
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return counter of the dependency, fragments keep its value at the time they were rendered
+     */
+    public AtomicLong version(String dependency) {
+        return versions.computeIfAbsent(dependency, k -> new AtomicLong());
+    }
+
+    /**
+     * @return fragment rendered with current versions of dependencies or null
+     */
+    public Fragment get(String key, AtomicLong[] dependencies) {
+        Fragment fragment = cache.get(key);
+        return fragment == null || fragment.isValid(dependencies) ? fragment : null;
+    }
+
+    /**
+     * @param versions of the dependencies read before the fragment was rendered
+     * @param ttl      in seconds, default ttl from configuration if not positive
+     */
+    public Fragment put(String key, byte[] bytes, long[] versions, long ttl) {
+        Fragment fragment = new Fragment(bytes, versions);
+        if (fragment.size() > cache.limit())
+            return fragment;
+
+        if (ttl > 0)
+            cache.put(key, fragment, ttl * 1000);
+        else
+            cache.put(key, fragment);
+        return fragment;
+    }
+
+    /**
+     * Fragments that depend on it will be rendered again
+     */
+    public void invalidate(String dependency) {
+        version(dependency).incrementAndGet();
+    }
+
+    /**
+     * Removes a fragment with explicit name attribute
+     */
+    public void remove(String name, Object key) {
+        cache.remove(name + ":" + key);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long memoryUsed() {
+        return cache.memoryUsed();
+    }
+}
@@ -0,0 +1,155 @@
+package com.wizzardo.http.framework.template;
+
+import com.wizzardo.epoll.readable.ReadableBuilder;
+import com.wizzardo.epoll.readable.ReadableByteBuffer;
+import com.wizzardo.epoll.readable.ReadableData;
+import com.wizzardo.http.ReadableByteArrayPool;
+import com.wizzardo.http.ReadableByteArrayPool.PooledReadableByteArray;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Sink for streaming rendering, bytes are written into pooled buffers from {@link ReadableByteArrayPool}
+ * and big static chunks are referenced as shared read-only buffers, all of them are chained in a {@link ReadableBuilder}.
+ * Pooled buffers are released when the result is closed after it was sent.
+ */
+public class RenderOutput implements Closeable {
+
+    /**
+     * Static chunks smaller than that are copied, every shared buffer is written to a socket with a separate call
+     */
+    public static final int SHARED_MIN_SIZE = 4096;
+
+    protected final ReadableBuilder builder = new ReadableBuilder();
+    protected final Charset charset;
+    protected final boolean ascii;
+    protected PooledReadableByteArray pooled;
+    protected boolean pooledAppended;
+    protected byte[] bytes;
+    protected int start;
+    protected int position;
+
+    public RenderOutput() {
+        this(Charset.defaultCharset());
+    }
+
+    /**
+     * @param charset for strings, the same as {@link RenderResult#RenderResult(String, Charset)} uses
+     */
+    public RenderOutput(Charset charset) {
+        this.charset = charset;
+        ascii = charset == StandardCharsets.UTF_8 || charset == StandardCharsets.ISO_8859_1 || charset == StandardCharsets.US_ASCII;
+    }
+
+    public RenderOutput write(byte[] b) {
+        return write(b, 0, b.length);
+    }
+
+    public RenderOutput write(byte[] b, int offset, int length) {
+        while (length > 0) {
+            if (bytes == null || position == bytes.length)
+                next();
+
+            int l = Math.min(length, bytes.length - position);
+            System.arraycopy(b, offset, bytes, position, l);
+            position += l;
+            offset += l;
+            length -= l;
+        }
+        return this;
+    }
+
+    public RenderOutput write(String s) {
+        if (!ascii)
+            return write(s.getBytes(charset));
+
+        int length = s.length();
+        int i = 0;
+        while (i < length) {
+            if (bytes == null || position == bytes.length)
+                next();
+
+            int to = Math.min(length, i + bytes.length - position);
+            for (; i < to; i++) {
+                char c = s.charAt(i);
+                if (c >= 0x80)
+                    return write(s.substring(i).getBytes(charset));
+                bytes[position++] = (byte) c;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @param shared direct buffer with position 0, it is never modified, only duplicated
+     */
+    public RenderOutput write(ByteBuffer shared) {
+        flush();
+        builder.append(new ReadableByteBuffer(shared.duplicate()));
+        return this;
+    }
+
+    public RenderOutput write(RenderResult result) {
+        result.provideBytes(this::write);
+        return this;
+    }
+
+    /**
+     * @return rendered data, it must be closed after use to return buffers to the pool
+     */
+    public ReadableData toReadableData() {
+        flush();
+        releaseUnused();
+        return builder;
+    }
+
+    @Override
+    public void close() {
+        flush();
+        releaseUnused();
+        try {
+            builder.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    protected void next() {
+        flush();
+        releaseUnused();
+        pooled = ReadableByteArrayPool.get();
+        pooledAppended = false;
+        bytes = pooled.bytes();
+        start = position = 0;
+    }
+
+    protected void flush() {
+        if (position == start)
+            return;
+
+        if (!pooledAppended) {
+            pooled.length(position);
+            builder.append(pooled);
+            pooledAppended = true;
+        } else {
+            builder.append(bytes, start, position - start);
+        }
+        start = position;
+    }
+
+    protected void releaseUnused() {
+        if (pooled != null && !pooledAppended) {
+            try {
+                pooled.close();
+            } catch (IOException ignored) {
+            }
+            pooled = null;
+            bytes = null;
+        }
+    }
+}
@@ -24,13 +24,31 @@ public class RenderResult {
     }
 
     public RenderResult(String s, Charset charset) {
-        bytes = s.getBytes(charset);
+        bytes = toBytes(s, charset);
     }
 
     public RenderResult(String s) {
         this(s, Charset.defaultCharset());
     }
 
+    /**
+     * String.getBytes(Charset) creates a new encoder for every call on java 8, ascii strings are copied directly
+     */
+    protected static byte[] toBytes(String s, Charset charset) {
+        if (charset != StandardCharsets.UTF_8 && charset != StandardCharsets.ISO_8859_1 && charset != StandardCharsets.US_ASCII)
+            return s.getBytes(charset);
+
+        int length = s.length();
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80)
+                return s.getBytes(charset);
+            bytes[i] = (byte) c;
+        }
+        return bytes;
+    }
+
     public void add(RenderResult r) {
         if (renders == null)
             renders = new ArrayList<>();
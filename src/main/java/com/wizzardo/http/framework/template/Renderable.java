@@ -9,6 +9,13 @@ import java.util.Map;
 public interface Renderable {
     RenderResult get(Map<String, Object> model);
 
+    /**
+     * Streaming variant of {@link #get(Map)}, writes the result into the output without building a RenderResult tree
+     */
+    default void render(Map<String, Object> model, RenderOutput out) {
+        out.write(get(model));
+    }
+
     static Renderable create(String s) {
         RenderResult result = new RenderResult(s);
         return model -> result;
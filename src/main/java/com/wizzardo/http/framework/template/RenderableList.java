@@ -21,6 +21,13 @@ public class RenderableList extends ArrayList<Renderable> implements Renderable
         return result;
     }
 
+    @Override
+    public void render(Map<String, Object> model, RenderOutput out) {
+        for (int i = 0; i < size(); i++) {
+            get(i).render(model, out);
+        }
+    }
+
     public RenderableList append(String s) {
         return append(s.getBytes(StandardCharsets.UTF_8));
     }
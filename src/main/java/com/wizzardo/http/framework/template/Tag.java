@@ -43,6 +43,15 @@ public abstract class Tag extends RenderableList {
         return renderables;
     }
 
+    /**
+     * Writes the result of {@link #get(Map)}, so tags that override only get() are rendered the same way when streaming.
+     * Tags that can write their content directly into the output override this method too.
+     */
+    @Override
+    public void render(Map<String, Object> model, RenderOutput out) {
+        out.write(get(model));
+    }
+
     public void appendTo(RenderableList l) {
         l.append(this);
     }
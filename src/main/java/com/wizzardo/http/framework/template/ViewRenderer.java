@@ -1,5 +1,6 @@
 package com.wizzardo.http.framework.template;
 
+import com.wizzardo.epoll.readable.ReadableData;
 import com.wizzardo.http.framework.di.DependencyFactory;
 
 public class ViewRenderer extends Renderer {
@@ -27,4 +28,12 @@ public class ViewRenderer extends Renderer {
         else
             return renderingService.render(controller, view, model);
     }
+
+    @Override
+    public ReadableData renderReadableData() {
+        if (template != null)
+            return renderingService.renderReadableData(template, model);
+        else
+            return renderingService.renderReadableData(controller, view, model);
+    }
 }
@@ -1,5 +1,6 @@
 package com.wizzardo.http.framework.template;
 
+import com.wizzardo.epoll.readable.ReadableData;
 import com.wizzardo.http.framework.ServerConfiguration;
 import com.wizzardo.http.framework.di.DependencyFactory;
 import com.wizzardo.http.framework.di.PostConstruct;
@@ -16,6 +17,10 @@ import java.util.regex.Pattern;
 
 public class ViewRenderingService implements Service, PostConstruct {
     protected static final String OFFSET = "    ";
+    /**
+     * attribute of the root node of a parsed view, holds path of the view for tags that need a stable identity
+     */
+    public static final String VIEW_PATH = "view-path";
     protected static Pattern p = Pattern.compile("\\$\\{(.+)\\}|\\$([\\w]+)");
 
     protected Cache<Pair<String, String>, RenderableList> viewsCache;
@@ -60,6 +65,7 @@ public class ViewRenderingService implements Service, PostConstruct {
             html = layout;
         }
 
+        html.attr(VIEW_PATH, view);
         prepare(html.children(), l, dir, offset, imports);
         return l;
     }
@@ -213,7 +219,17 @@ public class ViewRenderingService implements Service, PostConstruct {
     private Renderable createRenderClosure(final String pathToView, String params, final String offset) {
         AttributeVariableMapper<Map<String, Object>> p = new AttributeVariableMapper<>(params);
         RenderableList l = prepareView(pathToView, offset);
-        return model -> l.get(p.map(model));
+        return new Renderable() {
+            @Override
+            public RenderResult get(Map<String, Object> model) {
+                return l.get(p.map(model));
+            }
+
+            @Override
+            public void render(Map<String, Object> model, RenderOutput out) {
+                l.render(p.map(model), out);
+            }
+        };
     }
 
     public RenderResult render(String controller, String view, Model model) {
@@ -228,6 +244,25 @@ public class ViewRenderingService implements Service, PostConstruct {
         return result;
     }
 
+    public ReadableData renderReadableData(String controller, String view, Model model) {
+        return render(viewsCache.get(new Pair<>(getViewPath(controller, view), "")), model);
+    }
+
+    public ReadableData renderReadableData(String template, Model model) {
+        return render(templatesCache.get(new Pair<>(template, "")), model);
+    }
+
+    protected ReadableData render(RenderableList l, Model model) {
+        RenderOutput out = new RenderOutput();
+        try {
+            l.render(model, out);
+        } catch (Throwable e) {
+            out.close();
+            throw e;
+        }
+        return out.toReadableData();
+    }
+
     public boolean hasView(String controller, String view) {
         return resourceTools.getResourceAsString(getViewPath(controller, view)) != null;
     }
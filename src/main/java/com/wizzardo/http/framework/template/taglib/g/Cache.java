@@ -0,0 +1,111 @@
+package com.wizzardo.http.framework.template.taglib.g;
+
+import com.wizzardo.http.framework.di.DependencyFactory;
+import com.wizzardo.http.framework.template.*;
+import com.wizzardo.tools.xml.Node;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Renders its body once per evaluated key and serves the stored bytes until the fragment expires,
+ * is evicted or one of its dependencies is invalidated in {@link FragmentCache}.
+ * Fragments without a name are keyed by the path of the view and the position of the tag in it,
+ * so they stay the same when the view is prepared again.
+ */
+public class Cache extends Tag {
+    private static final long serialVersionUID = 1L;
+
+    protected FragmentCache fragmentCache = DependencyFactory.get(FragmentCache.class);
+    protected Body body;
+    protected ExpressionHolder key;
+    protected String prefix;
+    protected long ttl;
+    protected AtomicLong[] dependencies;
+    protected String position;
+
+    @Override
+    public Tag init(Node node, String offset, String dir, ViewRenderingService viewRenderingService) {
+        position = position(node, dir);
+        return super.init(node, offset, dir, viewRenderingService);
+    }
+
+    /**
+     * name is mandatory if the tag is not a part of a view
+     */
+    public Tag init(Map<String, String> attrs, Body body, String offset) {
+        this.body = body;
+        key = asExpression(attrs, "key", true, true);
+
+        String name = remove(attrs, "name", position == null);
+        prefix = (name != null ? name : position) + ":";
+        ttl = Long.parseLong(remove(attrs, "ttl", "-1").trim());
+
+        List<AtomicLong> dependencies = new ArrayList<>();
+        for (String dependency : remove(attrs, "depends", "").split(",")) {
+            if (!dependency.trim().isEmpty())
+                dependencies.add(fragmentCache.version(dependency.trim()));
+        }
+        this.dependencies = dependencies.toArray(new AtomicLong[dependencies.size()]);
+        return this;
+    }
+
+    /**
+     * @return path of the view followed by indexes of the node and its parents, like 'views/book/list.gsp/1/0/3'
+     */
+    protected static String position(Node node, String dir) {
+        StringBuilder sb = new StringBuilder();
+        Node root = node;
+        while (root.parent() != null) {
+            sb.insert(0, indexOf(root.parent().children(), root)).insert(0, '/');
+            root = root.parent();
+        }
+        String view = root.attr(ViewRenderingService.VIEW_PATH);
+        return (view != null ? view : dir) + sb;
+    }
+
+    protected static int indexOf(List<Node> nodes, Node node) {
+        for (int i = 0; i < nodes.size(); i++) {
+            if (nodes.get(i) == node)
+                return i;
+        }
+        return -1;
+    }
+
+    protected FragmentCache.Fragment fragment(Map<String, Object> model) {
+        String k = prefix + String.valueOf(key.getRaw(model));
+        FragmentCache.Fragment fragment = fragmentCache.get(k, dependencies);
+        if (fragment != null)
+            return fragment;
+
+        long[] versions = new long[dependencies.length];
+        for (int i = 0; i < versions.length; i++) {
+            versions[i] = dependencies[i].get();
+        }
+        return fragmentCache.put(k, body.get(model).bytes(), versions, ttl);
+    }
+
+    @Override
+    public void appendTo(RenderableList l) {
+        l.add(this);
+    }
+
+    @Override
+    public RenderResult get(Map<String, Object> model) {
+        return new RenderResult(fragment(model).bytes());
+    }
+
+    @Override
+    public void render(Map<String, Object> model, RenderOutput out) {
+        fragment(model).content.render(model, out);
+    }
+
+    @Override
+    protected String getBodyOffset(String offset) {
+        return offset;
+    }
+}
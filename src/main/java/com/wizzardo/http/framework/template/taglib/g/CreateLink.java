@@ -25,11 +25,11 @@ public class CreateLink extends Tag implements RenderableString {
         if (mapping == null) {
             String controller = attrs.remove("controller");
             if (controller == null)
-                controller = ((RequestContext) Thread.currentThread()).controller();
+                controller = RequestContext.get().controller();
 
             String action = attrs.remove("action");
             if (action == null)
-                action = ((RequestContext) Thread.currentThread()).action();
+                action = RequestContext.get().action();
 
             mapping = urlMapping.toMapping(controller, action);
         }
@@ -90,11 +90,11 @@ public class CreateLink extends Tag implements RenderableString {
         if (mapping == null) {
             String controller = (String) attrs.remove("controller");
             if (controller == null)
-                controller = ((RequestContext) Thread.currentThread()).controller();
+                controller = RequestContext.get().controller();
 
             String action = (String) attrs.remove("action");
             if (action == null)
-                action = ((RequestContext) Thread.currentThread()).action();
+                action = RequestContext.get().action();
 
             mapping = urlMapping.toMapping(controller, action);
         }
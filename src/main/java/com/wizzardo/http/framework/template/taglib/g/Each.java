@@ -2,7 +2,9 @@ package com.wizzardo.http.framework.template.taglib.g;
 
 import com.wizzardo.http.framework.template.Body;
 import com.wizzardo.http.framework.template.ExpressionHolder;
+import com.wizzardo.http.framework.template.RenderOutput;
 import com.wizzardo.http.framework.template.RenderResult;
+import com.wizzardo.http.framework.template.Renderable;
 import com.wizzardo.http.framework.template.Tag;
 
 import java.util.Collection;
@@ -20,18 +22,34 @@ public class Each extends Tag {
 
         String indexName = attrs.get("status");
 
-        add(model -> {
-            Collection in = raw.getRaw(model);
-            RenderResult result = new RenderResult();
-            int i = 0;
-            for (Object ob : in) {
-                model.put(var, ob);
-                if (indexName != null)
-                    model.put(indexName, i++);
+        add(new Renderable() {
+            @Override
+            public RenderResult get(Map<String, Object> model) {
+                Collection in = raw.getRaw(model);
+                RenderResult result = new RenderResult();
+                int i = 0;
+                for (Object ob : in) {
+                    model.put(var, ob);
+                    if (indexName != null)
+                        model.put(indexName, i++);
+
+                    result.add(body.get(model));
+                }
+                return result;
+            }
 
-                result.add(body.get(model));
+            @Override
+            public void render(Map<String, Object> model, RenderOutput out) {
+                Collection in = raw.getRaw(model);
+                int i = 0;
+                for (Object ob : in) {
+                    model.put(var, ob);
+                    if (indexName != null)
+                        model.put(indexName, i++);
+
+                    body.render(model, out);
+                }
             }
-            return result;
         });
         return this;
     }
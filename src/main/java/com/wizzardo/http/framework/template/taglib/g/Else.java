@@ -35,4 +35,9 @@ public class Else extends Tag {
         result.add(body.get(model));
         return result;
     }
+
+    @Override
+    public void render(Map<String, Object> model, RenderOutput out) {
+        body.render(model, out);
+    }
 }
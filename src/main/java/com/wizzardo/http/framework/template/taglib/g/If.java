@@ -44,4 +44,13 @@ public class If extends Tag {
         }
         return result;
     }
+
+    @Override
+    public void render(Map<String, Object> model, RenderOutput out) {
+        if (AsBooleanExpression.toBoolean(exp.getRaw(model))) {
+            body.render(model, out);
+        } else if (elseTag != null) {
+            elseTag.render(model, out);
+        }
+    }
 }
@@ -1,8 +1,11 @@
 package com.wizzardo.http.framework.template.taglib.g;
 
 import com.wizzardo.http.FileTreeHandler;
+import com.wizzardo.http.framework.RequestContext;
+import com.wizzardo.http.framework.RequestHolder;
 import com.wizzardo.http.framework.di.DependencyFactory;
 import com.wizzardo.http.framework.template.*;
+import com.wizzardo.http.http2.Http2Request;
 import com.wizzardo.http.mapping.UrlMapping;
 import com.wizzardo.http.mapping.UrlTemplate;
 import com.wizzardo.tools.evaluation.AsBooleanExpression;
@@ -11,6 +14,9 @@ import java.util.Map;
 
 /**
  * Created by wizzardo on 27.06.15.
+ * <p>
+ * Scripts and stylesheets that are rendered for an HTTP/2 request are also added to the response as pushes,
+ * so the client gets them without waiting for the page.
  */
 public class Resource extends Tag implements RenderableString {
 
@@ -71,6 +77,7 @@ public class Resource extends Tag implements RenderableString {
                 url = template.getAbsoluteUrl(p);
             else
                 url = template.getRelativeUrl(p);
+            push(f, template, p);
 
             if (isStatic)
                 return new RenderResult(url);
@@ -146,9 +153,20 @@ public class Resource extends Tag implements RenderableString {
         UrlTemplate template = urlMapping.getUrlTemplate("resources");
 
         String p = fileTreeHandler.getVersionedPath(path.toString());
+        push(file, template, p);
         if (absolute != null && absolute)
             return template.getAbsoluteUrl(p);
         else
             return template.getRelativeUrl(p);
     }
+
+    protected void push(String file, UrlTemplate template, String path) {
+        if (!file.endsWith(".js") && !file.endsWith(".css"))
+            return;
+
+        RequestContext context = RequestContext.get();
+        RequestHolder holder = context != null ? context.getRequestHolder() : null;
+        if (holder != null && holder.request instanceof Http2Request)
+            holder.response.push(template.getRelativeUrl(path));
+    }
 }
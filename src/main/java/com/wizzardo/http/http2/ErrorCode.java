@@ -0,0 +1,35 @@
+package com.wizzardo.http.http2;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public enum ErrorCode {
+    NO_ERROR(0x0),
+    PROTOCOL_ERROR(0x1),
+    INTERNAL_ERROR(0x2),
+    FLOW_CONTROL_ERROR(0x3),
+    SETTINGS_TIMEOUT(0x4),
+    STREAM_CLOSED(0x5),
+    FRAME_SIZE_ERROR(0x6),
+    REFUSED_STREAM(0x7),
+    CANCEL(0x8),
+    COMPRESSION_ERROR(0x9),
+    CONNECT_ERROR(0xa),
+    ENHANCE_YOUR_CALM(0xb),
+    INADEQUATE_SECURITY(0xc),
+    HTTP_1_1_REQUIRED(0xd);
+
+    public final int value;
+
+    ErrorCode(int value) {
+        this.value = value;
+    }
+
+    public static ErrorCode valueOf(int value) {
+        for (ErrorCode code : values()) {
+            if (code.value == value)
+                return code;
+        }
+        return INTERNAL_ERROR; // unknown codes must be treated as INTERNAL_ERROR
+    }
+}
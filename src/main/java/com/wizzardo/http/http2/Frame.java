@@ -17,26 +17,45 @@ public class Frame {
         WINDOW_UPDATE(8),
         CONTINUATION(9);
 
+        private static final Type[] TYPES = values();
+
         public final int value;
 
         Type(int value) {
             this.value = value;
         }
+
+        /**
+         * @return null for unknown types, they must be ignored
+         */
+        public static Type valueOf(int value) {
+            return value >= 0 && value < TYPES.length ? TYPES[value] : null;
+        }
     }
 
-    private static final int HEADER_LENGTH = 9;
-    private static final int MAX_LENGTH = 1 << 14;
+    public static final int FLAG_END_STREAM = 0x1;
+    public static final int FLAG_ACK = 0x1;
+    public static final int FLAG_END_HEADERS = 0x4;
+    public static final int FLAG_PADDED = 0x8;
+    public static final int FLAG_PRIORITY = 0x20;
+
+    public static final int HEADER_LENGTH = 9;
+    public static final int MAX_LENGTH = 0xffffff;
     private final int offset;
     private final int length;
     protected byte[] data;
 
+    public Frame() {
+        this(new byte[0]);
+    }
+
     public Frame(byte[] data) {
         this(data, 0, data.length);
     }
 
     public Frame(byte[] data, int offset, int length) {
-        if (length >= MAX_LENGTH)
-            throw new IllegalArgumentException("length >= MAX_LENGTH");
+        if (length > MAX_LENGTH)
+            throw new IllegalArgumentException("length > MAX_LENGTH");
 
         byte[] bytes = new byte[HEADER_LENGTH + length];
         System.arraycopy(data, offset, bytes, HEADER_LENGTH, length);
@@ -44,8 +63,7 @@ public class Frame {
         this.offset = HEADER_LENGTH;
         this.length = length;
 
-        data[2] = (byte) length;
-        data[1] = (byte) ((length >> 8) & 0x3f); //14 bit length - max
+        writeLength(bytes, 0, length);
     }
 
     public Frame type(int type) {
@@ -63,12 +81,62 @@ public class Frame {
     }
 
     public Frame streamId(int id) {
-        data[5] = (byte) ((id >> 24) & 0x7f);
-        data[6] = (byte) (id >> 16);
-        data[7] = (byte) (id >> 8);
-        data[8] = (byte) id;
+        writeInt(data, 5, id & 0x7fffffff);
         return this;
     }
 
+    /**
+     * @return frame header with payload
+     */
+    public byte[] getBytes() {
+        return data;
+    }
+
+    public int getPayloadOffset() {
+        return offset;
+    }
+
+    public int getPayloadLength() {
+        return length;
+    }
+
+    public static void writeHeader(byte[] bytes, int offset, int length, Type type, int flags, int streamId) {
+        writeLength(bytes, offset, length);
+        bytes[offset + 3] = (byte) type.value;
+        bytes[offset + 4] = (byte) flags;
+        writeInt(bytes, offset + 5, streamId & 0x7fffffff);
+    }
+
+    public static void writeLength(byte[] bytes, int offset, int length) {
+        bytes[offset] = (byte) (length >> 16);
+        bytes[offset + 1] = (byte) (length >> 8);
+        bytes[offset + 2] = (byte) length;
+    }
+
+    public static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >> 24);
+        bytes[offset + 1] = (byte) (value >> 16);
+        bytes[offset + 2] = (byte) (value >> 8);
+        bytes[offset + 3] = (byte) value;
+    }
 
+    public static int readLength(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 16) | ((bytes[offset + 1] & 0xff) << 8) | (bytes[offset + 2] & 0xff);
+    }
+
+    public static int readType(byte[] bytes, int offset) {
+        return bytes[offset + 3] & 0xff;
+    }
+
+    public static int readFlags(byte[] bytes, int offset) {
+        return bytes[offset + 4] & 0xff;
+    }
+
+    public static int readStreamId(byte[] bytes, int offset) {
+        return readInt(bytes, offset + 5) & 0x7fffffff;
+    }
+
+    public static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 24) | ((bytes[offset + 1] & 0xff) << 16) | ((bytes[offset + 2] & 0xff) << 8) | (bytes[offset + 3] & 0xff);
+    }
 }
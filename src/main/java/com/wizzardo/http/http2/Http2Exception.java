@@ -0,0 +1,27 @@
+package com.wizzardo.http.http2;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Error of HTTP/2 connection if streamId is 0, otherwise only the stream is reset
+ */
+public class Http2Exception extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public final ErrorCode code;
+    public final int streamId;
+
+    public Http2Exception(ErrorCode code, String message) {
+        this(code, 0, message);
+    }
+
+    public Http2Exception(ErrorCode code, int streamId, String message) {
+        super(message);
+        this.code = code;
+        this.streamId = streamId;
+    }
+
+    public boolean isConnectionError() {
+        return streamId == 0;
+    }
+}
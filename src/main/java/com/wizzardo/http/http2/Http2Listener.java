@@ -0,0 +1,954 @@
+package com.wizzardo.http.http2;
+
+import com.wizzardo.epoll.ByteBufferProvider;
+import com.wizzardo.epoll.readable.ReadableBuilder;
+import com.wizzardo.epoll.readable.ReadableByteArray;
+import com.wizzardo.epoll.readable.ReadableData;
+import com.wizzardo.http.HttpConnection;
+import com.wizzardo.http.HttpException;
+import com.wizzardo.http.HttpServer;
+import com.wizzardo.http.InputListener;
+import com.wizzardo.http.MultiValue;
+import com.wizzardo.http.ResponseReader;
+import com.wizzardo.http.Worker;
+import com.wizzardo.http.http2.hpack.HpackDecoder;
+import com.wizzardo.http.http2.hpack.HpackEncoder;
+import com.wizzardo.http.request.Header;
+import com.wizzardo.http.request.Request;
+import com.wizzardo.http.response.Response;
+import com.wizzardo.http.response.Status;
+import com.wizzardo.tools.io.IOTools;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Handles HTTP/2 connection after the preface or 'Upgrade: h2c' request: reads frames, keeps streams and flow control windows
+ * and passes every complete request to {@link HttpServer#serve(Request, Response)}.
+ * Requests are served on the executor of the server if it is set and responses are written by the thread that served them,
+ * otherwise they are served in the thread that reads the connection and a slow handler delays all streams of the connection.
+ * State of the connection is guarded by a lock. With an executor it is never held while a handler is running,
+ * without it handlers run under the lock in the reading thread, which is the only user of the connection in that mode.
+ * Responses are sent in DATA frames as far as windows of the peer allow, the rest is sent after WINDOW_UPDATE.
+ * When several responses wait for windows, {@link StreamScheduler} shares the connection according to priorities of streams.
+ * <p>
+ * Paths that were added by {@link Response#push(String)} are promised with PUSH_PROMISE before the response itself
+ * and served as GET requests in the same way as requests of the client, as dependents of the stream that promised them.
+ */
+public class Http2Listener implements InputListener<HttpConnection> {
+    public static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes();
+    public static final int MAX_CONCURRENT_STREAMS = 100;
+
+    protected static final int HEADER_LENGTH = Frame.HEADER_LENGTH;
+    protected static final HpackDecoder.HeaderConsumer IGNORE_HEADERS = (name, value) -> {
+    };
+    protected static final Map<String, String> LOWER_CASE_NAMES = new HashMap<>();
+
+    static {
+        for (Header header : Header.values()) {
+            if (header.name().startsWith("KEY_"))
+                LOWER_CASE_NAMES.put(header.value, header.value.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    protected final HttpServer server;
+    protected final HttpConnection connection;
+    protected final Settings localSettings = new Settings().setMaxConcurrentStreams(MAX_CONCURRENT_STREAMS);
+    protected final Settings remoteSettings = new Settings();
+    protected final HpackDecoder decoder = new HpackDecoder(localSettings.getHeaderTableSize());
+    protected final HpackEncoder encoder = new HpackEncoder();
+    protected final Map<Integer, Http2Stream> streams = new HashMap<>();
+    protected final StreamScheduler scheduler = new StreamScheduler();
+    protected final ReentrantLock lock = new ReentrantLock();
+
+    protected byte[] buffer = new byte[HEADER_LENGTH + Settings.DEFAULT_MAX_FRAME_SIZE];
+    protected int length;
+    protected int prefaceOffset;
+    protected boolean settingsReceived;
+    protected int lastStreamId;
+    protected int nextPushStreamId = 2;
+    protected int pushedStreams;
+    protected long sendWindow = Settings.DEFAULT_WINDOW_SIZE;
+    protected long receiveWindow = Settings.DEFAULT_WINDOW_SIZE;
+    protected boolean goAwayReceived;
+    protected boolean goAwaySent;
+
+    protected byte[] headerBlock;
+    protected int headerBlockLength;
+    protected int headerBlockStreamId;
+    protected boolean headerBlockEndStream;
+    protected int priorityDependency;
+    protected boolean priorityExclusive;
+    protected int priorityWeight = Http2Stream.DEFAULT_WEIGHT;
+
+    protected Request upgradeRequest;
+    protected ReadableBuilder out;
+
+    /**
+     * @param prefaceOffset number of bytes of the client connection preface that were already read
+     */
+    public Http2Listener(HttpServer server, HttpConnection connection, int prefaceOffset) {
+        this.server = server;
+        this.connection = connection;
+        this.prefaceOffset = prefaceOffset;
+    }
+
+    /**
+     * @param request that was sent with 'Upgrade: h2c', it will be handled as stream 1
+     * @param settings decoded value of 'HTTP2-Settings' header
+     */
+    public Http2Listener upgrade(Request request, byte[] settings) {
+        remoteSettings.apply(settings, 0, settings.length);
+        upgradeRequest = request;
+        return this;
+    }
+
+    @Override
+    public void onReady(HttpConnection connection) {
+        lock.lock();
+        try {
+            onUpgraded(connection);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    protected void onUpgraded(HttpConnection connection) {
+        try {
+            writeFrame(Frame.Type.SETTINGS, 0, 0, localSettings.toBytes());
+
+            if (upgradeRequest != null) {
+                Http2Stream stream = new Http2Stream(1, new Http2RequestReader(upgradeRequest), remoteSettings.getInitialWindowSize(), localSettings.getInitialWindowSize());
+                upgradeRequest = null;
+                lastStreamId = 1;
+                stream.remoteClosed = true;
+                streams.put(stream.id, stream);
+                try {
+                    dispatch(stream);
+                } catch (Http2Exception e) {
+                    if (e.isConnectionError())
+                        throw e;
+                    resetStream(e.streamId, e.code);
+                }
+            }
+
+            byte[] bytes = connection.getBuffer();
+            int position = connection.getBufferPosition();
+            int limit = connection.getBufferLimit();
+            connection.resetBuffer();
+            while (position < limit) {
+                int l = Math.min(limit - position, buffer.length - length);
+                System.arraycopy(bytes, position, buffer, length, l);
+                length += l;
+                position += l;
+                processFrames();
+            }
+        } catch (Http2Exception e) {
+            onError(e);
+        } catch (Exception e) {
+            onError(new Http2Exception(ErrorCode.INTERNAL_ERROR, String.valueOf(e.getMessage())));
+            e.printStackTrace();
+        }
+        flush();
+        onReadyToRead(connection);
+    }
+
+    @Override
+    public void onReadyToRead(HttpConnection connection) {
+        lock.lock();
+        try {
+            readFrames(connection);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    protected void readFrames(HttpConnection connection) {
+        try {
+            int r;
+            ByteBufferProvider bufferProvider = Worker.bufferProvider();
+            while (!goAwaySent && (r = connection.read(buffer, length, buffer.length - length, bufferProvider)) > 0) {
+                length += r;
+                processFrames();
+                flush();
+            }
+        } catch (Http2Exception e) {
+            onError(e);
+        } catch (IOException e) {
+            IOTools.close(connection);
+        } catch (Exception e) {
+            onError(new Http2Exception(ErrorCode.INTERNAL_ERROR, String.valueOf(e.getMessage())));
+            e.printStackTrace();
+        }
+        flush();
+    }
+
+    protected void processFrames() {
+        int offset = 0;
+        if (prefaceOffset < PREFACE.length) {
+            while (prefaceOffset < PREFACE.length && offset < length) {
+                if (buffer[offset++] != PREFACE[prefaceOffset++])
+                    throw new Http2Exception(ErrorCode.PROTOCOL_ERROR, "Wrong connection preface");
+            }
+        }
+
+        while (length - offset >= HEADER_LENGTH) {
+            int frameLength = Frame.readLength(buffer, offset);
+            if (frameLength > localSettings.getMaxFrameSize())
+                throw new Http2Exception(ErrorCode.FRAME_SIZE_ERROR, "Frame is too big: " + frameLength);
+            if (length - offset < HEADER_LENGTH + frameLength)
+                break;
+
+            try {
+                handleFrame(buffer, offset, frameLength);
+            } catch (Http2Exception e) {
+                if (e.isConnectionError())
+                    throw e;
+                resetStream(e.streamId, e.code);
+            }
+            offset += HEADER_LENGTH + frameLength;
+        }
+
+        length -= offset;
+        if (length > 0 && offset > 0)
+            System.arraycopy(buffer, offset, buffer, 0, length);
+    }
+
+    protected void handleFrame(byte[] bytes, int offset, int length) {
+        int flags = Frame.readFlags(bytes, offset);
+        int streamId = Frame.readStreamId(bytes, offset);
+        Frame.Type type = Frame.Type.valueOf(Frame.readType(bytes, offset));
+        offset += HEADER_LENGTH;
+
+        if (!settingsReceived && type != Frame.Type.SETTINGS)
+            throw new Http2Exception(ErrorCode.PROTOCOL_ERROR, "First frame must be SETTINGS");
+        if (headerBlockStreamId != 0 && (type != Frame.Type.CONTINUATION || streamId != headerBlockStreamId))
+            throw new Http2Exception(ErrorCode.PROTOCOL_ERROR, "Header block is not finished");
+        if (type == null)
+            return;
+
+        switch (type) {
+            case DATA:
+                onData(streamId, flags, bytes, offset, length);
+                break;
+            case HEADERS:
+                onHeaders(streamId, flags, bytes, offset, length);
+                break;
+            case PRIORITY:
+                onPriority(streamId, bytes, offset, length);
+                break;
+            case RST_STREAM:
+                onRstStream(streamId, bytes, offset, length);
+                break;
+            case SETTINGS:
+                onSettings(streamId, flags, bytes, offset, length);
+                break;
+            case PUSH_PROMISE:
+                throw new Http2Exception(ErrorCode.PROTOCOL_ERROR, "Client must not send PUSH_PROMISE");
+            case PING:
+                onPing(streamId, flags, bytes, offset, length);
+                break;
+            case GOAWAY:
+                if (streamId != 0)
+                    throw new Http2Exception(ErrorCode.PROTOCOL_ERROR, "GOAWAY must be sent for connection");
+                goAwayReceived = true;
+                if (streams.isEmpty())
+                    connection.setCloseOnFinishWriting(true);
+                break;
+            case WINDOW_UPDATE:
+                onWindowUpdate(streamId, bytes, offset, length);
+                break;
+            case CONTINUATION:
+                onContinuation(streamId, flags, bytes, offset, length);
+                break;
+        }
+    }
+
+    protected void checkStreamId(int streamId) {
+        if (streamId == 0)
+            throw new Http2Exception(ErrorCode.PROTOCOL_ERROR, "Frame must be sent for a stream");
+    }
+
+    protected void onData(int streamId, int flags, byte[] bytes, int offset, int length) {
+        checkStreamId(streamId);
+        int frameLength = length;
+        if ((flags & Frame.FLAG_PADDED) != 0) {
+            int padding = length > 0 ? bytes[offset] & 0xff : 0;
+            if (padding >= length)
+                throw new Http2Exception(ErrorCode.PROTOCOL_ERROR, "Wrong padding of DATA frame");
+            offset++;
+            length -= padding + 1;
+        }
+
+        receiveWindow -= frameLength;
+        if (receiveWindow < 0)
+            throw new Http2Exception(ErrorCode.FLOW_CONTROL_ERROR, "Connection window is exceeded");
+        if (frameLength > 0) {
+            writeWindowUpdate(0, frameLength);
+            receiveWindow += frameLength;
+        }
+
+        Http2Stream stream = streams.get(streamId);
+        if (stream == null) {
+            if (isIdle(streamId))
+                throw new Http2Exception(ErrorCode.PROTOCOL_ERROR, "DATA frame for idle stream " + streamId);
+            return; // stream was reset, frames that were already sent are ignored
+        }
+        if (stream.remoteClosed)
+            throw new Http2Exception(ErrorCode.STREAM_CLOSED, streamId, "Stream is already half-closed");
+
+        stream.receiveWindow -= frameLength;
+        if (stream.receiveWindow < 0)
+            throw new Http2Exception(ErrorCode.FLOW_CONTROL_ERROR, streamId, "Stream window is exceeded");
+
+        if (stream.bodyLength + (long) length > server.getPostBodyLimit()) {
+            Response response = new Response().status(Status._413);
+            stream.remoteClosed = true;
+            sendResponse(stream, response);
+            schedule();
+            resetStream(streamId, ErrorCode.NO_ERROR);
+            return;
+        }
+        stream.append(bytes, offset, length);
+
+        if ((flags & Frame.FLAG_END_STREAM) != 0) {
+            stream.remoteClosed = true;
+            dispatch(stream);
+        } else if (frameLength > 0) {
+            writeWindowUpdate(streamId, frameLength);
+            stream.receiveWindow += frameLength;
+        }
+    }
+
+    protected void onHeaders(int streamId, int flags, byte[] bytes, int offset, int length) {
+        checkStreamId(streamId);
+        int end = offset + length;
+        if ((flags & Frame.FLAG_PADDED) != 0) {
+            int padding = length > 0 ? bytes[offset] & 0xff : 0;
+            if (padding >= length)
+                throw new Http2Exception(ErrorCode.PROTOCOL_ERROR, "Wrong padding of HEADERS frame");
+            offset++;
+            end -= padding;
+        }
+        if ((flags & Frame.FLAG_PRIORITY) != 0) {
+            if (end - offset < 5)
+                throw new Http2Exception(ErrorCode.FRAME_SIZE_ERROR, "Wrong length of HEADERS frame");
+            readPriority(streamId, bytes, offset);
+            offset += 5;
+        } else {
+            priorityDependency = 0;
+            priorityExclusive = false;
+            priorityWeight = Http2Stream.DEFAULT_WEIGHT;
+        }
+
+        boolean endStream = (flags & Frame.FLAG_END_STREAM) != 0;
+        if ((flags & Frame.FLAG_END_HEADERS) != 0) {
+            onHeaderBlock(streamId, endStream, bytes, offset, end - offset);
+        } else {
+            headerBlockStreamId = streamId;
+            headerBlockEndStream = endStream;
+            headerBlockLength = 0;
+            appendToHeaderBlock(bytes, offset, end - offset);
+        }
+    }
+
+    protected void readPriority(int streamId, byte[] bytes, int offset) {
+        int dependency = Frame.readInt(bytes, offset);
+        priorityDependency = dependency & 0x7fffffff;
+        priorityExclusive = dependency < 0;
+        priorityWeight = (bytes[offset + 4] & 0xff) + 1;
+        if (priorityDependency == streamId)
+            throw new Http2Exception(ErrorCode.PROTOCOL_ERROR, streamId, "Stream cannot depend on itself");
+    }
+
+    protected void onPriority(int streamId, byte[] bytes, int offset, int length) {
+        checkStreamId(streamId);
+        if (length != 5)
+            throw new Http2Exception(ErrorCode.FRAME_SIZE_ERROR, streamId, "Wrong length of PRIORITY frame");
+
+        readPriority(streamId, bytes, offset);
+        Http2Stream stream = streams.get(streamId);
+        if (stream != null)
+            setPriority(stream, priorityDependency, priorityExclusive, priorityWeight);
+    }
+
+    /**
+     * moves the stream in the dependency tree, see RFC 7540, section 5.3.3
+     *
+     * @param dependency id of the new parent, streams that are not open are replaced by the root
+     * @param exclusive  if true the stream becomes the only child of the new parent and adopts its former children
+     */
+    protected void setPriority(Http2Stream stream, int dependency, boolean exclusive, int weight) {
+        Http2Stream parent = streams.get(dependency);
+        if (parent != null && parent.dependsOn(stream))
+            parent.parent = stream.parent;
+
+        if (exclusive) {
+            for (Http2Stream child : streams.values()) {
+                if (child != stream && child.parent == parent)
+                    child.parent = stream;
+            }
+        }
+        stream.parent = parent;
+        stream.weight = weight;
+    }
+
+    protected void onContinuation(int streamId, int flags, byte[] bytes, int offset, int length) {
+        if (headerBlockStreamId == 0)
+            throw new Http2Exception(ErrorCode.PROTOCOL_ERROR, "Unexpected CONTINUATION frame");
+
+        appendToHeaderBlock(bytes, offset, length);
+        if ((flags & Frame.FLAG_END_HEADERS) != 0) {
+            headerBlockStreamId = 0;
+            onHeaderBlock(streamId, headerBlockEndStream, headerBlock, 0, headerBlockLength);
+        }
+    }
+
+    protected void appendToHeaderBlock(byte[] bytes, int offset, int length) {
+        if (headerBlock == null || headerBlock.length - headerBlockLength < length) {
+            byte[] b = new byte[Math.max(headerBlockLength + length, headerBlock == null ? 1024 : headerBlock.length * 2)];
+            if (headerBlockLength > 0)
+                System.arraycopy(headerBlock, 0, b, 0, headerBlockLength);
+            headerBlock = b;
+        }
+        System.arraycopy(bytes, offset, headerBlock, headerBlockLength, length);
+        headerBlockLength += length;
+        if (headerBlockLength > server.getPostBodyLimit())
+            throw new Http2Exception(ErrorCode.ENHANCE_YOUR_CALM, "Header block is too big");
+    }
+
+    protected void onHeaderBlock(int streamId, boolean endStream, byte[] bytes, int offset, int length) {
+        Http2Stream stream = streams.get(streamId);
+        if (stream != null) {
+            // trailers, they are decoded only to keep the dynamic table in sync
+            decoder.decode(bytes, offset, length, IGNORE_HEADERS);
+            if (stream.remoteClosed)
+                throw new Http2Exception(ErrorCode.STREAM_CLOSED, "HEADERS for half-closed stream " + streamId);
+            if (!endStream)
+                throw new Http2Exception(ErrorCode.PROTOCOL_ERROR, streamId, "Trailers must end the stream");
+            stream.remoteClosed = true;
+            dispatch(stream);
+            return;
+        }
+
+        if (streamId % 2 == 0 || streamId <= lastStreamId)
+            throw new Http2Exception(ErrorCode.PROTOCOL_ERROR, "Wrong id of a new stream: " + streamId);
+
+        lastStreamId = streamId;
+        Http2RequestReader reader = new Http2RequestReader();
+        decoder.decode(bytes, offset, length, reader);
+
+        if (goAwaySent)
+            return;
+        if (streams.size() - pushedStreams >= MAX_CONCURRENT_STREAMS)
+            throw new Http2Exception(ErrorCode.REFUSED_STREAM, streamId, "Too many concurrent streams");
+        if (!reader.isValid())
+            throw new Http2Exception(ErrorCode.PROTOCOL_ERROR, streamId, "Malformed request");
+
+        stream = new Http2Stream(streamId, reader, remoteSettings.getInitialWindowSize(), localSettings.getInitialWindowSize());
+        setPriority(stream, priorityDependency, priorityExclusive, priorityWeight);
+        streams.put(streamId, stream);
+        if (endStream) {
+            stream.remoteClosed = true;
+            dispatch(stream);
+        }
+    }
+
+    protected void onRstStream(int streamId, byte[] bytes, int offset, int length) {
+        checkStreamId(streamId);
+        if (length != 4)
+            throw new Http2Exception(ErrorCode.FRAME_SIZE_ERROR, "Wrong length of RST_STREAM frame");
+        if (isIdle(streamId))
+            throw new Http2Exception(ErrorCode.PROTOCOL_ERROR, "RST_STREAM for idle stream " + streamId);
+
+        closeStream(streams.get(streamId));
+    }
+
+    /**
+     * @return true if the stream wasn't opened yet by the client or promised by the server
+     */
+    protected boolean isIdle(int streamId) {
+        return streamId % 2 == 0 ? streamId >= nextPushStreamId : streamId > lastStreamId;
+    }
+
+    protected void onSettings(int streamId, int flags, byte[] bytes, int offset, int length) {
+        if (streamId != 0)
+            throw new Http2Exception(ErrorCode.PROTOCOL_ERROR, "SETTINGS must be sent for connection");
+
+        if ((flags & Frame.FLAG_ACK) != 0) {
+            if (length != 0)
+                throw new Http2Exception(ErrorCode.FRAME_SIZE_ERROR, "SETTINGS ack must be empty");
+            return;
+        }
+
+        int initialWindowSize = remoteSettings.getInitialWindowSize();
+        remoteSettings.apply(bytes, offset, length);
+        settingsReceived = true;
+
+        encoder.setMaxTableSize(Math.min(remoteSettings.getHeaderTableSize(), HpackEncoder.DEFAULT_TABLE_SIZE));
+
+        int delta = remoteSettings.getInitialWindowSize() - initialWindowSize;
+        if (delta != 0) {
+            for (Http2Stream stream : streams.values()) {
+                stream.sendWindow += delta;
+                if (stream.sendWindow > Settings.MAX_WINDOW_SIZE)
+                    throw new Http2Exception(ErrorCode.FLOW_CONTROL_ERROR, "Stream window is too big");
+            }
+        }
+
+        writeFrame(Frame.Type.SETTINGS, Frame.FLAG_ACK, 0, new byte[0]);
+        schedule();
+    }
+
+    protected void onPing(int streamId, int flags, byte[] bytes, int offset, int length) {
+        if (streamId != 0)
+            throw new Http2Exception(ErrorCode.PROTOCOL_ERROR, "PING must be sent for connection");
+        if (length != 8)
+            throw new Http2Exception(ErrorCode.FRAME_SIZE_ERROR, "Wrong length of PING frame");
+
+        if ((flags & Frame.FLAG_ACK) == 0) {
+            byte[] payload = new byte[8];
+            System.arraycopy(bytes, offset, payload, 0, 8);
+            writeFrame(Frame.Type.PING, Frame.FLAG_ACK, 0, payload);
+        }
+    }
+
+    protected void onWindowUpdate(int streamId, byte[] bytes, int offset, int length) {
+        if (length != 4)
+            throw new Http2Exception(ErrorCode.FRAME_SIZE_ERROR, "Wrong length of WINDOW_UPDATE frame");
+
+        int increment = Frame.readInt(bytes, offset) & 0x7fffffff;
+        if (increment == 0)
+            throw new Http2Exception(ErrorCode.PROTOCOL_ERROR, streamId, "Window increment must not be 0");
+
+        if (streamId == 0) {
+            sendWindow += increment;
+            if (sendWindow > Settings.MAX_WINDOW_SIZE)
+                throw new Http2Exception(ErrorCode.FLOW_CONTROL_ERROR, "Connection window is too big");
+        } else {
+            Http2Stream stream = streams.get(streamId);
+            if (stream == null)
+                return;
+
+            stream.sendWindow += increment;
+            if (stream.sendWindow > Settings.MAX_WINDOW_SIZE)
+                throw new Http2Exception(ErrorCode.FLOW_CONTROL_ERROR, streamId, "Stream window is too big");
+        }
+        schedule();
+    }
+
+    protected void dispatch(Http2Stream stream) {
+        respond(stream);
+        schedule();
+    }
+
+    /**
+     * serves the request of the stream on the executor of the server or in the current thread under the lock if there is no executor
+     */
+    protected void respond(Http2Stream stream) {
+        Response response = new Response();
+        Http2Request request = createRequest(stream, response);
+        if (request == null)
+            return;
+
+        if (!server.execute(() -> serve(stream, request, response)))
+            respond(stream, request, server.serve(request, response));
+    }
+
+    /**
+     * runs on the executor, the response is written under the lock after the handler has finished
+     */
+    protected void serve(Http2Stream stream, Http2Request request, Response response) {
+        Response result = server.serve(request, response);
+        lock.lock();
+        try {
+            if (streams.get(stream.id) != stream)
+                return; // stream was reset or connection was closed while the request was served
+
+            try {
+                respond(stream, request, result);
+            } catch (Http2Exception e) {
+                if (e.isConnectionError())
+                    throw e;
+                resetStream(e.streamId, e.code);
+            }
+            schedule();
+        } catch (Http2Exception e) {
+            onError(e);
+        } finally {
+            flush();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return request of the stream or null if it is malformed, the error response is already sent in that case
+     */
+    protected Http2Request createRequest(Http2Stream stream, Response response) {
+        Http2Request request = new Http2Request(connection, stream.id, response);
+        try {
+            stream.reader.fillRequest(request, stream.body, stream.bodyLength);
+            stream.body = null;
+            if (request.contentLength() >= 0 && request.contentLength() != stream.bodyLength)
+                throw new Http2Exception(ErrorCode.PROTOCOL_ERROR, stream.id, "Content-Length doesn't match length of DATA frames");
+        } catch (HttpException e) {
+            sendResponse(stream, response.status(e.status));
+            return null;
+        }
+
+        if (request.method() == Request.Method.HEAD)
+            response.setHasBody(false);
+        return request;
+    }
+
+    /**
+     * writes headers of the response and of promised streams, bodies are sent later by {@link #schedule()}
+     */
+    protected void respond(Http2Stream stream, Http2Request request, Response response) {
+        if (response.isAsync())
+            throw new Http2Exception(ErrorCode.INTERNAL_ERROR, stream.id, "Async responses are not supported over HTTP/2");
+
+        List<Http2Stream> promised = promise(stream, request, response);
+        sendResponse(stream, response);
+        for (Http2Stream pushed : promised) {
+            try {
+                respond(pushed);
+            } catch (Http2Exception e) {
+                if (e.isConnectionError())
+                    throw e;
+                resetStream(pushed.id, e.code);
+            }
+        }
+    }
+
+    /**
+     * sends PUSH_PROMISE for every path that was pushed by the response, if the client accepts pushes
+     *
+     * @return promised streams, they depend on the given stream and have their requests ready to be served
+     */
+    protected List<Http2Stream> promise(Http2Stream stream, Http2Request request, Response response) {
+        List<String> paths = response.getPushPromises();
+        if (paths.isEmpty() || stream.id % 2 == 0 || goAwayReceived || !remoteSettings.isEnablePush()
+                || request.method() != Request.Method.GET || response.status().code >= 300)
+            return Collections.emptyList();
+
+        List<Http2Stream> promised = new ArrayList<>(paths.size());
+        String host = request.header(Header.KEY_HOST);
+        String acceptEncoding = request.header(Header.KEY_ACCEPT_ENCODING);
+        String userAgent = request.header(Header.KEY_USER_AGENT);
+        for (String path : paths) {
+            if (pushedStreams >= Math.min(remoteSettings.getMaxConcurrentStreams(), MAX_CONCURRENT_STREAMS))
+                break;
+
+            Http2RequestReader reader = new Http2RequestReader();
+            encoder.reset();
+            promiseHeader(reader, ":method", "GET");
+            promiseHeader(reader, ":scheme", "http");
+            if (host != null)
+                promiseHeader(reader, ":authority", host);
+            promiseHeader(reader, ":path", path);
+            if (acceptEncoding != null)
+                promiseHeader(reader, "accept-encoding", acceptEncoding);
+            if (userAgent != null)
+                promiseHeader(reader, "user-agent", userAgent);
+
+            int id = nextPushStreamId;
+            nextPushStreamId += 2;
+            writePushPromise(stream.id, id, encoder.getBytes(), encoder.length());
+
+            Http2Stream pushed = new Http2Stream(id, reader, remoteSettings.getInitialWindowSize(), localSettings.getInitialWindowSize());
+            pushed.remoteClosed = true;
+            pushed.parent = stream;
+            streams.put(id, pushed);
+            pushedStreams++;
+            promised.add(pushed);
+        }
+        return promised;
+    }
+
+    protected void promiseHeader(Http2RequestReader reader, String name, String value) {
+        reader.onHeader(name, value);
+        encoder.encode(name, value);
+    }
+
+    protected void sendResponse(Http2Stream stream, Response response) {
+        encoder.reset();
+        ReadableData body;
+        ReadableData staticResponse = response.getStaticResponse();
+        if (staticResponse != null) {
+            byte[] bytes = new byte[(int) staticResponse.remains()];
+            staticResponse.read(ByteBuffer.wrap(bytes));
+            IOTools.close(staticResponse);
+
+            ResponseReader reader = new ResponseReader();
+            int offset = reader.read(bytes, 0, bytes.length);
+            encoder.encode(":status", reader.getStatus());
+            for (Map.Entry<String, MultiValue> header : reader.getHeaders().entrySet()) {
+                for (String value : header.getValue().getValues()) {
+                    encodeHeader(header.getKey(), value);
+                }
+            }
+            body = offset >= 0 && offset < bytes.length && response.hasBody() ? new ReadableByteArray(bytes, offset, bytes.length - offset) : null;
+        } else {
+            encoder.encode(":status", String.valueOf(response.status().code));
+            response.forEachHeader(this::encodeHeader);
+            body = response.getReadableBody();
+            if (body != null && !response.hasBody()) {
+                IOTools.close(body);
+                body = null;
+            }
+        }
+
+        boolean endStream = body == null || body.remains() == 0;
+        writeHeaders(stream.id, encoder.getBytes(), encoder.length(), endStream);
+        if (endStream) {
+            IOTools.close(body);
+            closeStream(stream);
+        } else {
+            stream.pending = body;
+            stream.pendingLength = body.remains();
+            scheduler.add(stream);
+        }
+    }
+
+    protected void encodeHeader(String name, String value) {
+        String lowerCase = LOWER_CASE_NAMES.get(name);
+        name = lowerCase != null ? lowerCase : name.toLowerCase(Locale.ROOT);
+        switch (name) {
+            case "connection":
+            case "keep-alive":
+            case "proxy-connection":
+            case "transfer-encoding":
+            case "upgrade":
+                return; // connection-specific headers are not allowed in HTTP/2
+        }
+        encoder.encode(name, value);
+    }
+
+    protected void writeHeaders(int streamId, byte[] block, int length, boolean endStream) {
+        writeHeaderBlock(Frame.Type.HEADERS, endStream ? Frame.FLAG_END_STREAM : 0, streamId, null, block, length);
+    }
+
+    protected void writePushPromise(int streamId, int promisedStreamId, byte[] block, int length) {
+        byte[] promisedId = new byte[4];
+        Frame.writeInt(promisedId, 0, promisedStreamId);
+        writeHeaderBlock(Frame.Type.PUSH_PROMISE, 0, streamId, promisedId, block, length);
+    }
+
+    /**
+     * writes the header block in the frame of the given type and CONTINUATION frames if it doesn't fit into one frame
+     *
+     * @param prefix fields that precede the block in the first frame
+     */
+    protected void writeHeaderBlock(Frame.Type type, int flags, int streamId, byte[] prefix, byte[] block, int length) {
+        int maxFrameSize = remoteSettings.getMaxFrameSize();
+        int offset = 0;
+        int prefixLength = prefix == null ? 0 : prefix.length;
+        do {
+            int l = Math.min(maxFrameSize - prefixLength, length - offset);
+            if (offset + l == length)
+                flags |= Frame.FLAG_END_HEADERS;
+
+            byte[] frame = new byte[HEADER_LENGTH + prefixLength + l];
+            Frame.writeHeader(frame, 0, prefixLength + l, type, flags, streamId);
+            if (prefixLength > 0)
+                System.arraycopy(prefix, 0, frame, HEADER_LENGTH, prefixLength);
+            System.arraycopy(block, offset, frame, HEADER_LENGTH + prefixLength, l);
+            write(frame);
+
+            offset += l;
+            type = Frame.Type.CONTINUATION;
+            flags = 0;
+            prefixLength = 0;
+        } while (offset < length);
+    }
+
+    /**
+     * sends DATA frames of waiting streams in order chosen by the scheduler, until windows are exhausted
+     */
+    protected void schedule() {
+        Http2Stream stream;
+        while (sendWindow > 0 && (stream = scheduler.next()) != null) {
+            sendData(stream);
+        }
+    }
+
+    protected void sendData(Http2Stream stream) {
+        long remains = stream.pendingLength;
+        int l = (int) Math.min(Math.min(remains, remoteSettings.getMaxFrameSize()), Math.min(sendWindow, stream.sendWindow));
+        boolean last = l == remains;
+        byte[] header = new byte[HEADER_LENGTH];
+        Frame.writeHeader(header, 0, l, Frame.Type.DATA, last ? Frame.FLAG_END_STREAM : 0, stream.id);
+        write(header);
+        write(new ReadableDataSlice(stream.pending, l, last));
+
+        sendWindow -= l;
+        stream.sendWindow -= l;
+        stream.pendingLength -= l;
+        scheduler.onSent(stream, l);
+        if (last) {
+            stream.pending = null;
+            closeStream(stream);
+        }
+    }
+
+    protected void resetStream(int streamId, ErrorCode code) {
+        byte[] payload = new byte[4];
+        Frame.writeInt(payload, 0, code.value);
+        writeFrame(Frame.Type.RST_STREAM, 0, streamId, payload);
+        closeStream(streams.get(streamId));
+    }
+
+    protected void closeStream(Http2Stream stream) {
+        if (stream == null)
+            return;
+
+        scheduler.remove(stream);
+        stream.close();
+        if (streams.remove(stream.id) == null)
+            return;
+
+        if (stream.id % 2 == 0)
+            pushedStreams--;
+        for (Http2Stream child : streams.values()) {
+            if (child.parent == stream)
+                child.parent = stream.parent; // dependents of a closed stream move to its parent
+        }
+        if (goAwayReceived && streams.isEmpty())
+            connection.setCloseOnFinishWriting(true);
+    }
+
+    protected void onError(Http2Exception e) {
+        if (goAwaySent)
+            return;
+
+        goAwaySent = true;
+        byte[] message = String.valueOf(e.getMessage()).getBytes();
+        byte[] payload = new byte[8 + message.length];
+        Frame.writeInt(payload, 0, lastStreamId);
+        Frame.writeInt(payload, 4, e.code.value);
+        System.arraycopy(message, 0, payload, 8, message.length);
+        writeFrame(Frame.Type.GOAWAY, 0, 0, payload);
+        flush();
+        connection.setCloseOnFinishWriting(true);
+    }
+
+    protected void writeWindowUpdate(int streamId, int increment) {
+        byte[] payload = new byte[4];
+        Frame.writeInt(payload, 0, increment);
+        writeFrame(Frame.Type.WINDOW_UPDATE, 0, streamId, payload);
+    }
+
+    protected void writeFrame(Frame.Type type, int flags, int streamId, byte[] payload) {
+        write(new Frame(payload).type(type).flag(flags).streamId(streamId).getBytes());
+    }
+
+    protected void write(byte[] bytes) {
+        write(new ReadableByteArray(bytes));
+    }
+
+    protected void write(ReadableData data) {
+        if (out == null)
+            out = new ReadableBuilder();
+        out.append(data);
+    }
+
+    /**
+     * writes all frames that were prepared during processing of the last portion of input
+     */
+    protected void flush() {
+        ReadableBuilder out = this.out;
+        if (out != null) {
+            this.out = null;
+            connection.write(out, Worker.bufferProvider());
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            for (Http2Stream stream : streams.values()) {
+                stream.close();
+            }
+            streams.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Part of the response body that is sent in one DATA frame, it is read from the body only when the socket is ready,
+     * so the body is never copied as a whole
+     */
+    protected static class ReadableDataSlice extends ReadableData {
+        protected final ReadableData data;
+        protected final int length;
+        protected final boolean last;
+        protected int position;
+
+        public ReadableDataSlice(ReadableData data, int length, boolean last) {
+            this.data = data;
+            this.length = length;
+            this.last = last;
+        }
+
+        @Override
+        public int read(ByteBuffer byteBuffer) {
+            if (position == length)
+                return 0;
+
+            ByteBuffer bb = byteBuffer.slice();
+            if (bb.remaining() > length - position)
+                bb.limit(length - position);
+
+            int r = data.read(bb);
+            if (r > 0) {
+                byteBuffer.position(byteBuffer.position() + r);
+                position += r;
+            }
+            return r;
+        }
+
+        @Override
+        public void unread(int i) {
+            position -= i;
+            data.unread(i);
+        }
+
+        @Override
+        public boolean isComplete() {
+            return position == length;
+        }
+
+        @Override
+        public long complete() {
+            return position;
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public long remains() {
+            return length - position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (last)
+                data.close();
+        }
+    }
+}
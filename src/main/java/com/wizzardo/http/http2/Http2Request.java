@@ -0,0 +1,41 @@
+package com.wizzardo.http.http2;
+
+import com.wizzardo.http.HttpConnection;
+import com.wizzardo.http.request.Request;
+import com.wizzardo.http.request.SimpleRequestBody;
+import com.wizzardo.http.response.Response;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Request of one HTTP/2 stream, it has own response while the connection is shared between streams
+ */
+public class Http2Request extends Request<HttpConnection> {
+    protected final int streamId;
+    protected final Response response;
+
+    public Http2Request(HttpConnection connection, int streamId, Response response) {
+        super(connection);
+        this.streamId = streamId;
+        this.response = response;
+    }
+
+    public int streamId() {
+        return streamId;
+    }
+
+    @Override
+    public Response response() {
+        return response;
+    }
+
+    protected void setBody(byte[] bytes, int length) {
+        if (length == 0) {
+            body = null;
+            return;
+        }
+
+        body = new SimpleRequestBody(length);
+        body.read(bytes, 0, length);
+    }
+}
@@ -0,0 +1,134 @@
+package com.wizzardo.http.http2;
+
+import com.wizzardo.http.http2.hpack.HpackDecoder;
+import com.wizzardo.http.request.Header;
+import com.wizzardo.http.request.Request;
+import com.wizzardo.http.request.RequestReader;
+import com.wizzardo.http.utils.AsciiReader;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Collects decoded fields of a header block into the same structures as {@link RequestReader} does for HTTP/1,
+ * pseudo-headers are turned into method, path and 'Host' header, names of known headers get their usual case.
+ */
+public class Http2RequestReader extends RequestReader implements HpackDecoder.HeaderConsumer {
+    public static final String HTTP_2_0 = "HTTP/2.0";
+    protected static final Map<String, String> HTTP1_NAMES = new HashMap<>();
+
+    static {
+        for (Header header : Header.values()) {
+            if (header.name().startsWith("KEY_"))
+                HTTP1_NAMES.put(header.value.toLowerCase(Locale.ROOT), header.value);
+        }
+    }
+
+    protected boolean malformed;
+    protected boolean regularHeaders;
+    protected String cookie;
+
+    public Http2RequestReader() {
+        super(new LinkedHashMap<>(16));
+        protocol = HTTP_2_0;
+    }
+
+    /**
+     * copies request that was sent with 'Upgrade: h2c' to be handled as stream 1
+     */
+    public Http2RequestReader(Request request) {
+        super(new LinkedHashMap<>(request.headers()), request.params());
+        protocol = HTTP_2_0;
+        method = request.method().name();
+        path = request.path();
+        queryString = request.getQueryString();
+    }
+
+    @Override
+    public void onHeader(String name, String value) {
+        if (name.startsWith(":")) {
+            if (regularHeaders) {
+                malformed = true;
+                return;
+            }
+            switch (name) {
+                case ":method":
+                    method = value;
+                    break;
+                case ":path":
+                    setPath(value);
+                    break;
+                case ":authority":
+                    put(Header.KEY_HOST.value, value);
+                    break;
+                case ":scheme":
+                    break;
+                default:
+                    malformed = true;
+            }
+            return;
+        }
+
+        regularHeaders = true;
+        if (name.equals("cookie")) {
+            cookie = cookie == null ? value : cookie + "; " + value;
+            return;
+        }
+        put(toHttp1Name(name), value);
+    }
+
+    protected void setPath(String value) {
+        if (value.isEmpty() || value.charAt(0) != '/') {
+            malformed = true;
+            return;
+        }
+
+        byte[] bytes = AsciiReader.write(value);
+        int q = value.indexOf('?');
+        if (q == -1) {
+            parsePath(bytes, 0, bytes.length);
+        } else {
+            parsePath(bytes, 0, q);
+            parseQueryString(bytes, q + 1, bytes.length - q - 1);
+        }
+    }
+
+    protected String toHttp1Name(String name) {
+        String known = HTTP1_NAMES.get(name);
+        if (known != null)
+            return known;
+
+        char[] chars = name.toCharArray();
+        boolean upper = true;
+        for (int i = 0; i < chars.length; i++) {
+            if (upper)
+                chars[i] = Character.toUpperCase(chars[i]);
+            upper = chars[i] == '-';
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @return false if the request has no method or path or has unknown pseudo-headers
+     */
+    public boolean isValid() {
+        return !malformed && method != null && path != null;
+    }
+
+    public Http2Request fillRequest(Http2Request request, byte[] body, int length) {
+        if (cookie != null) {
+            put(Header.KEY_COOKIE.value, cookie);
+            cookie = null;
+        }
+        if (length > 0 && !headers.containsKey(Header.KEY_CONTENT_LENGTH.value))
+            put(Header.KEY_CONTENT_LENGTH.value, String.valueOf(length));
+
+        fillRequest(request);
+        request.setBody(body, length);
+        return request;
+    }
+}
@@ -0,0 +1,68 @@
+package com.wizzardo.http.http2;
+
+import com.wizzardo.epoll.readable.ReadableData;
+import com.wizzardo.tools.io.IOTools;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public class Http2Stream {
+    public static final int DEFAULT_WEIGHT = 16;
+
+
+    public final int id;
+    protected final Http2RequestReader reader;
+    protected long sendWindow;
+    protected long receiveWindow;
+    protected byte[] body;
+    protected int bodyLength;
+    protected boolean remoteClosed;
+    protected ReadableData pending;
+    protected long pendingLength;
+    protected Http2Stream parent;
+    protected int weight = DEFAULT_WEIGHT;
+    protected long virtualTime;
+
+    public Http2Stream(int id, Http2RequestReader reader, int sendWindow, int receiveWindow) {
+        this.id = id;
+        this.reader = reader;
+        this.sendWindow = sendWindow;
+        this.receiveWindow = receiveWindow;
+    }
+
+    protected void append(byte[] bytes, int offset, int length) {
+        if (body == null)
+            body = new byte[Math.max(length, 1024)];
+        else if (body.length - bodyLength < length) {
+            byte[] b = new byte[Math.max(body.length * 2, bodyLength + length)];
+            System.arraycopy(body, 0, b, 0, bodyLength);
+            body = b;
+        }
+        System.arraycopy(bytes, offset, body, bodyLength, length);
+        bodyLength += length;
+    }
+
+    /**
+     * @return true if the given stream is one of ancestors of this stream in the dependency tree
+     */
+    public boolean dependsOn(Http2Stream stream) {
+        for (Http2Stream p = parent; p != null; p = p.parent) {
+            if (p == stream)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the request was received and the response was sent completely
+     */
+    public boolean isClosed() {
+        return remoteClosed && pending == null;
+    }
+
+    protected void close() {
+        IOTools.close(pending);
+        pending = null;
+        body = null;
+    }
+}
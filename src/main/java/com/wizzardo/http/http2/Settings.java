@@ -0,0 +1,155 @@
+package com.wizzardo.http.http2;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Parameters of one side of HTTP/2 connection, see RFC 7540, section 6.5.2
+ */
+public class Settings {
+    public static final int HEADER_TABLE_SIZE = 0x1;
+    public static final int ENABLE_PUSH = 0x2;
+    public static final int MAX_CONCURRENT_STREAMS = 0x3;
+    public static final int INITIAL_WINDOW_SIZE = 0x4;
+    public static final int MAX_FRAME_SIZE = 0x5;
+    public static final int MAX_HEADER_LIST_SIZE = 0x6;
+
+    public static final int DEFAULT_WINDOW_SIZE = 65535;
+    public static final int DEFAULT_MAX_FRAME_SIZE = 16384;
+    public static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+    protected int headerTableSize = 4096;
+    protected boolean enablePush = true;
+    protected int maxConcurrentStreams = Integer.MAX_VALUE;
+    protected int initialWindowSize = DEFAULT_WINDOW_SIZE;
+    protected int maxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+    protected int maxHeaderListSize = Integer.MAX_VALUE;
+
+    /**
+     * applies payload of SETTINGS frame, unknown parameters are ignored
+     */
+    public void apply(byte[] bytes, int offset, int length) {
+        if (length % 6 != 0)
+            throw new Http2Exception(ErrorCode.FRAME_SIZE_ERROR, "Wrong length of SETTINGS frame: " + length);
+
+        for (int i = offset; i < offset + length; i += 6) {
+            int id = ((bytes[i] & 0xff) << 8) | (bytes[i + 1] & 0xff);
+            long value = Frame.readInt(bytes, i + 2) & 0xffffffffL;
+            set(id, value);
+        }
+    }
+
+    public void set(int id, long value) {
+        switch (id) {
+            case HEADER_TABLE_SIZE:
+                headerTableSize = (int) Math.min(value, Integer.MAX_VALUE);
+                break;
+            case ENABLE_PUSH:
+                if (value > 1)
+                    throw new Http2Exception(ErrorCode.PROTOCOL_ERROR, "Wrong value of SETTINGS_ENABLE_PUSH: " + value);
+                enablePush = value == 1;
+                break;
+            case MAX_CONCURRENT_STREAMS:
+                maxConcurrentStreams = (int) Math.min(value, Integer.MAX_VALUE);
+                break;
+            case INITIAL_WINDOW_SIZE:
+                if (value > MAX_WINDOW_SIZE)
+                    throw new Http2Exception(ErrorCode.FLOW_CONTROL_ERROR, "Wrong value of SETTINGS_INITIAL_WINDOW_SIZE: " + value);
+                initialWindowSize = (int) value;
+                break;
+            case MAX_FRAME_SIZE:
+                if (value < DEFAULT_MAX_FRAME_SIZE || value > 0xffffff)
+                    throw new Http2Exception(ErrorCode.PROTOCOL_ERROR, "Wrong value of SETTINGS_MAX_FRAME_SIZE: " + value);
+                maxFrameSize = (int) value;
+                break;
+            case MAX_HEADER_LIST_SIZE:
+                maxHeaderListSize = (int) Math.min(value, Integer.MAX_VALUE);
+                break;
+        }
+    }
+
+    /**
+     * @return payload of SETTINGS frame with parameters that differ from defaults
+     */
+    public byte[] toBytes() {
+        Settings defaults = new Settings();
+        byte[] bytes = new byte[6 * 6];
+        int offset = 0;
+        if (headerTableSize != defaults.headerTableSize)
+            offset = write(bytes, offset, HEADER_TABLE_SIZE, headerTableSize);
+        if (enablePush != defaults.enablePush)
+            offset = write(bytes, offset, ENABLE_PUSH, enablePush ? 1 : 0);
+        if (maxConcurrentStreams != defaults.maxConcurrentStreams)
+            offset = write(bytes, offset, MAX_CONCURRENT_STREAMS, maxConcurrentStreams);
+        if (initialWindowSize != defaults.initialWindowSize)
+            offset = write(bytes, offset, INITIAL_WINDOW_SIZE, initialWindowSize);
+        if (maxFrameSize != defaults.maxFrameSize)
+            offset = write(bytes, offset, MAX_FRAME_SIZE, maxFrameSize);
+        if (maxHeaderListSize != defaults.maxHeaderListSize)
+            offset = write(bytes, offset, MAX_HEADER_LIST_SIZE, maxHeaderListSize);
+
+        byte[] result = new byte[offset];
+        System.arraycopy(bytes, 0, result, 0, offset);
+        return result;
+    }
+
+    protected int write(byte[] bytes, int offset, int id, int value) {
+        bytes[offset] = (byte) (id >> 8);
+        bytes[offset + 1] = (byte) id;
+        Frame.writeInt(bytes, offset + 2, value);
+        return offset + 6;
+    }
+
+    public int getHeaderTableSize() {
+        return headerTableSize;
+    }
+
+    public Settings setHeaderTableSize(int headerTableSize) {
+        this.headerTableSize = headerTableSize;
+        return this;
+    }
+
+    public boolean isEnablePush() {
+        return enablePush;
+    }
+
+    public Settings setEnablePush(boolean enablePush) {
+        this.enablePush = enablePush;
+        return this;
+    }
+
+    public int getMaxConcurrentStreams() {
+        return maxConcurrentStreams;
+    }
+
+    public Settings setMaxConcurrentStreams(int maxConcurrentStreams) {
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        return this;
+    }
+
+    public int getInitialWindowSize() {
+        return initialWindowSize;
+    }
+
+    public Settings setInitialWindowSize(int initialWindowSize) {
+        this.initialWindowSize = initialWindowSize;
+        return this;
+    }
+
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    public Settings setMaxFrameSize(int maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+        return this;
+    }
+
+    public int getMaxHeaderListSize() {
+        return maxHeaderListSize;
+    }
+
+    public Settings setMaxHeaderListSize(int maxHeaderListSize) {
+        this.maxHeaderListSize = maxHeaderListSize;
+        return this;
+    }
+}
@@ -0,0 +1,73 @@
+package com.wizzardo.http.http2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Chooses the stream that sends the next DATA frame when several responses are waiting, see RFC 7540, section 5.3.
+ * A stream waits while one of streams it depends on can send data itself; streams that are ready at the same time
+ * share the connection in proportion to their weights: every stream has a virtual time that grows by the number
+ * of sent bytes divided by the weight, and the stream with the smallest time goes next.
+ */
+public class StreamScheduler {
+    protected static final int MAX_WEIGHT = 256;
+
+    protected final List<Http2Stream> streams = new ArrayList<>();
+    protected long virtualTime;
+
+    /**
+     * adds the stream with pending data, a new stream doesn't get credit for the time it was idle
+     */
+    public void add(Http2Stream stream) {
+        if (streams.contains(stream))
+            return;
+
+        stream.virtualTime = Math.max(stream.virtualTime, virtualTime);
+        streams.add(stream);
+    }
+
+    public void remove(Http2Stream stream) {
+        streams.remove(stream);
+    }
+
+    public boolean isEmpty() {
+        return streams.isEmpty();
+    }
+
+    /**
+     * @return the stream that should send the next frame or null if all streams are blocked by their windows
+     */
+    public Http2Stream next() {
+        Http2Stream next = null;
+        for (int i = 0; i < streams.size(); i++) {
+            Http2Stream stream = streams.get(i);
+            if (!canSend(stream) || hasSendingAncestor(stream))
+                continue;
+            if (next == null || stream.virtualTime < next.virtualTime)
+                next = stream;
+        }
+        return next;
+    }
+
+    /**
+     * should be called after every frame sent by the stream returned from {@link #next()}
+     */
+    public void onSent(Http2Stream stream, int length) {
+        virtualTime = stream.virtualTime;
+        stream.virtualTime += (long) length * MAX_WEIGHT / stream.weight;
+    }
+
+    protected boolean canSend(Http2Stream stream) {
+        return stream.pending != null && stream.sendWindow > 0;
+    }
+
+    protected boolean hasSendingAncestor(Http2Stream stream) {
+        for (Http2Stream parent = stream.parent; parent != null; parent = parent.parent) {
+            if (canSend(parent) && streams.contains(parent))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,265 @@
+package com.wizzardo.http.http2.hpack;
+
+import com.wizzardo.http.request.ByteTree;
+import com.wizzardo.http.request.Header;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Static and dynamic tables of HPACK, see RFC 7541, section 2.3. Indexes start from 1,
+ * dynamic entries follow the static ones, the newest entry has the lowest index.
+ */
+public class HeaderTable {
+    public static final int ENTRY_OVERHEAD = 32;
+
+    static final String[][] STATIC = {
+            {":authority", ""},
+            {":method", "GET"},
+            {":method", "POST"},
+            {":path", "/"},
+            {":path", "/index.html"},
+            {":scheme", "http"},
+            {":scheme", "https"},
+            {":status", "200"},
+            {":status", "204"},
+            {":status", "206"},
+            {":status", "304"},
+            {":status", "400"},
+            {":status", "404"},
+            {":status", "500"},
+            {"accept-charset", ""},
+            {"accept-encoding", "gzip, deflate"},
+            {"accept-language", ""},
+            {"accept-ranges", ""},
+            {"accept", ""},
+            {"access-control-allow-origin", ""},
+            {"age", ""},
+            {"allow", ""},
+            {"authorization", ""},
+            {"cache-control", ""},
+            {"content-disposition", ""},
+            {"content-encoding", ""},
+            {"content-language", ""},
+            {"content-length", ""},
+            {"content-location", ""},
+            {"content-range", ""},
+            {"content-type", ""},
+            {"cookie", ""},
+            {"date", ""},
+            {"etag", ""},
+            {"expect", ""},
+            {"expires", ""},
+            {"from", ""},
+            {"host", ""},
+            {"if-match", ""},
+            {"if-modified-since", ""},
+            {"if-none-match", ""},
+            {"if-range", ""},
+            {"if-unmodified-since", ""},
+            {"last-modified", ""},
+            {"link", ""},
+            {"location", ""},
+            {"max-forwards", ""},
+            {"proxy-authenticate", ""},
+            {"proxy-authorization", ""},
+            {"range", ""},
+            {"referer", ""},
+            {"refresh", ""},
+            {"retry-after", ""},
+            {"server", ""},
+            {"set-cookie", ""},
+            {"strict-transport-security", ""},
+            {"transfer-encoding", ""},
+            {"user-agent", ""},
+            {"vary", ""},
+            {"via", ""},
+            {"www-authenticate", ""},
+    };
+    public static final int STATIC_LENGTH = STATIC.length;
+
+    static final Map<String, Integer> STATIC_NAMES = new HashMap<>();
+    static final ByteTree KNOWN_NAMES = new ByteTree();
+
+    static {
+        for (int i = STATIC_LENGTH - 1; i >= 0; i--) {
+            STATIC_NAMES.put(STATIC[i][0], i + 1);
+        }
+        for (String name : STATIC_NAMES.keySet()) {
+            KNOWN_NAMES.append(name);
+        }
+        for (Header header : Header.values()) {
+            String name = header.value.toLowerCase(Locale.ROOT);
+            if (header.name().startsWith("KEY_") && !STATIC_NAMES.containsKey(name))
+                KNOWN_NAMES.append(name);
+        }
+    }
+
+    protected String[] names = new String[16];
+    protected String[] values = new String[16];
+    protected int head; // position for the next entry
+    protected int count;
+    protected int size;
+    protected int maxSize;
+
+    public HeaderTable(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return index of static entry with the given name or 0
+     */
+    public static int staticIndexOf(String name) {
+        Integer i = STATIC_NAMES.get(name);
+        return i == null ? 0 : i;
+    }
+
+    /**
+     * @return index of static entry with the given name and value or 0
+     */
+    public static int staticIndexOf(String name, String value) {
+        Integer i = STATIC_NAMES.get(name);
+        if (i == null)
+            return 0;
+
+        for (int j = i - 1; j < STATIC_LENGTH && STATIC[j][0].equals(name); j++) { // entries with the same name are adjacent
+            if (STATIC[j][1].equals(value))
+                return j + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * @return lower-case name of a header from the static table or of a common one,
+     * so no new string is allocated for it; null if the name is unknown
+     */
+    public static String knownName(byte[] bytes, int offset, int length) {
+        return KNOWN_NAMES.getRoot().get(bytes, offset, length);
+    }
+
+    /**
+     * @return index of an entry with the given name and value in static or dynamic table or 0
+     */
+    public int indexOf(String name, String value) {
+        int index = staticIndexOf(name, value);
+        if (index != 0)
+            return index;
+
+        for (int i = 0, j = head - 1; i < count; i++, j--) {
+            if (j < 0)
+                j += names.length;
+            if (names[j].equals(name) && values[j].equals(value))
+                return STATIC_LENGTH + 1 + i;
+        }
+        return 0;
+    }
+
+    /**
+     * @return index of an entry with the given name in static or dynamic table or 0
+     */
+    public int indexOf(String name) {
+        int index = staticIndexOf(name);
+        if (index != 0)
+            return index;
+
+        for (int i = 0, j = head - 1; i < count; i++, j--) {
+            if (j < 0)
+                j += names.length;
+            if (names[j].equals(name))
+                return STATIC_LENGTH + 1 + i;
+        }
+        return 0;
+    }
+
+    public String name(int index) {
+        if (index <= 0 || index > STATIC_LENGTH + count)
+            throw new IndexOutOfBoundsException("Wrong index of header table: " + index);
+        if (index <= STATIC_LENGTH)
+            return STATIC[index - 1][0];
+        return names[position(index)];
+    }
+
+    public String value(int index) {
+        if (index <= 0 || index > STATIC_LENGTH + count)
+            throw new IndexOutOfBoundsException("Wrong index of header table: " + index);
+        if (index <= STATIC_LENGTH)
+            return STATIC[index - 1][1];
+        return values[position(index)];
+    }
+
+    protected int position(int index) {
+        int i = head - (index - STATIC_LENGTH);
+        return i < 0 ? i + names.length : i;
+    }
+
+    public void add(String name, String value) {
+        int entrySize = entrySize(name, value);
+        if (entrySize > maxSize) {
+            clear();
+            return;
+        }
+
+        evict(maxSize - entrySize);
+        if (count == names.length)
+            grow();
+
+        names[head] = name;
+        values[head] = value;
+        head = (head + 1) % names.length;
+        count++;
+        size += entrySize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        evict(maxSize);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public void clear() {
+        evict(0);
+    }
+
+    protected void evict(int targetSize) {
+        while (size > targetSize && count > 0) {
+            int i = head - count;
+            if (i < 0)
+                i += names.length;
+            size -= entrySize(names[i], values[i]);
+            names[i] = null;
+            values[i] = null;
+            count--;
+        }
+    }
+
+    protected void grow() {
+        String[] n = new String[names.length * 2];
+        String[] v = new String[names.length * 2];
+        for (int i = 0; i < count; i++) {
+            int from = (head - count + i + names.length) % names.length;
+            n[i] = names[from];
+            v[i] = values[from];
+        }
+        names = n;
+        values = v;
+        head = count;
+    }
+
+    public static int entrySize(String name, String value) {
+        return name.length() + value.length() + ENTRY_OVERHEAD;
+    }
+}
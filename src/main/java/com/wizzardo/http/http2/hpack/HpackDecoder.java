@@ -0,0 +1,160 @@
+package com.wizzardo.http.http2.hpack;
+
+import com.wizzardo.http.http2.ErrorCode;
+import com.wizzardo.http.http2.Http2Exception;
+import com.wizzardo.http.http2.huffman.HuffmanTable;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Decoder of header blocks, keeps dynamic table of one direction of a connection,
+ * so all blocks must be decoded in order they were received. Strings are decoded as ISO-8859-1.
+ * <p>
+ * Fields are passed to the consumer as soon as they are decoded, without intermediate lists;
+ * indexed fields and known names reuse existing strings, so usually only literal values are allocated.
+ */
+public class HpackDecoder {
+
+    public interface HeaderConsumer {
+        void onHeader(String name, String value);
+    }
+
+    protected final HeaderTable table;
+    protected int maxTableSize;
+    protected int position;
+    protected int end;
+    protected byte[] buffer = new byte[64];
+    protected int length;
+
+    /**
+     * @param maxTableSize value of SETTINGS_HEADER_TABLE_SIZE sent to the encoder
+     */
+    public HpackDecoder(int maxTableSize) {
+        this.maxTableSize = maxTableSize;
+        table = new HeaderTable(maxTableSize);
+    }
+
+    public HeaderTable getTable() {
+        return table;
+    }
+
+    public void decode(byte[] bytes, int offset, int length, HeaderConsumer consumer) {
+        end = offset + length;
+        position = offset;
+        boolean headersStarted = false;
+        try {
+            while (position < end) {
+                int b = bytes[position] & 0xff;
+                if ((b & 0x80) != 0) { // indexed
+                    int index = toIndex(readInt(bytes, 7));
+                    consumer.onHeader(table.name(index), table.value(index));
+                    headersStarted = true;
+                } else if ((b & 0xe0) == 0x20) { // dynamic table size update
+                    if (headersStarted)
+                        throw new Http2Exception(ErrorCode.COMPRESSION_ERROR, "Dynamic table size update after header field");
+
+                    int size = readInt(bytes, 5);
+                    if (size > maxTableSize)
+                        throw new Http2Exception(ErrorCode.COMPRESSION_ERROR, "Dynamic table size exceeds the limit: " + size);
+                    table.setMaxSize(size);
+                } else {
+                    boolean incremental = (b & 0x40) != 0;
+                    int index = readInt(bytes, incremental ? 6 : 4); // with incremental indexing or without indexing/never indexed
+                    String name = index == 0 ? readName(bytes) : table.name(toIndex(index));
+                    String value = readString(bytes);
+                    if (incremental)
+                        table.add(name, value);
+
+                    consumer.onHeader(name, value);
+                    headersStarted = true;
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new Http2Exception(ErrorCode.COMPRESSION_ERROR, "Malformed header block: " + e.getMessage());
+        }
+    }
+
+    /**
+     * reads integer with a prefix of the given size, see RFC 7541, section 5.1
+     */
+    protected int readInt(byte[] bytes, int prefixBits) {
+        int max = (1 << prefixBits) - 1;
+        int value = bytes[position++] & max;
+        if (value < max)
+            return value;
+
+        long l = value;
+        int shift = 0;
+        int b;
+        do {
+            if (position >= end)
+                throw new Http2Exception(ErrorCode.COMPRESSION_ERROR, "Integer is out of header block");
+            if (shift > 28)
+                throw new Http2Exception(ErrorCode.COMPRESSION_ERROR, "Integer is too big");
+
+            b = bytes[position++];
+            l += (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        if (l > Integer.MAX_VALUE)
+            throw new Http2Exception(ErrorCode.COMPRESSION_ERROR, "Integer is too big");
+        return (int) l;
+    }
+
+    protected String readName(byte[] bytes) {
+        if (!readBytes(bytes))
+            return newString(bytes, position - length, length, true);
+        return newString(buffer, 0, length, true);
+    }
+
+    protected String readString(byte[] bytes) {
+        if (!readBytes(bytes))
+            return newString(bytes, position - length, length, false);
+        return newString(buffer, 0, length, false);
+    }
+
+    /**
+     * reads string literal, huffman encoded strings are decoded into the buffer
+     *
+     * @return true if the string was decoded into the buffer, otherwise it is in the given array right before position
+     */
+    protected boolean readBytes(byte[] bytes) {
+        boolean huffman = (bytes[position] & 0x80) != 0;
+        int length = readInt(bytes, 7);
+        if (position + length > end)
+            throw new Http2Exception(ErrorCode.COMPRESSION_ERROR, "String literal is out of header block");
+
+        int offset = position;
+        position += length;
+        if (!huffman) {
+            this.length = length;
+            return false;
+        }
+
+        HuffmanTable codes = StaticHttp2HuffmanTable.huffmanTable;
+        if (buffer.length < codes.maxDecodedLength(length))
+            buffer = new byte[codes.maxDecodedLength(length)];
+        this.length = codes.decode(bytes, offset, length, buffer, 0);
+        if (this.length == -1)
+            throw new Http2Exception(ErrorCode.COMPRESSION_ERROR, "Malformed huffman encoded string");
+        return true;
+    }
+
+    protected String newString(byte[] bytes, int offset, int length, boolean name) {
+        if (name) {
+            String known = HeaderTable.knownName(bytes, offset, length);
+            if (known != null)
+                return known;
+        }
+        return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+    }
+
+    protected int toIndex(int value) {
+        if (value <= 0 || value > HeaderTable.STATIC_LENGTH + table.count())
+            throw new Http2Exception(ErrorCode.COMPRESSION_ERROR, "Wrong index of header table: " + value);
+        return value;
+    }
+}
@@ -0,0 +1,142 @@
+package com.wizzardo.http.http2.hpack;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Encoder of header blocks, keeps dynamic table of one direction of a connection,
+ * so all blocks must be sent in order they were encoded. Fields that are repeated from stream to stream,
+ * like 'date', 'server' or 'content-type', are added to the dynamic table and are sent as a single index afterwards.
+ * Strings are huffman encoded when it makes them shorter and must contain only ISO-8859-1 chars.
+ */
+public class HpackEncoder {
+    public static final int DEFAULT_TABLE_SIZE = 4096;
+
+    /**
+     * values of these headers are usually unique, so indexing would only evict useful entries
+     */
+    protected static final Set<String> NOT_INDEXED = new HashSet<>(Arrays.asList(
+            ":path", "content-length", "content-range", "etag", "last-modified", "location", "age"
+    ));
+    protected static final Set<String> NEVER_INDEXED = new HashSet<>(Arrays.asList(
+            "authorization", "proxy-authorization", "set-cookie", "cookie"
+    ));
+
+    protected final HeaderTable table;
+    protected byte[] bytes = new byte[256];
+    protected int length;
+    protected int minTableSize = -1; // the smallest size since the last block, -1 if the size was not changed
+
+    public HpackEncoder() {
+        this(DEFAULT_TABLE_SIZE);
+    }
+
+    public HpackEncoder(int maxTableSize) {
+        table = new HeaderTable(maxTableSize);
+    }
+
+    public HeaderTable getTable() {
+        return table;
+    }
+
+    /**
+     * changes size of the dynamic table, the decoder will be notified at the beginning of the next header block
+     *
+     * @param maxTableSize must not exceed SETTINGS_HEADER_TABLE_SIZE received from the decoder
+     */
+    public void setMaxTableSize(int maxTableSize) {
+        if (maxTableSize == table.getMaxSize())
+            return;
+
+        table.setMaxSize(maxTableSize);
+        minTableSize = minTableSize == -1 ? maxTableSize : Math.min(minTableSize, maxTableSize);
+    }
+
+    /**
+     * starts a new header block
+     */
+    public HpackEncoder reset() {
+        length = 0;
+        if (minTableSize != -1) {
+            if (minTableSize < table.getMaxSize())
+                writeInt(0x20, 5, minTableSize);
+            writeInt(0x20, 5, table.getMaxSize());
+            minTableSize = -1;
+        }
+        return this;
+    }
+
+    /**
+     * @param name must be in lower case
+     */
+    public HpackEncoder encode(String name, String value) {
+        int index = table.indexOf(name, value);
+        if (index != 0) {
+            writeInt(0x80, 7, index);
+            return this;
+        }
+
+        int nameIndex = table.indexOf(name);
+        if (NEVER_INDEXED.contains(name)) {
+            writeInt(0x10, 4, nameIndex);
+        } else if (shouldIndex(name, value)) {
+            writeInt(0x40, 6, nameIndex);
+            table.add(name, value);
+        } else {
+            writeInt(0x00, 4, nameIndex);
+        }
+
+        if (nameIndex == 0)
+            writeString(name);
+        writeString(value);
+        return this;
+    }
+
+    protected boolean shouldIndex(String name, String value) {
+        return !NOT_INDEXED.contains(name) && HeaderTable.entrySize(name, value) <= table.getMaxSize() / 4;
+    }
+
+    /**
+     * writes integer with the given prefix, see RFC 7541, section 5.1
+     */
+    protected void writeInt(int mask, int prefixBits, int value) {
+        ensureCapacity(6);
+        int max = (1 << prefixBits) - 1;
+        if (value < max) {
+            bytes[length++] = (byte) (mask | value);
+            return;
+        }
+
+        bytes[length++] = (byte) (mask | max);
+        value -= max;
+        while (value >= 0x80) {
+            bytes[length++] = (byte) (value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        bytes[length++] = (byte) value;
+    }
+
+    protected void writeString(String s) {
+        ensureCapacity(6 + s.length());
+        length = HpackReader.encodeWithCompression(s, bytes, length << 3) >> 3;
+    }
+
+    protected void ensureCapacity(int additional) {
+        if (bytes.length - length < additional) {
+            byte[] b = new byte[Math.max(bytes.length * 2, length + additional)];
+            System.arraycopy(bytes, 0, b, 0, length);
+            bytes = b;
+        }
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public int length() {
+        return length;
+    }
+}
@@ -26,30 +26,23 @@ public class HpackReader {
         return offsetBits;
     }
 
+    /**
+     * writes huffman encoded string if it is shorter than the raw one, otherwise falls back to raw string
+     */
     public static int encodeWithCompression(String s, byte[] bytes, int offsetBits) {
         if (offsetBits % 8 != 0)
             return -1;
 
-        int index = offsetBits >> 3;
+        char[] chars = StringReflection.chars(s);
         int l = s.length();
-        if (l <= 160) { //average compressed length for one byte
-            int offset = StaticHttp2HuffmanTable.huffman.encode(bytes, (offsetBits + 8) >> 3, StringReflection.chars(s));
-            int k = 8 - offset + ((offset >> 3) << 3);
-            if (k != 8) {
-                bytes[offset >> 3] = (byte) (bytes[offset >> 3] | (1 << k) - 1);
-                offset += k;
-            }
-            if ((offset >> 3) > 127) {
-                //todo: shift data
-            }
-
-            bytes[index] = (byte) 128;
-            encode((offset - offsetBits - 8) >> 3, bytes, offsetBits + 1);
-            return offset;
-        } else {
-            //todo: calculate optimal size and encode
-        }
-        return offsetBits;
+        int compressed = StaticHttp2HuffmanTable.huffmanTable.encodedLength(chars, 0, l);
+        if (compressed >= l)
+            return encodeWithoutCompression(s, bytes, offsetBits);
+
+        bytes[offsetBits >> 3] = (byte) 128;
+        int offset = encode(compressed, bytes, offsetBits + 1);
+        offset = StaticHttp2HuffmanTable.huffmanTable.encode(chars, 0, l, bytes, offset >> 3) << 3;
+        return offset;
     }
 
     public static int encode(int i, byte[] bytes, int offsetBits) {
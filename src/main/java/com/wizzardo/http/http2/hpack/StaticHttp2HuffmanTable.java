@@ -1,14 +1,16 @@
 package com.wizzardo.http.http2.hpack;
 
+import com.wizzardo.http.http2.huffman.HuffmanTable;
 import com.wizzardo.http.http2.huffman.HuffmanTree;
 import com.wizzardo.http.http2.huffman.Leaf;
 
 /**
  * Created by wizzardo on 15.08.15.
  */
-class StaticHttp2HuffmanTable {
+public class StaticHttp2HuffmanTable {
 
-    static final HuffmanTree huffman;
+    public static final HuffmanTree huffman;
+    public static final HuffmanTable huffmanTable;
 
     static {
         int[][] table = new int[][]{
@@ -274,6 +276,7 @@ class StaticHttp2HuffmanTable {
         for (int i = 0; i < table.length; i++) {
             huffman.add(new Leaf((char) i, table[i][0], table[i][1]));
         }
+        huffmanTable = new HuffmanTable(huffman);
     }
 
 }
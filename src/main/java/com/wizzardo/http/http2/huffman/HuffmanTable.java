@@ -0,0 +1,177 @@
+package com.wizzardo.http.http2.huffman;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Table-driven version of {@link HuffmanTree}. Decoder is a state machine that consumes 4 bits per step:
+ * every internal node of the tree is a state and the table holds the next state and the emitted symbol
+ * for each of 16 nibbles, so no nodes are visited at runtime. Encoder writes codes from a flat table
+ * into a long accumulator and flushes it by whole bytes.
+ * <p>
+ * The shortest code must be not shorter than 4 bits, so at most one symbol is emitted per step.
+ * Padding of an encoded string is the most significant bits of a code that consists of ones only (EOS),
+ * such a code is never emitted by the decoder.
+ */
+public class HuffmanTable {
+    protected static final int BITS = 4;
+    protected static final int FLAG_EMIT = 1 << 9;
+    protected static final int FLAG_ACCEPT = 1 << 10; // string may end here, bits after the last symbol are valid padding
+    protected static final int FLAG_FAIL = 1 << 11;
+
+    protected final int[] codes;
+    protected final byte[] lengths;
+    protected final int[] decodeTable;
+    protected final int eos;
+
+    public HuffmanTable(HuffmanTree tree) {
+        Leaf[] leafs = tree.leafs;
+        codes = new int[leafs.length];
+        lengths = new byte[leafs.length];
+        int eos = -1;
+        for (Leaf leaf : leafs) {
+            if (leaf.length < BITS)
+                throw new IllegalArgumentException("Code of '" + leaf.value + "' is shorter than " + BITS + " bits");
+            codes[leaf.value] = leaf.bits;
+            lengths[leaf.value] = (byte) leaf.length;
+            if (leaf.bits == (1L << leaf.length) - 1 && (eos == -1 || leaf.length > lengths[eos]))
+                eos = leaf.value;
+        }
+        this.eos = eos;
+
+        List<Node> states = new ArrayList<>();
+        Map<Node, Integer> ids = new IdentityHashMap<>();
+        Map<Node, Integer> depths = new IdentityHashMap<>();
+        states.add(tree);
+        ids.put(tree, 0);
+        depths.put(tree, 0);
+        for (int i = 0; i < states.size(); i++) { // breadth-first, so every state knows its depth
+            Node node = states.get(i);
+            for (Node child : new Node[]{node.left, node.right}) {
+                if (child != null && !child.isEnd()) {
+                    ids.put(child, states.size());
+                    depths.put(child, depths.get(node) + 1);
+                    states.add(child);
+                }
+            }
+        }
+
+        decodeTable = new int[states.size() << BITS];
+        for (int state = 0; state < states.size(); state++) {
+            for (int nibble = 0; nibble < (1 << BITS); nibble++) {
+                Node node = states.get(state);
+                decodeTable[(state << BITS) | nibble] = transition(tree, node, depths.get(node), isAllOnes(tree, node), nibble, ids);
+            }
+        }
+    }
+
+    protected int transition(Node root, Node node, int depth, boolean ones, int nibble, Map<Node, Integer> ids) {
+        int result = 0;
+        for (int i = BITS - 1; i >= 0; i--) {
+            int bit = (nibble >> i) & 1;
+            node = node.get(bit);
+            if (node == null)
+                return FLAG_FAIL;
+
+            depth++;
+            ones &= bit == 1;
+            if (node.isEnd()) {
+                char symbol = node.get();
+                if (symbol == eos)
+                    return FLAG_FAIL;
+                result = FLAG_EMIT | symbol;
+                node = root;
+                depth = 0;
+                ones = true;
+            }
+        }
+        if (ones && depth < 8)
+            result |= FLAG_ACCEPT;
+        return result | (ids.get(node) << 16);
+    }
+
+    protected static boolean isAllOnes(Node root, Node target) {
+        Node node = root;
+        while (node != null && node != target) {
+            node = node.right;
+        }
+        return node == target;
+    }
+
+    /**
+     * decodes bytes into ISO-8859-1 chars
+     *
+     * @return number of decoded chars or -1 if the data is malformed:
+     * contains EOS, ends with a padding longer than 7 bits or the padding is not a prefix of EOS
+     */
+    public int decode(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        int[] table = decodeTable;
+        int state = 0;
+        int to = dstOffset;
+        int entry = FLAG_ACCEPT;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            int b = src[i] & 0xff;
+            entry = table[(state << BITS) | (b >> 4)];
+            if ((entry & FLAG_EMIT) != 0)
+                dst[to++] = (byte) entry;
+            if ((entry & FLAG_FAIL) != 0)
+                return -1;
+            state = entry >>> 16;
+
+            entry = table[(state << BITS) | (b & 0xf)];
+            if ((entry & FLAG_EMIT) != 0)
+                dst[to++] = (byte) entry;
+            if ((entry & FLAG_FAIL) != 0)
+                return -1;
+            state = entry >>> 16;
+        }
+        if ((entry & FLAG_ACCEPT) == 0)
+            return -1;
+        return to - dstOffset;
+    }
+
+    /**
+     * @return the biggest number of chars that can be decoded from the given number of bytes
+     */
+    public int maxDecodedLength(int length) {
+        return length * 8 / BITS;
+    }
+
+    /**
+     * @return length of encoded chars in bytes, with padding
+     */
+    public int encodedLength(char[] chars, int from, int to) {
+        long bits = 0;
+        byte[] lengths = this.lengths;
+        for (int i = from; i < to; i++) {
+            bits += lengths[chars[i]];
+        }
+        return (int) ((bits + 7) >> 3);
+    }
+
+    /**
+     * @return offset in bytes right after encoded chars
+     */
+    public int encode(char[] chars, int from, int to, byte[] dst, int offset) {
+        int[] codes = this.codes;
+        byte[] lengths = this.lengths;
+        long acc = 0;
+        int bits = 0;
+        for (int i = from; i < to; i++) {
+            char c = chars[i];
+            acc = (acc << lengths[c]) | codes[c];
+            bits += lengths[c];
+            while (bits >= 8) {
+                bits -= 8;
+                dst[offset++] = (byte) (acc >> bits);
+            }
+        }
+        if (bits > 0)
+            dst[offset++] = (byte) ((acc << (8 - bits)) | (0xff >> bits));
+        return offset;
+    }
+}
@@ -45,12 +45,16 @@ public class HuffmanTree extends Node {
     }
 
     public int decode(byte[] data, int offset, CharConsumer consumer) {
+        return decode(data, offset, data.length - offset, consumer);
+    }
+
+    public int decode(byte[] data, int offset, int length, CharConsumer consumer) {
         Node node = this;
         int bit;
         int k;
         byte b;
         int i = offset << 3;
-        int length = data.length << 3;
+        length = (offset + length) << 3;
         while (i < length) {
             b = data[i >> 3];
             k = i - ((i >> 3) << 3);
@@ -66,6 +70,17 @@ public class HuffmanTree extends Node {
         return i;
     }
 
+    /**
+     * @return length of encoded chars in bits, without padding
+     */
+    public int encodedLength(char[] chars, int from, int to) {
+        int bits = 0;
+        for (int i = from; i < to; i++) {
+            bits += leafs[chars[i]].length;
+        }
+        return bits;
+    }
+
     public int encode(byte[] data, int offset, String s) {
         return encode(data, offset, s.toCharArray());
     }
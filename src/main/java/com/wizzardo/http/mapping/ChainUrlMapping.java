@@ -1,14 +1,22 @@
 package com.wizzardo.http.mapping;
 
 import com.wizzardo.http.Named;
+import com.wizzardo.http.request.Request;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 import java.util.regex.Pattern;
 
 /**
  * Created by wizzardo on 19.01.15.
  */
 public class ChainUrlMapping<T> extends UrlMapping<ChainUrlMapping.Chain<T>> {
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+
+    protected final Match<T> notFound = new Match<>(null);
+    protected volatile Map<String, Match<T>> matches = new ConcurrentHashMap<>();
+    protected int cacheSize = DEFAULT_CACHE_SIZE;
 
     public ChainUrlMapping() {
         super();
@@ -38,7 +46,7 @@ public class ChainUrlMapping<T> extends UrlMapping<ChainUrlMapping.Chain<T>> {
 
             UrlMapping<Chain<T>> next = tree.find(part, parts);
             if (next != null && next.value != null && i == parts.length - 1)
-                next.value.chain.add(t);
+                next.value.add(t);
 
             if (next == null && i == parts.length - 1)
                 addToAll(part, tree, t);
@@ -59,7 +67,7 @@ public class ChainUrlMapping<T> extends UrlMapping<ChainUrlMapping.Chain<T>> {
                         break;
                     part = part.substring(1);
                     for (UrlMapping<Chain<T>> chainUrlMapping : tree.endsWithMapping.endsWith.findAllEnds(part)) {
-                        chain.chain.addAll(chainUrlMapping.value.chain);
+                        chain.addAll(chainUrlMapping.value);
                     }
                     break;
                 }
@@ -72,12 +80,74 @@ public class ChainUrlMapping<T> extends UrlMapping<ChainUrlMapping.Chain<T>> {
             if (tree == null)
                 break;
         }
-        chain.chain.add(t);
+        chain.add(t);
         append(url, chain);
+        matches = new ConcurrentHashMap<>();
+
+        return this;
+    }
 
+    /**
+     * Matches are memoized by path, so requests to the same url get the same chain without walking the tree.
+     * The cache is dropped when it reaches this size or when the mapping is changed, 0 disables it.
+     */
+    public ChainUrlMapping<T> setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+        matches = new ConcurrentHashMap<>();
         return this;
     }
 
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    @Override
+    public Chain<T> get(Request request, Path path) {
+        Match<T> match = match(path);
+        if (match.mapping == null)
+            return null;
+
+        if (match.variables && request != null)
+            match.mapping.prepare(request::param, adjustPath(path));
+        return match.mapping.value;
+    }
+
+    @Override
+    public Chain<T> get(BiConsumer<String, String> parameterConsumer, Path path) {
+        Match<T> match = match(path);
+        if (match.mapping == null)
+            return null;
+
+        if (match.variables && parameterConsumer != null)
+            match.mapping.prepare(parameterConsumer, adjustPath(path));
+        return match.mapping.value;
+    }
+
+    protected Match<T> match(Path path) {
+        Map<String, Match<T>> matches = this.matches;
+        String key = path.toString();
+        Match<T> match = matches.get(key);
+        if (match != null)
+            return match;
+
+        Path adjusted = adjustPath(path);
+        UrlMapping<Chain<T>> mapping = adjusted == null ? null : find(adjusted);
+        match = mapping == null || mapping.value == null ? notFound : new Match<>(mapping);
+
+        if (cacheSize > 0) {
+            if (matches.size() >= cacheSize)
+                matches.clear();
+            matches.put(key, match);
+        }
+        return match;
+    }
+
+    @Override
+    public void setContext(String context) {
+        super.setContext(context);
+        matches = new ConcurrentHashMap<>();
+    }
+
     protected List<UrlMapping<Chain<T>>> findAllEndsWith(List<String> parts) {
         return endsWithMapping != null ? endsWithMapping.endsWith.findAllEnds(parts.get(parts.size() - 1)) : null;
     }
@@ -118,11 +188,11 @@ public class ChainUrlMapping<T> extends UrlMapping<ChainUrlMapping.Chain<T>> {
 
         UrlMapping<Chain<T>> doubleMapping = new UrlMappingHolder<>(parent);
         doubleMapping.value = new Chain<>();
-        if (mapping != null)
-            doubleMapping.value.chain.addAll(mapping.value.chain);
+        if (mapping != null && mapping.value != null)
+            doubleMapping.value.addAll(mapping.value);
 
         for (UrlMapping<Chain<T>> chainUrlMapping : endsWith) {
-            doubleMapping.value.chain.addAll(chainUrlMapping.value.chain);
+            doubleMapping.value.addAll(chainUrlMapping.value);
         }
 
         return doubleMapping;
@@ -131,17 +201,17 @@ public class ChainUrlMapping<T> extends UrlMapping<ChainUrlMapping.Chain<T>> {
     private void addAll(String part, UrlMapping<Chain<T>> tree, Chain<T> set) {
         UrlMapping<Chain<T>> values = tree.mapping.get(part);
         if (values != null && values.value != null)
-            set.chain.addAll(values.value.chain);
+            set.addAll(values.value);
 
         for (Map.Entry<String, UrlMappingMatcher<Chain<T>>> entry : regexpMapping.entrySet()) {
             if (entry.getValue().matches(part) && entry.getValue().value != null)
-                set.chain.addAll(entry.getValue().value.chain);
+                set.addAll(entry.getValue().value);
         }
     }
 
     private void addToAll(UrlMapping<Chain<T>> tree, T t) {
         if (tree.value != null)
-            tree.value.chain.add(t);
+            tree.value.add(t);
 
         for (Map.Entry<String, UrlMapping<Chain<T>>> entry : tree.mapping.entrySet())
             addToAll(entry.getValue(), t);
@@ -162,8 +232,52 @@ public class ChainUrlMapping<T> extends UrlMapping<ChainUrlMapping.Chain<T>> {
                 addToAll(entry.getValue(), t);
     }
 
+    protected static class Match<T> {
+        final UrlMapping<Chain<T>> mapping;
+        final boolean variables; // parameters of the request must be set from the path
+
+        Match(UrlMapping<Chain<T>> mapping) {
+            this.mapping = mapping;
+            boolean variables = false;
+            for (UrlMapping<Chain<T>> m = mapping; m != null && !variables; m = m.parent) {
+                variables = m instanceof UrlMappingWithVariables;
+            }
+            this.variables = variables;
+        }
+    }
+
     public static class Chain<T> implements Iterable<T>, Named {
         Set<T> chain = new LinkedHashSet<>();
+        volatile Object[] array;
+
+        void add(T t) {
+            chain.add(t);
+            array = null;
+        }
+
+        void addAll(Chain<T> other) {
+            chain.addAll(other.chain);
+            array = null;
+        }
+
+        protected Object[] array() {
+            Object[] array = this.array;
+            if (array == null)
+                this.array = array = chain.toArray();
+            return array;
+        }
+
+        public int size() {
+            return array().length;
+        }
+
+        /**
+         * allows to iterate over the chain without an iterator
+         */
+        @SuppressWarnings("unchecked")
+        public T get(int i) {
+            return (T) array()[i];
+        }
 
         @Override
         public Iterator<T> iterator() {
@@ -0,0 +1,414 @@
+package com.wizzardo.http.mapping;
+
+import com.wizzardo.http.Named;
+import com.wizzardo.http.utils.AsciiReader;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Immutable snapshot of a {@link UrlMapping} that matches raw bytes of a request path.
+ * Static segments of every level are kept in a byte radix trie, variables like '${id}' or 'prefix-${id}.json'
+ * and wildcards '*' and '*.ext' are matched by comparing bytes, so unmatched segments produce no garbage,
+ * strings are created only for variables of the found route.
+ * Only segments that are real regular expressions (like 'action(\\d+)*' or '${foo}-${bar}') fall back to java.util.regex.
+ * <p>
+ * Resolves the same handler as the source mapping: static segments first, then matchers in order they were appended,
+ * then ends-with patterns applied to the last segment.
+ */
+public class CompiledUrlMapping<T extends Named> {
+    protected static final String VARIABLE = "(.+)";
+    protected static final Pattern LITERAL = Pattern.compile("[a-zA-Z0-9_\\-~,;:@!='.]*"); // '.' is compared as any char
+
+    protected final Node<T> root;
+    protected final byte[] context;
+
+    public CompiledUrlMapping(UrlMapping<T> mapping) {
+        context = mapping.context != null ? AsciiReader.write(mapping.context) : null;
+        root = compile(mapping, null, null, 0);
+    }
+
+    public T get(BiConsumer<String, String> parameterConsumer, Path path) {
+        Node<T> node = find(path.bytes, path.offset, path.limit);
+        if (node == null || node.value == null)
+            return null;
+
+        if (node.variables != null && parameterConsumer != null)
+            prepare(node, parameterConsumer, path);
+        return node.value;
+    }
+
+    public T get(Function<T, BiConsumer<String, String>> resultToParameterConsumer, Path path) {
+        Node<T> node = find(path.bytes, path.offset, path.limit);
+        if (node == null || node.value == null)
+            return null;
+
+        if (node.variables != null && resultToParameterConsumer != null)
+            prepare(node, resultToParameterConsumer.apply(node.value), path);
+        return node.value;
+    }
+
+    public T get(byte[] bytes, int offset, int limit) {
+        Node<T> node = find(bytes, offset, limit);
+        return node != null ? node.value : null;
+    }
+
+    protected Node<T> find(byte[] bytes, int offset, int limit) {
+        if (context != null) {
+            offset = skipSlashes(bytes, offset, limit);
+            int end = segmentEnd(bytes, offset, limit);
+            if (!equals(bytes, offset, end, context))
+                return null;
+            offset = end;
+        }
+
+        return find(root, bytes, offset, limit);
+    }
+
+    protected Node<T> find(Node<T> node, byte[] bytes, int from, int limit) {
+        from = skipSlashes(bytes, from, limit);
+        if (from == limit)
+            return node.value != null ? node : null;
+
+        Node<T> next;
+        RadixNode<T> segment = node.statics != null ? node.statics.find(bytes, from, limit) : null;
+        if (segment != null) {
+            next = find(segment.target, bytes, from + segment.length, limit);
+            if (next != null)
+                return next;
+        }
+
+        SegmentMatcher<T>[] matchers = node.matchers;
+        int end = matchers.length != 0 ? segmentEnd(bytes, from, limit) : -1;
+        for (SegmentMatcher<T> matcher : matchers) {
+            if (!matcher.any && !matcher.matches(bytes, from, end))
+                continue;
+
+            if (matcher.next.terminal) {
+                if (matcher.next.value != null)
+                    return matcher.next;
+                continue; // like a wildcard in the middle of an url, try the next matcher
+            }
+
+            next = find(matcher.next, bytes, end, limit);
+            if (next != null)
+                return next;
+        }
+
+        if (node.suffixes != null)
+            return findEndsWith(node, bytes, from, limit);
+
+        return null;
+    }
+
+    /**
+     * Passes variables of the found node to the consumer. Every node is reached by the only route,
+     * so its matchers with variables and numbers of segments they matched are known after compilation.
+     */
+    protected void prepare(Node<T> node, BiConsumer<String, String> parameterConsumer, Path path) {
+        // a path with raw bytes was not normalized, so its segments are the same that were matched
+        byte[] bytes = path.bytes;
+        int limit = path.limit;
+        SegmentMatcher<T>[] variables = node.variables;
+        int[] levels = node.levels;
+        int level = context != null ? -1 : 0; // index among not empty segments, like in find
+        for (int from = skipSlashes(bytes, path.offset, limit), k = 0; k < variables.length && from < limit; ) {
+            int to = segmentEnd(bytes, from, limit);
+            if (level++ == levels[k])
+                variables[k++].apply(parameterConsumer, bytes, from, to);
+            from = skipSlashes(bytes, to, limit);
+        }
+    }
+
+    /**
+     * checks the last not empty segment of the path, like {@link UrlMappingEndsWith} does
+     *
+     * @param offset start of the current segment
+     */
+    protected Node<T> findEndsWith(Node<T> node, byte[] bytes, int offset, int limit) {
+        int to = limit;
+        while (to > offset && bytes[to - 1] == '/')
+            to--;
+        int from = to;
+        while (from > offset && bytes[from - 1] != '/')
+            from--;
+
+        for (int i = 0; i < node.suffixes.length; i++) {
+            byte[] suffix = node.suffixes[i];
+            if (to - from >= suffix.length && equals(bytes, to - suffix.length, to, suffix))
+                return node.suffixNodes[i];
+        }
+        return null;
+    }
+
+    protected static int skipSlashes(byte[] bytes, int from, int limit) {
+        while (from < limit && bytes[from] == '/')
+            from++;
+        return from;
+    }
+
+    protected static int segmentEnd(byte[] bytes, int from, int limit) {
+        while (from < limit && bytes[from] != '/')
+            from++;
+        return from;
+    }
+
+    protected static boolean equals(byte[] bytes, int from, int to, byte[] value) {
+        if (to - from != value.length)
+            return false;
+        for (int i = 0; i < value.length; i++) {
+            if (bytes[from + i] != value[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param variables matchers with variables on the way to this mapping
+     * @param levels    numbers of segments matched by them
+     * @param level     number of the segment that will be matched by children of this mapping
+     */
+    protected Node<T> compile(UrlMapping<T> mapping, SegmentMatcher<T>[] variables, int[] levels, int level) {
+        Node<T> node = new Node<>();
+        node.value = mapping.value;
+        node.terminal = !mapping.checkNextPart();
+        node.variables = variables;
+        node.levels = levels;
+
+        for (Map.Entry<String, UrlMapping<T>> entry : mapping.mapping.entrySet()) {
+            if (node.statics == null)
+                node.statics = new RadixNode<>(new byte[0]);
+            node.statics.insert(AsciiReader.write(entry.getKey()), 0, compile(entry.getValue(), variables, levels, level + 1));
+        }
+
+        List<SegmentMatcher<T>> matchers = new ArrayList<>(mapping.regexpMapping.size());
+        for (UrlMappingMatcher<T> matcher : mapping.regexpMapping.values()) {
+            SegmentMatcher<T> segmentMatcher = compileMatcher(matcher);
+            if (segmentMatcher.hasVariables) {
+                int length = variables == null ? 0 : variables.length;
+                SegmentMatcher<T>[] v = variables == null ? new SegmentMatcher[1] : Arrays.copyOf(variables, length + 1);
+                int[] l = levels == null ? new int[1] : Arrays.copyOf(levels, length + 1);
+                v[length] = segmentMatcher;
+                l[length] = level;
+                segmentMatcher.next = compile(matcher, v, l, level + 1);
+            } else {
+                segmentMatcher.next = compile(matcher, variables, levels, level + 1);
+            }
+            matchers.add(segmentMatcher);
+        }
+        node.matchers = matchers.toArray(new SegmentMatcher[matchers.size()]);
+
+        if (mapping.endsWithMapping != null) {
+            List<Map.Entry<String, UrlMapping<T>>> patterns = new ArrayList<>(mapping.endsWithMapping.patterns.entrySet());
+            patterns.sort(Comparator.comparingInt(entry -> entry.getKey().length())); // the shortest suffix wins, like in CharTree.findEnds
+            node.suffixes = new byte[patterns.size()][];
+            node.suffixNodes = new Node[patterns.size()];
+            for (int i = 0; i < patterns.size(); i++) {
+                node.suffixes[i] = AsciiReader.write(patterns.get(i).getKey());
+                node.suffixNodes[i] = compile(patterns.get(i).getValue(), variables, levels, level);
+            }
+        }
+        return node;
+    }
+
+    protected SegmentMatcher<T> compileMatcher(UrlMappingMatcher<T> matcher) {
+        if (matcher instanceof UrlMappingMatcherAny)
+            return new SegmentMatcher<>(null, null, null, null);
+
+        if (matcher instanceof UrlMappingMatcherAnyVariable)
+            return new SegmentMatcher<>(((UrlMappingMatcherAnyVariable<T>) matcher).variable, new byte[0], new byte[0], null);
+
+        if (matcher instanceof UrlMappingWithVariables) {
+            UrlMappingWithVariables<T> withVariables = (UrlMappingWithVariables<T>) matcher;
+            String pattern = withVariables.pattern.pattern();
+            int i = pattern.indexOf(VARIABLE);
+            if (withVariables.variables.length == 1 && i != -1) {
+                String prefix = pattern.substring(0, i);
+                String suffix = pattern.substring(i + VARIABLE.length());
+                if (LITERAL.matcher(prefix).matches() && LITERAL.matcher(suffix).matches())
+                    return new SegmentMatcher<>(withVariables.variables[0], AsciiReader.write(prefix), AsciiReader.write(suffix), null);
+            }
+        }
+
+        return new SegmentMatcher<>(null, null, null, matcher);
+    }
+
+    protected static class Node<T> {
+        T value;
+        boolean terminal; // matching stops here, the rest of the path is not checked
+        SegmentMatcher<T>[] variables; // matchers with variables on the way to this node, null if there are none
+        int[] levels; // numbers of not empty segments matched by them, every node is reached by the only route
+        RadixNode<T> statics;
+        SegmentMatcher<T>[] matchers;
+        byte[][] suffixes;
+        Node<T>[] suffixNodes;
+    }
+
+    /**
+     * node of a radix trie of static segments of one level, edges are labeled with byte sequences
+     */
+    protected static class RadixNode<T> {
+        byte[] label;
+        int length; // length of the whole segment up to the end of this label
+        Node<T> target;
+        byte[] first = new byte[0];
+        RadixNode<T>[] children = new RadixNode[0];
+        RadixNode<T>[] table = new RadixNode[0]; // children by the first byte of label, starting from min
+        int min;
+
+        RadixNode(byte[] label) {
+            this.label = label;
+        }
+
+        /**
+         * @return node of the whole segment that starts at 'from', null if there is no such static segment
+         */
+        RadixNode<T> find(byte[] bytes, int from, int limit) {
+            RadixNode<T> node = this;
+            byte b;
+            while (from != limit && (b = bytes[from]) != '/') {
+                RadixNode<T>[] table = node.table;
+                int i = (b & 0xff) - node.min;
+                if (i < 0 || i >= table.length || (node = table[i]) == null)
+                    return null;
+
+                byte[] label = node.label;
+                if (limit - from < label.length)
+                    return null;
+                for (int j = 1; j < label.length; j++) {
+                    if (bytes[from + j] != label[j])
+                        return null;
+                }
+                from += label.length;
+            }
+            return node.target != null ? node : null;
+        }
+
+        void insert(byte[] key, int from, Node<T> target) {
+            if (from == key.length) {
+                this.target = target;
+                this.length = key.length;
+                return;
+            }
+
+            int index = indexOf(key[from]);
+            if (index == -1) {
+                RadixNode<T> child = new RadixNode<>(Arrays.copyOfRange(key, from, key.length));
+                child.target = target;
+                child.length = key.length;
+                add(child);
+                return;
+            }
+
+            RadixNode<T> child = children[index];
+            int common = 1;
+            while (common < child.label.length && from + common < key.length && child.label[common] == key[from + common])
+                common++;
+
+            if (common < child.label.length) {
+                RadixNode<T> split = new RadixNode<>(Arrays.copyOf(child.label, common));
+                child.label = Arrays.copyOfRange(child.label, common, child.label.length);
+                split.add(child);
+                children[index] = split;
+                table[(split.label[0] & 0xff) - min] = split;
+                child = split;
+            }
+            child.insert(key, from + common, target);
+        }
+
+        int indexOf(byte b) {
+            for (int i = 0; i < first.length; i++) {
+                if (first[i] == b)
+                    return i;
+            }
+            return -1;
+        }
+
+        void add(RadixNode<T> child) {
+            first = Arrays.copyOf(first, first.length + 1);
+            first[first.length - 1] = child.label[0];
+            children = Arrays.copyOf(children, children.length + 1);
+            children[children.length - 1] = child;
+
+            int min = 255;
+            int max = 0;
+            for (byte b : first) {
+                min = Math.min(min, b & 0xff);
+                max = Math.max(max, b & 0xff);
+            }
+            this.min = min;
+            table = new RadixNode[max - min + 1];
+            for (int i = 0; i < first.length; i++) {
+                table[(first[i] & 0xff) - min] = children[i];
+            }
+        }
+    }
+
+    protected static class SegmentMatcher<T> {
+        Node<T> next;
+        final String variable;
+        final byte[] prefix;
+        final byte[] suffix;
+        final UrlMappingMatcher<?> regex;
+        final boolean hasVariables;
+        final boolean any; // matches every segment
+
+        SegmentMatcher(String variable, byte[] prefix, byte[] suffix, UrlMappingMatcher<?> regex) {
+            this.variable = variable;
+            this.prefix = prefix;
+            this.suffix = suffix;
+            this.regex = regex;
+            hasVariables = variable != null || regex instanceof UrlMappingWithVariables;
+            any = regex == null && (prefix == null || prefix.length + suffix.length == 0);
+        }
+
+        boolean matches(byte[] bytes, int from, int to) {
+            if (regex != null)
+                return regex.matches(AsciiReader.read(bytes, from, to - from));
+
+            if (to - from <= prefix.length + suffix.length)
+                return false;
+            for (int i = 0; i < prefix.length; i++) {
+                if (!matches(bytes[from + i], prefix[i]))
+                    return false;
+            }
+            for (int i = 0, offset = to - suffix.length; i < suffix.length; i++) {
+                if (!matches(bytes[offset + i], suffix[i]))
+                    return false;
+            }
+            for (int i = from + prefix.length; i < to - suffix.length; i++) {
+                if (isLineTerminator(bytes[i])) // '(.+)' doesn't match them
+                    return false;
+            }
+            return true;
+        }
+
+        static boolean matches(byte b, byte pattern) {
+            return b == pattern || (pattern == '.' && !isLineTerminator(b));
+        }
+
+        static boolean isLineTerminator(byte b) {
+            return b == '\n' || b == '\r' || (b & 0xff) == 0x85;
+        }
+
+        void apply(BiConsumer<String, String> parameterConsumer, byte[] bytes, int from, int to) {
+            if (variable != null) {
+                parameterConsumer.accept(variable, AsciiReader.read(bytes, from + prefix.length, to - from - prefix.length - suffix.length));
+                return;
+            }
+
+            UrlMappingWithVariables<?> withVariables = (UrlMappingWithVariables<?>) regex;
+            Matcher matcher = withVariables.pattern.matcher(AsciiReader.read(bytes, from, to - from));
+            if (matcher.find()) {
+                for (int i = 1; i <= withVariables.variables.length; i++) {
+                    parameterConsumer.accept(withVariables.variables[i - 1], matcher.group(i));
+                }
+            }
+        }
+    }
+}
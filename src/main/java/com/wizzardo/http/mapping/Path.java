@@ -1,6 +1,7 @@
 package com.wizzardo.http.mapping;
 
 import com.wizzardo.http.request.ByteTree;
+import com.wizzardo.http.utils.AsciiReader;
 import com.wizzardo.http.utils.StringBuilderThreadLocalHolder;
 import com.wizzardo.tools.misc.ExceptionDrivenStringBuilder;
 import com.wizzardo.tools.reflection.StringReflection;
@@ -15,9 +16,13 @@ public class Path {
 
     protected static final StringBuilderThreadLocalHolder stringBuilder = new StringBuilderThreadLocalHolder();
 
-    protected List<String> parts;
+    protected List<String> parts; // null until segments of a parsed path are requested
     protected String path;
     protected boolean endsWithSlash;
+    protected byte[] bytes; // raw path that was parsed, null if it contained '..' or the path was modified
+    protected int offset;
+    protected int limit;
+    protected ByteTree byteTree;
 
     public Path() {
         this(10);
@@ -27,40 +32,83 @@ public class Path {
         parts = new ArrayList<>(size);
     }
 
+    protected Path(byte[] bytes, int offset, int limit, ByteTree byteTree) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.limit = limit;
+        this.byteTree = byteTree;
+        endsWithSlash = bytes[limit - 1] == '/';
+    }
+
     public String getPart(int i) {
+        List<String> parts = parts();
         if (parts.size() <= i)
             return null;
         return parts.get(i);
     }
 
     public int length() {
-        return parts.size();
+        return parts().size();
     }
 
     @Override
     public String toString() {
         if (path == null)
-            path = build();
+            path = bytes != null ? AsciiReader.read(bytes, offset, limit - offset) : build();
 
         return path;
     }
 
     public void toString(ExceptionDrivenStringBuilder sb) {
-        if (path != null)
-            sb.append(path);
+        if (path != null || bytes != null)
+            sb.append(toString());
         else
             build(sb);
     }
 
     List<String> parts() {
+        if (parts == null)
+            parts = split();
         return parts;
     }
 
+    /**
+     * creates strings for segments of the parsed path, empty ones included
+     */
+    protected List<String> split() {
+        List<String> parts = new ArrayList<>(10);
+        ByteTree.Node node = getByteTreeRoot(byteTree);
+        int partStart = offset + 1;
+        int partHash = 0;
+        for (int i = partStart; i < limit; i++) {
+            byte b = bytes[i];
+            if (b == '/') {
+                parts.add(segment(node, partStart, i, partHash));
+                partStart = i + 1;
+                partHash = 0;
+                node = getByteTreeRoot(byteTree);
+            } else {
+                partHash = 31 * partHash + (b & 0xff);
+                if (node != null)
+                    node = node.next(b);
+            }
+        }
+        if (partStart != limit)
+            parts.add(segment(node, partStart, limit, partHash));
+        return parts;
+    }
+
+    protected String segment(ByteTree.Node node, int from, int to, int hash) {
+        String value = node != null ? node.getValue() : null;
+        return value != null ? value : AsciiReader.read(bytes, from, to - from, hash);
+    }
+
     public Path subPath(int beginIndex) {
         return subPath(beginIndex, length());
     }
 
     public Path subPath(int beginIndex, int endIndex) {
+        List<String> parts = parts();
         Path path = new Path();
         path.parts = parts.subList(beginIndex, endIndex);
         if (endsWithSlash || endIndex != parts.size())
@@ -70,7 +118,7 @@ public class Path {
 
     public Path add(String part) {
         Path path = new Path();
-        path.parts = new ArrayList<>(parts);
+        path.parts = new ArrayList<>(parts());
         add(path, part);
         return path;
     }
@@ -95,7 +143,7 @@ public class Path {
     }
 
     private ExceptionDrivenStringBuilder build(ExceptionDrivenStringBuilder sb) {
-        for (String part : parts)
+        for (String part : parts())
             sb.append('/').append(part);
 
         if (endsWithSlash)
@@ -116,10 +164,16 @@ public class Path {
         return parse(bytes, offset, limit, null);
     }
 
+    /**
+     * Strings of segments are created on the first access to them, paths with '..' are normalized right away
+     */
     public static Path parse(byte[] bytes, int offset, int limit, ByteTree byteTree) {
         if (bytes[offset] != '/')
             throw new IllegalStateException("path must starts with '/'");
 
+        if (!hasParentSegment(bytes, offset, limit))
+            return new Path(bytes, offset, limit, byteTree);
+
         int length = limit - offset;
 
         int h = '/';
@@ -130,6 +184,9 @@ public class Path {
         ByteTree.Node node = getByteTreeRoot(byteTree);
 
         Path path = new Path();
+        path.bytes = bytes;
+        path.offset = offset;
+        path.limit = limit;
 
         byte b;
         char[] data = new char[length];
@@ -144,15 +201,15 @@ public class Path {
                     value = node.getValue();
 
                 if (value == null) {
-                    char[] part = new char[i - partStart];
-                    System.arraycopy(data, partStart, part, 0, i - partStart);
+                    char[] part = new char[offset + i - partStart];
+                    System.arraycopy(data, partStart - offset, part, 0, offset + i - partStart);
                     value = StringReflection.createString(part, partHash);
                 }
 
                 if (!append(value, path))
                     throw new IllegalStateException("can't parse: " + new String(bytes, offset, length));
 
-                partStart = i + 1;
+                partStart = offset + i + 1;
                 partHash = 0;
                 node = getByteTreeRoot(byteTree);
             } else {
@@ -168,7 +225,7 @@ public class Path {
             }
             if (value == null) {
                 char[] part = new char[limit - partStart];
-                System.arraycopy(data, partStart, part, 0, limit - partStart);
+                System.arraycopy(data, partStart - offset, part, 0, limit - partStart);
                 value = StringReflection.createString(part, partHash);
             }
 
@@ -183,6 +240,14 @@ public class Path {
         return path;
     }
 
+    protected static boolean hasParentSegment(byte[] bytes, int offset, int limit) {
+        for (int i = offset + 1; i + 1 < limit; i++) {
+            if (bytes[i] == '.' && bytes[i + 1] == '.' && bytes[i - 1] == '/' && (i + 2 == limit || bytes[i + 2] == '/'))
+                return true;
+        }
+        return false;
+    }
+
     protected static ByteTree.Node getByteTreeRoot(ByteTree byteTree) {
         return byteTree != null ? byteTree.getRoot() : null;
     }
@@ -192,6 +257,7 @@ public class Path {
             if (path.parts.isEmpty())
                 return false;
             path.parts.remove(path.parts.size() - 1);
+            path.bytes = null;
         } else
             path.parts.add(part);
         return true;
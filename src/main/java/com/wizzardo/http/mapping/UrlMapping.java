@@ -27,6 +27,8 @@ public class UrlMapping<T extends Named> {
     protected UrlMappingEndsWith<T> endsWithMapping;
     protected TemplatesHolder<String> urlTemplates = new TemplatesHolder<>();
     protected String context;
+    protected boolean compiled;
+    protected volatile CompiledUrlMapping<T> compiledMapping;
 
     public UrlMapping() {
     }
@@ -81,6 +83,9 @@ public class UrlMapping<T extends Named> {
     }
 
     public T get(BiConsumer<String, String> parameterConsumer, Path path) {
+        if (compiled && path.bytes != null)
+            return compile().get(parameterConsumer, path);
+
         path = adjustPath(path);
         if (path == null)
             return null;
@@ -94,6 +99,9 @@ public class UrlMapping<T extends Named> {
     }
 
     public T get(Function<T, BiConsumer<String, String>> resultToParameterConsumer, Path path) {
+        if (compiled && path.bytes != null)
+            return compile().get(resultToParameterConsumer, path);
+
         path = adjustPath(path);
         if (path == null)
             return null;
@@ -131,7 +139,8 @@ public class UrlMapping<T extends Named> {
         UrlMapping<T> tree = findStatic(part);
         if (tree != null) {
             if (!tree.checkNextPart()) {
-                return tree;
+                if (tree.value != null)
+                    return tree;
             } else {
                 tree = tree.findRecursive(parts, index + 1);
                 if (tree != null)
@@ -143,7 +152,8 @@ public class UrlMapping<T extends Named> {
             if (entry.getValue().matches(part)) {
                 tree = entry.getValue();
                 if (!tree.checkNextPart()) {
-                    return tree;
+                    if (tree.value != null)
+                        return tree;
                 } else {
                     tree = tree.findRecursive(parts, index + 1);
                     if (tree != null)
@@ -155,7 +165,8 @@ public class UrlMapping<T extends Named> {
         tree = findEndsWith(parts);
         if (tree != null) {
             if (!tree.checkNextPart()) {
-                return tree;
+                if (tree.value != null)
+                    return tree;
             } else {
                 tree = tree.findRecursive(parts, index + 1);
                 if (tree != null)
@@ -280,10 +291,38 @@ public class UrlMapping<T extends Named> {
             counter++;
         }
         tree.setValue(handler);
+        compiledMapping = null;
 
         return this;
     }
 
+    /**
+     * Resolve parsed request paths with {@link CompiledUrlMapping} that matches raw bytes of the path.
+     * It is rebuilt on the first lookup after the mapping was changed.
+     * Paths without raw bytes (created by {@link Path#subPath(int)} or {@link Path#add(String)}
+     * or normalized because of '..') are resolved by this mapping as usual.
+     */
+    public UrlMapping<T> setCompiled(boolean compiled) {
+        this.compiled = compiled;
+        return this;
+    }
+
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    public CompiledUrlMapping<T> compile() {
+        CompiledUrlMapping<T> mapping = compiledMapping;
+        if (mapping != null)
+            return mapping;
+
+        synchronized (this) {
+            if (compiledMapping == null)
+                compiledMapping = new CompiledUrlMapping<>(this);
+            return compiledMapping;
+        }
+    }
+
     protected void setValue(T t) {
         value = t;
     }
@@ -294,6 +333,7 @@ public class UrlMapping<T extends Named> {
 
     public void setContext(String context) {
         this.context = context;
+        compiledMapping = null;
         urlTemplates.setContext(context);
     }
 }
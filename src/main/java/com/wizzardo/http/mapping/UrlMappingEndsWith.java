@@ -3,13 +3,16 @@ package com.wizzardo.http.mapping;
 import com.wizzardo.http.Named;
 import com.wizzardo.tools.misc.CharTree;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
 * Created by wizzardo on 27.03.15.
 */
 class UrlMappingEndsWith<T extends Named> extends UrlMapping<T> {
     protected CharTree<UrlMapping<T>> endsWith = new CharTree<>();
+    protected Map<String, UrlMapping<T>> patterns = new LinkedHashMap<>();
 
     protected UrlMappingEndsWith(UrlMapping<T> parent) {
         super(parent);
@@ -18,6 +21,7 @@ class UrlMappingEndsWith<T extends Named> extends UrlMapping<T> {
     UrlMapping<T> append(String pattern) {
         UrlMappingHolder<T> mapping = new UrlMappingHolder<>(this);
         endsWith.appendReverse(pattern, mapping);
+        patterns.put(pattern, mapping);
         return mapping;
     }
 
@@ -0,0 +1,107 @@
+package com.wizzardo.http.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Thread-safe log-linear histogram of durations in nanoseconds,
+ * every power of two is split into 16 buckets, so recorded values are kept with ~6% precision.
+ * Counts are striped by thread to avoid contention on the most popular buckets.
+ */
+public class LatencyHistogram {
+    protected static final int SUB_BUCKETS_BITS = 4;
+    protected static final int SUB_BUCKETS = 1 << SUB_BUCKETS_BITS;
+    protected static final long MAX_VALUE = (1L << 40) - 1; // ~18 minutes
+    protected static final int BUCKETS = index(MAX_VALUE) + 1;
+    protected static final int STRIPES = Math.min(Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1), 8);
+
+    protected final AtomicLongArray[] counts = new AtomicLongArray[STRIPES];
+    protected final LongAdder sum = new LongAdder();
+    protected final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new AtomicLongArray(BUCKETS);
+        }
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        else if (nanos > MAX_VALUE)
+            nanos = MAX_VALUE;
+
+        counts[(int) Thread.currentThread().getId() & (STRIPES - 1)].incrementAndGet(index(nanos));
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (AtomicLongArray stripe : this.counts) {
+            for (int i = 0; i < counts.length; i++) {
+                long l = stripe.get(i);
+                counts[i] += l;
+                count += l;
+            }
+        }
+        return new Snapshot(counts, count, sum.sum(), max.get());
+    }
+
+    protected static int index(long value) {
+        if (value < SUB_BUCKETS * 2)
+            return (int) value;
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKETS_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    protected static long upperBound(int index) {
+        if (index < SUB_BUCKETS * 2)
+            return index;
+
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index - shift * SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    public static class Snapshot {
+        protected final long[] counts;
+        public final long count;
+        public final long sum;
+        public final long max;
+
+        protected Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long mean() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        /**
+         * @param quantile from 0 to 1
+         * @return upper bound of the bucket that contains given quantile, in nanoseconds
+         */
+        public long quantile(double quantile) {
+            if (count == 0)
+                return 0;
+
+            long limit = Math.max((long) Math.ceil(count * quantile), 1);
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                total += counts[i];
+                if (total >= limit)
+                    return Math.min(upperBound(i), max);
+            }
+            return max;
+        }
+    }
+}
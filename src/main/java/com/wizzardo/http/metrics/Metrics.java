@@ -0,0 +1,69 @@
+package com.wizzardo.http.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Registry of server metrics: connections, time spent by connections in the queue of workers
+ * and {@link RouteMetrics} of every handler.
+ */
+public class Metrics {
+    public static final String NOT_FOUND = "notFound";
+    public static final String UNNAMED = "unnamed";
+
+    protected final ConcurrentHashMap<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+    protected final LatencyHistogram queueWait = new LatencyHistogram();
+    protected final LongAdder activeConnections = new LongAdder();
+    protected final LongAdder connections = new LongAdder();
+
+    public RouteMetrics route(String name) {
+        if (name == null)
+            name = UNNAMED;
+
+        RouteMetrics route = routes.get(name);
+        if (route == null)
+            route = routes.computeIfAbsent(name, RouteMetrics::new);
+        return route;
+    }
+
+    public void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    public void onConnect() {
+        connections.increment();
+        activeConnections.increment();
+    }
+
+    public void onDisconnect() {
+        activeConnections.decrement();
+    }
+
+    public Snapshot snapshot() {
+        List<RouteMetrics.Snapshot> routes = new ArrayList<>(this.routes.size());
+        for (RouteMetrics route : this.routes.values()) {
+            routes.add(route.snapshot());
+        }
+        routes.sort((a, b) -> a.name.compareTo(b.name));
+        return new Snapshot(activeConnections.sum(), connections.sum(), queueWait.snapshot(), Collections.unmodifiableList(routes));
+    }
+
+    public static class Snapshot {
+        public final long activeConnections;
+        public final long connections;
+        public final LatencyHistogram.Snapshot queueWait;
+        public final List<RouteMetrics.Snapshot> routes;
+
+        public Snapshot(long activeConnections, long connections, LatencyHistogram.Snapshot queueWait, List<RouteMetrics.Snapshot> routes) {
+            this.activeConnections = activeConnections;
+            this.connections = connections;
+            this.queueWait = queueWait;
+            this.routes = routes;
+        }
+    }
+}
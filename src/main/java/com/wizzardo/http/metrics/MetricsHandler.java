@@ -0,0 +1,126 @@
+package com.wizzardo.http.metrics;
+
+import com.wizzardo.http.Handler;
+import com.wizzardo.http.HttpConnection;
+import com.wizzardo.http.request.Header;
+import com.wizzardo.http.request.Request;
+import com.wizzardo.http.response.Response;
+import com.wizzardo.http.response.ResponseTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Renders {@link Metrics} in Prometheus text format
+ */
+public class MetricsHandler implements Handler {
+    protected static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    protected static final String[] STATUSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+    protected static final ResponseTemplate TEMPLATE = new ResponseTemplate()
+            .header(Header.KEY_CONTENT_TYPE, "text/plain; version=0.0.4; charset=utf-8");
+
+    protected final Metrics metrics;
+    protected final String name;
+
+    public MetricsHandler(Metrics metrics) {
+        this(metrics, "metrics");
+    }
+
+    public MetricsHandler(Metrics metrics, String name) {
+        this.metrics = metrics;
+        this.name = name;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public ResponseTemplate template() {
+        return TEMPLATE;
+    }
+
+    @Override
+    public Response handle(Request<HttpConnection> request, Response response) throws IOException {
+        return response.setBody(render(metrics.snapshot()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String render(Metrics.Snapshot snapshot) {
+        StringBuilder sb = new StringBuilder(1024);
+
+        type(sb, "http_connections_active", "gauge");
+        sb.append("http_connections_active ").append(snapshot.activeConnections).append('\n');
+
+        type(sb, "http_connections_total", "counter");
+        sb.append("http_connections_total ").append(snapshot.connections).append('\n');
+
+        type(sb, "http_queue_wait_seconds", "summary");
+        summary(sb, "http_queue_wait_seconds", null, snapshot.queueWait);
+
+        type(sb, "http_requests_total", "counter");
+        for (RouteMetrics.Snapshot route : snapshot.routes) {
+            for (int i = 0; i < STATUSES.length; i++) {
+                if (route.statuses[i] == 0)
+                    continue;
+
+                sb.append("http_requests_total{handler=\"");
+                escape(sb, route.name).append("\",status=\"").append(STATUSES[i]).append("\"} ").append(route.statuses[i]).append('\n');
+            }
+        }
+
+        type(sb, "http_request_duration_seconds", "summary");
+        for (RouteMetrics.Snapshot route : snapshot.routes) {
+            summary(sb, "http_request_duration_seconds", route.name, route.handlerTime);
+        }
+
+        type(sb, "http_response_bytes_total", "counter");
+        for (RouteMetrics.Snapshot route : snapshot.routes) {
+            sb.append("http_response_bytes_total{handler=\"");
+            escape(sb, route.name).append("\"} ").append(route.responseBytes).append('\n');
+        }
+        return sb.toString();
+    }
+
+    protected static void type(StringBuilder sb, String metric, String type) {
+        sb.append("# TYPE ").append(metric).append(' ').append(type).append('\n');
+    }
+
+    protected static void summary(StringBuilder sb, String metric, String handler, LatencyHistogram.Snapshot histogram) {
+        for (double quantile : QUANTILES) {
+            sb.append(metric).append('{');
+            if (handler != null)
+                escape(sb.append("handler=\""), handler).append("\",");
+            sb.append("quantile=\"").append(quantile).append("\"} ").append(seconds(histogram.quantile(quantile))).append('\n');
+        }
+
+        sb.append(metric).append("_sum");
+        if (handler != null)
+            escape(sb.append("{handler=\""), handler).append("\"}");
+        sb.append(' ').append(seconds(histogram.sum)).append('\n');
+
+        sb.append(metric).append("_count");
+        if (handler != null)
+            escape(sb.append("{handler=\""), handler).append("\"}");
+        sb.append(' ').append(histogram.count).append('\n');
+    }
+
+    protected static double seconds(long nanos) {
+        return nanos / 1_000_000_000.0;
+    }
+
+    protected static StringBuilder escape(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"')
+                sb.append('\\').append(c);
+            else if (c == '\n')
+                sb.append("\\n");
+            else
+                sb.append(c);
+        }
+        return sb;
+    }
+}
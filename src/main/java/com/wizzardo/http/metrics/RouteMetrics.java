@@ -0,0 +1,66 @@
+package com.wizzardo.http.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Counters of a single handler, keyed by {@link com.wizzardo.http.Handler#name()}
+ */
+public class RouteMetrics {
+    public final String name;
+    protected final LatencyHistogram handlerTime = new LatencyHistogram();
+    protected final LongAdder responseBytes = new LongAdder();
+    protected final LongAdder[] statuses = new LongAdder[5];
+
+    public RouteMetrics(String name) {
+        this.name = name;
+        for (int i = 0; i < statuses.length; i++) {
+            statuses[i] = new LongAdder();
+        }
+    }
+
+    public void recordHandlerTime(long nanos) {
+        handlerTime.record(nanos);
+    }
+
+    public void recordResponse(int status, long bytes) {
+        int statusClass = status / 100 - 1;
+        if (statusClass >= 0 && statusClass < statuses.length)
+            statuses[statusClass].increment();
+        responseBytes.add(bytes);
+    }
+
+    public Snapshot snapshot() {
+        long[] statuses = new long[this.statuses.length];
+        for (int i = 0; i < statuses.length; i++) {
+            statuses[i] = this.statuses[i].sum();
+        }
+        return new Snapshot(name, handlerTime.snapshot(), responseBytes.sum(), statuses);
+    }
+
+    public static class Snapshot {
+        public final String name;
+        public final LatencyHistogram.Snapshot handlerTime;
+        public final long responseBytes;
+        /**
+         * number of responses with status 1xx, 2xx, 3xx, 4xx and 5xx
+         */
+        public final long[] statuses;
+
+        public Snapshot(String name, LatencyHistogram.Snapshot handlerTime, long responseBytes, long[] statuses) {
+            this.name = name;
+            this.handlerTime = handlerTime;
+            this.responseBytes = responseBytes;
+            this.statuses = statuses;
+        }
+
+        public long requests() {
+            long sum = 0;
+            for (long l : statuses) {
+                sum += l;
+            }
+            return sum;
+        }
+    }
+}
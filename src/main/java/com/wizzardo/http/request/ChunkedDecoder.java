@@ -0,0 +1,145 @@
+package com.wizzardo.http.request;
+
+import com.wizzardo.http.HttpException;
+import com.wizzardo.http.response.Status;
+
+import java.io.IOException;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Incremental decoder of 'Transfer-Encoding: chunked' body, data of chunks is passed to the {@link Consumer}
+ * as slices of the input array, without copying. Chunk extensions and trailers are skipped.
+ */
+public class ChunkedDecoder {
+
+    public interface Consumer {
+        void onData(byte[] bytes, int offset, int length) throws IOException;
+    }
+
+    protected static final int SIZE = 0;
+    protected static final int EXTENSION = 1;
+    protected static final int SIZE_LF = 2;
+    protected static final int DATA = 3;
+    protected static final int DATA_CR = 4;
+    protected static final int DATA_LF = 5;
+    protected static final int TRAILER_START = 6;
+    protected static final int TRAILER = 7;
+    protected static final int TRAILER_LF = 8;
+    protected static final int LAST_LF = 9;
+    protected static final int COMPLETE = 10;
+
+    protected final long limit;
+    protected int state = SIZE;
+    protected int sizeDigits;
+    protected long chunkSize;
+    protected long chunkRemaining;
+    protected long decoded;
+
+    /**
+     * @param limit max size of decoded body, -1 for unlimited
+     */
+    public ChunkedDecoder(long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * @return number of consumed bytes, it is less than length only if the body is complete
+     */
+    public int decode(byte[] bytes, int offset, int length, Consumer consumer) throws IOException {
+        int i = offset;
+        int end = offset + length;
+        while (i < end && state != COMPLETE) {
+            switch (state) {
+                case SIZE: {
+                    byte b = bytes[i];
+                    int digit = Character.digit(b, 16);
+                    if (digit != -1) {
+                        if (++sizeDigits > 15)
+                            throw new HttpException("Chunk size is too big", Status._400);
+                        chunkSize = chunkSize * 16 + digit;
+                    } else if (sizeDigits == 0)
+                        throw new HttpException("Wrong chunk size", Status._400);
+                    else if (b == '\r')
+                        state = SIZE_LF;
+                    else if (b == ';' || b == ' ' || b == '\t')
+                        state = EXTENSION;
+                    else
+                        throw new HttpException("Wrong chunk size", Status._400);
+                    i++;
+                    break;
+                }
+                case EXTENSION:
+                    if (bytes[i++] == '\r')
+                        state = SIZE_LF;
+                    break;
+                case SIZE_LF: {
+                    expect(bytes[i++], '\n');
+                    if (chunkSize == 0) {
+                        state = TRAILER_START;
+                        break;
+                    }
+
+                    decoded += chunkSize;
+                    if (limit >= 0 && decoded > limit)
+                        throw new HttpException("Request body is too big", Status._413);
+
+                    chunkRemaining = chunkSize;
+                    chunkSize = 0;
+                    sizeDigits = 0;
+                    state = DATA;
+                    break;
+                }
+                case DATA: {
+                    int l = (int) Math.min(chunkRemaining, end - i);
+                    consumer.onData(bytes, i, l);
+                    i += l;
+                    chunkRemaining -= l;
+                    if (chunkRemaining == 0)
+                        state = DATA_CR;
+                    break;
+                }
+                case DATA_CR:
+                    expect(bytes[i++], '\r');
+                    state = DATA_LF;
+                    break;
+                case DATA_LF:
+                    expect(bytes[i++], '\n');
+                    state = SIZE;
+                    break;
+                case TRAILER_START:
+                    state = bytes[i++] == '\r' ? LAST_LF : TRAILER;
+                    break;
+                case TRAILER:
+                    if (bytes[i++] == '\r')
+                        state = TRAILER_LF;
+                    break;
+                case TRAILER_LF:
+                    expect(bytes[i++], '\n');
+                    state = TRAILER_START;
+                    break;
+                case LAST_LF:
+                    expect(bytes[i++], '\n');
+                    state = COMPLETE;
+                    break;
+            }
+        }
+        return i - offset;
+    }
+
+    protected void expect(byte actual, char expected) {
+        if (actual != expected)
+            throw new HttpException("Malformed chunked body", Status._400);
+    }
+
+    public boolean isComplete() {
+        return state == COMPLETE;
+    }
+
+    /**
+     * @return size of decoded data
+     */
+    public long decoded() {
+        return decoded;
+    }
+}
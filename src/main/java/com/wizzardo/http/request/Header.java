@@ -25,6 +25,7 @@ public enum Header {
     KEY_LAST_MODIFIED("Last-Modified"),
     KEY_LOCATION("Location"),
     KEY_HOST("Host"),
+    KEY_HTTP2_SETTINGS("HTTP2-Settings"),
     KEY_ORIGIN("Origin"),
     KEY_PRAGMA("Pragma"),
     KEY_RANGE("Range"),
@@ -38,6 +39,7 @@ public enum Header {
     KEY_TRANSFER_ENCODING("Transfer-Encoding"),
     KEY_UPGRADE("Upgrade"),
     KEY_USER_AGENT("User-Agent"),
+    KEY_VARY("Vary"),
     KEY_WWW_AUTHENTICATE("WWW-Authenticate"),
 
     VALUE_APPLICATION_JSON("application/json"),
@@ -46,6 +48,7 @@ public enum Header {
     VALUE_CHUNKED("Chunked"),
     VALUE_FORM_URLENCODED("application/x-www-form-urlencoded"),
     VALUE_GZIP("gzip"),
+    VALUE_H2C("h2c"),
     VALUE_HTML_UTF8("text/html;charset=UTF-8"),
     VALUE_KEEP_ALIVE("Keep-Alive"),
     VALUE_NO_CACHE("no-cache"),
@@ -0,0 +1,217 @@
+package com.wizzardo.http.request;
+
+import com.wizzardo.http.HttpHeadersReader;
+import com.wizzardo.http.MultiValue;
+import com.wizzardo.http.utils.AsciiReader;
+
+import java.util.*;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Headers stored as offsets and lengths into a single reusable byte array,
+ * strings are created only when a header is requested.
+ * Table is reused by the connection, so it is valid only until the next request is read.
+ */
+public class HeadersTable extends AbstractMap<String, MultiValue> {
+    protected static final int SLOT = 4;
+
+    protected final ByteTree tree;
+    protected byte[] bytes = new byte[1024];
+    protected int length;
+    protected int[] slots = new int[SLOT * 16];
+    protected String[] values = new String[16];
+    protected int size;
+    protected boolean pendingName;
+    protected boolean stale;
+    protected Map<String, MultiValue> map;
+
+    public HeadersTable() {
+        this(HttpHeadersReader.getHeadersTree());
+    }
+
+    public HeadersTable(ByteTree tree) {
+        this.tree = tree;
+    }
+
+    public void reset() {
+        Arrays.fill(values, 0, Math.min(size + 1, values.length), null);
+        length = 0;
+        size = 0;
+        pendingName = false;
+        stale = false;
+        map = null;
+    }
+
+    /**
+     * table will be reset before storing next header
+     */
+    public void release() {
+        stale = true;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    public boolean hasPendingName() {
+        return pendingName;
+    }
+
+    public void appendName(byte[] buffer, int bufferLength, byte[] chars, int offset, int length) {
+        if (slots.length < (size + 1) * SLOT) {
+            slots = Arrays.copyOf(slots, slots.length * 2);
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        append(buffer, bufferLength, chars, offset, length, size * SLOT);
+        pendingName = true;
+    }
+
+    public void appendValue(byte[] buffer, int bufferLength, byte[] chars, int offset, int length) {
+        append(buffer, bufferLength, chars, offset, length, size * SLOT + 2);
+        size++;
+        pendingName = false;
+    }
+
+    protected void append(byte[] buffer, int bufferLength, byte[] chars, int offset, int length, int slot) {
+        if (length < 0)
+            length = 0;
+
+        int total = bufferLength + length;
+        if (bytes.length - this.length < total)
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, this.length + total));
+
+        int from = this.length;
+        if (bufferLength > 0)
+            System.arraycopy(buffer, 0, bytes, from, bufferLength);
+        if (length > 0)
+            System.arraycopy(chars, offset, bytes, from + bufferLength, length);
+        this.length += total;
+
+        int to = from + total;
+        while (from < to && bytes[from] <= ' ') {
+            from++;
+        }
+        while (to > from && bytes[to - 1] <= ' ') {
+            to--;
+        }
+        slots[slot] = from;
+        slots[slot + 1] = to - from;
+    }
+
+    @Override
+    public int size() {
+        return map != null ? map.size() : size;
+    }
+
+    public String value(String key) {
+        if (map != null) {
+            MultiValue value = map.get(key);
+            return value == null ? null : value.getValue();
+        }
+
+        int i = indexOf(key, 0);
+        return i == -1 ? null : value(i);
+    }
+
+    protected String value(int i) {
+        String value = values[i];
+        if (value == null)
+            values[i] = value = read(slots[i * SLOT + 2], slots[i * SLOT + 3]);
+        return value;
+    }
+
+    protected String name(int i) {
+        return read(slots[i * SLOT], slots[i * SLOT + 1]);
+    }
+
+    protected String read(int offset, int length) {
+        String value = tree.getRoot().get(bytes, offset, length);
+        return value != null ? value : AsciiReader.read(bytes, offset, length);
+    }
+
+    protected int indexOf(String key, int from) {
+        int l = key.length();
+        int[] slots = this.slots;
+        byte[] bytes = this.bytes;
+        outer:
+        for (int i = from; i < size; i++) {
+            if (slots[i * SLOT + 1] != l)
+                continue;
+
+            int offset = slots[i * SLOT];
+            for (int j = 0; j < l; j++) {
+                int a = bytes[offset + j];
+                int b = key.charAt(j);
+                if (a != b && Character.toLowerCase(a) != Character.toLowerCase(b))
+                    continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public MultiValue get(Object key) {
+        if (map != null)
+            return map.get(key);
+
+        if (!(key instanceof String))
+            return null;
+
+        int i = indexOf((String) key, 0);
+        if (i == -1)
+            return null;
+
+        MultiValue value = new MultiValue(value(i));
+        while ((i = indexOf((String) key, i + 1)) != -1) {
+            value.append(value(i));
+        }
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (map != null)
+            return map.containsKey(key);
+
+        return key instanceof String && indexOf((String) key, 0) != -1;
+    }
+
+    @Override
+    public MultiValue put(String key, MultiValue value) {
+        return map().put(key, value);
+    }
+
+    @Override
+    public MultiValue remove(Object key) {
+        return map().remove(key);
+    }
+
+    @Override
+    public void clear() {
+        map().clear();
+    }
+
+    @Override
+    public Set<Entry<String, MultiValue>> entrySet() {
+        return map().entrySet();
+    }
+
+    /**
+     * converts table into a regular map, all further lookups and modifications go to this map
+     */
+    protected Map<String, MultiValue> map() {
+        if (map == null) {
+            Map<String, MultiValue> map = new LinkedHashMap<>(16);
+            for (int i = 0; i < size; i++) {
+                String name = name(i);
+                MultiValue value = map.putIfAbsent(name, new MultiValue(value(i)));
+                if (value != null)
+                    value.append(value(i));
+            }
+            this.map = map;
+        }
+        return map;
+    }
+}
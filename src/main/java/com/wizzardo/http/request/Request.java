@@ -5,6 +5,7 @@ import com.wizzardo.http.HttpDateFormatterHolder;
 import com.wizzardo.http.MultiValue;
 import com.wizzardo.http.Session;
 import com.wizzardo.http.mapping.Path;
+import com.wizzardo.http.metrics.RouteMetrics;
 import com.wizzardo.http.response.CookieBuilder;
 import com.wizzardo.http.response.Response;
 import com.wizzardo.tools.interfaces.Mapper;
@@ -32,20 +33,74 @@ public class Request<C extends HttpConnection> {
     protected long contentLength = NOT_INITIALISED;
     protected boolean bodyParsed = false;
     protected Boolean multipart;
+    protected Boolean chunked;
     protected boolean multiPartDataPrepared = false;
     protected String sessionId;
+    protected boolean released;
 
     protected SimpleRequestBody body;
+    protected RouteMetrics route;
 
     public static enum Method {
-        GET, PUT, POST, DELETE, HEAD, TRACE, OPTIONS, CONNECT, PATCH
+        GET, PUT, POST, DELETE, HEAD, TRACE, OPTIONS, CONNECT, PATCH, PRI
     }
 
     public Request(C connection) {
         this.connection = connection;
     }
 
+    /**
+     * prepares request to be reused by the same connection
+     */
+    public void reset() {
+        headers = null;
+        params = null;
+        multiPartEntryMap = null;
+        cookies = null;
+        method = null;
+        path = null;
+        protocol = null;
+        queryString = null;
+        contentLength = NOT_INITIALISED;
+        bodyParsed = false;
+        multipart = null;
+        chunked = null;
+        multiPartDataPrepared = false;
+        sessionId = null;
+        body = null;
+        route = null;
+        released = false;
+    }
+
+    /**
+     * marks request as finished, any further usage until {@link #reset()} will throw an exception
+     */
+    public void release() {
+        released = true;
+    }
+
+    public boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * @return metrics of the handler of this request, the response is recorded to them when it is finished
+     */
+    public RouteMetrics getRoute() {
+        return route;
+    }
+
+    public void setRoute(RouteMetrics route) {
+        this.route = route;
+    }
+
+    protected void checkReleased() {
+        if (released)
+            throw new IllegalStateException("Request is already finished and will be reused by the connection, it must not be used outside of its handler");
+    }
+
     public Path path() {
+        checkReleased();
         return path;
     }
 
@@ -54,6 +109,7 @@ public class Request<C extends HttpConnection> {
     }
 
     public String protocol() {
+        checkReleased();
         return protocol;
     }
 
@@ -62,6 +118,7 @@ public class Request<C extends HttpConnection> {
     }
 
     public long contentLength() {
+        checkReleased();
         if (contentLength == NOT_INITIALISED)
             contentLength = headerLong(Header.KEY_CONTENT_LENGTH, -1);
         return contentLength;
@@ -72,6 +129,7 @@ public class Request<C extends HttpConnection> {
     }
 
     public Map<String, MultiValue> headers() {
+        checkReleased();
         return headers;
     }
 
@@ -119,20 +177,29 @@ public class Request<C extends HttpConnection> {
     }
 
     public String header(String key, String def) {
+        checkReleased();
+        if (headers instanceof HeadersTable) {
+            String value = ((HeadersTable) headers).value(key);
+            return value == null ? def : value;
+        }
+
         MultiValue value = headers.get(key);
         return value == null ? def : value.getValue();
     }
 
     public List<String> headers(String key) {
+        checkReleased();
         MultiValue value = headers.get(key);
         return value == null ? null : value.getValues();
     }
 
     public Method method() {
+        checkReleased();
         return method;
     }
 
     public String getQueryString() {
+        checkReleased();
         return queryString;
     }
 
@@ -158,8 +225,11 @@ public class Request<C extends HttpConnection> {
     }
 
     public Parameters params() {
+        checkReleased();
         if (body != null && !bodyParsed) {
-            new RequestReader(headers, params).parseParameters(body.bytes(), 0, (int) contentLength);
+            readBody();
+            byte[] bytes = body.bytes();
+            new RequestReader(headers, params).parseParameters(bytes, 0, bytes.length);
             bodyParsed = true;
         }
         return params;
@@ -170,7 +240,32 @@ public class Request<C extends HttpConnection> {
     }
 
     public byte[] data() {
-        return body == null ? null : body.bytes();
+        checkReleased();
+        if (body == null)
+            return null;
+
+        readBody();
+        return body.bytes();
+    }
+
+    protected void readBody() {
+        if (body instanceof StreamingRequestBody)
+            ((StreamingRequestBody) body).readFully(connection);
+    }
+
+    /**
+     * Passes body to the consumer as it arrives without keeping it in memory and makes the response async,
+     * the response will be committed after {@link StreamingRequestBody.Consumer#onEnd(Request, Response)}.
+     * Requires streamingBody option to be enabled on the server.
+     */
+    public void onBody(StreamingRequestBody.Consumer consumer) {
+        checkReleased();
+        if (!(body instanceof StreamingRequestBody))
+            throw new IllegalStateException("Streaming body is not enabled or request has no body");
+
+        Response response = response();
+        response.async();
+        connection.setInputListener(((StreamingRequestBody) body).createListener(consumer, this, response));
     }
 
     public boolean isMultipart() {
@@ -180,6 +275,18 @@ public class Request<C extends HttpConnection> {
         return multipart;
     }
 
+    /**
+     * @return true if the last transfer-coding of the body is 'chunked'
+     */
+    public boolean isChunked() {
+        if (chunked == null) {
+            String encoding = header(Header.KEY_TRANSFER_ENCODING, "").trim();
+            chunked = encoding.regionMatches(true, encoding.length() - 7, "chunked", 0, 7);
+        }
+
+        return chunked;
+    }
+
     public MultiPartEntry entry(String key) {
         if (!multiPartDataPrepared)
             throw new IllegalStateException("To handle multipart request you need to wrap Handler into MultipartHandler");
@@ -214,10 +321,15 @@ public class Request<C extends HttpConnection> {
     }
 
     public Collection<MultiPartEntry> entries() {
+        if (multiPartEntryMap == null)
+            return Collections.emptyList();
         return multiPartEntryMap.values();
     }
 
     public InputStream getInputStream() {
+        checkReleased();
+        if (body instanceof StreamingRequestBody)
+            return Unchecked.call(() -> ((StreamingRequestBody) body).getInputStream(connection));
         return connection.getInputStream();
     }
 
@@ -253,6 +365,7 @@ public class Request<C extends HttpConnection> {
     }
 
     public Map<String, String> cookies() {
+        checkReleased();
         if (cookies != null)
             return cookies;
 
@@ -1,5 +1,6 @@
 package com.wizzardo.http.request;
 
+import com.wizzardo.http.AbstractHttpServer;
 import com.wizzardo.http.HttpException;
 import com.wizzardo.http.HttpHeadersReader;
 import com.wizzardo.http.MultiValue;
@@ -54,13 +55,20 @@ public class RequestReader extends HttpHeadersReader {
 
     public void clear() {
         super.clear();
-        params = new Parameters();
+        if (!recycle)
+            params = new Parameters();
         method = null;
         queryString = null;
         protocol = null;
         path = null;
     }
 
+    @Override
+    protected void reset() {
+        super.reset();
+        params.clear();
+    }
+
     public Request fillRequest(Request request) {
         request.headers = headers;
         request.params = params;
@@ -73,10 +81,18 @@ public class RequestReader extends HttpHeadersReader {
         request.queryString = queryString;
         request.protocol = protocol;
 
-        if (request.contentLength() > 0
+        if (request.isChunked() && !request.isMultipart()) {
+            AbstractHttpServer server = request.connection().getServer();
+            request.body = new StreamingRequestBody(new ChunkedDecoder(server.getPostBodyLimit()), server.getBodySpillThreshold());
+        } else if (request.contentLength() > 0
                 && request.contentLength() < request.connection().getServer().getPostBodyLimit()
-                && !request.isMultipart())
-            request.body = new SimpleRequestBody((int) request.contentLength());
+                && !request.isMultipart()) {
+            AbstractHttpServer server = request.connection().getServer();
+            if (server.isStreamingBody())
+                request.body = new StreamingRequestBody(request.contentLength(), server.getBodySpillThreshold());
+            else
+                request.body = new SimpleRequestBody((int) request.contentLength());
+        }
         return request;
     }
 
@@ -85,6 +101,8 @@ public class RequestReader extends HttpHeadersReader {
         chars = getCharsValue(chars, offset, length);
         if (chars.length == 0)
             return;
+        if (chars.length == 1 && chars[0] == '*' && "PRI".equals(method))
+            return; // HTTP/2 connection preface
         path = Path.parse(chars, 0, chars.length, UrlMapping.SEGMENT_CACHE);
     }
 
@@ -12,6 +12,9 @@ public class SimpleRequestBody {
         bytes = new byte[size];
     }
 
+    protected SimpleRequestBody() {
+    }
+
     public int read(byte[] bytes, int offset, int length) {
         int l = Math.min(length, remains());
         System.arraycopy(bytes, offset, this.bytes, position, l);
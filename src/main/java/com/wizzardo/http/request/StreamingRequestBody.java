@@ -0,0 +1,339 @@
+package com.wizzardo.http.request;
+
+import com.wizzardo.epoll.ByteBufferProvider;
+import com.wizzardo.http.HttpConnection;
+import com.wizzardo.http.HttpException;
+import com.wizzardo.http.InputListener;
+import com.wizzardo.http.Worker;
+import com.wizzardo.http.response.Response;
+import com.wizzardo.tools.io.FileTools;
+import com.wizzardo.tools.io.IOTools;
+import com.wizzardo.tools.misc.Unchecked;
+
+import java.io.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Request body that is passed to the handler before it is received.
+ * Chunks are either pushed to a {@link Consumer} as they arrive or are stored in memory
+ * until spillThreshold is reached and in a temporary file after that.
+ * The whole body is read only on {@link #bytes()} or {@link #getInputStream(HttpConnection)}.
+ * Chunked bodies are decoded with {@link ChunkedDecoder} on the fly, their length is unknown until the last chunk.
+ */
+public class StreamingRequestBody extends SimpleRequestBody implements Closeable {
+
+    public interface Consumer {
+        void onData(byte[] bytes, int offset, int length) throws IOException;
+
+        /**
+         * called when the whole body was consumed, response will be committed after this call
+         */
+        void onEnd(Request request, Response response) throws IOException;
+    }
+
+    protected final long length;
+    protected final int spillThreshold;
+    protected long received;
+    protected byte[] buffer;
+    protected int bufferLength;
+    protected File file;
+    protected OutputStream out;
+    protected byte[] bytes;
+    protected Consumer consumer;
+    protected final ChunkedDecoder decoder;
+    protected final ChunkedDecoder.Consumer sink = this::accept;
+    protected final ReentrantLock lock = new ReentrantLock();
+    protected final Condition readable = lock.newCondition();
+
+    public StreamingRequestBody(long length, int spillThreshold) {
+        this.length = length;
+        this.spillThreshold = spillThreshold;
+        this.decoder = null;
+    }
+
+    public StreamingRequestBody(ChunkedDecoder decoder, int spillThreshold) {
+        this.length = -1;
+        this.spillThreshold = spillThreshold;
+        this.decoder = decoder;
+    }
+
+    /**
+     * @return number of consumed bytes, for chunked body it can be less than length only if the body is complete
+     */
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+        try {
+            if (decoder != null)
+                return decoder.decode(bytes, offset, length, sink);
+
+            int l = Math.min(length, remains());
+            if (l <= 0)
+                return 0;
+
+            accept(bytes, offset, l);
+            return l;
+        } catch (IOException e) {
+            throw Unchecked.rethrow(e);
+        }
+    }
+
+    protected void accept(byte[] bytes, int offset, int length) throws IOException {
+        if (consumer != null)
+            consumer.onData(bytes, offset, length);
+        else
+            store(bytes, offset, length);
+        received += length;
+    }
+
+    protected void store(byte[] bytes, int offset, int length) throws IOException {
+        if (out != null) {
+            out.write(bytes, offset, length);
+            return;
+        }
+
+        if (bufferLength + length > spillThreshold) {
+            file = File.createTempFile("request_body_", null);
+            out = new BufferedOutputStream(new FileOutputStream(file));
+            if (bufferLength > 0)
+                out.write(buffer, 0, bufferLength);
+            out.write(bytes, offset, length);
+            buffer = null;
+            bufferLength = 0;
+            return;
+        }
+
+        if (buffer == null || buffer.length < bufferLength + length) {
+            long max = this.length < 0 ? spillThreshold : Math.min(this.length, spillThreshold);
+            byte[] b = new byte[(int) Math.min(Math.max((bufferLength + length) * 2L, 1024), max)];
+            if (bufferLength > 0)
+                System.arraycopy(buffer, 0, b, 0, bufferLength);
+            buffer = b;
+        }
+        System.arraycopy(bytes, offset, buffer, bufferLength, length);
+        bufferLength += length;
+    }
+
+    @Override
+    public int remains() {
+        if (decoder != null)
+            return decoder.isComplete() ? 0 : Integer.MAX_VALUE;
+        return (int) (length - received);
+    }
+
+    @Override
+    public boolean isReady() {
+        if (decoder != null)
+            return decoder.isComplete();
+        return received == length;
+    }
+
+    /**
+     * @return length of the body or -1 if it is chunked
+     */
+    public long length() {
+        return length;
+    }
+
+    public boolean isChunked() {
+        return decoder != null;
+    }
+
+    public long received() {
+        return received;
+    }
+
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    /**
+     * @return received part of the body, see {@link #readFully(HttpConnection)}
+     */
+    @Override
+    public byte[] bytes() {
+        if (bytes != null)
+            return bytes;
+
+        if (consumer != null)
+            throw new IllegalStateException("Body was passed to the consumer");
+
+        try {
+            if (file != null) {
+                out.flush();
+                bytes = FileTools.bytes(file);
+            } else if (buffer != null && bufferLength == buffer.length)
+                bytes = buffer;
+            else {
+                bytes = new byte[bufferLength];
+                if (bufferLength > 0)
+                    System.arraycopy(buffer, 0, bytes, 0, bufferLength);
+            }
+        } catch (IOException e) {
+            throw Unchecked.rethrow(e);
+        }
+        buffer = null;
+        return bytes;
+    }
+
+    /**
+     * reads the rest of the body from the connection, blocks current thread until the IO thread calls {@link #wakeUp()}
+     */
+    public void readFully(HttpConnection connection) {
+        if (isReady())
+            return;
+
+        ByteBufferProvider bufferProvider = Worker.bufferProvider();
+        byte[] b = new byte[16 * 1024];
+        try {
+            while (!isReady()) {
+                int r = connection.read(b, 0, Math.min(b.length, remains()), bufferProvider);
+                if (r == 0)
+                    r = awaitData(connection, b, bufferProvider);
+                if (r > 0)
+                    read(connection, b, r);
+                else
+                    throw new EOFException("Connection was closed before the body was received: " + received + "/" + length);
+            }
+        } catch (HttpException e) {
+            // body is too big or malformed, the rest of it is still in the socket
+            connection.setCloseOnFinishWriting(true);
+            throw e;
+        } catch (IOException e) {
+            throw Unchecked.rethrow(e);
+        }
+    }
+
+    /**
+     * read is repeated under the lock, so data that arrives right before waiting doesn't get lost
+     */
+    protected int awaitData(HttpConnection connection, byte[] b, ByteBufferProvider bufferProvider) throws IOException {
+        lock.lock();
+        try {
+            int r;
+            while ((r = connection.read(b, 0, Math.min(b.length, remains()), bufferProvider)) == 0 && connection.isAlive()) {
+                readable.awaitUninterruptibly();
+            }
+            return r;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * called by the IO thread when new data is available or the connection was closed
+     */
+    public void wakeUp() {
+        lock.lock();
+        try {
+            readable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    protected void read(HttpConnection connection, byte[] bytes, int length) {
+        int read = read(bytes, 0, length);
+        if (read < length)
+            connection.unread(bytes, read, length - read);
+    }
+
+    /**
+     * reads the rest of the body and returns its content without loading spilled part into memory
+     */
+    public InputStream getInputStream(HttpConnection connection) throws IOException {
+        readFully(connection);
+        if (bytes != null)
+            return new ByteArrayInputStream(bytes);
+        if (file != null) {
+            out.flush();
+            return new FileInputStream(file);
+        }
+        return new ByteArrayInputStream(buffer == null ? new byte[0] : buffer, 0, bufferLength);
+    }
+
+    /**
+     * pushes already received data and all further chunks to the consumer
+     */
+    public void setConsumer(Consumer consumer) throws IOException {
+        if (this.consumer != null)
+            throw new IllegalStateException("Consumer was already set");
+
+        if (file != null) {
+            out.flush();
+            try (InputStream in = new FileInputStream(file)) {
+                byte[] b = new byte[16 * 1024];
+                int r;
+                while ((r = in.read(b)) != -1) {
+                    consumer.onData(b, 0, r);
+                }
+            }
+        } else if (bytes != null)
+            consumer.onData(bytes, 0, bytes.length);
+        else if (bufferLength > 0)
+            consumer.onData(buffer, 0, bufferLength);
+
+        close();
+        buffer = null;
+        bufferLength = 0;
+        bytes = null;
+        this.consumer = consumer;
+    }
+
+    protected InputListener<HttpConnection> createListener(Consumer consumer, Request request, Response response) {
+        return new InputListener<HttpConnection>() {
+            byte[] b;
+
+            @Override
+            public void onReady(HttpConnection connection) {
+                try {
+                    setConsumer(consumer);
+                } catch (IOException e) {
+                    throw Unchecked.rethrow(e);
+                }
+                onReadyToRead(connection);
+            }
+
+            @Override
+            public void onReadyToRead(HttpConnection connection) {
+                try {
+                    if (!isReady()) {
+                        if (b == null)
+                            b = new byte[16 * 1024];
+
+                        ByteBufferProvider bufferProvider = Worker.bufferProvider();
+                        int r;
+                        while (!isReady() && (r = connection.read(b, 0, Math.min(b.length, remains()), bufferProvider)) > 0) {
+                            read(connection, b, r);
+                        }
+                        if (!isReady())
+                            return;
+                    }
+
+                    consumer.onEnd(request, response);
+                    response.commit(connection);
+                    if (!connection.isKeepAlive())
+                        connection.setCloseOnFinishWriting(true);
+                    connection.onFinishingHandling();
+                } catch (IOException e) {
+                    throw Unchecked.rethrow(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * deletes temporary file if the body was spilled to disk
+     */
+    @Override
+    public void close() {
+        IOTools.close(out);
+        out = null;
+        if (file != null) {
+            FileTools.deleteRecursive(file);
+            file = null;
+        }
+    }
+}
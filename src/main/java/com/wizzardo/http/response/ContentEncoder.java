@@ -0,0 +1,49 @@
+package com.wizzardo.http.response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Content-coding of static files, RangeResponseHelper prepares a variant per encoder once per cached file
+ */
+public interface ContentEncoder {
+
+    ContentEncoder GZIP = new Gzip(Deflater.BEST_COMPRESSION);
+
+    /**
+     * @return coding as it is used in Accept-Encoding and Content-Encoding headers
+     */
+    String name();
+
+    byte[] encode(byte[] bytes) throws IOException;
+
+    class Gzip implements ContentEncoder {
+        protected final int level;
+
+        public Gzip(int level) {
+            this.level = level;
+        }
+
+        @Override
+        public String name() {
+            return "gzip";
+        }
+
+        @Override
+        public byte[] encode(byte[] bytes) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2 + 32);
+            GZIPOutputStream gout = new GZIPOutputStream(out) {
+                {
+                    def.setLevel(level);
+                }
+            };
+            gout.write(bytes);
+            gout.close();
+            return out.toByteArray();
+        }
+    }
+}
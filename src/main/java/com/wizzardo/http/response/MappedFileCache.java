@@ -0,0 +1,383 @@
+package com.wizzardo.http.response;
+
+import com.wizzardo.epoll.readable.ReadableBuilder;
+import com.wizzardo.epoll.readable.ReadableByteBuffer;
+import com.wizzardo.epoll.readable.ReadableData;
+import com.wizzardo.epoll.readable.ReadableFile;
+import com.wizzardo.http.HttpDateFormatterHolder;
+import com.wizzardo.tools.misc.Unchecked;
+import com.wizzardo.tools.reflection.UnsafeTools;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Read-only memory-mapped files shared by all threads. A mapping stays until its file is changed, deleted or
+ * replaced, which is noticed by a WatchService on the parent directory. Ranges are served as slices of the mapped
+ * regions, so the content is written to sockets straight from the page cache and never copied into the heap.
+ * <p>
+ * When there are more regions than allowed, the least recently used files are dropped. A dropped file is unmapped
+ * as soon as all bodies read from it are closed, bodies that are never closed leave the mapping to the GC.
+ * <p>
+ * Files must not be truncated in place while they are mapped: reading a page that is not backed by the file anymore
+ * raises SIGBUS, the JVM turns it into an InternalError in the thread that sends the response, or crashes.
+ * Replace files with a rename or write them with the same or bigger length instead.
+ * <p>
+ * The cache starts a watcher thread on the first mapping, it is stopped by {@link #close()}.
+ */
+public class MappedFileCache implements Closeable {
+    public static final int DEFAULT_REGION_SIZE = 1024 * 1024 * 1024;
+    public static final int DEFAULT_MAX_REGIONS = 16 * 1024;
+
+    protected static final ByteBuffer EMPTY = ByteBuffer.allocateDirect(0);
+    protected static final Method INVOKE_CLEANER = findInvokeCleaner();
+
+    protected final ConcurrentHashMap<String, MappedFile> files = new ConcurrentHashMap<>();
+    protected final ConcurrentHashMap<Path, WatchKey> directories = new ConcurrentHashMap<>();
+    protected final AtomicInteger regions = new AtomicInteger();
+    protected final int regionSize;
+    protected final int maxRegions;
+    protected volatile WatchService watchService;
+    protected volatile boolean closed;
+
+    public MappedFileCache() {
+        this(DEFAULT_REGION_SIZE, DEFAULT_MAX_REGIONS);
+    }
+
+    /**
+     * @param regionSize max size of one mapping, files bigger than that are mapped with several regions
+     * @param maxRegions max number of mapped regions, other files are dropped when a new mapping exceeds it
+     */
+    public MappedFileCache(int regionSize, int maxRegions) {
+        if (regionSize <= 0)
+            throw new IllegalArgumentException("regionSize must be > 0");
+
+        this.regionSize = regionSize;
+        this.maxRegions = maxRegions;
+    }
+
+    public MappedFile get(File file) {
+        String key = file.getAbsolutePath();
+        MappedFile mapped = files.get(key);
+        if (mapped != null) {
+            if (mapped.watched || mapped.isValid()) {
+                mapped.lastAccess = System.nanoTime();
+                return mapped;
+            }
+
+            remove(key, mapped);
+        }
+
+        try {
+            return map(key, file);
+        } catch (IOException e) {
+            throw Unchecked.rethrow(e);
+        }
+    }
+
+    public int size() {
+        return files.size();
+    }
+
+    public void invalidate(File file) {
+        MappedFile mapped = files.get(file.getAbsolutePath());
+        if (mapped != null)
+            remove(file.getAbsolutePath(), mapped);
+    }
+
+    public void clear() {
+        for (Map.Entry<String, MappedFile> entry : files.entrySet()) {
+            remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        clear();
+        WatchService watchService = this.watchService;
+        if (watchService != null)
+            watchService.close();
+    }
+
+    protected MappedFile map(String key, File file) throws IOException {
+        boolean watched = watch(file);
+
+        MappedFile mapped;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            long lastModified = file.lastModified();
+            ByteBuffer[] buffers = new ByteBuffer[(int) ((length + regionSize - 1) / regionSize)];
+            for (int i = 0; i < buffers.length; i++) {
+                long position = (long) i * regionSize;
+                buffers[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(regionSize, length - position));
+            }
+            mapped = new MappedFile(file, buffers, regionSize, length, lastModified, watched);
+        }
+
+        MappedFile previous = files.putIfAbsent(key, mapped);
+        if (previous != null) {
+            mapped.release();
+            return previous;
+        }
+
+        if (regions.addAndGet(mapped.regions.length) > maxRegions)
+            evict(mapped);
+
+        if (!mapped.isValid()) // replaced before it was published, the event could have been handled already
+            remove(key, mapped);
+
+        return mapped;
+    }
+
+    /**
+     * drops the least recently used files until the number of regions is within the limit
+     */
+    protected void evict(MappedFile keep) {
+        List<Map.Entry<String, MappedFile>> entries = new ArrayList<>(files.entrySet());
+        entries.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+        for (int i = 0; regions.get() > maxRegions && i < entries.size(); i++) {
+            Map.Entry<String, MappedFile> entry = entries.get(i);
+            if (entry.getValue() != keep)
+                remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    protected void remove(String key, MappedFile mapped) {
+        if (files.remove(key, mapped)) {
+            regions.addAndGet(-mapped.regions.length);
+            mapped.release();
+        }
+    }
+
+    protected static Method findInvokeCleaner() {
+        try {
+            return UnsafeTools.getUnsafe().getClass().getMethod("invokeCleaner", ByteBuffer.class); // java 9+
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * frees the mapping right away instead of waiting for the GC, nothing must read the buffer or its slices after it
+     */
+    protected static void unmap(ByteBuffer buffer) {
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UnsafeTools.getUnsafe(), buffer);
+            } else {
+                Method method = buffer.getClass().getMethod("cleaner");
+                method.setAccessible(true);
+                Object cleaner = method.invoke(buffer);
+                if (cleaner != null)
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception ignored) {
+            // the mapping is released by the GC
+        }
+    }
+
+    protected boolean watch(File file) {
+        if (closed)
+            return false;
+
+        Path directory = file.getAbsoluteFile().getParentFile().toPath();
+        if (directories.containsKey(directory))
+            return true;
+
+        try {
+            WatchKey key = directory.register(watchService(), ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            directories.putIfAbsent(directory, key);
+            return true;
+        } catch (IOException | UnsupportedOperationException | ClosedWatchServiceException e) {
+            return false;
+        }
+    }
+
+    protected WatchService watchService() throws IOException {
+        if (watchService == null) {
+            synchronized (this) {
+                if (watchService == null) {
+                    WatchService service = FileSystems.getDefault().newWatchService();
+                    Thread thread = new Thread(() -> processEvents(service), "mapped-files-watcher");
+                    thread.setDaemon(true);
+                    thread.start();
+                    watchService = service;
+                }
+            }
+        }
+        return watchService;
+    }
+
+    protected void processEvents(WatchService service) {
+        while (!closed) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            }
+
+            Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW)
+                    invalidateDirectory(directory);
+                else
+                    invalidate(directory.resolve((Path) event.context()).toFile());
+            }
+
+            if (!key.reset()) {
+                directories.remove(directory, key);
+                invalidateDirectory(directory);
+            }
+        }
+    }
+
+    protected void invalidateDirectory(Path directory) {
+        for (Map.Entry<String, MappedFile> entry : files.entrySet()) {
+            if (directory.equals(entry.getValue().file.getAbsoluteFile().getParentFile().toPath()))
+                remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public static class MappedFile {
+        public final File file;
+        public final long length;
+        public final long lastModified;
+        public final String lastModifiedFormatted;
+        public final String etag;
+        protected final ByteBuffer[] regions;
+        protected final int regionSize;
+        protected final boolean watched;
+        protected final AtomicInteger references = new AtomicInteger(1); // one is held by the cache
+        protected volatile long lastAccess = System.nanoTime();
+
+        public MappedFile(File file, ByteBuffer[] regions, int regionSize, long length, long lastModified, boolean watched) {
+            this.file = file;
+            this.regions = regions;
+            this.regionSize = regionSize;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.watched = watched;
+            this.lastModifiedFormatted = HttpDateFormatterHolder.get().format(new Date(lastModified));
+            this.etag = Long.toHexString(lastModified) + "-" + Long.toHexString(length);
+        }
+
+        public boolean isValid() {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+
+        /**
+         * @return false if the file was dropped from the cache and all bodies read from it are closed
+         */
+        public boolean isMapped() {
+            return references.get() > 0;
+        }
+
+        /**
+         * @return view of the given range, every call returns a new instance with its own position,
+         * the mapping is kept until it is closed. If the file was already unmapped, the range is read from the file.
+         */
+        public ReadableData read(long from, long length) throws IOException {
+            if (from < 0 || length < 0 || from + length > this.length)
+                throw new IndexOutOfBoundsException("range " + from + "+" + length + " is out of 0-" + this.length);
+
+            if (length == 0)
+                return new ReadableByteBuffer(EMPTY.duplicate());
+
+            if (!retain())
+                return new ReadableFile(file, from, length);
+
+            int first = (int) (from / regionSize);
+            int last = (int) ((from + length - 1) / regionSize);
+            if (first == last)
+                return new MappedRange(this, region(first, (int) (from - (long) first * regionSize), (int) length));
+
+            ReadableBuilder builder = new MappedRanges(this, last - first + 2); // one spare slot, so it never grows
+            for (int i = first; i <= last; i++) {
+                long regionStart = (long) i * regionSize;
+                int offset = (int) Math.max(from - regionStart, 0);
+                int end = (int) Math.min(from + length - regionStart, regions[i].capacity());
+                builder.append(new ReadableByteBuffer(region(i, offset, end - offset)));
+            }
+            return builder;
+        }
+
+        protected ByteBuffer region(int region, int offset, int length) {
+            ByteBuffer buffer = regions[region].duplicate();
+            buffer.position(offset);
+            buffer.limit(offset + length);
+            return buffer.slice();
+        }
+
+        protected boolean retain() {
+            int count;
+            do {
+                count = references.get();
+                if (count == 0)
+                    return false;
+            } while (!references.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        protected void release() {
+            if (references.decrementAndGet() == 0) {
+                for (ByteBuffer region : regions) {
+                    unmap(region);
+                }
+            }
+        }
+    }
+
+    protected static class MappedRange extends ReadableByteBuffer {
+        protected MappedFile mappedFile;
+
+        protected MappedRange(MappedFile mappedFile, ByteBuffer buffer) {
+            super(buffer);
+            this.mappedFile = mappedFile;
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            if (mappedFile != null) {
+                mappedFile.release();
+                mappedFile = null;
+            }
+        }
+    }
+
+    protected static class MappedRanges extends ReadableBuilder {
+        protected MappedFile mappedFile;
+
+        protected MappedRanges(MappedFile mappedFile, int size) {
+            super(size);
+            this.mappedFile = mappedFile;
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            if (mappedFile != null) {
+                mappedFile.release();
+                mappedFile = null;
+            }
+        }
+    }
+}
@@ -11,25 +11,29 @@ import com.wizzardo.tools.io.FileTools;
 import com.wizzardo.tools.misc.Unchecked;
 import com.wizzardo.tools.security.MD5;
 
-import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.zip.GZIPOutputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * @author: wizzardo
  * Date: 8/4/14
  */
-public class RangeResponseHelper {
+public class RangeResponseHelper implements Closeable {
     protected static final long DEFAULT_CACHE_MEMORY_LIMIT = 32 * 1024 * 1024;
     protected static final long DEFAULT_CACHE_MAX_FILE_SIZE = 5 * 1024 * 1024;
     protected static final long DEFAULT_CACHE_TTL = 5 * 60;
     protected static final boolean DEFAULT_CACHE_GZIP = true;
     protected static final String MAX_AGE_1_YEAR = "max-age=31556926";
 
+    protected final List<ContentEncoder> encoders = new CopyOnWriteArrayList<>();
     protected MemoryLimitedCache<String, FileHolder> filesCache;
+    protected MappedFileCache mappedFiles;
     protected final long maxCachedFileSize;
 
     public RangeResponseHelper() {
@@ -38,7 +42,9 @@ public class RangeResponseHelper {
 
     public RangeResponseHelper(long cacheMemoryLimit, long cacheTTL, long maxCachedFileSize, boolean gzip) {
         this.maxCachedFileSize = maxCachedFileSize;
-        filesCache = createFileHolderCache(cacheMemoryLimit, cacheTTL, gzip);
+        if (gzip)
+            encoders.add(ContentEncoder.GZIP);
+        filesCache = createFileHolderCache(cacheMemoryLimit, cacheTTL);
     }
 
     public RangeResponseHelper(ServerConfiguration.Resources.Cache cache) {
@@ -46,64 +52,256 @@ public class RangeResponseHelper {
             this.maxCachedFileSize = -1;
         } else {
             this.maxCachedFileSize = cache.maxFileSize;
-            filesCache = createFileHolderCache(cache.memoryLimit, cache.ttl, cache.gzip);
+            if (cache.gzip)
+                encoders.add(ContentEncoder.GZIP);
+            filesCache = createFileHolderCache(cache.memoryLimit, cache.ttl);
         }
+        if (cache.mapped)
+            mappedFiles = createMappedFileCache();
     }
 
-    protected MemoryLimitedCache<String, FileHolder> createFileHolderCache(long cacheMemoryLimit, long cacheTTL, boolean gzip) {
-        return new MemoryLimitedCache<>("resources", cacheMemoryLimit, cacheTTL, path -> {
-            byte[] bytes = FileTools.bytes(path);
-            if (gzip) {
-                ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
-                GZIPOutputStream gout = new GZIPOutputStream(out);
-                gout.write(bytes);
-                gout.close();
-                bytes = out.toByteArray();
-            }
+    protected MappedFileCache createMappedFileCache() {
+        return new MappedFileCache();
+    }
+
+    /**
+     * Files that are not kept by the in-memory cache will be served from memory-mapped regions of the given cache,
+     * it is closed together with this helper
+     */
+    public RangeResponseHelper setMappedFileCache(MappedFileCache mappedFiles) {
+        this.mappedFiles = mappedFiles;
+        return this;
+    }
+
+    public MappedFileCache getMappedFileCache() {
+        return mappedFiles;
+    }
+
+    /**
+     * Closes the cache of memory-mapped files and stops its watcher thread
+     */
+    @Override
+    public void close() {
+        if (mappedFiles == null)
+            return;
+
+        try {
+            mappedFiles.close();
+        } catch (IOException e) {
+            throw Unchecked.rethrow(e);
+        }
+    }
+
+    /**
+     * Adds encoded variant to files that will be loaded into the cache, variants are chosen by Accept-Encoding
+     * in order of their quality and then in order of encoders
+     */
+    public RangeResponseHelper addEncoder(ContentEncoder encoder) {
+        encoders.add(encoder);
+        return this;
+    }
+
+    protected MemoryLimitedCache<String, FileHolder> createFileHolderCache(long cacheMemoryLimit, long cacheTTL) {
+        return new MemoryLimitedCache<>("resources", cacheMemoryLimit, cacheTTL, this::createFileHolder);
+    }
+
+    protected FileHolder createFileHolder(String path) throws IOException {
+        byte[] bytes = FileTools.bytes(path);
+        String lastModified = HttpDateFormatterHolder.get().format(new Date(new File(path).lastModified()));
+        String md5 = MD5.create().update(bytes).asString().toUpperCase();
+
+        List<Variant> variants = new ArrayList<>(encoders.size());
+        for (ContentEncoder encoder : encoders) {
+            byte[] encoded = encoder.encode(bytes);
+            if (encoded.length < bytes.length)
+                variants.add(new Variant(encoder.name(), toReadable(encoded), md5 + "-" + encoder.name()));
+        }
+
+        return new FileHolder(toReadable(bytes), md5, lastModified, variants.toArray(new Variant[variants.size()]));
+    }
 
-            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
-            buffer.put(bytes);
-            buffer.flip();
+    protected ReadableByteBuffer toReadable(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+        return new ReadableByteBuffer(buffer);
+    }
 
-            String lastModified = HttpDateFormatterHolder.get().format(new Date(new File(path).lastModified()));
-            String md5 = MD5.create().update(bytes).asString().toUpperCase();
+    /**
+     * Loads files of the given directory into the cache until it is full
+     */
+    public void warmUp(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null || filesCache == null)
+            return;
+
+        for (File file : files) {
+            if (filesCache.memoryUsed() >= filesCache.limit())
+                return;
+
+            if (file.isDirectory()) {
+                warmUp(file);
+            } else if (file.isFile()) {
+                try {
+                    getFileHolder(file);
+                } catch (Exception ignored) {
+                }
+            }
+        }
+    }
+
+    public static class Variant {
+        public final String encoding;
+        public final ReadableByteBuffer buffer;
+        public final String etag;
 
-            return new FileHolder(new ReadableByteBuffer(buffer), md5, lastModified, gzip);
-        });
+        public Variant(String encoding, ReadableByteBuffer buffer, String etag) {
+            this.encoding = encoding;
+            this.buffer = buffer;
+            this.etag = etag;
+        }
     }
 
     public static class FileHolder implements MemoryLimitedCache.SizeProvider {
         public final ReadableByteBuffer buffer;
         public final String md5;
         public final String lastModified;
+        /**
+         * true if there is a gzipped variant of the file
+         */
         public final boolean gzip;
+        public final Variant identity;
+        public final Variant[] variants;
+
+        public FileHolder(ReadableByteBuffer buffer, String md5, String lastModified, Variant... variants) {
+            this(buffer, md5, lastModified, new Variant(null, buffer, md5), variants);
+        }
 
+        /**
+         * @param buffer gzipped content of the file if gzip is true, it is sent to every client like before variants
+         */
         public FileHolder(ReadableByteBuffer buffer, String md5, String lastModified, boolean gzip) {
+            this(buffer, md5, lastModified, gzip ? new Variant(ContentEncoder.GZIP.name(), buffer, md5) : new Variant(null, buffer, md5), new Variant[0]);
+        }
+
+        protected FileHolder(ReadableByteBuffer buffer, String md5, String lastModified, Variant identity, Variant[] variants) {
             this.buffer = buffer;
             this.md5 = md5;
             this.lastModified = lastModified;
-            this.gzip = gzip;
+            this.identity = identity;
+            this.variants = variants;
+            this.gzip = hasGzip(identity, variants);
+        }
+
+        protected static boolean hasGzip(Variant identity, Variant[] variants) {
+            if (ContentEncoder.GZIP.name().equals(identity.encoding))
+                return true;
+            for (Variant variant : variants) {
+                if (ContentEncoder.GZIP.name().equals(variant.encoding))
+                    return true;
+            }
+            return false;
+        }
+
+        public Variant select(String acceptEncoding) {
+            if (acceptEncoding == null || variants.length == 0)
+                return identity;
+
+            Variant selected = identity;
+            float best = 0;
+            for (Variant variant : variants) {
+                float q = quality(acceptEncoding, variant.encoding);
+                if (q > best) {
+                    best = q;
+                    selected = variant;
+                }
+            }
+            // identity is acceptable unless it is excluded explicitly, encoded variant wins only with the same or higher q-value
+            if (best < quality(acceptEncoding, "identity", 1))
+                return identity;
+            return selected;
         }
 
         @Override
         public long size() {
-            return buffer.length();
+            long size = buffer.length();
+            for (Variant variant : variants) {
+                size += variant.buffer.length();
+            }
+            return size;
+        }
+    }
+
+    /**
+     * @return q-value of the coding in Accept-Encoding header, 0 if it's not acceptable
+     */
+    public static float quality(String acceptEncoding, String coding) {
+        return quality(acceptEncoding, coding, 0);
+    }
+
+    /**
+     * @param unlisted q-value of the coding if neither it nor '*' is listed in the header
+     */
+    public static float quality(String acceptEncoding, String coding, float unlisted) {
+        float any = -1;
+        int length = acceptEncoding.length();
+        int from = 0;
+        while (from < length) {
+            int to = acceptEncoding.indexOf(',', from);
+            if (to == -1)
+                to = length;
+            int params = acceptEncoding.indexOf(';', from);
+            if (params == -1 || params > to)
+                params = to;
+
+            String name = acceptEncoding.substring(from, params).trim();
+            float q = params < to ? parseQuality(acceptEncoding.substring(params + 1, to)) : 1;
+            if (name.equalsIgnoreCase(coding))
+                return q;
+            if (name.equals("*"))
+                any = q;
+
+            from = to + 1;
+        }
+        return any >= 0 ? any : unlisted;
+    }
+
+    protected static float parseQuality(String params) {
+        for (String param : params.split(";")) {
+            param = param.trim();
+            if (param.startsWith("q=") || param.startsWith("Q=")) {
+                try {
+                    return Float.parseFloat(param.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
         }
+        return 1;
     }
 
     public FileHolder getFileHolder(File file) {
         return file.length() <= maxCachedFileSize ? filesCache.get(file.getAbsolutePath()) : null;
     }
 
+    public MappedFileCache.MappedFile getMappedFile(File file) {
+        return mappedFiles != null ? mappedFiles.get(file) : null;
+    }
+
     public Response makeRangeResponse(Request request, Response response, File file) {
         response.appendHeader(Header.KEY_ACCEPT_RANGES, Header.VALUE_BYTES);
 
         Range range;
         String rangeHeader = request.header(Header.KEY_RANGE);
         FileHolder fileHolder = getFileHolder(file);
+        Variant variant = fileHolder != null ? fileHolder.select(request.header(Header.KEY_ACCEPT_ENCODING)) : null;
+        MappedFileCache.MappedFile mappedFile = fileHolder == null ? getMappedFile(file) : null;
+
+        if (fileHolder != null && fileHolder.variants.length != 0)
+            response.appendHeader(Header.KEY_VARY, Header.KEY_ACCEPT_ENCODING);
 
         if (rangeHeader != null) {
-            long length = fileHolder == null ? file.length() : fileHolder.size();
+            long length = variant != null ? variant.buffer.length() : mappedFile != null ? mappedFile.length : file.length();
             range = new Range(rangeHeader, length);
             if (!range.isValid()) {
                 response.setStatus(Status._416);
@@ -111,25 +309,37 @@ public class RangeResponseHelper {
             }
 
             response.setStatus(Status._206);
+            if (variant != null && variant.encoding != null)
+                response.appendHeader(Header.KEY_CONTENT_ENCODING, variant.encoding);
             response.appendHeader(Header.KEY_CONTENT_RANGE, range.toString());
             response.appendHeader(Header.KEY_CONTENT_LENGTH, String.valueOf(range.length()));
         } else {
             Date modifiedSince = request.headerDate(Header.KEY_IF_MODIFIED_SINCE);
-            if (modifiedSince != null && modifiedSince.getTime() >= file.lastModified())
+            long lastModified = mappedFile != null ? mappedFile.lastModified : file.lastModified();
+            if (modifiedSince != null && modifiedSince.getTime() >= lastModified)
                 return response.status(Status._304);
 
-            if (fileHolder != null) {
-                if (fileHolder.md5.equals(request.header(Header.KEY_IF_NONE_MATCH)))
+            if (variant != null) {
+                if (variant.etag.equals(request.header(Header.KEY_IF_NONE_MATCH)))
                     return response.status(Status._304);
 
-                if (fileHolder.gzip)
-                    response.appendHeader(Header.KV_CONTENT_ENCODING_GZIP);
+                if (variant.encoding != null)
+                    response.appendHeader(Header.KEY_CONTENT_ENCODING, variant.encoding);
 
-                response.appendHeader(Header.KEY_ETAG, fileHolder.md5);
+                response.appendHeader(Header.KEY_ETAG, variant.etag);
                 response.appendHeader(Header.KEY_LAST_MODIFIED, fileHolder.lastModified);
                 response.appendHeader(Header.KEY_CACHE_CONTROL, MAX_AGE_1_YEAR);
-                response.appendHeader(Header.KEY_CONTENT_LENGTH, String.valueOf(fileHolder.buffer.length()));
-                range = new Range(0, fileHolder.buffer.length() - 1, fileHolder.buffer.length());
+                response.appendHeader(Header.KEY_CONTENT_LENGTH, String.valueOf(variant.buffer.length()));
+                range = new Range(0, variant.buffer.length() - 1, variant.buffer.length());
+            } else if (mappedFile != null) {
+                if (mappedFile.etag.equals(request.header(Header.KEY_IF_NONE_MATCH)))
+                    return response.status(Status._304);
+
+                response.appendHeader(Header.KEY_ETAG, mappedFile.etag);
+                response.appendHeader(Header.KEY_LAST_MODIFIED, mappedFile.lastModifiedFormatted);
+                response.appendHeader(Header.KEY_CACHE_CONTROL, MAX_AGE_1_YEAR);
+                response.appendHeader(Header.KEY_CONTENT_LENGTH, String.valueOf(mappedFile.length));
+                range = new Range(0, mappedFile.length - 1, mappedFile.length);
             } else {
                 response.appendHeader(Header.KEY_CONTENT_LENGTH, String.valueOf(file.length()));
                 response.appendHeader(Header.KEY_LAST_MODIFIED, HttpDateFormatterHolder.get().format(new Date(file.lastModified())));
@@ -141,8 +351,10 @@ public class RangeResponseHelper {
         request.connection().getServer().getMimeProvider().provideContentType(response, file);
 
         try {
-            if (fileHolder != null)
-                response.setBody(fileHolder.buffer.subBuffer((int) range.from, (int) range.length()));
+            if (variant != null)
+                response.setBody(variant.buffer.subBuffer((int) range.from, (int) range.length()));
+            else if (mappedFile != null)
+                response.setBody(mappedFile.read(range.from, range.length()));
             else
                 response.setBody(new ReadableFile(file, range.from, range.length()));
         } catch (IOException e) {
@@ -18,6 +18,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.function.BiConsumer;
 
 /**
  * @author: wizzardo
@@ -32,6 +33,7 @@ public class Response {
     protected Status status = Status._200;
     protected ReadableData body;
     protected ReadableData staticResponse;
+    protected ResponseTemplate template;
 
     private byte[][] headers = new byte[20][];
     private int headersCount = 0;
@@ -39,6 +41,61 @@ public class Response {
 
     protected static final StringBuilderThreadLocalHolder stringBuilder = new StringBuilderThreadLocalHolder();
     protected boolean async;
+    protected boolean released;
+    protected List<String> pushPromises;
+
+    /**
+     * prepares response to be reused by the same connection, keeps allocated headers array
+     */
+    public void reset() {
+        committed = false;
+        status = Status._200;
+        body = null;
+        staticResponse = null;
+        template = null;
+        Arrays.fill(headers, 0, headersCount, null);
+        headersCount = 0;
+        hasBody = true;
+        async = false;
+        released = false;
+        if (pushPromises != null)
+            pushPromises.clear();
+    }
+
+    /**
+     * marks response as finished, any further modification until {@link #reset()} will throw an exception
+     */
+    public void release() {
+        released = true;
+    }
+
+    /**
+     * hints that the client will request the given path right after this response,
+     * over HTTP/2 it is pushed together with the response if the client accepts pushes, otherwise it is ignored
+     *
+     * @param path absolute path with optional query string
+     */
+    public Response push(String path) {
+        checkReleased();
+        if (pushPromises == null)
+            pushPromises = new ArrayList<>(4);
+        if (!pushPromises.contains(path))
+            pushPromises.add(path);
+        return this;
+    }
+
+    public List<String> getPushPromises() {
+        return pushPromises == null ? Collections.emptyList() : pushPromises;
+    }
+
+    public boolean isReleased() {
+        return released;
+    }
+
+    protected void checkReleased() {
+        if (released)
+            throw new IllegalStateException("Response is already finished and will be reused by the connection, it must not be used outside of its handler");
+    }
 
     public Response body(String s) {
         return body(s.getBytes());
@@ -83,6 +140,7 @@ public class Response {
     }
 
     public Response setBody(ReadableData body) {
+        checkReleased();
         this.body = body;
         setHeader(Header.KEY_CONTENT_LENGTH, String.valueOf(body.length()));
         return this;
@@ -93,6 +151,14 @@ public class Response {
         return this;
     }
 
+    public boolean hasBody() {
+        return hasBody;
+    }
+
+    public ReadableData getReadableBody() {
+        return body;
+    }
+
     public byte[] body() {
         return getBody();
     }
@@ -113,6 +179,7 @@ public class Response {
     }
 
     public Response setStatus(Status status) {
+        checkReleased();
         this.status = status;
         return this;
     }
@@ -158,6 +225,10 @@ public class Response {
     }
 
     public Response header(byte[] key, byte[] value) {
+        checkReleased();
+        if (template != null && template.contains(key))
+            detachTemplate();
+
         int i = indexOfHeader(key);
         if (i >= 0)
             headers[i + 1] = value;
@@ -182,7 +253,14 @@ public class Response {
         return appendHeader(key.bytes, value.bytes);
     }
 
+    /**
+     * appends one more header with the given name, a header of the template is replaced instead
+     */
     public Response appendHeader(byte[] key, byte[] value) {
+        checkReleased();
+        if (template != null && template.contains(key))
+            return header(key, value);
+
         if (headersCount + 1 >= headers.length)
             increaseHeadersSize();
 
@@ -196,6 +274,13 @@ public class Response {
      * @param header must be a header string 'key: value\r\n'
      */
     public Response appendHeader(byte[] header) {
+        if (template != null) {
+            byte[] key = template.nameOf(header);
+            if (key != null) {
+                detachTemplate();
+                removeHeader(indexOfHeader(key));
+            }
+        }
         appendHeader(header, EMPTY);
         return this;
     }
@@ -220,6 +305,11 @@ public class Response {
     }
 
     public String header(byte[] key) {
+        if (template != null) {
+            int i = template.indexOf(key);
+            if (i != -1)
+                return new String(template.headers[i + 1]);
+        }
         int i = indexOfHeader(key, 0);
         if (i != -1)
             return new String(headers[i + 1]);
@@ -236,6 +326,11 @@ public class Response {
 
     public List<String> headers(byte[] key) {
         List<String> l = new ArrayList<>();
+        if (template != null) {
+            int i = template.indexOf(key);
+            if (i != -1)
+                l.add(new String(template.headers[i + 1]));
+        }
         int i = -2;
         while ((i = indexOfHeader(key, i + 2)) != -1)
             l.add(new String(headers[i + 1]));
@@ -244,14 +339,65 @@ public class Response {
 
     public Set<String> headerNames() {
         Set<String> l = new LinkedHashSet<>();
+        if (template != null)
+            for (int i = 0; i < template.headers.length; i += 2) {
+                l.add(new String(template.headers[i]));
+            }
         for (int i = 0; i < headersCount; i += 2) {
             l.add(new String(headers[i]));
         }
         return l;
     }
 
+    /**
+     * passes all headers to the consumer, complete headers like 'key: value\r\n' are split into name and value
+     */
+    public void forEachHeader(BiConsumer<String, String> consumer) {
+        if (template != null)
+            for (int i = 0; i < template.headers.length; i += 2) {
+                consumer.accept(new String(template.headers[i], StandardCharsets.ISO_8859_1), new String(template.headers[i + 1], StandardCharsets.ISO_8859_1));
+            }
+
+        byte[][] headers = this.headers;
+        for (int i = 0; i < headersCount; i += 2) {
+            if (headers[i + 1] == EMPTY) {
+                String header = new String(headers[i], StandardCharsets.ISO_8859_1);
+                int colon = header.indexOf(':');
+                consumer.accept(header.substring(0, colon).trim(), header.substring(colon + 1).trim());
+            } else
+                consumer.accept(new String(headers[i], StandardCharsets.ISO_8859_1), new String(headers[i + 1], StandardCharsets.ISO_8859_1));
+        }
+    }
+
     public void headersReset() {
         headersCount = 0;
+        template = null;
+    }
+
+    /**
+     * sets pre-serialized headers that are sent right after the status line, before headers of this response,
+     * replaces the previous template. Changing a header of the template with {@link #header(byte[], byte[])}
+     * or {@link #appendHeader(byte[], byte[])} turns the template into regular headers of this response.
+     */
+    public Response template(ResponseTemplate template) {
+        checkReleased();
+        this.template = template;
+        return this;
+    }
+
+    public ResponseTemplate template() {
+        return template;
+    }
+
+    protected void detachTemplate() {
+        byte[][] t = template.headers;
+        template = null;
+        while (headersCount + t.length >= headers.length)
+            increaseHeadersSize();
+
+        System.arraycopy(headers, 0, headers, t.length, headersCount);
+        System.arraycopy(t, 0, headers, 0, t.length);
+        headersCount += t.length;
     }
 
     public boolean containsHeader(String key) {
@@ -263,7 +409,7 @@ public class Response {
     }
 
     public boolean containsHeader(byte[] key) {
-        return indexOfHeader(key) != -1;
+        return (template != null && template.contains(key)) || indexOfHeader(key) != -1;
     }
 
     private int indexOfHeader(byte[] key) {
@@ -277,6 +423,13 @@ public class Response {
         return -1;
     }
 
+    private void removeHeader(int i) {
+        System.arraycopy(headers, i + 2, headers, i, headersCount - i - 2);
+        headersCount -= 2;
+        headers[headersCount] = null;
+        headers[headersCount + 1] = null;
+    }
+
     private void increaseHeadersSize() {
         byte[][] temp = new byte[headers.length * 3 / 2][];
         System.arraycopy(headers, 0, temp, 0, headers.length);
@@ -291,6 +444,9 @@ public class Response {
 
     protected ReadableBuilder buildResponse() {
         ReadableBuilder builder = new ReadableBuilder(statusToBytes());
+        if (template != null)
+            builder.append(template.bytes);
+
         byte[][] headers = this.headers;
         for (int i = 0; i < headersCount; i += 2) {
             if (headers[i + 1] == EMPTY)
@@ -331,17 +487,56 @@ public class Response {
         return connection.getOutputStream();
     }
 
+    /**
+     * Makes response async, commits headers and calls the producer every time when the previous part of the body was written.
+     * Body is sent with 'Transfer-Encoding: chunked' unless Content-Length header was set,
+     * HTTP/1.0 clients get a raw body and the connection is closed after {@link ResponseStream#end()}.
+     * Status and headers must be set before this call.
+     */
+    public ResponseStream stream(HttpConnection connection, ResponseStream.Producer producer) {
+        checkReleased();
+        boolean chunked = false;
+        boolean closeOnEnd = false;
+        if (!containsHeader(Header.KEY_CONTENT_LENGTH)) {
+            chunked = HttpConnection.HTTP_1_1.equals(connection.getRequest().protocol());
+            if (chunked)
+                setHeader(Header.KEY_TRANSFER_ENCODING, Header.VALUE_CHUNKED);
+            else
+                closeOnEnd = true;
+        }
+
+        async();
+        ResponseStream stream = new ResponseStream(connection, producer, chunked, closeOnEnd);
+        commit(connection, stream.bufferProvider());
+        connection.setOutputListener(stream);
+        if (!connection.isHandledByCurrentThread())
+            stream.onReadyToWrite(connection); // otherwise producer will be called after the handler returns
+        return stream;
+    }
+
     public void commit(HttpConnection connection) {
-        commit(connection, (ByteBufferProvider) Thread.currentThread());
+        commit(connection, Worker.bufferProvider());
     }
 
     public void commit(HttpConnection connection, ByteBufferProvider byteBufferProvider) {
+        checkReleased();
         if (!committed) {
             connection.write(toReadableBytes(), byteBufferProvider);
             committed = true;
         }
     }
 
+    /**
+     * commits the response without writing it, it will be sent together with responses of the following pipelined requests
+     */
+    public void commitToBatch(HttpConnection connection) {
+        checkReleased();
+        if (!committed) {
+            connection.batch(toReadableBytes());
+            committed = true;
+        }
+    }
+
     public void setCookie(String cookie) {
         appendHeader(Header.KEY_SET_COOKIE, cookie);
     }
@@ -359,6 +554,10 @@ public class Response {
         return this;
     }
 
+    public ReadableData getStaticResponse() {
+        return staticResponse;
+    }
+
     public void setRedirectTemporarily(String location) {
         status(Status._302);
         header(Header.KEY_LOCATION, location);
@@ -380,6 +579,9 @@ public class Response {
     public String toString() {
         StringBuilder sb = new StringBuilder(256);
         sb.append("status: ").append(status.code).append("\n");
+        if (template != null)
+            sb.append(new String(template.bytes, StandardCharsets.UTF_8));
+
         byte[][] headers = this.headers;
         for (int i = 0; i < headersCount; i += 2) {
             if (headers[i + 1] == EMPTY)
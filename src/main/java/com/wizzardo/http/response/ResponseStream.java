@@ -0,0 +1,154 @@
+package com.wizzardo.http.response;
+
+import com.wizzardo.epoll.ByteBufferProvider;
+import com.wizzardo.epoll.ByteBufferWrapper;
+import com.wizzardo.epoll.readable.ReadableBuilder;
+import com.wizzardo.epoll.readable.ReadableByteArray;
+import com.wizzardo.epoll.readable.ReadableData;
+import com.wizzardo.http.HttpConnection;
+import com.wizzardo.http.OutputListener;
+import com.wizzardo.http.VirtualWorker;
+import com.wizzardo.http.utils.AsciiReader;
+import com.wizzardo.tools.io.IOTools;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Non-blocking writer of response body, see {@link Response#stream(HttpConnection, Producer)}.
+ * Producer is called every time when all previously written data was passed to the socket,
+ * so no more than one portion of the body is kept in memory and no thread waits for the client.
+ */
+public class ResponseStream implements OutputListener<HttpConnection>, ByteBufferProvider {
+    protected static final byte[] CRLF = "\r\n".getBytes();
+    protected static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes();
+
+    public interface Producer {
+        /**
+         * writes next part of the body or calls {@link ResponseStream#end()},
+         * can be called from an io-thread, so it must not block
+         */
+        void onReady(ResponseStream stream) throws Exception;
+    }
+
+    protected final HttpConnection connection;
+    protected final Producer producer;
+    protected final boolean chunked;
+    protected final boolean closeOnEnd;
+    protected final AtomicInteger pending = new AtomicInteger();
+    protected volatile boolean finished;
+    protected ByteBufferWrapper buffer;
+
+    public ResponseStream(HttpConnection connection, Producer producer, boolean chunked, boolean closeOnEnd) {
+        this.connection = connection;
+        this.producer = producer;
+        this.chunked = chunked;
+        this.closeOnEnd = closeOnEnd;
+    }
+
+    public ResponseStream write(String s) {
+        return write(s.getBytes());
+    }
+
+    /**
+     * array is not copied and must not be modified until it is written
+     */
+    public ResponseStream write(byte[] bytes) {
+        return write(bytes, 0, bytes.length);
+    }
+
+    public ResponseStream write(byte[] bytes, int offset, int length) {
+        return write(new ReadableByteArray(bytes, offset, length));
+    }
+
+    public ResponseStream write(ReadableData data) {
+        if (finished)
+            throw new IllegalStateException("Response stream is already finished");
+
+        long length = data.length();
+        if (length == 0)
+            return this;
+
+        if (chunked)
+            data = new ReadableBuilder(AsciiReader.write(Long.toHexString(length) + "\r\n"))
+                    .append(data)
+                    .append(CRLF);
+
+        connection.write(data, bufferProvider());
+        return this;
+    }
+
+    /**
+     * writes the last chunk and finishes handling of the request
+     */
+    public void end() {
+        if (finished)
+            return;
+
+        finished = true;
+        // before the last chunk, the client may send the next request as soon as it receives it
+        connection.recordResponse();
+        if (chunked)
+            connection.write(LAST_CHUNK, bufferProvider());
+        if (closeOnEnd || !connection.isKeepAlive())
+            connection.setCloseOnFinishWriting(true);
+        connection.onFinishingHandling();
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public boolean isChunked() {
+        return chunked;
+    }
+
+    @Override
+    public void onReady(HttpConnection connection) {
+        onReadyToWrite(connection);
+    }
+
+    @Override
+    public void onReadyToWrite(HttpConnection connection) {
+        if (pending.getAndIncrement() != 0)
+            return; // producer is running right now, it will be called again after it returns
+
+        int n;
+        do {
+            n = pending.get();
+            if (finished)
+                continue;
+
+            try {
+                producer.onReady(this);
+            } catch (Exception e) {
+                e.printStackTrace();
+                finished = true;
+                IOTools.close(connection);
+            }
+        } while (pending.addAndGet(-n) != 0);
+    }
+
+    protected ByteBufferProvider bufferProvider() {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof ByteBufferProvider)
+            return (ByteBufferProvider) thread;
+
+        VirtualWorker worker = VirtualWorker.current();
+        if (worker != null)
+            return worker;
+
+        return this;
+    }
+
+    /**
+     * is used only if the producer writes from a thread that has no own buffer
+     */
+    @Override
+    public synchronized ByteBufferWrapper getBuffer() {
+        if (buffer == null)
+            buffer = new ByteBufferWrapper(16 * 1024);
+        return buffer;
+    }
+}
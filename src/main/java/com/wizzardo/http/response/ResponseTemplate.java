@@ -0,0 +1,134 @@
+package com.wizzardo.http.response;
+
+import com.wizzardo.http.request.Header;
+import com.wizzardo.http.utils.AsciiReader;
+
+import java.util.Arrays;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ * <p>
+ * Headers that are the same for every response of a handler, serialized once into a single block.
+ * {@link Response#template(ResponseTemplate)} writes the block right after the status line,
+ * so only dynamic headers like 'Date' and 'Content-Length' are built for every response.
+ * <p>
+ * Template is immutable, {@link #header(byte[], byte[])} and {@link #merge(ResponseTemplate)} return a new one.
+ */
+public class ResponseTemplate {
+    protected static final byte[] LINE_SEPARATOR = "\r\n".getBytes();
+    protected static final byte[] HEADER_SEPARATOR = ": ".getBytes();
+
+    protected final byte[][] headers; // name, value, name, value, ...
+    protected final byte[] bytes;
+
+    public ResponseTemplate() {
+        this(new byte[0][]);
+    }
+
+    protected ResponseTemplate(byte[][] headers) {
+        this.headers = headers;
+        int length = 0;
+        for (int i = 0; i < headers.length; i += 2) {
+            length += headers[i].length + HEADER_SEPARATOR.length + headers[i + 1].length + LINE_SEPARATOR.length;
+        }
+
+        bytes = new byte[length];
+        int offset = 0;
+        for (int i = 0; i < headers.length; i += 2) {
+            offset = append(headers[i], offset);
+            offset = append(HEADER_SEPARATOR, offset);
+            offset = append(headers[i + 1], offset);
+            offset = append(LINE_SEPARATOR, offset);
+        }
+    }
+
+    private int append(byte[] b, int offset) {
+        System.arraycopy(b, 0, bytes, offset, b.length);
+        return offset + b.length;
+    }
+
+    public ResponseTemplate header(String key, String value) {
+        return header(AsciiReader.write(key), AsciiReader.write(value));
+    }
+
+    public ResponseTemplate header(Header key, String value) {
+        return header(key.bytes, AsciiReader.write(value));
+    }
+
+    public ResponseTemplate header(Header key, Header value) {
+        return header(key.bytes, value.bytes);
+    }
+
+    /**
+     * @return new template with the given header, it replaces the header with the same name
+     */
+    public ResponseTemplate header(byte[] key, byte[] value) {
+        int i = indexOf(key);
+        byte[][] headers;
+        if (i >= 0) {
+            headers = this.headers.clone();
+        } else {
+            headers = Arrays.copyOf(this.headers, this.headers.length + 2);
+            i = this.headers.length;
+            headers[i] = key;
+        }
+        headers[i + 1] = value;
+        return new ResponseTemplate(headers);
+    }
+
+    /**
+     * @return new template with headers of both templates, headers of the given one take precedence
+     */
+    public ResponseTemplate merge(ResponseTemplate template) {
+        ResponseTemplate result = this;
+        for (int i = 0; i < template.headers.length; i += 2) {
+            result = result.header(template.headers[i], template.headers[i + 1]);
+        }
+        return result;
+    }
+
+    protected int indexOf(byte[] key) {
+        for (int i = 0; i < headers.length; i += 2)
+            if (Arrays.equals(key, headers[i]))
+                return i;
+        return -1;
+    }
+
+    public boolean contains(byte[] key) {
+        return indexOf(key) != -1;
+    }
+
+    /**
+     * @param header header string 'key: value\r\n'
+     * @return name of the header if the template contains it, null otherwise
+     */
+    public byte[] nameOf(byte[] header) {
+        for (int i = 0; i < headers.length; i += 2) {
+            byte[] key = headers[i];
+            if (header.length > key.length && header[key.length] == ':' && startsWith(header, key))
+                return key;
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++)
+            if (bytes[i] != prefix[i])
+                return false;
+        return true;
+    }
+
+    /**
+     * @return serialized headers, every one ends with '\r\n'
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return number of headers
+     */
+    public int size() {
+        return headers.length / 2;
+    }
+}
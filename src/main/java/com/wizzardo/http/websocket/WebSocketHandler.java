@@ -1,11 +1,11 @@
 package com.wizzardo.http.websocket;
 
-import com.wizzardo.epoll.ByteBufferProvider;
 import com.wizzardo.epoll.readable.ReadableByteArray;
 import com.wizzardo.epoll.readable.ReadableData;
 import com.wizzardo.http.Handler;
 import com.wizzardo.http.HttpConnection;
 import com.wizzardo.http.InputListener;
+import com.wizzardo.http.Worker;
 import com.wizzardo.http.request.Header;
 import com.wizzardo.http.request.Request;
 import com.wizzardo.http.response.Response;
@@ -97,7 +97,7 @@ public class WebSocketHandler<T extends WebSocketHandler.WebSocketListener> impl
                 int r;
 
                 outer:
-                while ((r = connection.read(buffer, read, buffer.length - read, (ByteBufferProvider) Thread.currentThread())) > 0) {
+                while ((r = connection.read(buffer, read, buffer.length - read, Worker.bufferProvider())) > 0) {
                     read += r;
                     while (read > 0) {
                         if (tempFrame == null) {
@@ -191,12 +191,12 @@ public class WebSocketHandler<T extends WebSocketHandler.WebSocketListener> impl
 
         public synchronized void sendMessage(Message message) {
             for (Frame frame : message.getFrames()) {
-                connection.write(convertFrameToReadableData(frame), (ByteBufferProvider) Thread.currentThread());
+                connection.write(convertFrameToReadableData(frame), Worker.bufferProvider());
             }
         }
 
         protected synchronized void sendFrame(Frame frame) {
-            connection.write(convertFrameToReadableData(frame), (ByteBufferProvider) Thread.currentThread());
+            connection.write(convertFrameToReadableData(frame), Worker.bufferProvider());
         }
 
         public void close() {
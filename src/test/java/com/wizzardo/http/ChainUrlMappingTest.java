@@ -0,0 +1,92 @@
+package com.wizzardo.http;
+
+import com.wizzardo.http.mapping.ChainUrlMapping;
+import com.wizzardo.http.mapping.Path;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public class ChainUrlMappingTest {
+
+    static Path path(String s) {
+        return Path.parse(s.getBytes());
+    }
+
+    static String resolve(ChainUrlMapping<String> mapping, String path) {
+        ChainUrlMapping.Chain<String> chain = mapping.get((key, value) -> {
+        }, path(path));
+        if (chain == null)
+            return null;
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < chain.size(); i++) {
+            sb.append(sb.length() == 0 ? "" : " ").append(chain.get(i));
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void test_cached() {
+        ChainUrlMapping<String> mapping = new ChainUrlMapping<String>()
+                .add("/*", "all")
+                .add("/foo/*", "foo")
+                .add("*.json", "json");
+
+        Assert.assertEquals("all foo", resolve(mapping, "/foo/bar"));
+        Assert.assertEquals("all foo", resolve(mapping, "/foo/bar"));
+        Assert.assertEquals("all foo json", resolve(mapping, "/foo/bar.json"));
+        Assert.assertEquals("all foo json", resolve(mapping, "/foo/bar.json"));
+        Assert.assertEquals("all", resolve(mapping, "/bar"));
+
+        Assert.assertSame(mapping.get((key, value) -> {
+        }, path("/foo/bar.json")), mapping.get((key, value) -> {
+        }, path("/foo/bar.json")));
+    }
+
+    @Test
+    public void test_invalidated_by_add() {
+        ChainUrlMapping<String> mapping = new ChainUrlMapping<String>()
+                .add("/foo/*", "foo");
+
+        Assert.assertNull(resolve(mapping, "/bar"));
+        Assert.assertEquals("foo", resolve(mapping, "/foo/bar"));
+
+        mapping.add("/*", "all");
+        Assert.assertEquals("all", resolve(mapping, "/bar"));
+        Assert.assertEquals("foo all", resolve(mapping, "/foo/bar"));
+    }
+
+    @Test
+    public void test_cache_size() {
+        ChainUrlMapping<String> mapping = new ChainUrlMapping<String>()
+                .add("/foo/*", "foo")
+                .setCacheSize(2);
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals("foo", resolve(mapping, "/foo/" + i));
+            Assert.assertNull(resolve(mapping, "/bar/" + i));
+        }
+
+        mapping.setCacheSize(0);
+        Assert.assertEquals("foo", resolve(mapping, "/foo/bar"));
+        Assert.assertEquals("foo", resolve(mapping, "/foo/bar"));
+    }
+
+    @Test
+    public void test_variables() {
+        ChainUrlMapping<String> mapping = new ChainUrlMapping<String>()
+                .add("/users/$id", "user");
+
+        for (String id : new String[]{"1", "2", "1"}) {
+            Map<String, String> params = new HashMap<>();
+            ChainUrlMapping.Chain<String> chain = mapping.get(params::put, path("/users/" + id));
+            Assert.assertEquals("user", chain.get(0));
+            Assert.assertEquals(id, params.get("id"));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.wizzardo.http;
+
+import com.wizzardo.http.mapping.Path;
+import com.wizzardo.http.mapping.UrlMapping;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public class CompiledUrlMappingTest {
+
+    static class Route implements Named {
+        final String name;
+
+        Route(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+    }
+
+    static UrlMapping<Route> mapping(String context) {
+        UrlMapping<Route> mapping = new UrlMapping<>(context);
+        String[] urls = {
+                "/",
+                "/action1",
+                "/action2",
+                "/actions",
+                "/$action/1",
+                "/2/$action?",
+                "/3/$action?/${id}?",
+                "/any/*",
+                "/pattern/${foo}-${bar}",
+                "/regex/action(\\d+)*",
+                "/users/${id}.json",
+                "/users/${id}",
+                "/users/${id}/orders/$orderId",
+                "/users/me/orders",
+                "/files/*.js",
+                "/files/*.min.js",
+                "*.html",
+                "/special/*.html",
+                "/$a/$b/$c",
+                "/$a/$c/$d/$e",
+        };
+        for (String url : urls) {
+            mapping.append(url, new Route(url));
+        }
+        return mapping;
+    }
+
+    static String resolve(UrlMapping<Route> mapping, String url) {
+        Map<String, String> params = new TreeMap<>();
+        Route route = mapping.get(params::put, Path.parse(url.getBytes(StandardCharsets.ISO_8859_1)));
+        return route == null ? null : route.name + " " + params;
+    }
+
+    static void check(String context, String... urls) {
+        UrlMapping<Route> expected = mapping(context);
+        UrlMapping<Route> compiled = mapping(context).setCompiled(true);
+        for (String url : urls) {
+            Assert.assertEquals(url, resolve(expected, url), resolve(compiled, url));
+        }
+    }
+
+    @Test
+    public void test_same_as_url_mapping() {
+        String[] urls = {
+                "/", "/action1", "/action2", "/actions", "/action", "/action3", "/action1/",
+                "/foo/1", "/2/bar", "/2", "/3/ololo/123", "/3", "/3/x",
+                "/any", "/any/foo", "/any/foo/bar",
+                "/pattern/foo-bar", "/regex/action", "/regex/action12", "/regex/foo",
+                "/users/1.json", "/users/1xjson", "/users/1", "/users/.json", "/users/1/orders/2", "/users/me/orders", "/users/me/orders/3",
+                "/files/a.js", "/files/a.min.js", "/files/a/b/c.js", "/files/a.css",
+                "/index.html", "/a/b/index.html", "/special/a.html", "/special/x/a.html",
+                "/a/b/c", "/a/c/d/e", "/a/b/c/d/e/f",
+                "//action1", "/action1//", "/a/../action1", "/x/y/../../action2",
+        };
+        check(null, urls);
+        check("ctx", urls);
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = "/ctx" + urls[i];
+        }
+        check("ctx", urls);
+    }
+
+    @Test
+    public void test_rebuilt_after_append() {
+        UrlMapping<Route> mapping = mapping(null).setCompiled(true);
+        Assert.assertEquals("/action1 {}", resolve(mapping, "/action1"));
+        Assert.assertNull(resolve(mapping, "/new"));
+
+        mapping.append("/new", new Route("/new"));
+        Assert.assertEquals("/new {}", resolve(mapping, "/new"));
+    }
+
+    @Test
+    public void test_terminal_without_value() {
+        UrlMapping<Route> expected = new UrlMapping<>();
+        UrlMapping<Route> compiled = new UrlMapping<Route>().setCompiled(true);
+        for (UrlMapping<Route> mapping : new UrlMapping[]{expected, compiled}) {
+            mapping.append("/x/*/y", new Route("/x/*/y"));
+            mapping.append("/x/$id", new Route("/x/$id"));
+        }
+
+        Assert.assertEquals("/x/$id {id=a}", resolve(compiled, "/x/a"));
+        Assert.assertEquals("/x/$id {id=a}", resolve(expected, "/x/a"));
+        Assert.assertNull(resolve(compiled, "/x/a/b"));
+    }
+
+    @Test
+    public void test_variables() {
+        UrlMapping<Route> mapping = mapping(null).setCompiled(true);
+        Assert.assertEquals("/users/${id}.json {id=42}", resolve(mapping, "/users/42.json"));
+        Assert.assertEquals("/users/${id}/orders/$orderId {id=42, orderId=7}", resolve(mapping, "/users/42/orders/7"));
+        Assert.assertEquals("/pattern/${foo}-${bar} {bar=bar, foo=foo}", resolve(mapping, "/pattern/foo-bar"));
+        Assert.assertEquals("/$a/$c/$d/$e {a=a, c=c, d=d, e=e}", resolve(mapping, "/a/c/d/e"));
+        Assert.assertEquals("/users/${id} {id=1}", resolve(mapping, "/users//1")); // UrlMapping takes an empty segment here
+    }
+}
@@ -0,0 +1,147 @@
+package com.wizzardo.http;
+
+import com.wizzardo.epoll.readable.ReadableData;
+import com.wizzardo.http.response.MappedFileCache;
+import com.wizzardo.http.response.RangeResponseHelper;
+import com.wizzardo.tools.io.FileTools;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public class MappedFileCacheTest extends ServerTest {
+
+    static byte[] read(ReadableData data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(7);
+        while (!data.isComplete()) {
+            buffer.clear();
+            int read = data.read(buffer);
+            out.write(buffer.array(), 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    static File createFile(byte[] data) throws IOException {
+        File file = File.createTempFile("test_mapped", null);
+        file.deleteOnExit();
+        FileTools.bytes(file, data);
+        return file;
+    }
+
+    @Test
+    public void test_ranges() throws IOException {
+        byte[] data = new byte[1000];
+        new Random().nextBytes(data);
+        File file = createFile(data);
+
+        MappedFileCache cache = new MappedFileCache(64, 100);
+        MappedFileCache.MappedFile mapped = cache.get(file);
+        Assert.assertSame(mapped, cache.get(file));
+        Assert.assertEquals(1000, mapped.length);
+
+        Assert.assertArrayEquals(data, read(mapped.read(0, 1000)));
+        Assert.assertArrayEquals(Arrays.copyOfRange(data, 10, 50), read(mapped.read(10, 40)));
+        Assert.assertArrayEquals(Arrays.copyOfRange(data, 60, 70), read(mapped.read(60, 10)));
+        Assert.assertArrayEquals(Arrays.copyOfRange(data, 64, 128), read(mapped.read(64, 64)));
+        Assert.assertArrayEquals(Arrays.copyOfRange(data, 100, 999), read(mapped.read(100, 899)));
+        Assert.assertEquals(0, read(mapped.read(1000, 0)).length);
+        cache.close();
+    }
+
+    @Test
+    public void test_max_regions() throws IOException {
+        MappedFileCache cache = new MappedFileCache(64, 4);
+        cache.get(createFile(new byte[200]));
+        Assert.assertEquals(1, cache.size());
+        cache.get(createFile(new byte[100]));
+        Assert.assertEquals(1, cache.size());
+        cache.close();
+    }
+
+    @Test
+    public void test_least_recently_used() throws IOException {
+        MappedFileCache cache = new MappedFileCache(64, 4);
+        MappedFileCache.MappedFile a = cache.get(createFile(new byte[128]));
+        MappedFileCache.MappedFile b = cache.get(createFile(new byte[128]));
+        Assert.assertSame(a, cache.get(a.file));
+
+        cache.get(createFile(new byte[64]));
+        Assert.assertEquals(2, cache.size());
+        Assert.assertSame(a, cache.get(a.file));
+        Assert.assertTrue(a.isMapped());
+        Assert.assertFalse(b.isMapped());
+        cache.close();
+    }
+
+    @Test
+    public void test_unmapped_after_body_is_closed() throws IOException {
+        byte[] data = new byte[200];
+        new Random().nextBytes(data);
+
+        MappedFileCache cache = new MappedFileCache(64, 4);
+        MappedFileCache.MappedFile mapped = cache.get(createFile(data));
+        ReadableData body = mapped.read(0, 200);
+
+        cache.get(createFile(new byte[64]));
+        Assert.assertEquals(1, cache.size());
+        Assert.assertTrue(mapped.isMapped());
+        Assert.assertArrayEquals(data, read(body));
+
+        body.close();
+        Assert.assertFalse(mapped.isMapped());
+        Assert.assertArrayEquals(Arrays.copyOfRange(data, 10, 20), read(mapped.read(10, 10)));
+        cache.close();
+    }
+
+    @Test
+    public void test_invalidated_on_change() throws IOException, InterruptedException {
+        File file = createFile("foo".getBytes());
+
+        MappedFileCache cache = new MappedFileCache();
+        MappedFileCache.MappedFile mapped = cache.get(file);
+        Assert.assertEquals("foo", new String(read(mapped.read(0, mapped.length))));
+
+        FileTools.text(file, "foobar");
+        long time = System.currentTimeMillis();
+        while (cache.get(file) == mapped && System.currentTimeMillis() - time < 10000) {
+            Thread.sleep(10);
+        }
+
+        mapped = cache.get(file);
+        Assert.assertEquals("foobar", new String(read(mapped.read(0, mapped.length))));
+        cache.close();
+    }
+
+    @Test
+    public void test_response() throws IOException {
+        byte[] data = new byte[1000];
+        new Random().nextBytes(data);
+        File file = createFile(data);
+
+        RangeResponseHelper helper = new RangeResponseHelper(0, 0, 0, false).setMappedFileCache(new MappedFileCache(64, 100));
+        handler = (request, response) -> helper.makeRangeResponse(request, response, file);
+
+        com.wizzardo.tools.http.Response response = makeRequest("/").get();
+        Assert.assertArrayEquals(data, response.asBytes());
+        Assert.assertEquals(helper.getMappedFile(file).etag, response.header("ETag"));
+
+        Assert.assertArrayEquals(Arrays.copyOfRange(data, 100, 400), makeRequest("/")
+                .header("Range", "bytes=100-399")
+                .get().asBytes());
+
+        Assert.assertArrayEquals(Arrays.copyOfRange(data, 800, 1000), makeRequest("/")
+                .header("Range", "bytes=-200")
+                .get().asBytes());
+
+        helper.close();
+    }
+}
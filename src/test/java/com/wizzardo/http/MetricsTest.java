@@ -0,0 +1,131 @@
+package com.wizzardo.http;
+
+import com.wizzardo.http.metrics.LatencyHistogram;
+import com.wizzardo.http.metrics.Metrics;
+import com.wizzardo.http.metrics.MetricsHandler;
+import com.wizzardo.http.metrics.RouteMetrics;
+import com.wizzardo.http.request.Request;
+import com.wizzardo.http.response.Response;
+import com.wizzardo.http.response.Status;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public class MetricsTest extends ServerTest {
+
+    @Override
+    protected void configure(HttpServer server) {
+        server.setMetrics(true);
+    }
+
+    @Test
+    public void test_route_metrics() throws IOException {
+        Handler hello = new Handler() {
+            @Override
+            public Response handle(Request request, Response response) {
+                return response.setBody("ok");
+            }
+
+            @Override
+            public String name() {
+                return "hello";
+            }
+        };
+        handler = (request, response) -> server.handle(request, response, hello);
+
+        Assert.assertEquals("ok", makeRequest("/").get().asString());
+        Assert.assertEquals("ok", makeRequest("/").get().asString());
+
+        handler = (request, response) -> server.handleNotFound(request, response);
+        Assert.assertEquals(404, makeRequest("/").get().getResponseCode());
+
+        RouteMetrics.Snapshot route = find(server.getMetrics().snapshot(), "hello");
+        Assert.assertEquals(2, route.requests());
+        Assert.assertEquals(2, route.statuses[1]);
+        Assert.assertEquals(4, route.responseBytes);
+        Assert.assertEquals(2, route.handlerTime.count);
+
+        route = find(server.getMetrics().snapshot(), Metrics.NOT_FOUND);
+        Assert.assertEquals(1, route.statuses[3]);
+
+        Metrics.Snapshot snapshot = server.getMetrics().snapshot();
+        Assert.assertEquals(3, snapshot.connections);
+        Assert.assertEquals(3, snapshot.queueWait.count);
+    }
+
+    @Test
+    public void test_async_route_metrics() throws IOException {
+        Handler async = new Handler() {
+            @Override
+            public Response handle(Request request, Response response) {
+                response.setStatus(Status._201);
+                response.stream(request.connection(), stream -> {
+                    stream.write("ok");
+                    stream.end();
+                });
+                return response;
+            }
+
+            @Override
+            public String name() {
+                return "async";
+            }
+        };
+        handler = (request, response) -> server.handle(request, response, async);
+
+        Assert.assertEquals("ok", makeRequest("/").get().asString());
+        Assert.assertEquals("ok", makeRequest("/").get().asString());
+
+        RouteMetrics.Snapshot route = find(server.getMetrics().snapshot(), "async");
+        Assert.assertEquals(2, route.requests());
+        Assert.assertEquals(2, route.statuses[1]);
+        Assert.assertEquals(2, route.handlerTime.count);
+    }
+
+    @Test
+    public void test_prometheus() throws IOException {
+        MetricsHandler metricsHandler = new MetricsHandler(server.getMetrics());
+        handler = (request, response) -> server.handle(request, response, metricsHandler);
+
+        makeRequest("/").get().asString();
+        String s = makeRequest("/").get().asString();
+
+        Assert.assertTrue(s, s.contains("# TYPE http_connections_total counter\nhttp_connections_total 2\n"));
+        Assert.assertTrue(s, s.contains("http_requests_total{handler=\"metrics\",status=\"2xx\"} 1\n"));
+        Assert.assertTrue(s, s.contains("http_request_duration_seconds{handler=\"metrics\",quantile=\"0.99\"} "));
+        Assert.assertTrue(s, s.contains("http_request_duration_seconds_count{handler=\"metrics\"} 1\n"));
+        Assert.assertTrue(s, s.contains("http_queue_wait_seconds_count 2\n"));
+    }
+
+    @Test
+    public void test_histogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(1000, snapshot.count);
+        Assert.assertEquals(1000_000, snapshot.max);
+        Assert.assertEquals(500_500, snapshot.mean());
+        assertApproximately(500_000, snapshot.quantile(0.5));
+        assertApproximately(990_000, snapshot.quantile(0.99));
+        Assert.assertEquals(1000_000, snapshot.quantile(1));
+    }
+
+    protected void assertApproximately(long expected, long actual) {
+        Assert.assertTrue(expected + " != " + actual, Math.abs(expected - actual) <= expected * 0.07);
+    }
+
+    protected RouteMetrics.Snapshot find(Metrics.Snapshot snapshot, String name) {
+        for (RouteMetrics.Snapshot route : snapshot.routes) {
+            if (route.name.equals(name))
+                return route;
+        }
+        throw new AssertionError("route " + name + " not found");
+    }
+}
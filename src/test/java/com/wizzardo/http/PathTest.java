@@ -44,6 +44,25 @@ public class PathTest {
         Assert.assertEquals(false, path.isEndsWithSlash());
     }
 
+    @Test
+    public void parsing_with_offset() {
+        byte[] bytes = "GET /foo/../bar/ HTTP/1.1".getBytes();
+        Path path = Path.parse(bytes, 4, 16, null);
+        Assert.assertEquals("/foo/../bar/", path.toString());
+        Assert.assertEquals(1, path.length());
+        Assert.assertEquals("bar", path.getPart(0));
+        Assert.assertEquals(true, path.isEndsWithSlash());
+
+        bytes = "GET /foo//bar HTTP/1.1".getBytes();
+        path = Path.parse(bytes, 4, 13, null);
+        Assert.assertEquals("/foo//bar", path.toString());
+        Assert.assertEquals(3, path.length());
+        Assert.assertEquals("foo", path.getPart(0));
+        Assert.assertEquals("", path.getPart(1));
+        Assert.assertEquals("bar", path.getPart(2));
+        Assert.assertEquals(false, path.isEndsWithSlash());
+    }
+
     @Test
     public void subPath() {
         Path path;
@@ -1,6 +1,7 @@
 package com.wizzardo.http;
 
 import com.wizzardo.http.request.Header;
+import com.wizzardo.tools.io.IOTools;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -14,6 +15,11 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * Created by wizzardo on 20.06.15.
  */
 public class PipeliningTest extends ServerTest {
+    @Override
+    protected void configure(HttpServer server) {
+        server.setPipelineBatching(name().startsWith("test_batching"));
+    }
+
     @Override
     public void setUp() throws NoSuchMethodException, ClassNotFoundException, NoSuchFieldException {
         super.setUp();
@@ -53,6 +59,51 @@ public class PipeliningTest extends ServerTest {
         Assert.assertEquals(n, response.split("\r\n\r\nok").length);
     }
 
+    @Test
+    public void test_batching() throws IOException {
+        handler = new UrlHandler()
+                .append("/", (request, response) -> response.setBody("ok")) //length = 123
+                .append("/foo", (request, response) -> response.setBody("foo")) //length = 124
+                .append("/foobar", (request, response) -> response.setBody("foobar")) //length = 127
+        ;
+
+        StringBuilder sb = new StringBuilder();
+        int n = 20;
+        for (int i = 0; i < n; i++) {
+            sb.append(request("/")).append(request("/foo")).append(request("/foobar"));
+        }
+        String response = response(sb.toString(), n * (123 + 124 + 127));
+        int offset = 0;
+        for (int i = 0; i < n; i++) {
+            for (String body : new String[]{"ok", "foo", "foobar"}) {
+                int next = response.indexOf("\r\n\r\n" + body, offset);
+                Assert.assertTrue("response " + (i * 3) + " is missing or out of order", next >= offset);
+                offset = next + 4 + body.length();
+            }
+        }
+        Assert.assertEquals(response.length(), offset);
+    }
+
+    @Test
+    public void test_batching_with_close() throws IOException {
+        handler = new UrlHandler()
+                .append("/", (request, response) -> response.setBody("ok"));
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            sb.append(request("/"));
+        }
+        sb.append("GET / HTTP/1.1\r\nHost: localhost\r\nConnection: Close\r\n\r\n");
+
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(sb.toString().getBytes());
+            String response = new String(IOTools.bytes(socket.getInputStream()));
+            Assert.assertEquals(11, response.split("HTTP/1.1 200 OK").length - 1);
+            Assert.assertTrue(response.endsWith("\r\n\r\nok"));
+        }
+    }
+
     protected String response(String request, int limit) {
         try {
             Socket socket = new Socket("localhost", port);
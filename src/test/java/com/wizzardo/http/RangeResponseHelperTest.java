@@ -0,0 +1,132 @@
+package com.wizzardo.http;
+
+import com.wizzardo.epoll.readable.ReadableByteBuffer;
+import com.wizzardo.http.response.RangeResponseHelper;
+import com.wizzardo.tools.io.FileTools;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public class RangeResponseHelperTest extends ServerTest {
+
+    static File createFile(byte[] data) throws IOException {
+        File file = File.createTempFile("test_encoding", null);
+        file.deleteOnExit();
+        FileTools.bytes(file, data);
+        return file;
+    }
+
+    static byte[] compressible() {
+        byte[] data = new byte[10000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + i % 20);
+        }
+        return data;
+    }
+
+    @Test
+    public void test_quality() {
+        Assert.assertEquals(1f, RangeResponseHelper.quality("gzip", "gzip"), 0);
+        Assert.assertEquals(1f, RangeResponseHelper.quality("deflate, gzip", "gzip"), 0);
+        Assert.assertEquals(0.5f, RangeResponseHelper.quality("deflate, gzip;q=0.5", "gzip"), 0);
+        Assert.assertEquals(0.5f, RangeResponseHelper.quality("deflate, GZIP ; q=0.5 ", "gzip"), 0);
+        Assert.assertEquals(0f, RangeResponseHelper.quality("gzip;q=0, *", "gzip"), 0);
+        Assert.assertEquals(0.1f, RangeResponseHelper.quality("br, *;q=0.1", "gzip"), 0);
+        Assert.assertEquals(0f, RangeResponseHelper.quality("br, identity", "gzip"), 0);
+        Assert.assertEquals(0f, RangeResponseHelper.quality("", "gzip"), 0);
+
+        Assert.assertEquals(1f, RangeResponseHelper.quality("gzip", "identity", 1), 0);
+        Assert.assertEquals(0.5f, RangeResponseHelper.quality("gzip, identity;q=0.5", "identity", 1), 0);
+        Assert.assertEquals(0f, RangeResponseHelper.quality("gzip, *;q=0", "identity", 1), 0);
+    }
+
+    @Test
+    public void test_negotiation() throws IOException {
+        byte[] data = compressible();
+        File file = createFile(data);
+        RangeResponseHelper helper = new RangeResponseHelper(1024 * 1024, -1, 1024 * 1024, true);
+        handler = (request, response) -> helper.makeRangeResponse(request, response, file);
+
+        com.wizzardo.tools.http.Response response = makeRequest("/").header("Accept-Encoding", "identity").get();
+        Assert.assertNull(response.header("Content-Encoding"));
+        Assert.assertEquals("Accept-Encoding", response.header("Vary"));
+        Assert.assertEquals(String.valueOf(data.length), response.header("Content-Length"));
+        Assert.assertArrayEquals(data, response.asBytes());
+        String identityEtag = response.header("ETag");
+
+        response = makeRequest("/").header("Accept-Encoding", "deflate, gzip").get();
+        Assert.assertEquals("gzip", response.header("Content-Encoding"));
+        Assert.assertTrue(Integer.parseInt(response.header("Content-Length")) < data.length);
+        Assert.assertNotEquals(identityEtag, response.header("ETag"));
+        Assert.assertArrayEquals(data, response.asBytes());
+
+        response = makeRequest("/").header("Accept-Encoding", "gzip;q=0").get();
+        Assert.assertNull(response.header("Content-Encoding"));
+        Assert.assertArrayEquals(data, response.asBytes());
+
+        response = makeRequest("/").header("Accept-Encoding", "gzip;q=0.1, identity").get();
+        Assert.assertNull(response.header("Content-Encoding"));
+        Assert.assertArrayEquals(data, response.asBytes());
+
+        RangeResponseHelper.FileHolder holder = helper.getFileHolder(file);
+        Assert.assertEquals("gzip", holder.select("gzip, identity;q=0.5").encoding);
+        Assert.assertEquals("gzip", holder.select("gzip;q=0.1, identity;q=0").encoding);
+        Assert.assertNull(holder.select("gzip;q=0.1, br").encoding);
+    }
+
+    @Test
+    public void test_range_of_variant() throws IOException {
+        byte[] data = compressible();
+        File file = createFile(data);
+        RangeResponseHelper helper = new RangeResponseHelper(1024 * 1024, -1, 1024 * 1024, true);
+        handler = (request, response) -> helper.makeRangeResponse(request, response, file);
+
+        Assert.assertArrayEquals(Arrays.copyOfRange(data, 100, 200), makeRequest("/")
+                .header("Range", "bytes=100-199")
+                .header("Accept-Encoding", "identity")
+                .get().asBytes());
+
+        com.wizzardo.tools.http.Response response = makeRequest("/")
+                .header("Range", "bytes=0-9")
+                .header("Accept-Encoding", "gzip")
+                .get();
+        Assert.assertEquals(206, response.getResponseCode());
+        Assert.assertEquals("gzip", response.header("Content-Encoding"));
+        long gzipped = helper.getFileHolder(file).variants[0].buffer.length();
+        Assert.assertEquals("bytes 0-9/" + gzipped, response.header("Content-Range"));
+    }
+
+    @Test
+    public void test_incompressible() throws IOException {
+        byte[] data = new byte[1000];
+        new Random().nextBytes(data);
+        File file = createFile(data);
+        RangeResponseHelper helper = new RangeResponseHelper(1024 * 1024, -1, 1024 * 1024, true);
+
+        Assert.assertEquals(0, helper.getFileHolder(file).variants.length);
+        Assert.assertFalse(helper.getFileHolder(file).gzip);
+    }
+
+    @Test
+    public void test_gzipped_file_holder() {
+        ReadableByteBuffer buffer = new ReadableByteBuffer(ByteBuffer.allocateDirect(10));
+        RangeResponseHelper.FileHolder holder = new RangeResponseHelper.FileHolder(buffer, "MD5", "today", true);
+        Assert.assertTrue(holder.gzip);
+        Assert.assertEquals(10, holder.size());
+        Assert.assertEquals("gzip", holder.select(null).encoding);
+        Assert.assertEquals("gzip", holder.select("identity").encoding);
+        Assert.assertSame(buffer, holder.select(null).buffer);
+
+        holder = new RangeResponseHelper.FileHolder(buffer, "MD5", "today", false);
+        Assert.assertFalse(holder.gzip);
+        Assert.assertNull(holder.select("gzip").encoding);
+    }
+}
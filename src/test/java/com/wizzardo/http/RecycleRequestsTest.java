@@ -0,0 +1,69 @@
+package com.wizzardo.http;
+
+import com.wizzardo.http.request.Request;
+import com.wizzardo.http.response.Response;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public class RecycleRequestsTest extends PipeliningTest {
+
+    @Override
+    protected void configure(HttpServer server) {
+        server.setRecycleRequests(true);
+        server.setLeakDetection(true);
+    }
+
+    @Test
+    public void test_reuse() {
+        Set<Request> requests = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Response> responses = Collections.newSetFromMap(new IdentityHashMap<>());
+        handler = (request, response) -> {
+            requests.add(request);
+            responses.add(response);
+            String a = request.param("a");
+            return response.setBody(a == null ? "--" : "a" + a); // bodies of the same length, so each response is 123 bytes
+        };
+
+        String response = response(request("/?a=1") + request("/") + request("/?a=2"), 123 * 3);
+        Assert.assertTrue(response.contains("\r\n\r\na1"));
+        Assert.assertTrue(response.contains("\r\n\r\n--"));
+        Assert.assertTrue(response.endsWith("\r\n\r\na2"));
+        Assert.assertEquals(1, requests.size());
+        Assert.assertEquals(1, responses.size());
+    }
+
+    @Test
+    public void test_leak_detection() throws InterruptedException {
+        AtomicReference<Request> leaked = new AtomicReference<>();
+        handler = (request, response) -> {
+            leaked.set(request);
+            return response.setBody("ok");
+        };
+
+        Assert.assertTrue(response(request("/"), 123).endsWith("\r\n\r\nok"));
+
+        Request request = leaked.get();
+        for (int i = 0; i < 100 && !request.isReleased(); i++) {
+            Thread.sleep(10);
+        }
+
+        try {
+            request.path();
+            Assert.fail("IllegalStateException expected");
+        } catch (IllegalStateException ignored) {
+        }
+        try {
+            request.response().setBody("too late");
+            Assert.fail("IllegalStateException expected");
+        } catch (IllegalStateException ignored) {
+        }
+    }
+}
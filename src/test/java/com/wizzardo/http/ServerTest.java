@@ -14,6 +14,7 @@ import org.junit.Rule;
 import org.junit.rules.TestName;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
 
 /**
  * @author: moxa
@@ -26,6 +27,7 @@ public class ServerTest<S extends HttpServer> {
     protected int port = 9999;
     protected volatile Handler handler;
     protected String context;
+    protected ExecutorService executor;
 
     @Rule
     public TestName name = new TestName();
@@ -71,6 +73,9 @@ public class ServerTest<S extends HttpServer> {
             }
         };
         server.setIoThreadsCount(1);
+        if (executor != null)
+            server.setExecutor(executor);
+        configure(server);
         server.start();
         try {
             Thread.sleep(25); // wait for server startup
@@ -78,6 +83,9 @@ public class ServerTest<S extends HttpServer> {
         }
     }
 
+    protected void configure(S server) {
+    }
+
     @After
     public void tearDown() throws InterruptedException {
         System.out.println("tearDown " + this.getClass().getSimpleName() + "." + name.getMethodName());
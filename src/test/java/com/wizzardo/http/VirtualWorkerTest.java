@@ -0,0 +1,155 @@
+package com.wizzardo.http;
+
+import com.wizzardo.tools.misc.Unchecked;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public class VirtualWorkerTest extends ServerTest {
+
+    {
+        executor = virtualThreads();
+    }
+
+    /**
+     * @return executor with virtual threads or null if jvm doesn't support them
+     */
+    static ExecutorService virtualThreads() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    @Override
+    protected void configure(HttpServer server) {
+        if (name().equals("test_blocking_input_stream"))
+            server.setPostBodyLimit(4); // body is not read before the handler
+    }
+
+    @Before
+    public void checkVirtualThreads() {
+        Assume.assumeNotNull(executor);
+    }
+
+    @Test
+    public void test_buffer_provider() {
+        handler = (request, response) -> response.setBody(String.valueOf(Worker.bufferProvider() instanceof VirtualWorker));
+
+        Assert.assertEquals("true", get());
+        Assert.assertEquals("true", get());
+    }
+
+    @Test
+    public void test_blocking_handlers() throws InterruptedException {
+        int n = 8;
+        handler = (request, response) -> {
+            Unchecked.run(() -> Thread.sleep(300));
+            return response.setBody("ok");
+        };
+
+        List<String> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            threads.add(new Thread(() -> {
+                String result = get();
+                synchronized (results) {
+                    results.add(result);
+                }
+            }));
+        }
+
+        long time = System.currentTimeMillis();
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        time = System.currentTimeMillis() - time;
+
+        Assert.assertEquals(n, results.size());
+        for (String result : results) {
+            Assert.assertEquals("ok", result);
+        }
+        Assert.assertTrue("requests were handled sequentially: " + time, time < 300 * n / 2);
+    }
+
+    @Test
+    public void test_blocking_input_stream() throws InterruptedException {
+        int n = 4;
+        handler = (request, response) -> {
+            InputStream in = request.getInputStream();
+            int length = 0;
+            while (in.read() != -1) {
+                length++;
+            }
+            return response.setBody(String.valueOf(length));
+        };
+
+        List<String> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            threads.add(new Thread(() -> Unchecked.run(() -> {
+                try (Socket socket = new Socket("localhost", port)) {
+                    OutputStream out = socket.getOutputStream();
+                    out.write(("POST /" + name() + " HTTP/1.1\r\nHost: localhost\r\nContent-Length: 10\r\n\r\n01234").getBytes());
+                    out.flush();
+                    Thread.sleep(300);
+                    out.write("56789".getBytes());
+                    out.flush();
+
+                    String body = readBody(socket.getInputStream());
+                    synchronized (results) {
+                        results.add(body);
+                    }
+                }
+            })));
+        }
+
+        long time = System.currentTimeMillis();
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        time = System.currentTimeMillis() - time;
+
+        Assert.assertEquals(n, results.size());
+        for (String result : results) {
+            Assert.assertEquals("10", result);
+        }
+        Assert.assertTrue("requests were handled sequentially: " + time, time < 300 * n / 2);
+    }
+
+    static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] b = new byte[1024];
+        int r;
+        while ((r = in.read(b)) != -1) {
+            out.write(b, 0, r);
+            String response = out.toString();
+            int headersEnd = response.indexOf("\r\n\r\n");
+            if (headersEnd == -1)
+                continue;
+
+            int from = response.indexOf("Content-Length: ") + 16;
+            int length = Integer.parseInt(response.substring(from, response.indexOf("\r\n", from)));
+            if (response.length() - headersEnd - 4 >= length)
+                return response.substring(headersEnd + 4, headersEnd + 4 + length);
+        }
+        return out.toString();
+    }
+}
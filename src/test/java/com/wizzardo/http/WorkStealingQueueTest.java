@@ -0,0 +1,141 @@
+package com.wizzardo.http;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public class WorkStealingQueueTest {
+
+    @Test
+    public void test_offer_poll() {
+        WorkStealingQueue<Integer> queue = new WorkStealingQueue<>(2, 4);
+        Assert.assertEquals(0, queue.size());
+        Assert.assertNull(queue.poll());
+
+        Assert.assertTrue(queue.offer(1));
+        Assert.assertTrue(queue.offer(3));
+        Assert.assertTrue(queue.offer(5));
+        Assert.assertTrue(queue.offer(7));
+        Assert.assertFalse(queue.offer(9));
+        Assert.assertEquals(4, queue.size());
+        Assert.assertEquals(0, queue.remainingCapacity());
+
+        int sum = 0;
+        Integer i;
+        while ((i = queue.poll()) != null) {
+            sum += i;
+        }
+        Assert.assertEquals(16, sum);
+        Assert.assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void test_poll_timeout() throws InterruptedException {
+        WorkStealingQueue<Integer> queue = new WorkStealingQueue<>(4);
+        long time = System.nanoTime();
+        Assert.assertNull(queue.poll(20, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(System.nanoTime() - time >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    public void test_wake_up() throws InterruptedException {
+        WorkStealingQueue<Integer> queue = new WorkStealingQueue<>(4);
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger result = new AtomicInteger();
+        Thread consumer = new Thread(() -> {
+            try {
+                result.set(queue.take());
+                latch.countDown();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        consumer.start();
+        Thread.sleep(20);
+
+        queue.offer(42);
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(42, result.get());
+    }
+
+    @Test
+    public void test_concurrent() throws InterruptedException {
+        int producers = 4;
+        int consumers = 4;
+        int n = 100_000;
+        WorkStealingQueue<Integer> queue = new WorkStealingQueue<>(consumers, 1024);
+        AtomicLong sum = new AtomicLong();
+        AtomicInteger received = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < consumers; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    while (true) {
+                        sum.addAndGet(queue.take());
+                        if (received.incrementAndGet() == producers * n)
+                            latch.countDown();
+                    }
+                } catch (InterruptedException ignored) {
+                }
+            }));
+        }
+        for (int i = 0; i < producers; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (int j = 1; j <= n; j++) {
+                        queue.put(j);
+                    }
+                } catch (InterruptedException ignored) {
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+
+        Assert.assertTrue(latch.await(30, TimeUnit.SECONDS));
+        Assert.assertEquals(producers * (long) n * (n + 1) / 2, sum.get());
+        Assert.assertEquals(0, queue.size());
+        threads.forEach(Thread::interrupt);
+    }
+
+    @Test
+    public void test_iterator() {
+        WorkStealingQueue<Integer> queue = new WorkStealingQueue<>(2, 8);
+        for (int i = 1; i <= 5; i++) {
+            queue.offer(i);
+        }
+
+        List<Integer> items = new ArrayList<>(queue);
+        Collections.sort(items);
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5), items);
+        Assert.assertTrue(queue.contains(3));
+        Assert.assertTrue(queue.containsAll(Arrays.asList(1, 5)));
+        Assert.assertFalse(queue.contains(6));
+        Assert.assertNotNull(queue.toString());
+
+        Assert.assertTrue(queue.remove((Object) 3));
+        Assert.assertFalse(queue.remove((Object) 3));
+        Assert.assertFalse(queue.contains(3));
+        Assert.assertEquals(4, queue.size());
+
+        int sum = 0;
+        Integer i;
+        while ((i = queue.poll()) != null) {
+            sum += i;
+        }
+        Assert.assertEquals(12, sum);
+        Assert.assertEquals(0, queue.size());
+        Assert.assertFalse(queue.iterator().hasNext());
+    }
+}
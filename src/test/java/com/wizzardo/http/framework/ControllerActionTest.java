@@ -0,0 +1,133 @@
+package com.wizzardo.http.framework;
+
+import com.wizzardo.http.framework.di.Dependency;
+import com.wizzardo.http.framework.di.DependencyFactory;
+import com.wizzardo.http.framework.parameters.Parameter;
+import com.wizzardo.http.framework.parameters.ParametersHelper;
+import com.wizzardo.http.request.Request;
+import com.wizzardo.http.request.RequestReader;
+import com.wizzardo.tools.interfaces.Mapper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public class ControllerActionTest {
+
+    public static class TestController extends Controller {
+        public String primitives(@Parameter(name = "i") int i, @Parameter(name = "l") long l, @Parameter(name = "d") double d, @Parameter(name = "b") boolean b, @Parameter(name = "c") char c) {
+            return i + " " + l + " " + d + " " + b + " " + c;
+        }
+
+        public Object mixed(@Parameter(name = "s") String s, @Parameter(name = "boxed") Integer boxed, @Parameter(name = "i") int i) {
+            return s + " " + boxed + " " + i;
+        }
+
+        private String hidden() {
+            return "hidden";
+        }
+
+        public void fail() {
+            throw new IllegalStateException("action failed");
+        }
+
+        public void overflow() {
+            throw new StackOverflowError("too deep");
+        }
+    }
+
+    static MethodHandle compile(String action) {
+        Method method = null;
+        for (Method m : TestController.class.getDeclaredMethods()) {
+            if (m.getName().equals(action))
+                method = m;
+        }
+        method.setAccessible(true);
+
+        java.lang.reflect.Parameter[] parameters = method.getParameters();
+        Mapper<Request, Object>[] mappers = new Mapper[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            mappers[i] = ParametersHelper.createParametersMapper(parameters[i], parameters[i].getParameterizedType());
+        }
+        return ControllerHandler.compileAction(method, mappers);
+    }
+
+    static TestController controller(String query) {
+        RequestReader reader = new RequestReader();
+        reader.read(("GET /?" + query + " HTTP/1.1\r\n\r\n").getBytes());
+        TestController controller = new TestController();
+        controller.request = reader.fillRequest(new Request(null));
+        return controller;
+    }
+
+    @Test
+    public void test_primitives() {
+        TestController controller = controller("i=1&l=2&d=3.5&b=true&c=x");
+
+        Assert.assertEquals("1 2 3.5 true x", ControllerHandler.invoke(compile("primitives"), controller));
+    }
+
+    @Test
+    public void test_mixed() {
+        MethodHandle action = compile("mixed");
+        Assert.assertEquals("null null 3", ControllerHandler.invoke(action, controller("i=3")));
+
+        TestController controller = controller("i=3&s=foo&boxed=2");
+        Assert.assertEquals("foo 2 3", ControllerHandler.invoke(action, controller));
+    }
+
+    @Test
+    public void test_private_action() {
+        Assert.assertEquals("hidden", ControllerHandler.invoke(compile("hidden"), controller("")));
+    }
+
+    @Test
+    public void test_exceptions() {
+        TestController controller = controller("i=a");
+        try {
+            ControllerHandler.invoke(compile("mixed"), controller);
+            Assert.fail();
+        } catch (ControllerHandler.ParametersMappingException e) {
+            Assert.assertEquals(NumberFormatException.class, e.getCause().getClass());
+        }
+
+        try {
+            ControllerHandler.invoke(compile("fail"), controller);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("action failed", e.getMessage());
+        }
+
+        try {
+            ControllerHandler.invoke(compile("overflow"), controller);
+            Assert.fail();
+        } catch (StackOverflowError e) {
+            Assert.assertEquals("too deep", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_dependency_after_registration() {
+        ControllerHandler<TestController> handler = new ControllerHandler<TestController>(TestController.class, "mixed", it -> null) {
+            @Override
+            protected void init(Class<TestController> controller, String action, Request.Method[] methods) {
+                this.controller = controller;
+            }
+        };
+        Dependency<TestController> dependency = handler.controllerDependency();
+        Assert.assertSame(dependency, handler.controllerDependency());
+
+        TestController controller = new TestController();
+        try {
+            DependencyFactory.get().register(TestController.class, controller);
+            Assert.assertSame(controller, handler.controllerDependency().get());
+        } finally {
+            DependencyFactory.get().clear();
+        }
+        Assert.assertNotSame(controller, handler.controllerDependency().get());
+    }
+}
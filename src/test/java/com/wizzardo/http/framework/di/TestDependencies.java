@@ -380,4 +380,38 @@ public class TestDependencies extends WebApplicationTest {
         FieldInjectedByName fieldInjectedByName = DependencyFactory.get(FieldInjectedByName.class);
         Assert.assertEquals("bar", fieldInjectedByName.foo);
     }
+
+    @Test
+    public void test_injection_plan() {
+        InjectionPlan plan = DependencyFactory.get().plan(C.class);
+        Assert.assertEquals(1, plan.size());
+        Assert.assertSame(plan, DependencyFactory.get().plan(C.class));
+
+        DependencyFactory.get().register("foo", "bar");
+        Assert.assertNotSame(plan, DependencyFactory.get().plan(C.class));
+        Assert.assertEquals("bar", DependencyFactory.get(FieldInjectedByName.class).foo);
+    }
+
+    interface AmbiguousService extends Service {
+    }
+
+    public static class AmbiguousService1 implements AmbiguousService {
+    }
+
+    public static class AmbiguousService2 implements AmbiguousService {
+    }
+
+    static class AmbiguousServiceHolder {
+        AmbiguousService service;
+    }
+
+    @Test
+    public void test_injection_plan_fails_fast() {
+        try {
+            DependencyFactory.get().plan(AmbiguousServiceHolder.class);
+            Assert.fail();
+        } catch (Dependency.InjectionFailedException e) {
+            Assert.assertEquals("can't resolve dependency for field 'service' in " + AmbiguousServiceHolder.class, e.getMessage());
+        }
+    }
 }
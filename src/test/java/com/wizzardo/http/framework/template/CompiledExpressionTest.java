@@ -0,0 +1,153 @@
+package com.wizzardo.http.framework.template;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public class CompiledExpressionTest {
+
+    public static class User {
+        public String name = "field";
+        private int age = 42;
+        private Address address = new Address();
+        private Address none;
+        private Map<String, Object> meta = Collections.singletonMap("key", "value");
+
+        public String getName() {
+            return "getter";
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public boolean isActive() {
+            return true;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+
+        public Address getNone() {
+            return none;
+        }
+
+        public Map<String, Object> getMeta() {
+            return meta;
+        }
+    }
+
+    public static class Address {
+        public String city = "Berlin";
+    }
+
+    static class Hidden {
+        public String value = "hidden";
+    }
+
+    static Model model() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("b", 1);
+        return new Model()
+                .append("user", new User())
+                .append("hidden", new Hidden())
+                .append("list", Arrays.asList(1, 2))
+                .append("arr", new int[]{1, 2})
+                .append("map", map)
+                .append("nil", null)
+                .append("s", "string");
+    }
+
+    static final Model MODEL = model();
+
+    static String interpreted(String exp, boolean template) {
+        ExpressionHolder holder = new ExpressionHolder(exp, null, template);
+        try {
+            holder.prepare(MODEL);
+            return String.valueOf(holder.evaluate(MODEL));
+        } catch (Exception e) {
+            return "exception: " + e.getClass().getSimpleName();
+        }
+    }
+
+    static String compiled(String exp, boolean template, boolean raw) {
+        ExpressionHolder holder = new ExpressionHolder(exp, null, template);
+        try {
+            return raw ? String.valueOf(holder.getRaw(MODEL)) : holder.get(MODEL).toString();
+        } catch (Exception e) {
+            return "exception: " + e.getClass().getSimpleName();
+        }
+    }
+
+    @Test
+    public void test_compile() {
+        Assert.assertEquals("user", CompiledExpression.compile("${user}", true).toString());
+        Assert.assertEquals("user", CompiledExpression.compile("$user", true).toString());
+        Assert.assertEquals("user.address.city", CompiledExpression.compile("${ user.address.city }", true).toString());
+        Assert.assertEquals("user?.none?.city", CompiledExpression.compile("${user?.none?.city}", true).toString());
+        Assert.assertEquals("user.name", CompiledExpression.compile("user.name", false).toString());
+
+        Assert.assertNull(CompiledExpression.compile("user.name", true));
+        Assert.assertNull(CompiledExpression.compile("$user.name", true));
+        Assert.assertNull(CompiledExpression.compile("${a} ${b}", true));
+        Assert.assertNull(CompiledExpression.compile("${a + b}", true));
+        Assert.assertNull(CompiledExpression.compile("${a.b()}", true));
+        Assert.assertNull(CompiledExpression.compile("${list[0]}", true));
+        Assert.assertNull(CompiledExpression.compile("${request.method}", true));
+        Assert.assertNull(CompiledExpression.compile("${true}", true));
+        Assert.assertNull(CompiledExpression.compile("${user.class}", true));
+        Assert.assertNull(CompiledExpression.compile("[a: 1]", false));
+    }
+
+    @Test
+    public void test_same_as_interpreted() {
+        String[] expressions = {
+                "user", "user.name", "user.age", "user.active", "user.address.city", "user.meta.key", "user.meta.missing",
+                "user.none", "user.none.city", "user?.none?.city", "user.unknown",
+                "hidden.value", "list.size", "arr.length", "map.b", "map.c", "map.size", "nil", "nil.foo", "nil?.foo",
+                "missing", "s.empty",
+        };
+        for (String expression : expressions) {
+            for (String exp : new String[]{"${" + expression + "}", expression}) {
+                boolean template = exp.startsWith("$");
+                Assert.assertEquals(exp, interpreted(exp, template), compiled(exp, template, false));
+                if (!template)
+                    Assert.assertEquals(exp, interpreted(exp, false), compiled(exp, false, true));
+            }
+        }
+    }
+
+    @Test
+    public void test_raw_value() {
+        Model model = model();
+        Assert.assertEquals(42, new ExpressionHolder<>("user.age", null, false).getRaw(model));
+        Assert.assertSame(((User) model.get("user")).getAddress(), new ExpressionHolder<>("${user.address}", null, false).getRaw(model));
+    }
+
+    @Test
+    public void test_polymorphic() {
+        ExpressionHolder holder = new ExpressionHolder("${it.city}", null, true);
+        Model model = new Model();
+
+        model.put("it", new Address());
+        Assert.assertEquals("Berlin", holder.get(model).toString());
+
+        model.put("it", Collections.singletonMap("city", "Paris"));
+        Assert.assertEquals("Paris", holder.get(model).toString());
+
+        model.put("it", new User());
+        try {
+            holder.get(model);
+            Assert.fail("User has no city");
+        } catch (Exception ignored) {
+        }
+    }
+}
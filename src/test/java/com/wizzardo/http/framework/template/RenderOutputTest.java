@@ -0,0 +1,202 @@
+package com.wizzardo.http.framework.template;
+
+import com.wizzardo.epoll.readable.ReadableData;
+import com.wizzardo.http.ReadableByteArrayPool;
+import com.wizzardo.http.ReadableByteArrayPool.PooledReadableByteArray;
+import com.wizzardo.tools.xml.GspParser;
+import com.wizzardo.tools.xml.Node;
+import com.wizzardo.http.framework.template.taglib.g.Each;
+import com.wizzardo.http.framework.template.taglib.g.Else;
+import com.wizzardo.http.framework.template.taglib.g.If;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public class RenderOutputTest {
+
+    interface TestBody {
+        void run() throws Exception;
+    }
+
+    /**
+     * Released buffers are queued per thread, tests use a separate one to keep the queue of the main thread untouched
+     */
+    static void inThread(TestBody body) throws Exception {
+        Exception[] exception = new Exception[1];
+        Error[] error = new Error[1];
+        Thread thread = new Thread(() -> {
+            try {
+                body.run();
+            } catch (Exception e) {
+                exception[0] = e;
+            } catch (Error e) {
+                error[0] = e;
+            }
+        });
+        thread.start();
+        thread.join();
+        if (exception[0] != null)
+            throw exception[0];
+        if (error[0] != null)
+            throw error[0];
+    }
+
+    @Before
+    public void setup() {
+        TagLib.findTags(Arrays.asList(Each.class, If.class, Else.class));
+    }
+
+    static byte[] read(ReadableData data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(1000);
+        while (!data.isComplete()) {
+            buffer.clear();
+            int read = data.read(buffer);
+            out.write(buffer.array(), 0, read);
+        }
+        data.close();
+        return out.toByteArray();
+    }
+
+    static String repeat(String s, int times) {
+        StringBuilder sb = new StringBuilder(s.length() * times);
+        for (int i = 0; i < times; i++) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void test_same_as_tree() throws Exception {
+        inThread(() -> {
+            Node n = new GspParser().parse("" +
+                    "<div class=\"${css}\">" + repeat("<p>static</p>", 500) + "</div>" +
+                    "<g:each in=\"${items}\" var=\"item\" status=\"i\">" +
+                    "<g:if test=\"${i != 1}\">even ${item}</g:if>" +
+                    "<g:else>odd ${item}</g:else>" +
+                    "</g:each>" +
+                    "<span>üñîçødé ${long}</span>");
+
+            RenderableList l = new RenderableList();
+            new ViewRenderingService().prepare(n.children(), l, "", "");
+
+            Model model = new Model()
+                    .append("css", "main")
+                    .append("items", Arrays.asList("a", "b", "c"))
+                    .append("long", repeat("0123456789", 3000));
+
+            RenderOutput out = new RenderOutput();
+            l.render(model, out);
+            byte[] streamed = read(out.toReadableData());
+
+            Assert.assertArrayEquals(l.get(model).bytes(), streamed);
+            Assert.assertTrue(new String(streamed, StandardCharsets.UTF_8).contains("odd b"));
+        });
+    }
+
+    public static class Shout extends Tag {
+        @Override
+        public Tag init(Map<String, String> attrs, Body body, String offset) {
+            append("body is ignored");
+            return this;
+        }
+
+        @Override
+        public RenderResult get(Map<String, Object> model) {
+            return new RenderResult(String.valueOf(model.get("text")).toUpperCase());
+        }
+    }
+
+    @Test
+    public void test_tag_with_get_only() throws Exception {
+        inThread(() -> {
+            RenderableList l = new RenderableList().append("<p>");
+            l.add(new Shout().init(new HashMap<>()));
+            l.append("</p>");
+
+            Model model = new Model().append("text", "hello");
+            RenderOutput out = new RenderOutput();
+            l.render(model, out);
+
+            Assert.assertEquals("<p>HELLO</p>", new String(read(out.toReadableData()), StandardCharsets.UTF_8));
+            Assert.assertEquals("<p>HELLO</p>", l.get(model).toString());
+        });
+    }
+
+    @Test
+    public void test_strings() throws Exception {
+        inThread(() -> {
+            RenderOutput out = new RenderOutput(StandardCharsets.UTF_8);
+            out.write("abc").write("ü-€").write(new byte[]{'!'});
+            Assert.assertEquals("abcü-€!", new String(read(out.toReadableData()), StandardCharsets.UTF_8));
+
+            out = new RenderOutput(StandardCharsets.UTF_16);
+            out.write("abc");
+            Assert.assertEquals("abc", new String(read(out.toReadableData()), StandardCharsets.UTF_16));
+        });
+    }
+
+    @Test
+    public void test_shared_static() throws Exception {
+        inThread(() -> {
+            byte[] bytes = repeat("static", 1000).getBytes(StandardCharsets.UTF_8);
+            BytesHolder holder = new BytesHolder(bytes);
+
+            RenderOutput out = new RenderOutput();
+            out.write("before ");
+            holder.render(null, out);
+            holder.render(null, out);
+            out.write(" after");
+
+            Assert.assertEquals("before " + new String(bytes) + new String(bytes) + " after", new String(read(out.toReadableData())));
+            Assert.assertEquals(0, holder.shared.position());
+        });
+    }
+
+    @Test
+    public void test_buffers_released() throws Exception {
+        inThread(() -> {
+            RenderOutput out = new RenderOutput();
+            out.write("foo");
+            PooledReadableByteArray pooled = out.pooled;
+            Assert.assertEquals("foo", new String(read(out.toReadableData())));
+            Assert.assertTrue(isReleased(pooled));
+
+            out = new RenderOutput();
+            out.write("bar");
+            pooled = out.pooled;
+            out.close();
+            Assert.assertTrue(isReleased(pooled));
+        });
+    }
+
+    static boolean isReleased(PooledReadableByteArray pooled) throws IOException {
+        List<PooledReadableByteArray> list = new ArrayList<>();
+        try {
+            for (int i = 0; i < 16; i++) {
+                PooledReadableByteArray it = ReadableByteArrayPool.get();
+                list.add(it);
+                if (it == pooled)
+                    return true;
+            }
+            return false;
+        } finally {
+            for (PooledReadableByteArray it : list) {
+                it.close();
+            }
+        }
+    }
+}
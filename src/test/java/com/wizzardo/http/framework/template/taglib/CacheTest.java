@@ -0,0 +1,121 @@
+package com.wizzardo.http.framework.template.taglib;
+
+import com.wizzardo.epoll.readable.ReadableData;
+import com.wizzardo.http.framework.WebApplicationTest;
+import com.wizzardo.http.framework.di.DependencyFactory;
+import com.wizzardo.http.framework.template.*;
+import com.wizzardo.http.framework.template.taglib.g.Cache;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public class CacheTest extends WebApplicationTest implements TagTest {
+
+    @Before
+    public void setup() {
+        TagLib.findTags(Collections.singletonList(Cache.class));
+        DependencyFactory.get(FragmentCache.class).clear();
+    }
+
+    static String render(RenderableList l, Model model) throws IOException {
+        RenderOutput out = new RenderOutput();
+        l.render(model, out);
+        ReadableData data = out.toReadableData();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(1000);
+        while (!data.isComplete()) {
+            buffer.clear();
+            int read = data.read(buffer);
+            bytes.write(buffer.array(), 0, read);
+        }
+        data.close();
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void test_key() {
+        RenderableList l = prepare("<div><g:cache key=\"card-${id}\">$value</g:cache></div>");
+
+        Assert.assertEquals("<div>\n    a\n</div>\n", l.get(new Model().append("id", 1).append("value", "a")).toString());
+        Assert.assertEquals("<div>\n    a\n</div>\n", l.get(new Model().append("id", 1).append("value", "b")).toString());
+        Assert.assertEquals("<div>\n    b\n</div>\n", l.get(new Model().append("id", 2).append("value", "b")).toString());
+    }
+
+    @Test
+    public void test_fragments_do_not_share_keys() {
+        RenderableList l = prepare("<g:cache key=\"${id}\">one</g:cache><g:cache key=\"${id}\">two</g:cache>");
+
+        Assert.assertEquals("one\ntwo\n", l.get(new Model().append("id", 1)).toString());
+    }
+
+    @Test
+    public void test_key_is_stable_between_preparations() {
+        String template = "<div><g:cache key=\"${id}\">$value</g:cache></div>";
+
+        Assert.assertEquals("<div>\n    a\n</div>\n", prepare(template).get(new Model().append("id", 1).append("value", "a")).toString());
+        Assert.assertEquals("<div>\n    a\n</div>\n", prepare(template).get(new Model().append("id", 1).append("value", "b")).toString());
+    }
+
+    @Test
+    public void test_streaming() throws IOException {
+        RenderableList l = prepare("<p><g:cache key=\"${id}\">$value</g:cache></p>");
+        StringBuilder big = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            big.append("big-");
+        }
+
+        Assert.assertEquals("<p>\n    a\n</p>\n", render(l, new Model().append("id", 1).append("value", "a")));
+        Assert.assertEquals("<p>\n    a\n</p>\n", render(l, new Model().append("id", 1).append("value", "b")));
+        Assert.assertEquals("<p>\n    " + big + "\n</p>\n", render(l, new Model().append("id", 2).append("value", big)));
+        Assert.assertEquals("<p>\n    " + big + "\n</p>\n", render(l, new Model().append("id", 2).append("value", "c")));
+        Assert.assertEquals("<p>\n    a\n</p>\n", l.get(new Model().append("id", 1).append("value", "c")).toString());
+    }
+
+    @Test
+    public void test_ttl() throws InterruptedException {
+        RenderableList l = prepare("<g:cache key=\"ttl\" ttl=\"1\">$value</g:cache>");
+
+        Assert.assertEquals("a\n", l.get(new Model().append("value", "a")).toString());
+        Assert.assertEquals("a\n", l.get(new Model().append("value", "b")).toString());
+
+        Thread.sleep(2100);
+        Assert.assertEquals("b\n", l.get(new Model().append("value", "b")).toString());
+    }
+
+    @Test
+    public void test_invalidate() {
+        FragmentCache fragmentCache = DependencyFactory.get(FragmentCache.class);
+        RenderableList l = prepare("<g:cache key=\"menu\" depends=\"menu, user\">$value</g:cache>");
+
+        Assert.assertEquals("a\n", l.get(new Model().append("value", "a")).toString());
+        Assert.assertEquals("a\n", l.get(new Model().append("value", "b")).toString());
+
+        fragmentCache.invalidate("user");
+        Assert.assertEquals("b\n", l.get(new Model().append("value", "b")).toString());
+        Assert.assertEquals("b\n", l.get(new Model().append("value", "c")).toString());
+
+        fragmentCache.invalidate("other");
+        Assert.assertEquals("b\n", l.get(new Model().append("value", "c")).toString());
+    }
+
+    @Test
+    public void test_remove_named() {
+        FragmentCache fragmentCache = DependencyFactory.get(FragmentCache.class);
+        RenderableList l = prepare("<g:cache name=\"footer\" key=\"${lang}\">$value</g:cache>");
+
+        Assert.assertEquals("a\n", l.get(new Model().append("lang", "en").append("value", "a")).toString());
+        Assert.assertEquals("a\n", l.get(new Model().append("lang", "en").append("value", "b")).toString());
+
+        fragmentCache.remove("footer", "en");
+        Assert.assertEquals("b\n", l.get(new Model().append("lang", "en").append("value", "b")).toString());
+    }
+}
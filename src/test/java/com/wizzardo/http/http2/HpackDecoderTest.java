@@ -0,0 +1,123 @@
+package com.wizzardo.http.http2;
+
+import com.wizzardo.http.http2.hpack.HpackDecoder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public class HpackDecoderTest {
+
+    static byte[] hex(String s) {
+        s = s.replace(" ", "");
+        byte[] bytes = new byte[s.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(s.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    static String decode(HpackDecoder decoder, byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        decoder.decode(bytes, 0, bytes.length, (name, value) -> sb.append(name).append(": ").append(value).append("\n"));
+        return sb.toString();
+    }
+
+    @Test
+    public void test_requests_without_huffman() {
+        // RFC 7541, C.3
+        HpackDecoder decoder = new HpackDecoder(4096);
+
+        Assert.assertEquals(":method: GET\n:scheme: http\n:path: /\n:authority: www.example.com\n",
+                decode(decoder, hex("8286 8441 0f77 7777 2e65 7861 6d70 6c65 2e63 6f6d")));
+        Assert.assertEquals(57, decoder.getTable().size());
+
+        Assert.assertEquals(":method: GET\n:scheme: http\n:path: /\n:authority: www.example.com\ncache-control: no-cache\n",
+                decode(decoder, hex("8286 84be 5808 6e6f 2d63 6163 6865")));
+        Assert.assertEquals(110, decoder.getTable().size());
+
+        Assert.assertEquals(":method: GET\n:scheme: https\n:path: /index.html\n:authority: www.example.com\ncustom-key: custom-value\n",
+                decode(decoder, hex("8287 85bf 400a 6375 7374 6f6d 2d6b 6579 0c63 7573 746f 6d2d 7661 6c75 65")));
+        Assert.assertEquals(164, decoder.getTable().size());
+        Assert.assertEquals(3, decoder.getTable().count());
+    }
+
+    @Test
+    public void test_requests_with_huffman() {
+        // RFC 7541, C.4
+        HpackDecoder decoder = new HpackDecoder(4096);
+
+        Assert.assertEquals(":method: GET\n:scheme: http\n:path: /\n:authority: www.example.com\n",
+                decode(decoder, hex("8286 8441 8cf1 e3c2 e5f2 3a6b a0ab 90f4 ff")));
+        Assert.assertEquals(":method: GET\n:scheme: http\n:path: /\n:authority: www.example.com\ncache-control: no-cache\n",
+                decode(decoder, hex("8286 84be 5886 a8eb 1064 9cbf")));
+        Assert.assertEquals(":method: GET\n:scheme: https\n:path: /index.html\n:authority: www.example.com\ncustom-key: custom-value\n",
+                decode(decoder, hex("8287 85bf 4088 25a8 49e9 5ba9 7d7f 8925 a849 e95b b8e8 b4bf")));
+        Assert.assertEquals(164, decoder.getTable().size());
+    }
+
+    @Test
+    public void test_eviction() {
+        // RFC 7541, C.5 with table limited to 256 bytes
+        HpackDecoder decoder = new HpackDecoder(256);
+
+        decode(decoder, hex("4803 3330 3258 0770 7269 7661 7465 611d 4d6f 6e2c 2032 3120 4f63 7420 3230 3133 2032 303a 3133 3a32 3120 474d 546e 1768 7474 7073 3a2f 2f77 7777 2e65 7861 6d70 6c65 2e63 6f6d"));
+        Assert.assertEquals(222, decoder.getTable().size());
+
+        Assert.assertEquals(":status: 307\ncache-control: private\ndate: Mon, 21 Oct 2013 20:13:21 GMT\nlocation: https://www.example.com\n",
+                decode(decoder, hex("4803 3330 37c1 c0bf")));
+        Assert.assertEquals(222, decoder.getTable().size());
+        Assert.assertEquals(4, decoder.getTable().count());
+    }
+
+    @Test
+    public void test_responses_with_huffman() {
+        // RFC 7541, C.6
+        HpackDecoder decoder = new HpackDecoder(256);
+
+        Assert.assertEquals(":status: 302\ncache-control: private\ndate: Mon, 21 Oct 2013 20:13:21 GMT\nlocation: https://www.example.com\n",
+                decode(decoder, hex("4882 6402 5885 aec3 771a 4b61 96d0 7abe 9410 54d4 44a8 2005 9504 0b81 66e0 82a6 2d1b ff6e 919d 29ad 1718 63c7 8f0b 97c8 e9ae 82ae 43d3")));
+        Assert.assertEquals(222, decoder.getTable().size());
+
+        Assert.assertEquals(":status: 307\ncache-control: private\ndate: Mon, 21 Oct 2013 20:13:21 GMT\nlocation: https://www.example.com\n",
+                decode(decoder, hex("4883 640e ffc1 c0bf")));
+        Assert.assertEquals(222, decoder.getTable().size());
+
+        Assert.assertEquals(":status: 200\ncache-control: private\ndate: Mon, 21 Oct 2013 20:13:22 GMT\nlocation: https://www.example.com\n" +
+                        "content-encoding: gzip\nset-cookie: foo=ASDJKHQKBZXOQWEOPIUAXQWEOIU; max-age=3600; version=1\n",
+                decode(decoder, hex("88c1 6196 d07a be94 1054 d444 a820 0595 040b 8166 e084 a62d 1bff c05a 839b d9ab 77ad 94e7 821d d7f2 e6c7 b335 dfdf cd5b 3960 d5af 2708 7f36 72c1 ab27 0fb5 291f 9587 3160 65c0 03ed 4ee5 b106 3d50 07")));
+        Assert.assertEquals(215, decoder.getTable().size());
+        Assert.assertEquals(3, decoder.getTable().count());
+    }
+
+    @Test
+    public void test_known_names_are_reused() {
+        HpackDecoder decoder = new HpackDecoder(4096);
+        List<String> names = new ArrayList<>();
+        byte[] bytes = hex("400c 636f 6e74 656e 742d 7479 7065 0474 6578 74"); // content-type: text, literal name
+        decoder.decode(bytes, 0, bytes.length, (name, value) -> names.add(name));
+        Assert.assertSame(decoder.getTable().name(31), names.get(0)); // string from the static table
+        Assert.assertEquals("content-type", names.get(0));
+    }
+
+    @Test
+    public void test_errors() {
+        HpackDecoder decoder = new HpackDecoder(4096);
+        try {
+            decode(decoder, hex("be"));
+            Assert.fail();
+        } catch (Http2Exception e) {
+            Assert.assertEquals(ErrorCode.COMPRESSION_ERROR, e.code);
+        }
+        try {
+            decode(decoder, hex("3fe2 1f")); // table size update above the limit
+            Assert.fail();
+        } catch (Http2Exception e) {
+            Assert.assertEquals(ErrorCode.COMPRESSION_ERROR, e.code);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.wizzardo.http.http2;
+
+import com.wizzardo.http.http2.hpack.HpackDecoder;
+import com.wizzardo.http.http2.hpack.HpackEncoder;
+import com.wizzardo.http.http2.hpack.HpackReader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public class HpackEncoderTest {
+
+    static List<String> decode(HpackDecoder decoder, HpackEncoder encoder) {
+        List<String> headers = new ArrayList<>();
+        decoder.decode(encoder.getBytes(), 0, encoder.length(), (name, value) -> headers.add(name + "=" + value));
+        return headers;
+    }
+
+    static void encodeResponse(HpackEncoder encoder, String contentLength) {
+        encoder.reset()
+                .encode(":status", "200")
+                .encode("date", "Sun, 18 Oct 2026 16:13:55 GMT")
+                .encode("server", "wizzardo-http/0.1")
+                .encode("content-type", "text/html;charset=UTF-8")
+                .encode("content-length", contentLength);
+    }
+
+    @Test
+    public void test_repeated_headers_are_indexed() {
+        HpackEncoder encoder = new HpackEncoder();
+        HpackDecoder decoder = new HpackDecoder(4096);
+
+        encodeResponse(encoder, "1234");
+        int first = encoder.length();
+        Assert.assertEquals("[:status=200, date=Sun, 18 Oct 2026 16:13:55 GMT, server=wizzardo-http/0.1, content-type=text/html;charset=UTF-8, content-length=1234]",
+                decode(decoder, encoder).toString());
+
+        encodeResponse(encoder, "42");
+        Assert.assertEquals("[:status=200, date=Sun, 18 Oct 2026 16:13:55 GMT, server=wizzardo-http/0.1, content-type=text/html;charset=UTF-8, content-length=42]",
+                decode(decoder, encoder).toString());
+        Assert.assertEquals(4 + 2 + 3, encoder.length()); // 4 indexes, index of content-length name and its value
+        Assert.assertTrue(first > 50);
+
+        Assert.assertEquals(3, encoder.getTable().count());
+        Assert.assertEquals(encoder.getTable().size(), decoder.getTable().size());
+    }
+
+    @Test
+    public void test_table_size_update() {
+        HpackEncoder encoder = new HpackEncoder();
+        HpackDecoder decoder = new HpackDecoder(4096);
+
+        encodeResponse(encoder, "1");
+        decode(decoder, encoder);
+        Assert.assertEquals(3, decoder.getTable().count());
+
+        encoder.setMaxTableSize(0);
+        encoder.setMaxTableSize(1024);
+        encodeResponse(encoder, "1");
+        Assert.assertEquals(0x20, encoder.getBytes()[0] & 0xff); // size 0 evicts all entries
+        Assert.assertEquals("[:status=200, date=Sun, 18 Oct 2026 16:13:55 GMT, server=wizzardo-http/0.1, content-type=text/html;charset=UTF-8, content-length=1]",
+                decode(decoder, encoder).toString());
+        Assert.assertEquals(1024, decoder.getTable().getMaxSize());
+        Assert.assertEquals(3, decoder.getTable().count());
+    }
+
+    @Test
+    public void test_sensitive_and_big_headers_are_not_indexed() {
+        HpackEncoder encoder = new HpackEncoder();
+        HpackDecoder decoder = new HpackDecoder(4096);
+        StringBuilder big = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            big.append((char) ('a' + i % 26));
+        }
+
+        encoder.reset()
+                .encode("set-cookie", "session=secret")
+                .encode("x-big", big.toString());
+        Assert.assertEquals(0x10, encoder.getBytes()[0] & 0xf0); // never indexed
+        Assert.assertEquals("[set-cookie=session=secret, x-big=" + big + "]", decode(decoder, encoder).toString());
+        Assert.assertEquals(0, encoder.getTable().count());
+        Assert.assertEquals(0, decoder.getTable().count());
+    }
+
+    @Test
+    public void test_long_strings() {
+        HpackDecoder decoder = new HpackDecoder(4096);
+        for (int length : new int[]{126, 127, 128, 160, 161, 500, 5000}) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                sb.append((char) ('a' + i % 26));
+            }
+            String s = sb.toString();
+
+            for (boolean compress : new boolean[]{true, false}) {
+                byte[] bytes = new byte[length + 7];
+                bytes[0] = 0x00; // literal without indexing, new name
+                bytes[1] = 0x01;
+                bytes[2] = 'x';
+                int end = HpackReader.encode(s, compress, bytes, 3 << 3) >> 3;
+                if (compress)
+                    Assert.assertTrue((bytes[3] & 0x80) != 0);
+
+                List<String> values = new ArrayList<>();
+                decoder.decode(bytes, 0, end, (name, value) -> values.add(value));
+                Assert.assertEquals(s, values.get(0));
+            }
+        }
+    }
+
+    @Test
+    public void test_uncompressible_string() {
+        byte[] bytes = new byte[16];
+        String s = "{}|~^";
+        int end = HpackReader.encode(s, true, bytes, 0) >> 3;
+        Assert.assertEquals(0, bytes[0] & 0x80); // huffman would be longer
+        Assert.assertEquals(1 + s.length(), end);
+    }
+}
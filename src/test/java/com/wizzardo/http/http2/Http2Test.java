@@ -0,0 +1,456 @@
+package com.wizzardo.http.http2;
+
+import com.wizzardo.http.HttpServer;
+import com.wizzardo.http.ServerTest;
+import com.wizzardo.http.http2.hpack.HpackDecoder;
+import com.wizzardo.http.http2.hpack.HpackEncoder;
+import com.wizzardo.http.metrics.RouteMetrics;
+import com.wizzardo.http.response.Status;
+import com.wizzardo.tools.io.IOTools;
+import com.wizzardo.tools.misc.Unchecked;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public class Http2Test extends ServerTest {
+
+    @Override
+    protected void configure(HttpServer server) {
+        server.setHttp2(!name().equals("test_disabled"));
+        if (name().startsWith("test_executor"))
+            server.setExecutor(Executors.newCachedThreadPool());
+        if (name().equals("test_executor_metrics"))
+            server.setMetrics(true);
+    }
+
+    @Test
+    public void test_prior_knowledge() throws IOException {
+        handler = (request, response) -> response.setBody(request.method() + " " + request.path() + " " + request.param("q") + " " + request.protocol());
+
+        try (Client client = new Client()) {
+            client.preface();
+            client.request(1, "GET", "/foo?q=1");
+            client.request(3, "GET", "/bar?q=2");
+
+            Assert.assertEquals("GET /foo 1 HTTP/2.0", client.response(1).body);
+            Response response = client.response(3);
+            Assert.assertEquals("200", response.headers.get(":status"));
+            Assert.assertEquals("19", response.headers.get("content-length"));
+            Assert.assertEquals("GET /bar 2 HTTP/2.0", response.body);
+        }
+    }
+
+    @Test
+    public void test_executor() throws IOException {
+        handler = (request, response) -> {
+            if (request.path().toString().equals("/slow"))
+                Unchecked.run(() -> Thread.sleep(500));
+            return response.setBody(request.path().toString());
+        };
+
+        try (Client client = new Client()) {
+            client.preface();
+            client.request(1, "GET", "/slow");
+            client.request(3, "GET", "/fast");
+
+            // slow handler of the first stream doesn't hold the second one
+            ReceivedFrame headers = client.next(Frame.Type.HEADERS);
+            Assert.assertEquals(3, headers.streamId);
+            client.decoder.decode(headers.payload, 0, headers.payload.length, (name, value) -> {
+            });
+            Assert.assertEquals("/slow", client.response(1).body);
+        }
+    }
+
+    @Test
+    public void test_executor_metrics() throws IOException {
+        handler = (request, response) -> {
+            boolean slow = request.path().toString().equals("/slow");
+            // the same as HttpServer.measure does before calling a handler
+            request.setRoute(server.getMetrics().route(slow ? "slow" : "fast"));
+            if (!slow)
+                return response.setStatus(Status._404).setBody("fast");
+
+            Unchecked.run(() -> Thread.sleep(300));
+            return response.setStatus(Status._201).setBody("slow");
+        };
+
+        try (Client client = new Client()) {
+            client.preface();
+            client.request(1, "GET", "/slow");
+            client.request(3, "GET", "/fast");
+
+            Assert.assertEquals("fast", client.response(3).body);
+            Assert.assertEquals("slow", client.response(1).body);
+        }
+
+        // streams of one connection are served at the same time, each one is recorded to its own route
+        Map<String, RouteMetrics.Snapshot> routes = new LinkedHashMap<>();
+        for (RouteMetrics.Snapshot route : server.getMetrics().snapshot().routes) {
+            routes.put(route.name, route);
+        }
+        Assert.assertEquals(1, routes.get("slow").statuses[1]);
+        Assert.assertEquals(4, routes.get("slow").responseBytes);
+        Assert.assertEquals(0, routes.get("slow").statuses[3]);
+        Assert.assertEquals(1, routes.get("fast").statuses[3]);
+        Assert.assertEquals(0, routes.get("fast").statuses[1]);
+    }
+
+    @Test
+    public void test_upgrade() throws IOException {
+        handler = (request, response) -> response.setBody("upgraded " + request.protocol());
+
+        try (Client client = new Client()) {
+            client.out.write(("GET / HTTP/1.1\r\nHost: localhost\r\nConnection: Upgrade, HTTP2-Settings\r\n" +
+                    "Upgrade: h2c\r\nHTTP2-Settings: AAMAAABk\r\n\r\n").getBytes());
+
+            StringBuilder sb = new StringBuilder();
+            while (!sb.toString().endsWith("\r\n\r\n")) {
+                sb.append((char) client.in.read());
+            }
+            Assert.assertTrue(sb.toString(), sb.toString().startsWith("HTTP/1.1 101 Switching Protocols\r\n"));
+            Assert.assertTrue(sb.toString(), sb.toString().toLowerCase().contains("upgrade: h2c\r\n"));
+
+            client.preface();
+            Assert.assertEquals("upgraded HTTP/2.0", client.response(1).body);
+
+            client.request(3, "GET", "/");
+            Assert.assertEquals("upgraded HTTP/2.0", client.response(3).body);
+        }
+    }
+
+    @Test
+    public void test_post() throws IOException {
+        handler = (request, response) -> response.setBody(request.getBody().bytes());
+
+        byte[] data = new byte[100 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + i % 26);
+        }
+
+        try (Client client = new Client()) {
+            client.preface();
+            client.headers(1, false, "POST", "/");
+            int window = Settings.DEFAULT_WINDOW_SIZE;
+            for (int i = 0; i < data.length; i += 16384) {
+                int length = Math.min(16384, data.length - i);
+                while (window < length) {
+                    ReceivedFrame frame = client.next(Frame.Type.WINDOW_UPDATE);
+                    if (frame.streamId == 1)
+                        window += Frame.readInt(frame.payload, 0);
+                }
+                window -= length;
+                client.frame(Frame.Type.DATA, i + length == data.length ? Frame.FLAG_END_STREAM : 0, 1, Arrays.copyOfRange(data, i, i + length));
+            }
+            Assert.assertEquals(new String(data), client.response(1).body);
+        }
+    }
+
+    @Test
+    public void test_flow_control() throws IOException {
+        byte[] data = new byte[3000];
+        Arrays.fill(data, (byte) 'x');
+        handler = (request, response) -> response.setBody(data);
+
+        try (Client client = new Client()) {
+            client.preface(new Settings().setInitialWindowSize(1000));
+            client.request(1, "GET", "/");
+
+            ReceivedFrame headers = client.next(Frame.Type.HEADERS);
+            Assert.assertEquals(0, headers.flags & Frame.FLAG_END_STREAM);
+            ReceivedFrame frame = client.next(Frame.Type.DATA);
+            Assert.assertEquals(1000, frame.payload.length);
+            Assert.assertEquals(0, frame.flags & Frame.FLAG_END_STREAM);
+
+            client.ping();
+            Assert.assertEquals(Frame.Type.PING, client.next().type); // nothing was sent while window is exhausted
+
+            client.windowUpdate(1, 2000);
+
+            frame = client.next(Frame.Type.DATA);
+            Assert.assertEquals(2000, frame.payload.length);
+            Assert.assertEquals(Frame.FLAG_END_STREAM, frame.flags & Frame.FLAG_END_STREAM);
+        }
+    }
+
+    @Test
+    public void test_push() throws IOException {
+        handler = (request, response) -> {
+            if (request.path().toString().equals("/"))
+                return response.push("/app.js").push("/app.css").setBody("page");
+            return response.setBody("content of " + request.path());
+        };
+
+        try (Client client = new Client()) {
+            client.preface();
+            client.request(1, "GET", "/");
+
+            Map<Integer, Response> responses = new LinkedHashMap<>();
+            responses.put(1, new Response());
+            int finished = 0;
+            boolean parentFinished = false;
+            while (finished < 3) {
+                ReceivedFrame frame = client.next();
+                if (frame.type == Frame.Type.PUSH_PROMISE) {
+                    Assert.assertEquals(1, frame.streamId);
+                    Response promised = new Response();
+                    client.decoder.decode(frame.payload, 4, frame.payload.length - 4, promised.headers::put);
+                    responses.put(Frame.readInt(frame.payload, 0), promised);
+                } else if (frame.type == Frame.Type.HEADERS) {
+                    client.decoder.decode(frame.payload, 0, frame.payload.length, responses.get(frame.streamId).headers::put);
+                } else if (frame.type == Frame.Type.DATA) {
+                    Assert.assertTrue("pushed data must not go before data of the page", frame.streamId == 1 || parentFinished);
+                    responses.get(frame.streamId).body += new String(frame.payload);
+                }
+                if (frame.streamId != 0 && (frame.flags & Frame.FLAG_END_STREAM) != 0) {
+                    finished++;
+                    parentFinished |= frame.streamId == 1;
+                }
+            }
+
+            Assert.assertEquals(Arrays.asList(1, 2, 4), new ArrayList<>(responses.keySet()));
+            Assert.assertEquals("page", responses.get(1).body);
+            Assert.assertEquals("/app.js", responses.get(2).headers.get(":path"));
+            Assert.assertEquals("GET", responses.get(2).headers.get(":method"));
+            Assert.assertEquals("localhost", responses.get(2).headers.get(":authority"));
+            Assert.assertEquals("200", responses.get(2).headers.get(":status"));
+            Assert.assertEquals("content of /app.js", responses.get(2).body);
+            Assert.assertEquals("/app.css", responses.get(4).headers.get(":path"));
+            Assert.assertEquals("content of /app.css", responses.get(4).body);
+        }
+    }
+
+    @Test
+    public void test_push_disabled() throws IOException {
+        handler = (request, response) -> response.push("/app.js").setBody("page");
+
+        try (Client client = new Client()) {
+            client.preface(new Settings().setEnablePush(false));
+            client.request(1, "GET", "/");
+            Assert.assertEquals("page", client.response(1).body);
+
+            client.ping();
+            Assert.assertEquals(Frame.Type.PING, client.next(Frame.Type.PING).type);
+            client.request(3, "GET", "/");
+            ReceivedFrame frame = client.next();
+            Assert.assertEquals(Frame.Type.HEADERS, frame.type);
+            Assert.assertEquals(3, frame.streamId);
+        }
+    }
+
+    @Test
+    public void test_priority() throws IOException {
+        byte[] data = new byte[40000];
+        Arrays.fill(data, (byte) 'x');
+        handler = (request, response) -> response.setBody(data);
+
+        try (Client client = new Client()) {
+            client.preface(new Settings().setInitialWindowSize(0));
+            client.request(1, "/", 0, 192);
+            client.request(3, "/", 0, 64);
+            client.request(5, "/", 1, 256);
+            for (int i = 0; i < 3; i++) {
+                client.next(Frame.Type.HEADERS);
+            }
+
+            client.frame(Frame.Type.SETTINGS, 0, 0, new Settings().setInitialWindowSize(100000).toBytes());
+            List<String> frames = new ArrayList<>();
+            while (frames.size() < 5) {
+                ReceivedFrame frame = client.next(Frame.Type.DATA);
+                frames.add(frame.streamId + ":" + frame.payload.length);
+            }
+            // weights 192 and 64 share the connection window 3:1, stream 5 waits for stream 1 it depends on
+            Assert.assertEquals(Arrays.asList("1:16384", "3:16384", "1:16384", "1:7232", "5:9151"), frames);
+        }
+    }
+
+    @Test
+    public void test_ping_and_settings() throws IOException {
+        handler = (request, response) -> response.setBody("ok");
+
+        try (Client client = new Client()) {
+            client.out.write(Http2Listener.PREFACE);
+            client.frame(Frame.Type.SETTINGS, 0, 0, new byte[0]);
+
+            ReceivedFrame frame = client.next();
+            Assert.assertEquals(Frame.Type.SETTINGS, frame.type);
+            Assert.assertEquals(0, frame.flags);
+
+            frame = client.next();
+            Assert.assertEquals(Frame.Type.SETTINGS, frame.type);
+            Assert.assertEquals(Frame.FLAG_ACK, frame.flags);
+
+            byte[] payload = {1, 2, 3, 4, 5, 6, 7, 8};
+            client.frame(Frame.Type.PING, 0, 0, payload);
+            frame = client.next();
+            Assert.assertEquals(Frame.Type.PING, frame.type);
+            Assert.assertEquals(Frame.FLAG_ACK, frame.flags);
+            Assert.assertArrayEquals(payload, frame.payload);
+        }
+    }
+
+    @Test
+    public void test_protocol_error() throws IOException {
+        handler = (request, response) -> response.setBody("ok");
+
+        try (Client client = new Client()) {
+            client.preface();
+            client.request(2, "GET", "/"); // even stream ids are reserved for server
+
+            ReceivedFrame frame = client.next(Frame.Type.GOAWAY);
+            Assert.assertEquals(ErrorCode.PROTOCOL_ERROR.value, Frame.readInt(frame.payload, 4));
+            Assert.assertEquals(-1, client.in.read());
+        }
+    }
+
+    @Test
+    public void test_disabled() throws IOException {
+        handler = (request, response) -> response.setBody("ok");
+
+        try (Client client = new Client()) {
+            client.out.write(Http2Listener.PREFACE);
+            String response = new String(IOTools.bytes(client.in));
+            Assert.assertTrue(response, response.startsWith("HTTP/1.1 505 HTTP Version Not Supported\r\n"));
+        }
+    }
+
+    static class Response {
+        Map<String, String> headers = new LinkedHashMap<>();
+        String body = "";
+    }
+
+    class Client implements AutoCloseable {
+        final Socket socket;
+        final DataInputStream in;
+        final OutputStream out;
+        final HpackDecoder decoder = new HpackDecoder(4096);
+
+        Client() throws IOException {
+            socket = new Socket("localhost", port);
+            socket.setSoTimeout(5000);
+            in = new DataInputStream(socket.getInputStream());
+            out = socket.getOutputStream();
+        }
+
+        void preface() throws IOException {
+            preface(new Settings());
+        }
+
+        void preface(Settings settings) throws IOException {
+            out.write(Http2Listener.PREFACE);
+            frame(Frame.Type.SETTINGS, 0, 0, settings.toBytes());
+        }
+
+        void request(int streamId, String method, String path) throws IOException {
+            headers(streamId, true, method, path);
+        }
+
+        void headers(int streamId, boolean endStream, String method, String path) throws IOException {
+            HpackEncoder encoder = new HpackEncoder()
+                    .encode(":method", method)
+                    .encode(":scheme", "http")
+                    .encode(":path", path)
+                    .encode(":authority", "localhost");
+            frame(Frame.Type.HEADERS, Frame.FLAG_END_HEADERS | (endStream ? Frame.FLAG_END_STREAM : 0), streamId, Arrays.copyOf(encoder.getBytes(), encoder.length()));
+        }
+
+        void request(int streamId, String path, int dependency, int weight) throws IOException {
+            HpackEncoder encoder = new HpackEncoder()
+                    .encode(":method", "GET")
+                    .encode(":scheme", "http")
+                    .encode(":path", path)
+                    .encode(":authority", "localhost");
+            byte[] payload = new byte[5 + encoder.length()];
+            Frame.writeInt(payload, 0, dependency);
+            payload[4] = (byte) (weight - 1);
+            System.arraycopy(encoder.getBytes(), 0, payload, 5, encoder.length());
+            frame(Frame.Type.HEADERS, Frame.FLAG_END_HEADERS | Frame.FLAG_END_STREAM | Frame.FLAG_PRIORITY, streamId, payload);
+        }
+
+        void windowUpdate(int streamId, int increment) throws IOException {
+            byte[] payload = new byte[4];
+            Frame.writeInt(payload, 0, increment);
+            frame(Frame.Type.WINDOW_UPDATE, 0, streamId, payload);
+        }
+
+        void ping() throws IOException {
+            frame(Frame.Type.PING, 0, 0, new byte[8]);
+        }
+
+        void frame(Frame.Type type, int flags, int streamId, byte[] payload) throws IOException {
+            byte[] bytes = new byte[Frame.HEADER_LENGTH + payload.length];
+            Frame.writeHeader(bytes, 0, payload.length, type, flags, streamId);
+            System.arraycopy(payload, 0, bytes, Frame.HEADER_LENGTH, payload.length);
+            out.write(bytes);
+        }
+
+        ReceivedFrame next() throws IOException {
+            byte[] header = new byte[Frame.HEADER_LENGTH];
+            in.readFully(header);
+            ReceivedFrame frame = new ReceivedFrame();
+            frame.type = Frame.Type.valueOf(Frame.readType(header, 0));
+            frame.flags = Frame.readFlags(header, 0);
+            frame.streamId = Frame.readStreamId(header, 0);
+            frame.payload = new byte[Frame.readLength(header, 0)];
+            in.readFully(frame.payload);
+            return frame;
+        }
+
+        ReceivedFrame next(Frame.Type type) throws IOException {
+            ReceivedFrame frame;
+            do {
+                frame = next();
+            } while (frame.type != type);
+            return frame;
+        }
+
+        Response response(int streamId) throws IOException {
+            Response response = new Response();
+            while (true) {
+                ReceivedFrame frame = next();
+                if (frame.streamId != streamId)
+                    continue;
+
+                if (frame.type == Frame.Type.HEADERS)
+                    decoder.decode(frame.payload, 0, frame.payload.length, response.headers::put);
+                else if (frame.type == Frame.Type.DATA) {
+                    response.body += new String(frame.payload);
+                    if (frame.payload.length > 0) {
+                        windowUpdate(0, frame.payload.length);
+                        windowUpdate(streamId, frame.payload.length);
+                    }
+                }
+                else if (frame.type == Frame.Type.RST_STREAM)
+                    throw new IllegalStateException("stream " + streamId + " was reset");
+
+                if ((frame.flags & Frame.FLAG_END_STREAM) != 0)
+                    return response;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    static class ReceivedFrame {
+        Frame.Type type;
+        int flags;
+        int streamId;
+        byte[] payload;
+    }
+}
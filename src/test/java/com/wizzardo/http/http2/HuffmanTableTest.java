@@ -0,0 +1,91 @@
+package com.wizzardo.http.http2;
+
+import com.wizzardo.http.http2.hpack.StaticHttp2HuffmanTable;
+import com.wizzardo.http.http2.huffman.HuffmanTable;
+import com.wizzardo.http.http2.huffman.HuffmanTree;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public class HuffmanTableTest {
+
+    HuffmanTree tree = StaticHttp2HuffmanTable.huffman;
+    HuffmanTable table = StaticHttp2HuffmanTable.huffmanTable;
+
+    byte[] encodeWithTree(char[] chars) {
+        byte[] bytes = new byte[chars.length * 4 + 1];
+        int bits = tree.encode(bytes, 0, chars);
+        int k = 8 - (bits & 7);
+        if (k != 8)
+            bytes[bits >> 3] |= (1 << k) - 1;
+        return Arrays.copyOf(bytes, (bits + 7) >> 3);
+    }
+
+    byte[] encodeWithTable(char[] chars) {
+        byte[] bytes = new byte[chars.length * 4 + 1];
+        int length = table.encode(chars, 0, chars.length, bytes, 0);
+        Assert.assertEquals(length, table.encodedLength(chars, 0, chars.length));
+        return Arrays.copyOf(bytes, length);
+    }
+
+    String decode(byte[] bytes) {
+        byte[] chars = new byte[table.maxDecodedLength(bytes.length)];
+        int length = table.decode(bytes, 0, bytes.length, chars, 0);
+        return length == -1 ? null : new String(chars, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    public void test_every_symbol() {
+        for (char c = 0; c < 256; c++) {
+            char[] chars = {c, c, 'a', c};
+            byte[] bytes = encodeWithTree(chars);
+            Assert.assertArrayEquals("symbol " + (int) c, bytes, encodeWithTable(chars));
+            Assert.assertEquals("symbol " + (int) c, new String(chars), decode(bytes));
+        }
+    }
+
+    @Test
+    public void test_random_strings() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            char[] chars = new char[random.nextInt(200)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = (char) (i % 2 == 0 ? random.nextInt(256) : 32 + random.nextInt(95));
+            }
+            byte[] bytes = encodeWithTable(chars);
+            Assert.assertArrayEquals(encodeWithTree(chars), bytes);
+
+            StringBuilder sb = new StringBuilder();
+            tree.decode(bytes, 0, bytes.length, ch -> {
+                if (ch < 256)
+                    sb.append(ch);
+                return true;
+            });
+            Assert.assertEquals(new String(chars), sb.toString());
+            Assert.assertEquals(sb.toString(), decode(bytes));
+        }
+    }
+
+    @Test
+    public void test_rfc_example() {
+        // RFC 7541, C.4.1
+        byte[] bytes = {(byte) 0xf1, (byte) 0xe3, (byte) 0xc2, (byte) 0xe5, (byte) 0xf2, 0x3a, 0x6b, (byte) 0xa0, (byte) 0xab, (byte) 0x90, (byte) 0xf4, (byte) 0xff};
+        Assert.assertEquals("www.example.com", decode(bytes));
+        Assert.assertArrayEquals(bytes, encodeWithTable("www.example.com".toCharArray()));
+    }
+
+    @Test
+    public void test_malformed() {
+        Assert.assertEquals("", decode(new byte[0]));
+        Assert.assertEquals("a", decode(new byte[]{0x1f})); // 00011 + padding 111
+        Assert.assertNull(decode(new byte[]{0x18})); // padding with zeros
+        Assert.assertNull(decode(new byte[]{0x1f, (byte) 0xff})); // padding is longer than 7 bits
+        Assert.assertNull(decode(new byte[]{(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff})); // EOS
+    }
+}
@@ -0,0 +1,214 @@
+package com.wizzardo.http.request;
+
+import com.wizzardo.http.HttpServer;
+import com.wizzardo.http.MultipartHandler;
+import com.wizzardo.http.ServerTest;
+import com.wizzardo.http.response.Response;
+import com.wizzardo.tools.io.IOTools;
+import com.wizzardo.tools.security.MD5;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public class ChunkedRequestTest extends ServerTest {
+
+    @Override
+    protected void configure(HttpServer server) {
+        if (name().startsWith("test_streaming"))
+            server.setStreamingBody(true);
+    }
+
+    @Test
+    public void test_decoder() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChunkedDecoder decoder = new ChunkedDecoder(-1);
+        byte[] bytes = ("5;name=value\r\nhello\r\n" + "6\r\n world\r\n" + "0\r\nTrailer: foo\r\n\r\n" + "GET").getBytes();
+
+        int consumed = 0;
+        for (int i = 0; i < bytes.length && !decoder.isComplete(); i++) {
+            consumed += decoder.decode(bytes, i, 1, out::write);
+        }
+
+        Assert.assertTrue(decoder.isComplete());
+        Assert.assertEquals(bytes.length - 3, consumed);
+        Assert.assertEquals(11, decoder.decoded());
+        Assert.assertEquals("hello world", out.toString());
+
+        out.reset();
+        decoder = new ChunkedDecoder(-1);
+        Assert.assertEquals(bytes.length - 3, decoder.decode(bytes, 0, bytes.length, out::write));
+        Assert.assertEquals("hello world", out.toString());
+    }
+
+    @Test
+    public void test_data() throws IOException {
+        handler = (request, response) -> response.setBody(request.isChunked() + " " + (request.data() == null ? null : new String(request.data())));
+
+        String response = send(chunked("/", "hello", " world") + get("/"));
+        Assert.assertTrue(response, response.contains("\r\n\r\ntrue hello world"));
+        Assert.assertTrue(response, response.endsWith("\r\n\r\nfalse null"));
+    }
+
+    @Test
+    public void test_params() throws IOException {
+        handler = (request, response) -> response.setBody(String.valueOf(request.param("key")));
+
+        String response = send(chunked("/", "key=va", "lue") + get("/"));
+        Assert.assertTrue(response, response.contains("\r\n\r\nvalue"));
+        Assert.assertTrue(response, response.endsWith("\r\n\r\nnull"));
+    }
+
+    @Test
+    public void test_limit() throws IOException {
+        server.setPostBodyLimit(16);
+        handler = (request, response) -> response.setBody("ok");
+
+        String response = send(chunked("/", "0123456789", "0123456789"));
+        Assert.assertTrue(response, response.startsWith("HTTP/1.1 413"));
+    }
+
+    @Test
+    public void test_streaming_consumer() throws IOException {
+        String[] chunks = new String[100];
+        MD5 expected = MD5.create();
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = "chunk-" + i + "-0123456789abcdef0123456789abcdef";
+            expected.update(chunks[i].getBytes());
+        }
+
+        handler = (request, response) -> {
+            if (request.method() == Request.Method.GET)
+                return response.setBody("ok");
+
+            MD5 md5 = MD5.create();
+            request.onBody(new StreamingRequestBody.Consumer() {
+                @Override
+                public void onData(byte[] bytes, int offset, int length) {
+                    md5.update(bytes, offset, length);
+                }
+
+                @Override
+                public void onEnd(Request request, Response response) {
+                    response.setBody(md5.asString());
+                }
+            });
+            return response;
+        };
+
+        String response = send(chunked("/", chunks) + get("/"));
+        Assert.assertTrue(response, response.contains("\r\n\r\n" + expected.asString()));
+        Assert.assertTrue(response, response.endsWith("\r\n\r\nok"));
+    }
+
+    @Test
+    public void test_streaming_input_stream() throws IOException {
+        handler = (request, response) -> response.setBody(request.getBody() == null ? "get" : new String(IOTools.bytes(request.getInputStream())));
+
+        String response = send(chunked("/", "hello", " ", "world") + get("/"));
+        Assert.assertTrue(response, response.contains("\r\n\r\nhello world"));
+        Assert.assertTrue(response, response.endsWith("\r\n\r\nget"));
+    }
+
+    @Test
+    public void test_multipart() throws IOException {
+        handler = (request, response) -> {
+            if (request.method() == Request.Method.GET)
+                return response.setBody("get");
+
+            return new MultipartHandler((req, res) -> res.setBody(req.param("foo") + " " + req.entry("data").asString() + " " + req.entry("data").fileName()))
+                    .handle(request, response);
+        };
+
+        String response = send(multipart("/", split(MULTIPART, 7)) + get("/"));
+        Assert.assertTrue(response, response.contains("\r\n\r\nbar some data data.txt"));
+        Assert.assertTrue(response, response.endsWith("\r\n\r\nget"));
+    }
+
+    @Test
+    public void test_multipart_limit() throws IOException {
+        handler = new MultipartHandler((request, response) -> response.setBody("ok"), 16);
+
+        String response = send(multipart("/", split(MULTIPART, 7)));
+        Assert.assertTrue(response, response.startsWith("HTTP/1.1 413"));
+    }
+
+    @Test
+    public void test_multipart_input_stream() throws IOException {
+        handler = (request, response) -> response.setBody(request.isMultipart() ? new String(IOTools.bytes(request.getInputStream())) : "get");
+
+        String response = send(multipart("/", split(MULTIPART, 7)) + get("/"));
+        Assert.assertTrue(response, response.contains("\r\n\r\n" + MULTIPART));
+        Assert.assertTrue(response, response.endsWith("\r\n\r\nget"));
+    }
+
+    @Test
+    public void test_streaming_limit() throws IOException {
+        server.setPostBodyLimit(16);
+        handler = (request, response) -> response.setBody(request.getBody() == null ? "get" : new String(request.data()));
+
+        String response = send(chunked("/", "0123456789", "0123456789") + get("/"));
+        Assert.assertFalse(response, response.startsWith("HTTP/1.1 200"));
+        Assert.assertFalse(response, response.endsWith("get"));
+    }
+
+    static final String MULTIPART = "--XYZ\r\n" +
+            "Content-Disposition: form-data; name=\"foo\"\r\n\r\n" +
+            "bar\r\n" +
+            "--XYZ\r\n" +
+            "Content-Disposition: form-data; name=\"data\"; filename=\"data.txt\"\r\n" +
+            "Content-Type: application/octet-stream\r\n\r\n" +
+            "some data\r\n" +
+            "--XYZ--\r\n";
+
+    protected String[] split(String s, int length) {
+        String[] parts = new String[(s.length() + length - 1) / length];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = s.substring(i * length, Math.min(s.length(), (i + 1) * length));
+        }
+        return parts;
+    }
+
+    protected String chunked(String path, String... chunks) {
+        return chunked(path, "application/x-www-form-urlencoded", chunks);
+    }
+
+    protected String multipart(String path, String... chunks) {
+        return chunked(path, "multipart/form-data; boundary=XYZ", chunks);
+    }
+
+    protected String chunked(String path, String contentType, String[] chunks) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("POST ").append(path).append(" HTTP/1.1\r\n")
+                .append("Host: localhost:").append(port).append("\r\n")
+                .append("Content-Type: ").append(contentType).append("\r\n")
+                .append("Transfer-Encoding: chunked\r\n\r\n");
+        for (String chunk : chunks) {
+            sb.append(Integer.toHexString(chunk.length())).append("\r\n").append(chunk).append("\r\n");
+        }
+        return sb.append("0\r\n\r\n").toString();
+    }
+
+    protected String get(String path) {
+        return "GET " + path + " HTTP/1.1\r\nHost: localhost:" + port + "\r\nConnection: close\r\n\r\n";
+    }
+
+    protected String send(String request) throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(request.getBytes());
+            out.flush();
+
+            InputStream in = socket.getInputStream();
+            return new String(IOTools.bytes(in));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.wizzardo.http.request;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public class HeadersTableTest extends HeadersTest {
+
+    @Override
+    protected RequestReader createReader() {
+        return new RequestReader(new HeadersTable());
+    }
+
+    @Test
+    public void test_lazy_values() {
+        HeadersTable table = new HeadersTable();
+        RequestReader reader = new RequestReader(table);
+        reader.read(("GET / HTTP/1.1\r\n" +
+                "Host: example.com\r\n" +
+                "connection: keep-alive\r\n" +
+                "X-Values: 1\r\n" +
+                "X-Values: 2\r\n" +
+                "\r\n").getBytes());
+
+        Assert.assertTrue(reader.isComplete());
+        Assert.assertEquals(4, table.size());
+        Assert.assertNull(table.values[0]);
+        Assert.assertEquals("example.com", table.value("Host"));
+        Assert.assertEquals("example.com", table.values[0]);
+        Assert.assertSame(table.value("Host"), table.value("host"));
+        Assert.assertEquals("Keep-Alive", table.value("Connection"));
+        Assert.assertNull(table.value("Content-Length"));
+        Assert.assertEquals(Arrays.asList("1", "2"), table.get("X-Values").getValues());
+        Assert.assertTrue(table.containsKey("x-values"));
+    }
+
+    @Test
+    public void test_reuse() {
+        HeadersTable table = new HeadersTable();
+        RequestReader reader = new RequestReader(table);
+        reader.read("GET / HTTP/1.1\r\nHost: example.com\r\nX-Foo: foo\r\n\r\n".getBytes());
+        Request request = reader.fillRequest(new Request(null));
+        reader.clear();
+
+        Assert.assertEquals("foo", request.header("X-Foo"));
+
+        reader.read("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes());
+        Assert.assertTrue(reader.isComplete());
+        Assert.assertEquals(1, table.size());
+        Assert.assertEquals("localhost", table.value("Host"));
+        Assert.assertNull(table.value("X-Foo"));
+    }
+
+    @Test
+    public void test_modifications() {
+        HeadersTable table = new HeadersTable();
+        RequestReader reader = new RequestReader(table);
+        reader.read("GET / HTTP/1.1\r\nHost: example.com\r\n\r\n".getBytes());
+
+        table.put("X-Foo", new com.wizzardo.http.MultiValue("foo"));
+        Assert.assertEquals(2, table.size());
+        Assert.assertEquals("foo", table.value("X-Foo"));
+        Assert.assertEquals("example.com", table.value("Host"));
+        Assert.assertEquals("{Host=example.com, X-Foo=foo}", table.toString());
+    }
+}
@@ -100,8 +100,12 @@ public class HeadersTest {
         testAll(src, checker);
     }
 
+    protected RequestReader createReader() {
+        return new RequestReader();
+    }
+
     public void test1(String src, Checker checker) {
-        RequestReader reader = new RequestReader();
+        RequestReader reader = createReader();
         int end = 0;
         Assert.assertEquals(src.indexOf("\r\n\r\n") + 4, end = reader.read(src.getBytes()));
         checker.check(reader, end);
@@ -124,24 +128,24 @@ public class HeadersTest {
     }
 
     public void test2(String src, Checker checker) {
-        RequestReader reader = new RequestReader();
+        RequestReader reader = createReader();
         checker.check(reader, readStepByStep(src, reader, 1));
     }
 
     public void test3(String src, Checker checker) {
-        RequestReader reader = new RequestReader();
+        RequestReader reader = createReader();
         checker.check(reader, readStepByStep(src, reader, 2));
     }
 
     public void test4(String src, Checker checker) {
-        RequestReader reader = new RequestReader();
+        RequestReader reader = createReader();
         checker.check(reader, readStepByStep(src, reader, 3));
     }
 
     public void testAll(String src, Checker checker) {
         byte[] bytes = src.getBytes();
         for (int j = 1; j < bytes.length; j++) {
-            RequestReader reader = new RequestReader();
+            RequestReader reader = createReader();
             checker.check(reader, readStepByStep(src, reader, j));
         }
     }
@@ -246,7 +250,7 @@ public class HeadersTest {
         String data = "GET    /http/    HTTP/1.1 \r\n" +
                 "Host:   example.com\r\n\r\ndata";
 
-        RequestReader reader = new RequestReader();
+        RequestReader reader = createReader();
         reader.read(data.getBytes());
 
         Assert.assertEquals(true, reader.isComplete());
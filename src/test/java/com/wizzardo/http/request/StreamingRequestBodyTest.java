@@ -0,0 +1,136 @@
+package com.wizzardo.http.request;
+
+import com.wizzardo.http.HttpServer;
+import com.wizzardo.http.ServerTest;
+import com.wizzardo.http.response.Response;
+import com.wizzardo.tools.io.IOTools;
+import com.wizzardo.tools.security.MD5;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Random;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public class StreamingRequestBodyTest extends ServerTest {
+
+    @Override
+    protected void configure(HttpServer server) {
+        server.setStreamingBody(true);
+        server.setBodySpillThreshold(16 * 1024);
+    }
+
+    protected byte[] data(int length) {
+        byte[] data = new byte[length];
+        new Random().nextBytes(data);
+        return data;
+    }
+
+    @Test
+    public void test_data() throws IOException {
+        handler = (request, response) -> {
+            Assert.assertTrue(request.getBody() instanceof StreamingRequestBody);
+            return response.setBody(new String(request.data()));
+        };
+
+        Assert.assertEquals("some data", makeRequest("/")
+                .data("some data".getBytes(), "just some data")
+                .post().asString());
+
+        byte[] data = data(1024 * 1024);
+        handler = (request, response) -> {
+            byte[] bytes = request.data();
+            Assert.assertTrue(((StreamingRequestBody) request.getBody()).isSpilled());
+            return response.setBody(MD5.create().update(bytes).asString());
+        };
+
+        Assert.assertEquals(MD5.create().update(data).asString(), makeRequest("/")
+                .data(data, "just some data")
+                .post().asString());
+    }
+
+    @Test
+    public void test_partial_body() throws IOException, InterruptedException {
+        handler = (request, response) -> response.setBody(new String(request.data()));
+
+        try (Socket socket = new Socket("localhost", port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write("POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 10\r\n\r\n01234".getBytes());
+            out.flush();
+            Thread.sleep(200);
+            out.write("56789".getBytes());
+            out.flush();
+
+            InputStream in = socket.getInputStream();
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            byte[] b = new byte[1024];
+            int r;
+            while (!response.toString().endsWith("\r\n\r\n0123456789") && (r = in.read(b)) != -1) {
+                response.write(b, 0, r);
+            }
+            Assert.assertTrue(response.toString(), response.toString().startsWith("HTTP/1.1 200 OK\r\n"));
+        }
+    }
+
+    @Test
+    public void test_params() throws IOException {
+        handler = (request, response) -> response.setBody(request.param("key"));
+
+        Assert.assertEquals("value", makeRequest("/").addParameter("key", "value").post().asString());
+    }
+
+    @Test
+    public void test_input_stream() throws IOException {
+        byte[] data = data(1024 * 1024);
+        handler = (request, response) -> response.setBody(MD5.create().update(IOTools.bytes(request.getInputStream())).asString());
+
+        Assert.assertEquals(MD5.create().update(data).asString(), makeRequest("/")
+                .data(data, "just some data")
+                .post().asString());
+    }
+
+    @Test
+    public void test_consumer() throws IOException {
+        byte[] data = data(1024 * 1024);
+        handler = (request, response) -> {
+            MD5 md5 = MD5.create();
+            request.onBody(new StreamingRequestBody.Consumer() {
+                @Override
+                public void onData(byte[] bytes, int offset, int length) {
+                    md5.update(bytes, offset, length);
+                }
+
+                @Override
+                public void onEnd(Request request, Response response) {
+                    Assert.assertNull(((StreamingRequestBody) request.getBody()).buffer);
+                    response.setBody(md5.asString());
+                }
+            });
+            return response;
+        };
+
+        Assert.assertEquals(MD5.create().update(data).asString(), makeRequest("/")
+                .data(data, "just some data")
+                .post().asString());
+
+        Assert.assertEquals(MD5.create().update("some data".getBytes()).asString(), makeRequest("/")
+                .data("some data".getBytes(), "just some data")
+                .post().asString());
+    }
+
+    @Test
+    public void test_ignored_body() throws IOException {
+        handler = (request, response) -> response.setBody("ok");
+
+        Assert.assertEquals("ok", makeRequest("/")
+                .data(data(1024 * 1024), "just some data")
+                .post().asString());
+        Assert.assertEquals("ok", makeRequest("/").get().asString());
+    }
+}
@@ -0,0 +1,158 @@
+package com.wizzardo.http.response;
+
+import com.wizzardo.http.ServerTest;
+import com.wizzardo.http.request.Header;
+import com.wizzardo.tools.io.IOTools;
+import com.wizzardo.tools.security.MD5;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by wizzardo on 18.10.26.
+ */
+public class ResponseStreamTest extends ServerTest {
+
+    @Test
+    public void test_chunked() throws IOException {
+        handler = (request, response) -> {
+            AtomicInteger counter = new AtomicInteger();
+            response.stream(request.connection(), stream -> {
+                int i = counter.getAndIncrement();
+                if (i == 0)
+                    stream.write("[");
+                else if (i <= 1000)
+                    stream.write((i > 1 ? "," : "") + "{\"id\":" + i + "}");
+                else {
+                    stream.write("]");
+                    stream.end();
+                }
+            });
+            return response;
+        };
+
+        com.wizzardo.tools.http.Response response = makeRequest("/").get();
+        Assert.assertEquals("chunked", response.header(Header.KEY_TRANSFER_ENCODING.value).toLowerCase());
+
+        StringBuilder expected = new StringBuilder("[");
+        for (int i = 1; i <= 1000; i++) {
+            expected.append(i > 1 ? "," : "").append("{\"id\":").append(i).append("}");
+        }
+        Assert.assertEquals(expected.append("]").toString(), response.asString());
+    }
+
+    @Test
+    public void test_back_pressure() throws IOException {
+        byte[] data = new byte[1024 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        int parts = 32;
+        MD5 expected = MD5.create();
+        for (int i = 0; i < parts; i++) {
+            expected.update(data);
+        }
+
+        AtomicInteger calls = new AtomicInteger();
+        handler = (request, response) -> {
+            response.stream(request.connection(), stream -> {
+                if (calls.incrementAndGet() <= parts)
+                    stream.write(data);
+                else
+                    stream.end();
+            });
+            return response;
+        };
+
+        InputStream in = makeRequest("/").get().asStream();
+        MD5 md5 = MD5.create();
+        byte[] b = new byte[16 * 1024];
+        int r;
+        while ((r = in.read(b)) != -1) {
+            md5.update(b, 0, r);
+        }
+        Assert.assertEquals(expected.asString(), md5.asString());
+        Assert.assertEquals(parts + 1, calls.get());
+    }
+
+    @Test
+    public void test_content_length() throws IOException {
+        handler = (request, response) -> {
+            response.setHeader(Header.KEY_CONTENT_LENGTH, 11);
+            AtomicInteger counter = new AtomicInteger();
+            ResponseStream s = response.stream(request.connection(), stream -> {
+                if (counter.getAndIncrement() == 0)
+                    stream.write("hello ");
+                else {
+                    stream.write("world");
+                    stream.end();
+                }
+            });
+            Assert.assertFalse(s.isChunked());
+            return response;
+        };
+
+        com.wizzardo.tools.http.Response response = makeRequest("/").get();
+        Assert.assertNull(response.header(Header.KEY_TRANSFER_ENCODING.value));
+        Assert.assertEquals("hello world", response.asString());
+    }
+
+    @Test
+    public void test_async_producer() throws IOException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            handler = (request, response) -> {
+                AtomicInteger counter = new AtomicInteger();
+                response.stream(request.connection(), stream -> executor.submit(() -> {
+                    int i = counter.getAndIncrement();
+                    if (i < 10)
+                        stream.write(String.valueOf(i));
+                    else
+                        stream.end();
+                }));
+                return response;
+            };
+
+            Assert.assertEquals("0123456789", makeRequest("/").get().asString());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_pipelining() throws IOException {
+        handler = (request, response) -> {
+            if (request.path().toString().equals("/ok"))
+                return response.setBody("ok");
+
+            AtomicInteger counter = new AtomicInteger();
+            response.stream(request.connection(), stream -> {
+                if (counter.getAndIncrement() < 3)
+                    stream.write("abc");
+                else
+                    stream.end();
+            });
+            return response;
+        };
+
+        String request = "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                + "GET /ok HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(request.getBytes());
+            out.flush();
+
+            String response = new String(IOTools.bytes(socket.getInputStream()));
+            Assert.assertTrue(response, response.contains("\r\n\r\n3\r\nabc\r\n3\r\nabc\r\n3\r\nabc\r\n0\r\n\r\nHTTP/1.1 200 OK\r\n"));
+            Assert.assertTrue(response, response.endsWith("\r\n\r\nok"));
+        }
+    }
+}
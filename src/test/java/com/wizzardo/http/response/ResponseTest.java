@@ -1,9 +1,12 @@
 package com.wizzardo.http.response;
 
+import com.wizzardo.epoll.readable.ReadableData;
 import com.wizzardo.http.request.Header;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+
 public class ResponseTest {
 
     @Test
@@ -14,4 +17,76 @@ public class ResponseTest {
 
         Assert.assertEquals("status: 200\nConnection: Close\r\n", new Response().header(Header.KEY_CONNECTION, Header.VALUE_CLOSE).toString());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void test_template() {
+        ResponseTemplate template = new ResponseTemplate()
+                .header(Header.KEY_SERVER, "test")
+                .header(Header.KEY_CONTENT_TYPE, Header.VALUE_APPLICATION_JSON);
+        Assert.assertEquals("Server: test\r\nContent-Type: application/json\r\n", new String(template.getBytes()));
+        Assert.assertEquals(2, template.size());
+
+        ResponseTemplate merged = template.merge(new ResponseTemplate()
+                .header(Header.KEY_CONTENT_TYPE, Header.VALUE_HTML_UTF8)
+                .header(Header.KEY_CONNECTION, Header.VALUE_KEEP_ALIVE));
+        Assert.assertEquals("Server: test\r\nContent-Type: text/html;charset=UTF-8\r\nConnection: Keep-Alive\r\n", new String(merged.getBytes()));
+        Assert.assertEquals("Server: test\r\nContent-Type: application/json\r\n", new String(template.getBytes()));
+
+        Response response = new Response().template(template);
+        response.appendHeader(Header.KEY_DATE, "today");
+        response.setBody("{}");
+        Assert.assertEquals("HTTP/1.1 200 OK\r\nServer: test\r\nContent-Type: application/json\r\nDate: today\r\nContent-Length: 2\r\n\r\n{}", read(response));
+        Assert.assertEquals("application/json", response.header(Header.KEY_CONTENT_TYPE));
+        Assert.assertTrue(response.containsHeader(Header.KEY_SERVER));
+        Assert.assertEquals("[Server, Content-Type, Date, Content-Length]", response.headerNames().toString());
+
+        StringBuilder sb = new StringBuilder();
+        response.forEachHeader((name, value) -> sb.append(name).append('=').append(value).append(';'));
+        Assert.assertEquals("Server=test;Content-Type=application/json;Date=today;Content-Length=2;", sb.toString());
+    }
+
+    @Test
+    public void test_template_override() {
+        ResponseTemplate template = new ResponseTemplate()
+                .header(Header.KEY_SERVER, "test")
+                .header(Header.KEY_CONTENT_TYPE, Header.VALUE_APPLICATION_JSON);
+
+        Response response = new Response().template(template);
+        response.appendHeader(Header.KEY_DATE, "today");
+        response.setHeader(Header.KEY_CONTENT_TYPE, Header.VALUE_TEXT_PLAIN);
+        Assert.assertNull(response.template());
+        Assert.assertEquals("HTTP/1.1 200 OK\r\nServer: test\r\nContent-Type: text/plain\r\nDate: today\r\n\r\n", read(response));
+
+        response.reset();
+        Assert.assertEquals("HTTP/1.1 200 OK\r\n\r\n", read(response.template(template).template(null)));
+    }
+
+    @Test
+    public void test_template_append() {
+        ResponseTemplate template = new ResponseTemplate()
+                .header(Header.KEY_SERVER, "test")
+                .header(Header.KEY_CONTENT_TYPE, Header.VALUE_APPLICATION_JSON);
+
+        Response response = new Response().template(template);
+        response.appendHeader(Header.KEY_CONTENT_TYPE, Header.VALUE_TEXT_PLAIN);
+        Assert.assertNull(response.template());
+        Assert.assertEquals("HTTP/1.1 200 OK\r\nServer: test\r\nContent-Type: text/plain\r\n\r\n", read(response));
+
+        response = new Response().template(template);
+        response.appendHeader(Header.KEY_DATE, "today");
+        response.appendHeader(Header.KV_CONTENT_TYPE_HTML_UTF8);
+        Assert.assertNull(response.template());
+        Assert.assertEquals("HTTP/1.1 200 OK\r\nServer: test\r\nDate: today\r\nContent-Type: text/html;charset=UTF-8\r\n\r\n", read(response));
+
+        response = new Response().template(template);
+        response.appendHeader(Header.KV_CONNECTION_CLOSE);
+        Assert.assertSame(template, response.template());
+    }
+
+    static String read(Response response) {
+        ReadableData data = response.toReadableBytes();
+        ByteBuffer buffer = ByteBuffer.allocate((int) data.length());
+        data.read(buffer);
+        return new String(buffer.array(), 0, buffer.position());
+    }
+}